@@ -11,7 +11,8 @@ CREATE TABLE Employee (
     address VARCHAR(255) NOT NULL,
     phone VARCHAR(20) NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version INT NOT NULL DEFAULT 0
 );
 
 -- Create Department table
@@ -22,6 +23,7 @@ CREATE TABLE Department (
     director_id INT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version INT NOT NULL DEFAULT 0,
     FOREIGN KEY (director_id) REFERENCES Employee(employee_id)
 );
 
@@ -54,6 +56,7 @@ CREATE TABLE Ward (
     supervisor_id INT NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version INT NOT NULL DEFAULT 0,
     PRIMARY KEY (department_code, ward_number),
     FOREIGN KEY (department_code) REFERENCES Department(department_code),
     FOREIGN KEY (supervisor_id) REFERENCES Nurse(employee_id)
@@ -67,7 +70,8 @@ CREATE TABLE Patient (
     address VARCHAR(255) NOT NULL,
     phone VARCHAR(20) NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version INT NOT NULL DEFAULT 0
 );
 
 -- Create Hospitalization table (for patient stays)
@@ -83,7 +87,89 @@ CREATE TABLE Hospitalization (
     discharge_date DATE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version INT NOT NULL DEFAULT 0,
     FOREIGN KEY (patient_id) REFERENCES Patient(patient_id),
     FOREIGN KEY (department_code, ward_number) REFERENCES Ward(department_code, ward_number),
-    FOREIGN KEY (doctor_id) REFERENCES Doctor(employee_id)
-);
\ No newline at end of file
+    FOREIGN KEY (doctor_id) REFERENCES Doctor(employee_id),
+    INDEX idx_hospitalization_discharge (discharge_date)
+);
+
+-- Discharged stays moved out of Hospitalization by the archival job; read-only history
+CREATE TABLE HospitalizationArchive (
+    hospitalization_id INT PRIMARY KEY,
+    patient_id INT NOT NULL,
+    department_code VARCHAR(10) NOT NULL,
+    ward_number INT NOT NULL,
+    bed_number INT NOT NULL,
+    diagnosis VARCHAR(255) NOT NULL,
+    doctor_id INT NOT NULL,
+    admission_date DATE NOT NULL,
+    discharge_date DATE NOT NULL,
+    created_at TIMESTAMP NULL,
+    updated_at TIMESTAMP NULL,
+    version INT NOT NULL DEFAULT 0,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_archive_patient (patient_id),
+    INDEX idx_archive_doctor (doctor_id),
+    INDEX idx_archive_admission (admission_date)
+);
+
+-- Every stay, current and archived, for history queries and reports
+CREATE VIEW HospitalizationHistory AS
+    SELECT hospitalization_id, patient_id, department_code, ward_number, bed_number, diagnosis, doctor_id,
+           admission_date, discharge_date, created_at, updated_at, version
+    FROM Hospitalization
+    UNION ALL
+    SELECT hospitalization_id, patient_id, department_code, ward_number, bed_number, diagnosis, doctor_id,
+           admission_date, discharge_date, created_at, updated_at, version
+    FROM HospitalizationArchive;
+
+-- Append-only hospitalization lifecycle log (admit, transfer, doctor change, discharge)
+CREATE TABLE HospitalizationEvent (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    hospitalization_id INT NOT NULL,
+    event_type VARCHAR(16) NOT NULL,
+    event_date DATE NOT NULL,
+    patient_id INT NOT NULL,
+    department_code VARCHAR(10) NOT NULL,
+    ward_number INT NOT NULL,
+    bed_number INT NOT NULL,
+    diagnosis VARCHAR(255) NOT NULL,
+    doctor_id INT NOT NULL,
+    admission_date DATE NOT NULL,
+    discharge_date DATE,
+    recorded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_event_hospitalization (hospitalization_id, event_id)
+);
+
+-- Snapshots of the state rebuilt from the lifecycle log, to shorten replay
+CREATE TABLE HospitalizationSnapshot (
+    last_event_id BIGINT PRIMARY KEY,
+    stay_count INT NOT NULL,
+    data LONGBLOB NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Keys of rows changed by DAO writes, polled by other client instances to refresh their caches
+CREATE TABLE ChangeLog (
+    change_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    instance_id BIGINT NOT NULL,
+    entity VARCHAR(16) NOT NULL,
+    entity_key VARCHAR(32),
+    operation VARCHAR(8) NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_changelog_changed_at (changed_at)
+);
+
+-- Next free ID of each sequence shared by the shards of a multi-site deployment; clients reserve blocks of IDs
+CREATE TABLE IdSequence (
+    name VARCHAR(32) PRIMARY KEY,
+    next_id INT NOT NULL
+);
+
+-- Keys of admissions written from a client's offline journal, so that none is written twice
+CREATE TABLE JournalReplay (
+    journal_key VARCHAR(36) PRIMARY KEY,
+    hospitalization_id INT NOT NULL,
+    written_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -1,5 +1,8 @@
 package main.java.hospital;
 
+import main.java.hospital.dao.AdmissionJournal;
+import main.java.hospital.dao.ChangeLogPoller;
+import main.java.hospital.dao.HospitalizationArchiver;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -34,6 +37,15 @@ public class Main extends Application {
             primaryStage.setScene(scene);
             primaryStage.show();
 
+            // Pick up writes from other workstations sharing the database
+            ChangeLogPoller.getInstance().start();
+
+            // Move long-discharged stays out of the hot table, on the one client with db.archive.enabled
+            HospitalizationArchiver.getInstance().start();
+
+            // Write admissions journaled during an outage, including those of an earlier run
+            AdmissionJournal.getInstance().start();
+
             logger.info("Application started successfully");
         } catch (Exception e) {
             logger.error("Failed to start application", e);
@@ -45,6 +57,9 @@ public class Main extends Application {
     public void stop() {
         // Clean up resources when the application is closing
         logger.info("Application stopping");
+        ChangeLogPoller.getInstance().stop();
+        HospitalizationArchiver.getInstance().stop();
+        AdmissionJournal.getInstance().stop();
     }
 
     /**
@@ -0,0 +1,65 @@
+package main.java.hospital.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of column values to dense int codes, so columns can be stored as
+ * int arrays and group-by results indexed by code. Not thread-safe; callers synchronize.
+ *
+ * @param <K> The value type
+ */
+class Dictionary<K> {
+    static final int ABSENT = -1;
+
+    private final Map<K, Integer> codes = new HashMap<>();
+    private final List<K> values = new ArrayList<>();
+
+    /**
+     * Gets the code of a value, assigning the next code if it is new.
+     *
+     * @param value The value
+     * @return Its code
+     */
+    int encode(K value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Gets the code of a value without assigning one.
+     *
+     * @param value The value
+     * @return Its code, or {@link #ABSENT} if the value has never been seen
+     */
+    int lookup(K value) {
+        Integer code = codes.get(value);
+        return code != null ? code : ABSENT;
+    }
+
+    /**
+     * Gets the value for a code.
+     *
+     * @param code The code
+     * @return The value
+     */
+    K decode(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * Gets the number of distinct values seen.
+     *
+     * @return The dictionary size
+     */
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,10 @@
+package main.java.hospital.analytics;
+
+/**
+ * Dimensions the hospitalization analytics can group by.
+ */
+public enum GroupBy {
+    DEPARTMENT,
+    DIAGNOSIS,
+    DOCTOR
+}
@@ -0,0 +1,629 @@
+package main.java.hospital.analytics;
+
+import main.java.hospital.dao.HospitalizationDAO;
+import main.java.hospital.dao.HospitalizationListener;
+import main.java.hospital.model.Hospitalization;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory columnar copy of the Hospitalization table for ad-hoc analytics.
+ * Each column is a primitive int array: dates as epoch days, and department, diagnosis
+ * and doctor as dictionary codes. Scans split the rows across the fork/join common pool
+ * and aggregate per-group counts and length-of-stay sums in primitive arrays.
+ * After the initial load the store follows {@link HospitalizationDAO} writes.
+ */
+public class HospitalizationColumnStore implements HospitalizationListener {
+    private static final Logger logger = LogManager.getLogger(HospitalizationColumnStore.class);
+
+    // Discharge day of a current stay; sorts after every real date
+    static final int NO_DISCHARGE = HospitalizationRows.NO_DISCHARGE;
+
+    // Rows per fork/join leaf; small enough to balance, large enough to amortize the split
+    private static final int LEAF_ROWS = 1 << 14;
+
+    private static HospitalizationColumnStore instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Dictionary<String> departments = new Dictionary<>();
+    private final Dictionary<String> diagnoses = new Dictionary<>();
+    private final Dictionary<Integer> doctors = new Dictionary<>();
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+
+    private int[] ids = new int[0];
+    private int[] patients = new int[0];
+    private int[] admission = new int[0];
+    private int[] discharge = new int[0];
+    private int[] department = new int[0];
+    private int[] ward = new int[0];
+    private int[] bed = new int[0];
+    private int[] diagnosis = new int[0];
+    private int[] doctor = new int[0];
+    private int size;
+
+    // Writes seen while the initial load runs, applied once it finishes
+    private List<Runnable> pendingWrites;
+
+    /**
+     * Gets the shared store, loading it from the database and subscribing it to
+     * hospitalization writes on first use.
+     *
+     * @return The shared store
+     * @throws SQLException If the initial load fails
+     */
+    public static synchronized HospitalizationColumnStore getInstance() throws SQLException {
+        if (instance == null) {
+            HospitalizationColumnStore store = new HospitalizationColumnStore();
+            store.loadAndFollow();
+            instance = store;
+        }
+        return instance;
+    }
+
+    /**
+     * Loads every hospitalization, then keeps the store current from DAO writes.
+     * Writes committed during the load are queued and applied afterwards, so none is lost.
+     *
+     * @throws SQLException If the load fails
+     */
+    void loadAndFollow() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        HospitalizationDAO.addListener(this);
+
+        long start = System.nanoTime();
+        try {
+            HospitalizationRows.loadAll((id, patientId, departmentCode, wardNumber, bedNumber, diagnosisText,
+                                         doctorId, admitted, dischargeDay) -> {
+                lock.writeLock().lock();
+                try {
+                    upsert(id, patientId, departmentCode, wardNumber, bedNumber, diagnosisText, doctorId,
+                            admitted, dischargeDay);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } catch (SQLException e) {
+            HospitalizationDAO.removeListener(this);
+            logger.error("Error loading hospitalization analytics store", e);
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Runnable write : pendingWrites) {
+                write.run();
+            }
+            pendingWrites = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Loaded {} hospitalizations into the analytics store in {} ms",
+                size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void hospitalizationSaved(Hospitalization h) {
+        HospitalizationRows.accept(h, (id, patientId, departmentCode, wardNumber, bedNumber, diagnosisText,
+                                       doctorId, admitted, dischargeDay) ->
+                write(() -> upsert(id, patientId, departmentCode, wardNumber, bedNumber, diagnosisText, doctorId,
+                        admitted, dischargeDay)));
+    }
+
+    @Override
+    public void hospitalizationDischarged(int hospitalizationId, LocalDate dischargeDate) {
+        int dischargeDay = (int) dischargeDate.toEpochDay();
+        write(() -> {
+            Integer row = rowById.get(hospitalizationId);
+            if (row != null) {
+                discharge[row] = dischargeDay;
+            }
+        });
+    }
+
+    @Override
+    public void hospitalizationDeleted(int hospitalizationId) {
+        write(() -> {
+            Integer row = rowById.remove(hospitalizationId);
+            if (row == null) {
+                return;
+            }
+            // Move the last row into the gap so the columns stay dense
+            int last = --size;
+            if (row != last) {
+                copyRow(last, row);
+                rowById.put(ids[row], row);
+            }
+        });
+    }
+
+    /**
+     * Gets the number of hospitalizations in the store.
+     *
+     * @return The row count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the hospitalizations matching a filter.
+     *
+     * @param filter The filter
+     * @return The number of matching stays
+     */
+    public long count(HospitalizationFilter filter) {
+        lock.readLock().lock();
+        try {
+            Aggregate result = scan(null, filter);
+            return result.count[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the hospitalizations occupying a bed on the night of a date.
+     *
+     * @param date   The date
+     * @param filter Further conditions, or null
+     * @return The census for the date
+     */
+    public long census(LocalDate date, HospitalizationFilter filter) {
+        lock.readLock().lock();
+        try {
+            RowPredicate predicate = compile(filter);
+            if (predicate == null) {
+                return 0;
+            }
+            predicate.presentOn = (int) date.toEpochDay();
+            return scan(null, predicate).count[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the average length of stay, in days, of the discharged stays matching a filter.
+     *
+     * @param filter The filter
+     * @return The average, or NaN if no discharged stay matches
+     */
+    public double averageLengthOfStay(HospitalizationFilter filter) {
+        lock.readLock().lock();
+        try {
+            Aggregate result = scan(null, filter);
+            return result.averageStay(0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the hospitalizations matching a filter per group.
+     *
+     * @param groupBy The grouping dimension
+     * @param filter  The filter
+     * @return Count per group value, largest first; groups without rows are omitted
+     */
+    public Map<String, Long> countBy(GroupBy groupBy, HospitalizationFilter filter) {
+        lock.readLock().lock();
+        try {
+            Aggregate result = scan(groupBy, filter);
+            Integer[] order = new Integer[result.count.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(result.count[b], result.count[a]));
+
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int group : order) {
+                if (result.count[group] > 0) {
+                    counts.put(groupLabel(groupBy, group), result.count[group]);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the average length of stay of the discharged stays matching a filter per group.
+     *
+     * @param groupBy The grouping dimension
+     * @param filter  The filter
+     * @return Average stay in days per group value; groups without discharged stays are omitted
+     */
+    public Map<String, Double> averageLengthOfStayBy(GroupBy groupBy, HospitalizationFilter filter) {
+        lock.readLock().lock();
+        try {
+            Aggregate result = scan(groupBy, filter);
+            Map<String, Double> averages = new LinkedHashMap<>();
+            for (int group = 0; group < result.count.length; group++) {
+                if (result.stayCount[group] > 0) {
+                    averages.put(groupLabel(groupBy, group), result.averageStay(group));
+                }
+            }
+            return averages;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Collects the length of stay of every discharged stay matching a filter, per group.
+     *
+     * @param groupBy The grouping dimension, or null for a single group keyed "all"
+     * @param filter  The filter, or null to match every row
+     * @return Lengths in days per group value; groups without discharged stays are omitted
+     */
+    Map<String, int[]> lengthsOfStay(GroupBy groupBy, HospitalizationFilter filter) {
+        lock.readLock().lock();
+        try {
+            Map<String, int[]> lengths = new LinkedHashMap<>();
+            RowPredicate predicate = compile(filter);
+            if (predicate == null) {
+                return lengths;
+            }
+            int groups = groupBy == null ? 1 : dictionaryFor(groupBy).size();
+            int[] groupColumn = groupBy == null ? null : columnFor(groupBy);
+
+            // First pass sizes each group's array, second pass fills them
+            int[] counts = new int[groups];
+            for (int i = 0; i < size; i++) {
+                if (discharge[i] != NO_DISCHARGE && predicate.matches(this, i)) {
+                    counts[groupColumn == null ? 0 : groupColumn[i]]++;
+                }
+            }
+            int[][] byGroup = new int[groups][];
+            for (int group = 0; group < groups; group++) {
+                byGroup[group] = new int[counts[group]];
+            }
+            int[] filled = new int[groups];
+            for (int i = 0; i < size; i++) {
+                if (discharge[i] != NO_DISCHARGE && predicate.matches(this, i)) {
+                    int group = groupColumn == null ? 0 : groupColumn[i];
+                    byGroup[group][filled[group]++] = discharge[i] - admission[i];
+                }
+            }
+
+            for (int group = 0; group < groups; group++) {
+                if (counts[group] > 0) {
+                    lengths.put(groupBy == null ? "all" : groupLabel(groupBy, group), byGroup[group]);
+                }
+            }
+            return lengths;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the stays that occupy a bed on at least one night of a date range.
+     *
+     * @param fromDay The first day, as an epoch day
+     * @param toDay   The last day, as an epoch day
+     * @return The overlapping stays
+     */
+    StayIntervals intervals(int fromDay, int toDay) {
+        lock.readLock().lock();
+        try {
+            StayIntervals result = new StayIntervals(departments.size());
+            for (int code = 0; code < departments.size(); code++) {
+                result.departmentCodes[code] = departments.decode(code);
+            }
+            for (int i = 0; i < size; i++) {
+                if (admission[i] <= toDay && discharge[i] > fromDay && admission[i] < discharge[i]) {
+                    result.add(ids[i], patients[i], admission[i], discharge[i], department[i], ward[i], bed[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a filtered, grouped scan over all rows. Must be called with the read lock held.
+     *
+     * @param groupBy The grouping dimension, or null for a single group
+     * @param filter  The filter, or null to match every row
+     * @return The per-group totals
+     */
+    private Aggregate scan(GroupBy groupBy, HospitalizationFilter filter) {
+        return scan(groupBy, compile(filter));
+    }
+
+    private Aggregate scan(GroupBy groupBy, RowPredicate predicate) {
+        int groups = groupBy == null ? 1 : dictionaryFor(groupBy).size();
+        if (predicate == null) {
+            return new Aggregate(groups);
+        }
+        int[] groupColumn = groupBy == null ? null : columnFor(groupBy);
+        return new ScanTask(predicate, groupColumn, groups, 0, size).invoke();
+    }
+
+    /**
+     * Resolves a filter against the dictionaries.
+     *
+     * @param filter The filter, or null
+     * @return The compiled predicate, or null if the filter can match no row
+     */
+    private RowPredicate compile(HospitalizationFilter filter) {
+        RowPredicate predicate = new RowPredicate();
+        if (filter == null) {
+            return predicate;
+        }
+        if (filter.getDepartmentCode() != null) {
+            predicate.department = departments.lookup(filter.getDepartmentCode());
+            if (predicate.department == Dictionary.ABSENT) {
+                return null;
+            }
+        }
+        if (filter.getDiagnosis() != null) {
+            predicate.diagnosis = diagnoses.lookup(filter.getDiagnosis());
+            if (predicate.diagnosis == Dictionary.ABSENT) {
+                return null;
+            }
+        }
+        if (filter.getDoctorId() != null) {
+            predicate.doctor = doctors.lookup(filter.getDoctorId());
+            if (predicate.doctor == Dictionary.ABSENT) {
+                return null;
+            }
+        }
+        if (filter.getAdmittedFrom() != null) {
+            predicate.admittedFrom = (int) filter.getAdmittedFrom().toEpochDay();
+        }
+        if (filter.getAdmittedTo() != null) {
+            predicate.admittedTo = (int) filter.getAdmittedTo().toEpochDay();
+        }
+        if (filter.getPresentOn() != null) {
+            predicate.presentOn = (int) filter.getPresentOn().toEpochDay();
+        }
+        if (filter.getDischarged() != null) {
+            predicate.discharged = filter.getDischarged() ? 1 : 0;
+        }
+        return predicate;
+    }
+
+    private Dictionary<?> dictionaryFor(GroupBy groupBy) {
+        switch (groupBy) {
+            case DEPARTMENT:
+                return departments;
+            case DIAGNOSIS:
+                return diagnoses;
+            default:
+                return doctors;
+        }
+    }
+
+    private int[] columnFor(GroupBy groupBy) {
+        switch (groupBy) {
+            case DEPARTMENT:
+                return department;
+            case DIAGNOSIS:
+                return diagnosis;
+            default:
+                return doctor;
+        }
+    }
+
+    private String groupLabel(GroupBy groupBy, int code) {
+        return String.valueOf(dictionaryFor(groupBy).decode(code));
+    }
+
+    /**
+     * Applies a DAO write now, or queues it while the initial load is running.
+     *
+     * @param write The change to the columns
+     */
+    private void write(Runnable write) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            } else {
+                write.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void upsert(int id, int patientId, String departmentCode, int wardNumber, int bedNumber,
+                        String diagnosisText, int doctorId, int admitted, int dischargeDay) {
+        Integer existing = rowById.get(id);
+        int row;
+        if (existing != null) {
+            row = existing;
+        } else {
+            if (size == ids.length) {
+                grow();
+            }
+            row = size++;
+            rowById.put(id, row);
+        }
+        ids[row] = id;
+        patients[row] = patientId;
+        admission[row] = admitted;
+        discharge[row] = dischargeDay;
+        department[row] = departments.encode(departmentCode);
+        ward[row] = wardNumber;
+        bed[row] = bedNumber;
+        diagnosis[row] = diagnoses.encode(diagnosisText);
+        doctor[row] = doctors.encode(doctorId);
+    }
+
+    private void copyRow(int from, int to) {
+        ids[to] = ids[from];
+        patients[to] = patients[from];
+        admission[to] = admission[from];
+        discharge[to] = discharge[from];
+        department[to] = department[from];
+        ward[to] = ward[from];
+        bed[to] = bed[from];
+        diagnosis[to] = diagnosis[from];
+        doctor[to] = doctor[from];
+    }
+
+    private void grow() {
+        int capacity = Math.max(1024, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        patients = Arrays.copyOf(patients, capacity);
+        admission = Arrays.copyOf(admission, capacity);
+        discharge = Arrays.copyOf(discharge, capacity);
+        department = Arrays.copyOf(department, capacity);
+        ward = Arrays.copyOf(ward, capacity);
+        bed = Arrays.copyOf(bed, capacity);
+        diagnosis = Arrays.copyOf(diagnosis, capacity);
+        doctor = Arrays.copyOf(doctor, capacity);
+    }
+
+    /**
+     * A filter resolved to column codes. {@code -1} (or an open bound) means "any".
+     */
+    private static final class RowPredicate {
+        int department = -1;
+        int diagnosis = -1;
+        int doctor = -1;
+        int admittedFrom = Integer.MIN_VALUE;
+        int admittedTo = Integer.MAX_VALUE;
+        int presentOn = Integer.MIN_VALUE;
+        int discharged = -1;
+
+        boolean matches(HospitalizationColumnStore store, int i) {
+            int admitted = store.admission[i];
+            int dischargeDay = store.discharge[i];
+            return admitted >= admittedFrom && admitted <= admittedTo
+                    && (department < 0 || store.department[i] == department)
+                    && (diagnosis < 0 || store.diagnosis[i] == diagnosis)
+                    && (doctor < 0 || store.doctor[i] == doctor)
+                    && (presentOn == Integer.MIN_VALUE || (admitted <= presentOn && dischargeDay > presentOn))
+                    && (discharged < 0 || (dischargeDay != NO_DISCHARGE) == (discharged == 1));
+        }
+    }
+
+    /**
+     * Per-group totals of a scan.
+     */
+    private static final class Aggregate {
+        final long[] count;
+        final long[] stayCount;
+        final long[] stayDays;
+
+        Aggregate(int groups) {
+            count = new long[groups];
+            stayCount = new long[groups];
+            stayDays = new long[groups];
+        }
+
+        Aggregate merge(Aggregate other) {
+            for (int i = 0; i < count.length; i++) {
+                count[i] += other.count[i];
+                stayCount[i] += other.stayCount[i];
+                stayDays[i] += other.stayDays[i];
+            }
+            return this;
+        }
+
+        double averageStay(int group) {
+            return stayCount[group] == 0 ? Double.NaN : (double) stayDays[group] / stayCount[group];
+        }
+    }
+
+    /**
+     * Scans a range of rows, splitting it in half until it is small enough for one leaf.
+     */
+    // ForkJoinTask is Serializable, but scan tasks only live for one query and are never serialized
+    @SuppressWarnings("serial")
+    private final class ScanTask extends RecursiveTask<Aggregate> {
+        private static final long serialVersionUID = 1L;
+        private final RowPredicate predicate;
+        private final int[] groupColumn;
+        private final int groups;
+        private final int from;
+        private final int to;
+
+        ScanTask(RowPredicate predicate, int[] groupColumn, int groups, int from, int to) {
+            this.predicate = predicate;
+            this.groupColumn = groupColumn;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Aggregate compute() {
+            if (to - from <= LEAF_ROWS) {
+                return scanLeaf();
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(predicate, groupColumn, groups, from, mid);
+            left.fork();
+            Aggregate right = new ScanTask(predicate, groupColumn, groups, mid, to).compute();
+            return left.join().merge(right);
+        }
+
+        private Aggregate scanLeaf() {
+            Aggregate result = new Aggregate(groups);
+            // Copy fields to locals so the loop works on registers and plain arrays
+            int[] admissionColumn = admission;
+            int[] dischargeColumn = discharge;
+            int[] departmentColumn = department;
+            int[] diagnosisColumn = diagnosis;
+            int[] doctorColumn = doctor;
+            int wantDepartment = predicate.department;
+            int wantDiagnosis = predicate.diagnosis;
+            int wantDoctor = predicate.doctor;
+            int admittedFrom = predicate.admittedFrom;
+            int admittedTo = predicate.admittedTo;
+            int presentOn = predicate.presentOn;
+            int wantDischarged = predicate.discharged;
+            long[] count = result.count;
+            long[] stayCount = result.stayCount;
+            long[] stayDays = result.stayDays;
+
+            for (int i = from; i < to; i++) {
+                int admitted = admissionColumn[i];
+                int dischargeDay = dischargeColumn[i];
+                if (admitted < admittedFrom || admitted > admittedTo
+                        || (wantDepartment >= 0 && departmentColumn[i] != wantDepartment)
+                        || (wantDiagnosis >= 0 && diagnosisColumn[i] != wantDiagnosis)
+                        || (wantDoctor >= 0 && doctorColumn[i] != wantDoctor)
+                        || (presentOn != Integer.MIN_VALUE && (admitted > presentOn || dischargeDay <= presentOn))
+                        || (wantDischarged >= 0 && (dischargeDay != NO_DISCHARGE) != (wantDischarged == 1))) {
+                    continue;
+                }
+                int group = groupColumn == null ? 0 : groupColumn[i];
+                count[group]++;
+                if (dischargeDay != NO_DISCHARGE) {
+                    stayCount[group]++;
+                    stayDays[group] += dischargeDay - admitted;
+                }
+            }
+            return result;
+        }
+    }
+}
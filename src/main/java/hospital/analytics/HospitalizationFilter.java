@@ -0,0 +1,118 @@
+package main.java.hospital.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * Row filter for hospitalization analytics queries. Conditions are combined with AND;
+ * unset conditions match everything.
+ *
+ * <pre>
+ * store.count(new HospitalizationFilter().department("CAR").presentOn(LocalDate.now()));
+ * </pre>
+ */
+public class HospitalizationFilter {
+    private String departmentCode;
+    private String diagnosis;
+    private Integer doctorId;
+    private LocalDate admittedFrom;
+    private LocalDate admittedTo;
+    private LocalDate presentOn;
+    private Boolean discharged;
+
+    /**
+     * Only stays in a department.
+     *
+     * @param departmentCode The department code
+     * @return This filter
+     */
+    public HospitalizationFilter department(String departmentCode) {
+        this.departmentCode = departmentCode;
+        return this;
+    }
+
+    /**
+     * Only stays with a diagnosis.
+     *
+     * @param diagnosis The diagnosis
+     * @return This filter
+     */
+    public HospitalizationFilter diagnosis(String diagnosis) {
+        this.diagnosis = diagnosis;
+        return this;
+    }
+
+    /**
+     * Only stays under a doctor.
+     *
+     * @param doctorId The doctor's employee ID
+     * @return This filter
+     */
+    public HospitalizationFilter doctor(int doctorId) {
+        this.doctorId = doctorId;
+        return this;
+    }
+
+    /**
+     * Only stays admitted within a date range.
+     *
+     * @param from The first admission date, inclusive, or null for no lower bound
+     * @param to   The last admission date, inclusive, or null for no upper bound
+     * @return This filter
+     */
+    public HospitalizationFilter admittedBetween(LocalDate from, LocalDate to) {
+        this.admittedFrom = from;
+        this.admittedTo = to;
+        return this;
+    }
+
+    /**
+     * Only stays occupying a bed on the night of a date: admitted on or before it and
+     * not discharged by then.
+     *
+     * @param date The date
+     * @return This filter
+     */
+    public HospitalizationFilter presentOn(LocalDate date) {
+        this.presentOn = date;
+        return this;
+    }
+
+    /**
+     * Only discharged stays, or only current stays.
+     *
+     * @param discharged true for discharged stays, false for current stays
+     * @return This filter
+     */
+    public HospitalizationFilter discharged(boolean discharged) {
+        this.discharged = discharged;
+        return this;
+    }
+
+    String getDepartmentCode() {
+        return departmentCode;
+    }
+
+    String getDiagnosis() {
+        return diagnosis;
+    }
+
+    Integer getDoctorId() {
+        return doctorId;
+    }
+
+    LocalDate getAdmittedFrom() {
+        return admittedFrom;
+    }
+
+    LocalDate getAdmittedTo() {
+        return admittedTo;
+    }
+
+    LocalDate getPresentOn() {
+        return presentOn;
+    }
+
+    Boolean getDischarged() {
+        return discharged;
+    }
+}
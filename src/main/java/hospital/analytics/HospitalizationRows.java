@@ -0,0 +1,80 @@
+package main.java.hospital.analytics;
+
+import main.java.hospital.dao.DatabaseConnection;
+import main.java.hospital.model.Hospitalization;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Feeds hospitalization rows to the analytics structures in primitive form, either streamed
+ * from the database or taken from a {@link Hospitalization} written through the DAO.
+ * Dates are epoch days; a current stay's discharge day is {@link #NO_DISCHARGE}.
+ */
+class HospitalizationRows {
+
+    // Discharge day of a current stay; sorts after every real date
+    static final int NO_DISCHARGE = Integer.MAX_VALUE;
+
+    private static final String LOAD_SQL = "SELECT hospitalization_id, patient_id, department_code, " +
+            "ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date FROM HospitalizationHistory";
+
+    /**
+     * Receives one hospitalization row.
+     */
+    interface RowHandler {
+        void row(int id, int patientId, String departmentCode, int wardNumber, int bedNumber,
+                 String diagnosis, int doctorId, int admitted, int dischargeDay);
+    }
+
+    private HospitalizationRows() {
+    }
+
+    /**
+     * Streams every hospitalization from the database (every shard), archived ones included.
+     *
+     * @param handler Receives each row
+     * @throws SQLException If the query fails
+     */
+    static void loadAll(RowHandler handler) throws SQLException {
+        // Shards are read one after the other, so handlers need not be thread-safe
+        DatabaseConnection.getInstance().forEachShard(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(10_000);
+                try (ResultSet rs = stmt.executeQuery(LOAD_SQL)) {
+                    while (rs.next()) {
+                        Date discharged = rs.getDate("discharge_date");
+                        handler.row(rs.getInt("hospitalization_id"), rs.getInt("patient_id"),
+                                rs.getString("department_code"), rs.getInt("ward_number"), rs.getInt("bed_number"),
+                                rs.getString("diagnosis"), rs.getInt("doctor_id"),
+                                (int) rs.getDate("admission_date").toLocalDate().toEpochDay(),
+                                discharged != null ? (int) discharged.toLocalDate().toEpochDay() : NO_DISCHARGE);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Passes a written hospitalization to a handler.
+     *
+     * @param h       The hospitalization; ignored unless it has an ID and admission date
+     * @param handler Receives the row
+     */
+    static void accept(Hospitalization h, RowHandler handler) {
+        if (h.getHospitalizationId() == null || h.getAdmissionDate() == null) {
+            return;
+        }
+        handler.row(h.getHospitalizationId(), valueOf(h.getPatientId()), h.getDepartmentCode(),
+                valueOf(h.getWardNumber()), valueOf(h.getBedNumber()), h.getDiagnosis(), valueOf(h.getDoctorId()),
+                (int) h.getAdmissionDate().toEpochDay(),
+                h.getDischargeDate() != null ? (int) h.getDischargeDate().toEpochDay() : NO_DISCHARGE);
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,182 @@
+package main.java.hospital.analytics;
+
+import main.java.hospital.dao.HospitalizationDAO;
+import main.java.hospital.dao.HospitalizationListener;
+import main.java.hospital.model.Hospitalization;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-department {@link StaySketch}es maintained from the Hospitalization table.
+ * After an initial pass over the table, admissions and discharges written through
+ * {@link HospitalizationDAO} update the sketches incrementally, so dashboards can read
+ * approximate figures at any time without scanning the table.
+ * Each hospitalization is counted once as an admission and once as a completed stay,
+ * however often it is updated. Sketches cannot forget, so deletes and corrections to
+ * already-counted stays are not subtracted.
+ */
+public class HospitalizationSketches implements HospitalizationListener {
+    private static final Logger logger = LogManager.getLogger(HospitalizationSketches.class);
+
+    private static HospitalizationSketches instance;
+
+    private final Map<String, StaySketch> byDepartment = new HashMap<>();
+    private final BitSet admitted = new BitSet();
+    private final BitSet completed = new BitSet();
+    // Current stays, to compute the length of stay when the discharge arrives
+    private final Map<Integer, OpenStay> openStays = new HashMap<>();
+
+    // Writes seen while the initial load runs, applied once it finishes
+    private List<Runnable> pendingWrites;
+
+    private static final class OpenStay {
+        final StaySketch sketch;
+        final int admitted;
+
+        OpenStay(StaySketch sketch, int admitted) {
+            this.sketch = sketch;
+            this.admitted = admitted;
+        }
+    }
+
+    /**
+     * Gets the shared sketches, building them from the database and subscribing them to
+     * hospitalization writes on first use.
+     *
+     * @return The shared sketches
+     * @throws SQLException If the initial load fails
+     */
+    public static synchronized HospitalizationSketches getInstance() throws SQLException {
+        if (instance == null) {
+            HospitalizationSketches sketches = new HospitalizationSketches();
+            sketches.loadAndFollow();
+            instance = sketches;
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the sketches from every hospitalization, then follows DAO writes.
+     *
+     * @throws SQLException If the load fails
+     */
+    void loadAndFollow() throws SQLException {
+        synchronized (this) {
+            pendingWrites = new ArrayList<>();
+        }
+        HospitalizationDAO.addListener(this);
+
+        long start = System.nanoTime();
+        try {
+            HospitalizationRows.loadAll(this::apply);
+        } catch (SQLException e) {
+            HospitalizationDAO.removeListener(this);
+            logger.error("Error building hospitalization sketches", e);
+            throw e;
+        }
+
+        synchronized (this) {
+            for (Runnable write : pendingWrites) {
+                write.run();
+            }
+            pendingWrites = null;
+        }
+        logger.info("Built hospitalization sketches for {} departments in {} ms",
+                byDepartment.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void hospitalizationSaved(Hospitalization h) {
+        HospitalizationRows.accept(h, (id, patientId, departmentCode, wardNumber, bedNumber, diagnosis,
+                                       doctorId, admittedDay, dischargeDay) ->
+                write(() -> apply(id, patientId, departmentCode, wardNumber, bedNumber, diagnosis, doctorId,
+                        admittedDay, dischargeDay)));
+    }
+
+    @Override
+    public void hospitalizationDischarged(int hospitalizationId, LocalDate dischargeDate) {
+        int dischargeDay = (int) dischargeDate.toEpochDay();
+        write(() -> {
+            OpenStay stay = openStays.remove(hospitalizationId);
+            if (stay != null && !completed.get(hospitalizationId)) {
+                completed.set(hospitalizationId);
+                stay.sketch.addLengthOfStay(dischargeDay - stay.admitted);
+            }
+        });
+    }
+
+    @Override
+    public void hospitalizationDeleted(int hospitalizationId) {
+        write(() -> openStays.remove(hospitalizationId));
+    }
+
+    /**
+     * Gets a copy of one department's sketch.
+     *
+     * @param departmentCode The department code
+     * @return The department's sketch, empty if it has no hospitalizations
+     */
+    public synchronized StaySketch forDepartment(String departmentCode) {
+        StaySketch sketch = byDepartment.get(departmentCode);
+        return sketch != null ? sketch.copy() : new StaySketch();
+    }
+
+    /**
+     * Gets copies of every department's sketch.
+     *
+     * @return Sketches keyed by department code, in code order
+     */
+    public synchronized Map<String, StaySketch> byDepartment() {
+        Map<String, StaySketch> copies = new TreeMap<>();
+        byDepartment.forEach((code, sketch) -> copies.put(code, sketch.copy()));
+        return copies;
+    }
+
+    /**
+     * Gets the hospital-wide sketch, merged from the department sketches.
+     *
+     * @return The merged sketch
+     */
+    public synchronized StaySketch overall() {
+        StaySketch overall = new StaySketch();
+        for (StaySketch sketch : byDepartment.values()) {
+            overall.merge(sketch);
+        }
+        return overall;
+    }
+
+    private synchronized void write(Runnable write) {
+        if (pendingWrites != null) {
+            pendingWrites.add(write);
+        } else {
+            write.run();
+        }
+    }
+
+    private synchronized void apply(int id, int patientId, String departmentCode, int wardNumber, int bedNumber,
+                                    String diagnosis, int doctorId, int admittedDay, int dischargeDay) {
+        StaySketch sketch = byDepartment.computeIfAbsent(departmentCode, code -> new StaySketch());
+        if (!admitted.get(id)) {
+            admitted.set(id);
+            sketch.addAdmission(patientId, diagnosis);
+        }
+        if (dischargeDay == HospitalizationRows.NO_DISCHARGE) {
+            openStays.put(id, new OpenStay(sketch, admittedDay));
+        } else {
+            openStays.remove(id);
+            if (!completed.get(id)) {
+                completed.set(id);
+                sketch.addLengthOfStay(dischargeDay - admittedDay);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package main.java.hospital.analytics;
+
+/**
+ * Augmented interval tree of hospital stays: an AVL tree ordered by (start, id) in which
+ * every node also records the largest end in its subtree. That lets stabbing and overlap
+ * queries skip whole subtrees that end too early or start too late, visiting O(log n) nodes
+ * plus at most O(log n) per stay reported. Inserts and removals are O(log n).
+ * Intervals are closed, in epoch days. Not thread-safe.
+ */
+class IntervalTree {
+
+    /**
+     * Receives the stays found by a query.
+     */
+    interface Visitor {
+        void visit(int id, int patientId, int bedNumber, int start, int end);
+    }
+
+    private static final class Node {
+        final int start;
+        final int end;
+        final int id;
+        final int patientId;
+        final int bedNumber;
+        int height = 1;
+        int maxEnd;
+        Node left;
+        Node right;
+
+        Node(int start, int end, int id, int patientId, int bedNumber) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.patientId = patientId;
+            this.bedNumber = bedNumber;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    /**
+     * Adds a stay. The caller ensures the ID is not already present.
+     */
+    void insert(int start, int end, int id, int patientId, int bedNumber) {
+        root = insert(root, new Node(start, end, id, patientId, bedNumber));
+        size++;
+    }
+
+    /**
+     * Removes a stay.
+     *
+     * @param start The stay's start, as inserted
+     * @param id    The stay's ID
+     * @return true if the stay was found
+     */
+    boolean remove(int start, int id) {
+        int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Finds the stays that include a day.
+     *
+     * @param day     The day
+     * @param visitor Receives each stay with start &lt;= day &lt;= end
+     */
+    void stab(int day, Visitor visitor) {
+        overlap(root, day, day, visitor);
+    }
+
+    /**
+     * Finds the stays that share at least one day with a range.
+     *
+     * @param from    The first day
+     * @param to      The last day, inclusive
+     * @param visitor Receives each stay with start &lt;= to and end &gt;= from
+     */
+    void overlap(int from, int to, Visitor visitor) {
+        overlap(root, from, to, visitor);
+    }
+
+    private static void overlap(Node node, int from, int to, Visitor visitor) {
+        // Nothing in this subtree ends on or after the range start
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        overlap(node.left, from, to, visitor);
+        if (node.start > to) {
+            // This node and everything to its right start after the range
+            return;
+        }
+        if (node.end >= from) {
+            visitor.visit(node.id, node.patientId, node.bedNumber, node.start, node.end);
+        }
+        overlap(node.right, from, to, visitor);
+    }
+
+    private static int compare(int start, int id, Node node) {
+        int byStart = Integer.compare(start, node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private Node remove(Node node, int start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace the node by its successor, the leftmost node of the right subtree
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            Node right = removeLeftmost(node.right);
+            successor.left = node.left;
+            successor.right = right;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private static Node removeLeftmost(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeLeftmost(node.left);
+        return balance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        int maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
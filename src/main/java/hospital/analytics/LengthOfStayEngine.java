@@ -0,0 +1,125 @@
+package main.java.hospital.analytics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Length of stay distributions (mean, median, p90, p99 and histogram) of completed stays,
+ * overall or per department, doctor or diagnosis.
+ * Each group's lengths are counted into a primitive per-day histogram in a single pass,
+ * and all statistics are read off that histogram; groups are processed in parallel.
+ */
+public class LengthOfStayEngine {
+    private static final Logger logger = LogManager.getLogger(LengthOfStayEngine.class);
+
+    // Stays of this many days or more share the last histogram slot
+    private static final int MAX_TRACKED_DAYS = 366;
+
+    // Lower bounds of the reported buckets, in days
+    private static final int[] BUCKET_STARTS = {0, 1, 2, 3, 4, 8, 15, 31, 61, 91};
+
+    private final HospitalizationColumnStore store;
+
+    /**
+     * Creates an engine over a column store.
+     *
+     * @param store The hospitalization store
+     */
+    public LengthOfStayEngine(HospitalizationColumnStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Computes the distribution over all completed stays matching a filter.
+     *
+     * @param filter The filter, or null for all stays
+     * @return The distribution, or null if no completed stay matches
+     */
+    public LengthOfStayStats overall(HospitalizationFilter filter) {
+        return compute(null, filter).get("all");
+    }
+
+    /**
+     * Computes the distribution per group.
+     *
+     * @param groupBy The grouping dimension
+     * @param filter  The filter, or null for all stays
+     * @return Distributions keyed by department code, doctor ID or diagnosis;
+     * groups without completed stays are omitted
+     */
+    public Map<String, LengthOfStayStats> compute(GroupBy groupBy, HospitalizationFilter filter) {
+        long start = System.nanoTime();
+        Map<String, int[]> lengths = store.lengthsOfStay(groupBy, filter);
+
+        Map<String, LengthOfStayStats> computed = new ConcurrentHashMap<>();
+        lengths.entrySet().parallelStream()
+                .forEach(entry -> computed.put(entry.getKey(), summarize(entry.getValue())));
+
+        // Keep the store's group order
+        Map<String, LengthOfStayStats> result = new LinkedHashMap<>();
+        for (String group : lengths.keySet()) {
+            result.put(group, computed.get(group));
+        }
+        logger.debug("Computed length of stay for {} groups in {} ms",
+                result.size(), (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Builds a group's histogram and reads the statistics off it.
+     *
+     * @param lengths The group's lengths of stay in days; not empty
+     * @return The distribution
+     */
+    static LengthOfStayStats summarize(int[] lengths) {
+        long[] histogram = new long[MAX_TRACKED_DAYS + 1];
+        long sum = 0;
+        int max = 0;
+        for (int days : lengths) {
+            histogram[Math.min(Math.max(days, 0), MAX_TRACKED_DAYS)]++;
+            sum += days;
+            max = Math.max(max, days);
+        }
+
+        long count = lengths.length;
+        int median = percentile(histogram, lengths, 0.5);
+        int p90 = percentile(histogram, lengths, 0.9);
+        int p99 = percentile(histogram, lengths, 0.99);
+
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int b = 0; b < BUCKET_STARTS.length; b++) {
+            int from = BUCKET_STARTS[b];
+            int to = b + 1 < BUCKET_STARTS.length ? BUCKET_STARTS[b + 1] - 1 : MAX_TRACKED_DAYS;
+            long bucketCount = 0;
+            for (int days = from; days <= to; days++) {
+                bucketCount += histogram[days];
+            }
+            String label = b + 1 == BUCKET_STARTS.length ? from + "+" : from == to ? String.valueOf(from) : from + "-" + to;
+            buckets.put(label, bucketCount);
+        }
+        return new LengthOfStayStats(count, (double) sum / count, median, p90, p99, max, buckets);
+    }
+
+    /**
+     * Finds the nearest-rank percentile: the smallest length with at least q of the stays
+     * at or below it.
+     */
+    private static int percentile(long[] histogram, int[] lengths, double q) {
+        long rank = Math.max(1, (long) Math.ceil(q * lengths.length));
+        long cumulative = 0;
+        for (int days = 0; days < MAX_TRACKED_DAYS; days++) {
+            cumulative += histogram[days];
+            if (cumulative >= rank) {
+                return days;
+            }
+        }
+        // Falls among the rare very long stays: sort just those
+        int[] longStays = Arrays.stream(lengths).filter(days -> days >= MAX_TRACKED_DAYS).sorted().toArray();
+        return longStays[(int) (rank - cumulative - 1)];
+    }
+}
@@ -0,0 +1,61 @@
+package main.java.hospital.analytics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Length of stay distribution of a group of completed hospitalizations, in days.
+ * Percentiles are exact (nearest rank), as stays are whole days.
+ */
+public class LengthOfStayStats {
+    private final long count;
+    private final double mean;
+    private final int median;
+    private final int p90;
+    private final int p99;
+    private final int max;
+    private final Map<String, Long> buckets;
+
+    LengthOfStayStats(long count, double mean, int median, int p90, int p99, int max, Map<String, Long> buckets) {
+        this.count = count;
+        this.mean = mean;
+        this.median = median;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+        this.buckets = Collections.unmodifiableMap(buckets);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public int getMedian() {
+        return median;
+    }
+
+    public int getP90() {
+        return p90;
+    }
+
+    public int getP99() {
+        return p99;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the number of stays per length bucket.
+     *
+     * @return Counts keyed by bucket label ("0", "1", "2", "3", "4-7", ..., "91+"), shortest first
+     */
+    public Map<String, Long> getBuckets() {
+        return buckets;
+    }
+}
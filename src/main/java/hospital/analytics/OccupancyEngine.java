@@ -0,0 +1,168 @@
+package main.java.hospital.analytics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Computes daily bed occupancy curves with a sweep line over admission and discharge events.
+ * Each stay becomes a +1 event on its admission day and a -1 event on its discharge day,
+ * clamped to the requested period; sorting the events and sweeping them once gives the
+ * occupancy of every day in O(n log n + days). Departments are swept in parallel.
+ * A stay occupies a bed on the night of day D if it was admitted on or before D and not
+ * discharged by D, the same rule as {@link HospitalizationColumnStore#census}.
+ */
+public class OccupancyEngine {
+    private static final Logger logger = LogManager.getLogger(OccupancyEngine.class);
+
+    private final HospitalizationColumnStore store;
+
+    /**
+     * Creates an engine over a column store.
+     *
+     * @param store The hospitalization store
+     */
+    public OccupancyEngine(HospitalizationColumnStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Computes the occupancy of every day in a period, in total, per department and per ward.
+     *
+     * @param from The first day
+     * @param to   The last day, inclusive
+     * @return The occupancy curves
+     */
+    public OccupancyReport compute(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("End date is before start date");
+        }
+        long start = System.nanoTime();
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        int days = toDay - fromDay + 1;
+        StayIntervals stays = store.intervals(fromDay, toDay);
+
+        // Bucket the stays by department (counting sort) so each department sweeps its own slice
+        int departments = stays.departmentCodes.length;
+        int[] offsets = new int[departments + 1];
+        for (int i = 0; i < stays.size; i++) {
+            offsets[stays.department[i] + 1]++;
+        }
+        for (int d = 0; d < departments; d++) {
+            offsets[d + 1] += offsets[d];
+        }
+        int[] order = new int[stays.size];
+        int[] next = Arrays.copyOf(offsets, departments);
+        for (int i = 0; i < stays.size; i++) {
+            order[next[stays.department[i]]++] = i;
+        }
+
+        List<DepartmentCurves> perDepartment = IntStream.range(0, departments).parallel()
+                .filter(d -> offsets[d + 1] > offsets[d])
+                .mapToObj(d -> sweepDepartment(stays, d, order, offsets[d], offsets[d + 1], fromDay, days))
+                .collect(Collectors.toList());
+
+        int[] total = new int[days];
+        Map<String, int[]> byDepartment = new LinkedHashMap<>();
+        Map<String, int[]> byWard = new LinkedHashMap<>();
+        perDepartment.sort((a, b) -> a.departmentCode.compareTo(b.departmentCode));
+        for (DepartmentCurves curves : perDepartment) {
+            for (int day = 0; day < days; day++) {
+                total[day] += curves.curve[day];
+            }
+            byDepartment.put(curves.departmentCode, curves.curve);
+            byWard.putAll(curves.wards);
+        }
+
+        logger.info("Computed {} days of occupancy from {} stays in {} ms",
+                days, stays.size, (System.nanoTime() - start) / 1_000_000);
+        return new OccupancyReport(from, to, total, byDepartment, byWard);
+    }
+
+    /**
+     * Sweeps one department's stays, ward by ward.
+     */
+    private static DepartmentCurves sweepDepartment(StayIntervals stays, int department, int[] order,
+                                                    int begin, int end, int fromDay, int days) {
+        // Sort the department's stays by ward, packing ward and stay index into one long
+        int count = end - begin;
+        long[] byWard = new long[count];
+        for (int k = 0; k < count; k++) {
+            int i = order[begin + k];
+            byWard[k] = ((long) stays.ward[i] << 32) | i;
+        }
+        Arrays.sort(byWard);
+
+        DepartmentCurves result = new DepartmentCurves(stays.departmentCodes[department], days);
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int k = 0;
+        while (k < count) {
+            int wardNumber = (int) (byWard[k] >>> 32);
+            int n = 0;
+            for (; k < count && (int) (byWard[k] >>> 32) == wardNumber; k++, n++) {
+                int i = (int) byWard[k];
+                starts[n] = Math.max(stays.admission[i] - fromDay, 0);
+                // Discharge day is exclusive; current stays run past the end of the period
+                long discharged = stays.discharge[i] == HospitalizationColumnStore.NO_DISCHARGE
+                        ? days : (long) stays.discharge[i] - fromDay;
+                ends[n] = (int) Math.min(discharged, days);
+            }
+            int[] curve = sweep(starts, ends, n, days);
+            for (int day = 0; day < days; day++) {
+                result.curve[day] += curve[day];
+            }
+            result.wards.put(result.departmentCode + "/" + wardNumber, curve);
+        }
+        return result;
+    }
+
+    /**
+     * Sorts the +1 and -1 events and sweeps them day by day.
+     *
+     * @param starts Admission day offsets (the +1 events); sorted in place
+     * @param ends   Exclusive discharge day offsets (the -1 events); sorted in place
+     * @param n      The number of stays
+     * @param days   The number of days in the period
+     * @return Occupancy per day
+     */
+    static int[] sweep(int[] starts, int[] ends, int n, int days) {
+        Arrays.sort(starts, 0, n);
+        Arrays.sort(ends, 0, n);
+        int[] curve = new int[days];
+        int s = 0;
+        int e = 0;
+        int occupied = 0;
+        for (int day = 0; day < days; day++) {
+            while (s < n && starts[s] <= day) {
+                occupied++;
+                s++;
+            }
+            while (e < n && ends[e] <= day) {
+                occupied--;
+                e++;
+            }
+            curve[day] = occupied;
+        }
+        return curve;
+    }
+
+    private static final class DepartmentCurves {
+        final String departmentCode;
+        final int[] curve;
+        final Map<String, int[]> wards = new LinkedHashMap<>();
+
+        DepartmentCurves(String departmentCode, int days) {
+            this.departmentCode = departmentCode;
+            this.curve = new int[days];
+        }
+    }
+}
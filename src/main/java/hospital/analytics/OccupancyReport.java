@@ -0,0 +1,84 @@
+package main.java.hospital.analytics;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Daily occupied-bed counts over a period, as computed by {@link OccupancyEngine}.
+ * Every curve has one entry per day, index 0 being the first day of the period.
+ */
+public class OccupancyReport {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int[] total;
+    private final Map<String, int[]> byDepartment;
+    private final Map<String, int[]> byWard;
+
+    OccupancyReport(LocalDate from, LocalDate to, int[] total,
+                    Map<String, int[]> byDepartment, Map<String, int[]> byWard) {
+        this.from = from;
+        this.to = to;
+        this.total = total;
+        this.byDepartment = Collections.unmodifiableMap(byDepartment);
+        this.byWard = Collections.unmodifiableMap(byWard);
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    /**
+     * Gets the number of days in the period.
+     *
+     * @return The curve length
+     */
+    public int getDays() {
+        return total.length;
+    }
+
+    /**
+     * Gets the hospital-wide occupancy per day.
+     *
+     * @return Occupied beds per day
+     */
+    public int[] getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the occupancy per day of each department with stays in the period.
+     *
+     * @return Curves keyed by department code
+     */
+    public Map<String, int[]> getByDepartment() {
+        return byDepartment;
+    }
+
+    /**
+     * Gets the occupancy per day of each ward with stays in the period.
+     *
+     * @return Curves keyed by "departmentCode/wardNumber"
+     */
+    public Map<String, int[]> getByWard() {
+        return byWard;
+    }
+
+    /**
+     * Gets the highest value of a curve.
+     *
+     * @param curve A curve from this report
+     * @return The peak occupancy
+     */
+    public static int peak(int[] curve) {
+        int peak = 0;
+        for (int value : curve) {
+            peak = Math.max(peak, value);
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,177 @@
+package main.java.hospital.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters sketch for approximate top-K counts.
+ * Tracks at most {@code capacity} items; when a new item arrives and the sketch is full,
+ * it replaces the item with the smallest count and inherits that count as its error.
+ * Any item occurring more than {@code total / capacity} times is guaranteed to be tracked,
+ * and each count overestimates the true count by at most its error. Not thread-safe.
+ *
+ * @param <T> The item type
+ */
+public class SpaceSaving<T> {
+    private final int capacity;
+    private final Map<T, Counter> counters = new HashMap<>();
+    private long total;
+
+    private static final class Counter {
+        long count;
+        long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Creates a sketch.
+     *
+     * @param capacity The number of items tracked
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Counts one occurrence of an item.
+     *
+     * @param item The item
+     */
+    public void add(T item) {
+        add(item, 1);
+    }
+
+    /**
+     * Counts several occurrences of an item.
+     *
+     * @param item   The item
+     * @param weight The number of occurrences
+     */
+    public void add(T item, long weight) {
+        total += weight;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+        } else if (counters.size() < capacity) {
+            counters.put(item, new Counter(weight, 0));
+        } else {
+            T smallest = smallest();
+            Counter evicted = counters.remove(smallest);
+            counters.put(item, new Counter(evicted.count + weight, evicted.count));
+        }
+    }
+
+    /**
+     * Gets the items with the highest estimated counts.
+     *
+     * @param k The number of items
+     * @return Up to k items and their estimated counts, highest first
+     */
+    public Map<T, Long> top(int k) {
+        List<Map.Entry<T, Counter>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().count, a.getValue().count));
+        Map<T, Long> top = new LinkedHashMap<>();
+        for (Map.Entry<T, Counter> entry : entries.subList(0, Math.min(k, entries.size()))) {
+            top.put(entry.getKey(), entry.getValue().count);
+        }
+        return top;
+    }
+
+    /**
+     * Gets the estimated count of an item.
+     *
+     * @param item The item
+     * @return The estimate, which is at most the error bound above the true count; 0 if untracked
+     */
+    public long estimate(T item) {
+        Counter counter = counters.get(item);
+        return counter != null ? counter.count : 0;
+    }
+
+    /**
+     * Gets the maximum overestimate of an item's count.
+     *
+     * @param item The item
+     * @return The error bound, or 0 if the item is untracked
+     */
+    public long error(T item) {
+        Counter counter = counters.get(item);
+        return counter != null ? counter.error : 0;
+    }
+
+    /**
+     * Gets the total number of occurrences counted.
+     *
+     * @return The total weight
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Adds the counts of another sketch to this one. An item missing from a full sketch is
+     * assumed to have that sketch's smallest count, which keeps the estimates upper bounds.
+     *
+     * @param other The sketch to merge
+     */
+    public void merge(SpaceSaving<T> other) {
+        long thisFloor = counters.size() < capacity ? 0 : counters.get(smallest()).count;
+        long otherFloor = other.counters.size() < other.capacity ? 0 : other.counters.get(other.smallest()).count;
+
+        Map<T, Counter> merged = new HashMap<>();
+        for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+            Counter theirs = other.counters.get(entry.getKey());
+            long count = entry.getValue().count + (theirs != null ? theirs.count : otherFloor);
+            long error = entry.getValue().error + (theirs != null ? theirs.error : otherFloor);
+            merged.put(entry.getKey(), new Counter(count, error));
+        }
+        for (Map.Entry<T, Counter> entry : other.counters.entrySet()) {
+            if (!counters.containsKey(entry.getKey())) {
+                merged.put(entry.getKey(), new Counter(entry.getValue().count + thisFloor,
+                        entry.getValue().error + thisFloor));
+            }
+        }
+
+        List<Map.Entry<T, Counter>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().count, a.getValue().count));
+        counters.clear();
+        for (Map.Entry<T, Counter> entry : entries.subList(0, Math.min(capacity, entries.size()))) {
+            counters.put(entry.getKey(), entry.getValue());
+        }
+        total += other.total;
+    }
+
+    /**
+     * Creates an independent copy of this sketch.
+     *
+     * @return The copy
+     */
+    public SpaceSaving<T> copy() {
+        SpaceSaving<T> copy = new SpaceSaving<>(capacity);
+        counters.forEach((item, counter) -> copy.counters.put(item, new Counter(counter.count, counter.error)));
+        copy.total = total;
+        return copy;
+    }
+
+    private T smallest() {
+        T smallest = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+            if (entry.getValue().count < min) {
+                min = entry.getValue().count;
+                smallest = entry.getKey();
+            }
+        }
+        return smallest;
+    }
+}
@@ -0,0 +1,46 @@
+package main.java.hospital.analytics;
+
+import java.util.Arrays;
+
+/**
+ * A copy of hospitalization intervals taken from the {@link HospitalizationColumnStore},
+ * for engines that work on a consistent snapshot outside the store's lock.
+ * Days are epoch days; a current stay's discharge day is
+ * {@link HospitalizationColumnStore#NO_DISCHARGE}.
+ */
+class StayIntervals {
+    final String[] departmentCodes;
+    int[] ids = new int[256];
+    int[] patients = new int[256];
+    int[] admission = new int[256];
+    int[] discharge = new int[256];
+    int[] department = new int[256];
+    int[] ward = new int[256];
+    int[] bed = new int[256];
+    int size;
+
+    StayIntervals(int departmentCount) {
+        this.departmentCodes = new String[departmentCount];
+    }
+
+    void add(int id, int patientId, int admitted, int dischargeDay, int departmentCode, int wardNumber, int bedNumber) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            patients = Arrays.copyOf(patients, capacity);
+            admission = Arrays.copyOf(admission, capacity);
+            discharge = Arrays.copyOf(discharge, capacity);
+            department = Arrays.copyOf(department, capacity);
+            ward = Arrays.copyOf(ward, capacity);
+            bed = Arrays.copyOf(bed, capacity);
+        }
+        ids[size] = id;
+        patients[size] = patientId;
+        admission[size] = admitted;
+        discharge[size] = dischargeDay;
+        department[size] = departmentCode;
+        ward[size] = wardNumber;
+        bed[size] = bedNumber;
+        size++;
+    }
+}
@@ -0,0 +1,117 @@
+package main.java.hospital.analytics;
+
+import java.util.Map;
+
+/**
+ * Approximate statistics over a set of hospitalizations: distinct patients (HyperLogLog),
+ * most frequent diagnoses (Space-Saving) and length of stay quantiles (t-digest).
+ * Sketches for different departments merge into one for the whole hospital. Not thread-safe.
+ */
+public class StaySketch {
+    // Diagnoses tracked; comfortably more than any top list shown
+    private static final int DIAGNOSIS_CAPACITY = 200;
+
+    private final HyperLogLog patients;
+    private final SpaceSaving<String> diagnoses;
+    private final TDigest lengthOfStay;
+
+    /**
+     * Creates an empty sketch.
+     */
+    public StaySketch() {
+        this(new HyperLogLog(), new SpaceSaving<>(DIAGNOSIS_CAPACITY), new TDigest());
+    }
+
+    private StaySketch(HyperLogLog patients, SpaceSaving<String> diagnoses, TDigest lengthOfStay) {
+        this.patients = patients;
+        this.diagnoses = diagnoses;
+        this.lengthOfStay = lengthOfStay;
+    }
+
+    /**
+     * Records an admission.
+     *
+     * @param patientId The patient ID
+     * @param diagnosis The diagnosis
+     */
+    public void addAdmission(int patientId, String diagnosis) {
+        patients.add(patientId);
+        diagnoses.add(diagnosis);
+    }
+
+    /**
+     * Records a completed stay.
+     *
+     * @param days The length of stay in days
+     */
+    public void addLengthOfStay(int days) {
+        lengthOfStay.add(days);
+    }
+
+    /**
+     * Estimates the number of distinct patients admitted.
+     *
+     * @return The estimated count
+     */
+    public long distinctPatients() {
+        return patients.estimate();
+    }
+
+    /**
+     * Gets the most frequent diagnoses.
+     *
+     * @param k The number of diagnoses
+     * @return Up to k diagnoses and their estimated admission counts, highest first
+     */
+    public Map<String, Long> topDiagnoses(int k) {
+        return diagnoses.top(k);
+    }
+
+    /**
+     * Estimates a length of stay quantile over completed stays.
+     *
+     * @param q The quantile, e.g. 0.9 for p90
+     * @return The estimated length of stay in days, or NaN if no stay has completed
+     */
+    public double lengthOfStayQuantile(double q) {
+        return lengthOfStay.quantile(q);
+    }
+
+    /**
+     * Gets the number of admissions recorded.
+     *
+     * @return The admission count
+     */
+    public long admissions() {
+        return diagnoses.getTotal();
+    }
+
+    /**
+     * Gets the number of completed stays recorded.
+     *
+     * @return The completed stay count
+     */
+    public long completedStays() {
+        return lengthOfStay.size();
+    }
+
+    /**
+     * Adds another sketch's statistics to this one.
+     *
+     * @param other The sketch to merge
+     */
+    public void merge(StaySketch other) {
+        patients.merge(other.patients);
+        diagnoses.merge(other.diagnoses);
+        lengthOfStay.merge(other.lengthOfStay);
+    }
+
+    /**
+     * Creates an independent copy of this sketch.
+     *
+     * @return The copy
+     */
+    public StaySketch copy() {
+        return new StaySketch(patients.copy(), diagnoses.copy(), lengthOfStay.copy());
+    }
+}
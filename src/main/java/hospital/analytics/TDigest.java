@@ -0,0 +1,266 @@
+package main.java.hospital.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest for approximate quantiles of a stream of values.
+ * Values are buffered and periodically merged into at most about {@code compression}
+ * weighted centroids. The k1 scale function keeps centroids small near the tails,
+ * so high percentiles such as p99 stay accurate. Digests merge by re-adding each other's
+ * centroids. Not thread-safe.
+ */
+public class TDigest {
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a digest with the default compression.
+     */
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a digest.
+     *
+     * @param compression Roughly the number of centroids kept; higher is more accurate
+     */
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10: " + compression);
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[capacity * 5];
+        this.bufferWeights = new double[capacity * 5];
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value The value
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds a value with a weight.
+     *
+     * @param value  The value
+     * @param weight The weight
+     */
+    public void add(double value, double weight) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN");
+        }
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Estimates a quantile.
+     *
+     * @param q The quantile, between 0 and 1
+     * @return The estimated value, or NaN if the digest is empty
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+
+        double target = q * totalWeight;
+        // Before the first centroid's centre, interpolate from the minimum
+        if (target < weights[0] / 2) {
+            return min + (means[0] - min) * (target / (weights[0] / 2));
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step > target) {
+                double fraction = (target - cumulative) / step;
+                return means[i] + (means[i + 1] - means[i]) * fraction;
+            }
+            cumulative += step;
+        }
+        // After the last centroid's centre, interpolate towards the maximum
+        double last = weights[centroids - 1] / 2;
+        double fraction = Math.min(1, (target - cumulative) / last);
+        return means[centroids - 1] + (max - means[centroids - 1]) * fraction;
+    }
+
+    /**
+     * Gets the total weight added.
+     *
+     * @return The number of values, if all weights were 1
+     */
+    public long size() {
+        return Math.round(totalWeight);
+    }
+
+    /**
+     * Adds all values of another digest to this one.
+     *
+     * @param other The digest to merge
+     */
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            if (buffered == bufferMeans.length) {
+                compress();
+            }
+            bufferMeans[buffered] = other.means[i];
+            bufferWeights[buffered] = other.weights[i];
+            buffered++;
+        }
+        totalWeight += other.totalWeight;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Creates an independent copy of this digest.
+     *
+     * @return The copy
+     */
+    public TDigest copy() {
+        TDigest copy = new TDigest(compression);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Merges the buffer into the centroids in one pass over both, sorted by mean.
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int n = centroids + buffered;
+        double[] allMeans = Arrays.copyOf(means, n);
+        double[] allWeights = Arrays.copyOf(weights, n);
+        System.arraycopy(bufferMeans, 0, allMeans, centroids, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+        buffered = 0;
+        sortByMean(allMeans, allWeights, n);
+
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += allWeights[i];
+        }
+
+        int out = 0;
+        double weightSoFar = 0;
+        double limit = total * upperQuantile(0);
+        double mean = allMeans[0];
+        double weight = allWeights[0];
+        for (int i = 1; i < n; i++) {
+            if (weightSoFar + weight + allWeights[i] <= limit) {
+                weight += allWeights[i];
+                mean += (allMeans[i] - mean) * allWeights[i] / weight;
+            } else {
+                allMeans[out] = mean;
+                allWeights[out] = weight;
+                out++;
+                weightSoFar += weight;
+                limit = total * upperQuantile(weightSoFar / total);
+                mean = allMeans[i];
+                weight = allWeights[i];
+            }
+        }
+        allMeans[out] = mean;
+        allWeights[out] = weight;
+        out++;
+
+        means = allMeans;
+        weights = allWeights;
+        centroids = out;
+    }
+
+    /**
+     * Gets the largest quantile a centroid starting at quantile q may reach, from the k1
+     * scale function {@code k(q) = compression / (2 pi) * asin(2q - 1)}.
+     */
+    private double upperQuantile(double q) {
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        if (k >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    /**
+     * Sorts parallel mean and weight arrays by mean (insertion sort for short runs, else a
+     * quicksort on the means that moves the weights along).
+     */
+    private static void sortByMean(double[] means, double[] weights, int n) {
+        quicksort(means, weights, 0, n - 1);
+    }
+
+    private static void quicksort(double[] means, double[] weights, int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = means[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (means[i] < pivot) {
+                    i++;
+                }
+                while (means[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(means, weights, i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth
+            if (j - lo < hi - i) {
+                quicksort(means, weights, lo, j);
+                lo = i;
+            } else {
+                quicksort(means, weights, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && means[j - 1] > means[j]; j--) {
+                swap(means, weights, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(double[] means, double[] weights, int a, int b) {
+        double mean = means[a];
+        means[a] = means[b];
+        means[b] = mean;
+        double weight = weights[a];
+        weights[a] = weights[b];
+        weights[b] = weight;
+    }
+}
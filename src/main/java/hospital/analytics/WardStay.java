@@ -0,0 +1,47 @@
+package main.java.hospital.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * A stay found by a {@link WardStayIndex} query.
+ */
+public class WardStay {
+    private final int hospitalizationId;
+    private final int patientId;
+    private final int bedNumber;
+    private final LocalDate admissionDate;
+    private final LocalDate dischargeDate;
+
+    WardStay(int hospitalizationId, int patientId, int bedNumber, LocalDate admissionDate, LocalDate dischargeDate) {
+        this.hospitalizationId = hospitalizationId;
+        this.patientId = patientId;
+        this.bedNumber = bedNumber;
+        this.admissionDate = admissionDate;
+        this.dischargeDate = dischargeDate;
+    }
+
+    public int getHospitalizationId() {
+        return hospitalizationId;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public int getBedNumber() {
+        return bedNumber;
+    }
+
+    public LocalDate getAdmissionDate() {
+        return admissionDate;
+    }
+
+    /**
+     * Gets the discharge date.
+     *
+     * @return The discharge date, or null if the patient is still admitted
+     */
+    public LocalDate getDischargeDate() {
+        return dischargeDate;
+    }
+}
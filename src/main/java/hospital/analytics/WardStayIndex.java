@@ -0,0 +1,205 @@
+package main.java.hospital.analytics;
+
+import main.java.hospital.dao.HospitalizationDAO;
+import main.java.hospital.dao.HospitalizationListener;
+import main.java.hospital.model.Hospitalization;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One {@link IntervalTree} of stays per ward, for "who was in ward W on date D" lookups
+ * such as outbreak contact tracing. A stay counts as present from its admission date up to
+ * and including its discharge date; current stays are open-ended.
+ * After the initial load the index follows {@link HospitalizationDAO} writes.
+ */
+public class WardStayIndex implements HospitalizationListener {
+    private static final Logger logger = LogManager.getLogger(WardStayIndex.class);
+
+    private static WardStayIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IntervalTree> byWard = new HashMap<>();
+    // Where each stay is filed, to find it again on update or delete
+    private final Map<Integer, Location> locations = new HashMap<>();
+
+    // Writes seen while the initial load runs, applied once it finishes
+    private List<Runnable> pendingWrites;
+
+    private static final class Location {
+        final IntervalTree tree;
+        final int start;
+        final int patientId;
+        final int bedNumber;
+
+        Location(IntervalTree tree, int start, int patientId, int bedNumber) {
+            this.tree = tree;
+            this.start = start;
+            this.patientId = patientId;
+            this.bedNumber = bedNumber;
+        }
+    }
+
+    /**
+     * Gets the shared index, loading it from the database and subscribing it to
+     * hospitalization writes on first use.
+     *
+     * @return The shared index
+     * @throws SQLException If the initial load fails
+     */
+    public static synchronized WardStayIndex getInstance() throws SQLException {
+        if (instance == null) {
+            WardStayIndex index = new WardStayIndex();
+            index.loadAndFollow();
+            instance = index;
+        }
+        return instance;
+    }
+
+    /**
+     * Indexes every hospitalization, then follows DAO writes.
+     *
+     * @throws SQLException If the load fails
+     */
+    void loadAndFollow() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        HospitalizationDAO.addListener(this);
+
+        long start = System.nanoTime();
+        try {
+            HospitalizationRows.loadAll((id, patientId, departmentCode, wardNumber, bedNumber, diagnosis,
+                                         doctorId, admitted, dischargeDay) -> {
+                lock.writeLock().lock();
+                try {
+                    put(id, patientId, departmentCode, wardNumber, bedNumber, admitted, dischargeDay);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } catch (SQLException e) {
+            HospitalizationDAO.removeListener(this);
+            logger.error("Error loading ward stay index", e);
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Runnable write : pendingWrites) {
+                write.run();
+            }
+            pendingWrites = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Indexed {} stays in {} wards in {} ms",
+                locations.size(), byWard.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void hospitalizationSaved(Hospitalization h) {
+        HospitalizationRows.accept(h, (id, patientId, departmentCode, wardNumber, bedNumber, diagnosis,
+                                       doctorId, admitted, dischargeDay) ->
+                write(() -> put(id, patientId, departmentCode, wardNumber, bedNumber, admitted, dischargeDay)));
+    }
+
+    @Override
+    public void hospitalizationDischarged(int hospitalizationId, LocalDate dischargeDate) {
+        int dischargeDay = (int) dischargeDate.toEpochDay();
+        write(() -> {
+            Location location = locations.get(hospitalizationId);
+            if (location != null) {
+                location.tree.remove(location.start, hospitalizationId);
+                location.tree.insert(location.start, dischargeDay, hospitalizationId,
+                        location.patientId, location.bedNumber);
+            }
+        });
+    }
+
+    @Override
+    public void hospitalizationDeleted(int hospitalizationId) {
+        write(() -> {
+            Location location = locations.remove(hospitalizationId);
+            if (location != null) {
+                location.tree.remove(location.start, hospitalizationId);
+            }
+        });
+    }
+
+    /**
+     * Finds the stays in a ward on a date.
+     *
+     * @param departmentCode The ward's department code
+     * @param wardNumber     The ward number
+     * @param date           The date
+     * @return The stays admitted on or before the date and not discharged before it
+     */
+    public List<WardStay> findPresent(String departmentCode, int wardNumber, LocalDate date) {
+        return findOverlapping(departmentCode, wardNumber, date, date);
+    }
+
+    /**
+     * Finds the stays in a ward during a period.
+     *
+     * @param departmentCode The ward's department code
+     * @param wardNumber     The ward number
+     * @param from           The first day of the period
+     * @param to             The last day of the period, inclusive
+     * @return The stays present on at least one day of the period, by admission date
+     */
+    public List<WardStay> findOverlapping(String departmentCode, int wardNumber, LocalDate from, LocalDate to) {
+        List<WardStay> stays = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            IntervalTree tree = byWard.get(wardKey(departmentCode, wardNumber));
+            if (tree != null) {
+                tree.overlap((int) from.toEpochDay(), (int) to.toEpochDay(),
+                        (id, patientId, bedNumber, start, end) -> stays.add(new WardStay(id, patientId, bedNumber,
+                                LocalDate.ofEpochDay(start),
+                                end == HospitalizationRows.NO_DISCHARGE ? null : LocalDate.ofEpochDay(end))));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stays;
+    }
+
+    private void write(Runnable write) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            } else {
+                write.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(int id, int patientId, String departmentCode, int wardNumber, int bedNumber,
+                     int admitted, int dischargeDay) {
+        Location previous = locations.remove(id);
+        if (previous != null) {
+            previous.tree.remove(previous.start, id);
+        }
+        IntervalTree tree = byWard.computeIfAbsent(wardKey(departmentCode, wardNumber), key -> new IntervalTree());
+        tree.insert(admitted, dischargeDay, id, patientId, bedNumber);
+        locations.put(id, new Location(tree, admitted, patientId, bedNumber));
+    }
+
+    private static String wardKey(String departmentCode, int wardNumber) {
+        return departmentCode + "/" + wardNumber;
+    }
+}
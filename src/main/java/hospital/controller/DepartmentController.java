@@ -2,6 +2,7 @@ package main.java.hospital.controller;
 
 import main.java.hospital.dao.DepartmentDAO;
 import main.java.hospital.dao.DoctorDAO;
+import main.java.hospital.dao.VersionConflictException;
 import main.java.hospital.model.Department;
 import main.java.hospital.model.Doctor;
 import main.java.hospital.util.AlertUtils;
@@ -36,6 +37,7 @@ public class DepartmentController implements Initializable {
     private ObservableList<Department> departmentList;
     private FilteredList<Department> filteredDepartments;
     private ObservableList<Doctor> doctorList;
+    private Department originalDepartment;
 
     @FXML private TableView<Department> tableDepartments;
     @FXML private TableColumn<Department, String> colDepartmentCode;
@@ -206,6 +208,9 @@ public class DepartmentController implements Initializable {
      */
     private void showDepartmentDetails(Department department) {
         if (department != null) {
+            // Keep the row as read, so the update writes only the fields that are edited
+            originalDepartment = new Department(department);
+
             txtDepartmentCode.setText(department.getDepartmentCode());
             txtName.setText(department.getName());
             txtBuilding.setText(department.getBuilding());
@@ -305,15 +310,13 @@ public class DepartmentController implements Initializable {
     private void handleUpdateAction(ActionEvent event) {
         if (validateInput()) {
             try {
-                Department department = new Department();
+                Department department = new Department(originalDepartment);
                 department.setDepartmentCode(txtDepartmentCode.getText().toUpperCase());
                 department.setName(txtName.getText());
                 department.setBuilding(txtBuilding.getText());
 
                 Doctor selectedDoctor = cmbDirector.getValue();
-                if (selectedDoctor != null) {
-                    department.setDirectorId(selectedDoctor.getEmployeeId());
-                }
+                department.setDirectorId(selectedDoctor != null ? selectedDoctor.getEmployeeId() : null);
 
                 boolean success = departmentDAO.update(department);
 
@@ -328,6 +331,14 @@ public class DepartmentController implements Initializable {
                             "Department with code " + department.getDepartmentCode() + " was not found.");
                     setStatus("Failed to update department");
                 }
+            } catch (VersionConflictException e) {
+                logger.warn("Conflicting update of department", e);
+                AlertUtils.showWarning("Update Conflict", "Department Changed by Another User",
+                        "This department was changed by someone else after you opened it. " +
+                        "The list has been reloaded; please check the current values and make your change again.");
+                loadDepartmentData();
+                clearFields();
+                setStatus("Update conflict, department reloaded");
             } catch (Exception e) {
                 logger.error("Error updating department", e);
                 AlertUtils.showError("Database Error", "Failed to update department", e.getMessage());
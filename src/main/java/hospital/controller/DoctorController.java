@@ -1,7 +1,9 @@
 package main.java.hospital.controller;
 
 import main.java.hospital.dao.DoctorDAO;
+import main.java.hospital.dao.UnitOfWork;
 import main.java.hospital.dao.EmployeeDAO;
+import main.java.hospital.dao.VersionConflictException;
 import main.java.hospital.model.Doctor;
 import main.java.hospital.model.Employee;
 import main.java.hospital.util.AlertUtils;
@@ -35,6 +37,7 @@ public class DoctorController implements Initializable {
     private final EmployeeDAO employeeDAO = new EmployeeDAO();
     private ObservableList<Doctor> doctorList;
     private FilteredList<Doctor> filteredDoctors;
+    private Doctor originalDoctor;
 
     @FXML private TableView<Doctor> tableDoctors;
     @FXML private TableColumn<Doctor, Integer> colEmployeeId;
@@ -173,6 +176,9 @@ public class DoctorController implements Initializable {
      */
     private void showDoctorDetails(Doctor doctor) {
         if (doctor != null) {
+            // Keep the row as read, so the update writes only the fields that are edited
+            originalDoctor = new Doctor(doctor);
+
             txtEmployeeId.setText(doctor.getEmployeeId().toString());
             txtFirstName.setText(doctor.getFirstName());
             txtSurname.setText(doctor.getSurname());
@@ -232,29 +238,37 @@ public class DoctorController implements Initializable {
                         txtPhone.getText()
                 );
 
-                Optional<Integer> employeeId = employeeDAO.insert(employee);
-
-                if (employeeId.isPresent()) {
-                    // Create and save doctor with employee ID
-                    Doctor doctor = new Doctor();
-                    doctor.setEmployeeId(employeeId.get());
-                    doctor.setSpeciality(txtSpeciality.getText());
-
-                    boolean success = doctorDAO.insert(doctor);
-
-                    if (success) {
-                        AlertUtils.showInformation("Success", "Doctor Saved",
-                                "Doctor was successfully saved with ID: " + employeeId.get());
-                        loadDoctorData();
-                        clearFields();
-                        setStatus("Doctor saved successfully");
-                    } else {
-                        // If doctor insertion fails, delete the employee
-                        employeeDAO.delete(employeeId.get());
-                        AlertUtils.showError("Error", "Failed to Save Doctor",
-                                "An error occurred while saving the doctor.");
-                        setStatus("Failed to save doctor");
+                // Employee and doctor rows are written in one transaction on one connection;
+                // the outcome is shown once the unit of work has released it
+                Optional<Integer> employeeId;
+                boolean saved = false;
+                try (UnitOfWork work = UnitOfWork.begin()) {
+                    employeeId = employeeDAO.insert(employee);
+
+                    if (employeeId.isPresent()) {
+                        // Create and save doctor with employee ID
+                        Doctor doctor = new Doctor();
+                        doctor.setEmployeeId(employeeId.get());
+                        doctor.setSpeciality(txtSpeciality.getText());
+
+                        saved = doctorDAO.insert(doctor);
+                        if (saved) {
+                            work.commit();
+                        }
+                        // Otherwise nothing was committed, so closing the unit of work rolls back the employee
                     }
+                }
+
+                if (saved) {
+                    AlertUtils.showInformation("Success", "Doctor Saved",
+                            "Doctor was successfully saved with ID: " + employeeId.get());
+                    loadDoctorData();
+                    clearFields();
+                    setStatus("Doctor saved successfully");
+                } else if (employeeId.isPresent()) {
+                    AlertUtils.showError("Error", "Failed to Save Doctor",
+                            "An error occurred while saving the doctor.");
+                    setStatus("Failed to save doctor");
                 } else {
                     AlertUtils.showError("Error", "Failed to Save Doctor",
                             "An error occurred while saving the employee information.");
@@ -278,28 +292,13 @@ public class DoctorController implements Initializable {
             try {
                 int employeeId = Integer.parseInt(txtEmployeeId.getText());
 
-                // Update employee information
-                Employee employee = new Employee(
-                        employeeId,
-                        txtFirstName.getText(),
-                        txtSurname.getText(),
-                        txtAddress.getText(),
-                        txtPhone.getText(),
-                        null, null
-                );
-
-                boolean employeeSuccess = employeeDAO.update(employee);
-
-                if (!employeeSuccess) {
-                    AlertUtils.showError("Error", "Failed to Update Doctor",
-                            "Employee with ID " + employeeId + " was not found.");
-                    setStatus("Failed to update employee information");
-                    return;
-                }
-
-                // Update doctor information
-                Doctor doctor = new Doctor();
+                // Update employee and doctor information
+                Doctor doctor = new Doctor(originalDoctor);
                 doctor.setEmployeeId(employeeId);
+                doctor.setFirstName(txtFirstName.getText());
+                doctor.setSurname(txtSurname.getText());
+                doctor.setAddress(txtAddress.getText());
+                doctor.setPhone(txtPhone.getText());
                 doctor.setSpeciality(txtSpeciality.getText());
 
                 boolean doctorSuccess = doctorDAO.update(doctor);
@@ -320,6 +319,14 @@ public class DoctorController implements Initializable {
                 AlertUtils.showError("Validation Error", "Invalid Employee ID",
                         "Please select a valid doctor to update.");
                 setStatus("Invalid employee ID");
+            } catch (VersionConflictException e) {
+                logger.warn("Conflicting update of doctor", e);
+                AlertUtils.showWarning("Update Conflict", "Doctor Changed by Another User",
+                        "This doctor was changed by someone else after you opened it. " +
+                        "The list has been reloaded; please check the current values and make your change again.");
+                loadDoctorData();
+                clearFields();
+                setStatus("Update conflict, doctor reloaded");
             } catch (Exception e) {
                 logger.error("Error updating doctor", e);
                 AlertUtils.showError("Database Error", "Failed to update doctor", e.getMessage());
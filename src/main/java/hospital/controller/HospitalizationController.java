@@ -1,18 +1,23 @@
 package main.java.hospital.controller;
 
+import main.java.hospital.dao.AdmissionJournal;
+import main.java.hospital.dao.ChangeEvent;
+import main.java.hospital.dao.ChangeFeed;
 import main.java.hospital.dao.HospitalizationDAO;
 import main.java.hospital.dao.PatientDAO;
 import main.java.hospital.dao.DepartmentDAO;
 import main.java.hospital.dao.WardDAO;
 import main.java.hospital.dao.DoctorDAO;
+import main.java.hospital.dao.BulkResult;
+import main.java.hospital.dao.VersionConflictException;
 import main.java.hospital.model.Hospitalization;
-import main.java.hospital.model.Patient;
+import main.java.hospital.model.PersonName;
 import main.java.hospital.model.Department;
 import main.java.hospital.model.Ward;
-import main.java.hospital.model.Doctor;
 import main.java.hospital.util.AlertUtils;
 import main.java.hospital.util.ValidationUtils;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -28,17 +33,18 @@ import org.apache.logging.log4j.Logger;
 
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.ResourceBundle;
 
 /**
  * Controller for the Hospitalization view.
  * Handles all UI interactions related to hospitalization management.
+ * The table follows the change feed, so saves from this or any other tab show up without a reload.
  */
-public class HospitalizationController implements Initializable {
+public class HospitalizationController implements Initializable, AutoCloseable {
     private static final Logger logger = LogManager.getLogger(HospitalizationController.class);
 
     private final HospitalizationDAO hospitalizationDAO = new HospitalizationDAO();
@@ -49,15 +55,16 @@ public class HospitalizationController implements Initializable {
 
     private ObservableList<Hospitalization> hospitalizationList;
     private FilteredList<Hospitalization> filteredHospitalizations;
-    private ObservableList<Patient> patientList;
+    private ObservableList<PersonName> patientList;
     private ObservableList<Department> departmentList;
     private ObservableList<Ward> wardList;
-    private ObservableList<Doctor> doctorList;
+    private ObservableList<PersonName> doctorList;
 
     private Map<Integer, String> patientNames = new HashMap<>();
     private Map<String, String> departmentNames = new HashMap<>();
     private Map<Integer, String> doctorNames = new HashMap<>();
     private Map<String, ObservableList<Ward>> departmentWards = new HashMap<>();
+    private ChangeFeed.Subscription changeSubscription;
 
     @FXML private TableView<Hospitalization> tableHospitalizations;
     @FXML private TableColumn<Hospitalization, Integer> colHospitalizationId;
@@ -70,12 +77,12 @@ public class HospitalizationController implements Initializable {
     @FXML private TableColumn<Hospitalization, LocalDate> colDischargeDate;
 
     @FXML private TextField txtHospitalizationId;
-    @FXML private ComboBox<Patient> cmbPatient;
+    @FXML private ComboBox<PersonName> cmbPatient;
     @FXML private ComboBox<Department> cmbDepartment;
     @FXML private ComboBox<Ward> cmbWard;
     @FXML private TextField txtBedNumber;
     @FXML private TextField txtDiagnosis;
-    @FXML private ComboBox<Doctor> cmbDoctor;
+    @FXML private ComboBox<PersonName> cmbDoctor;
     @FXML private DatePicker dpAdmissionDate;
     @FXML private DatePicker dpDischargeDate;
     @FXML private TextField txtSearch;
@@ -89,6 +96,7 @@ public class HospitalizationController implements Initializable {
     @FXML private Button btnClear;
 
     private boolean isEditMode = false;
+    private Hospitalization originalHospitalization;
 
     /**
      * Initializes the controller.
@@ -174,8 +182,9 @@ public class HospitalizationController implements Initializable {
         loadDoctorData();
         loadWardData();
 
-        // Load hospitalization data
+        // Load hospitalization data, then keep it current from the change feed
         loadHospitalizationData();
+        changeSubscription = ChangeFeed.getInstance().subscribe(this::onChanges, ChangeEvent.Entity.HOSPITALIZATION);
 
         // Set up comboboxes with custom string converters
         setupComboBoxes();
@@ -224,14 +233,14 @@ public class HospitalizationController implements Initializable {
      */
     private void setupComboBoxes() {
         // Patient combobox
-        cmbPatient.setConverter(new StringConverter<Patient>() {
+        cmbPatient.setConverter(new StringConverter<PersonName>() {
             @Override
-            public String toString(Patient patient) {
-                return patient == null ? "" : patient.getFullName() + " (ID: " + patient.getPatientId() + ")";
+            public String toString(PersonName patient) {
+                return patient == null ? "" : patient.getFullName() + " (ID: " + patient.getId() + ")";
             }
 
             @Override
-            public Patient fromString(String string) {
+            public PersonName fromString(String string) {
                 return null; // Not needed for this use case
             }
         });
@@ -263,14 +272,14 @@ public class HospitalizationController implements Initializable {
         });
 
         // Doctor combobox
-        cmbDoctor.setConverter(new StringConverter<Doctor>() {
+        cmbDoctor.setConverter(new StringConverter<PersonName>() {
             @Override
-            public String toString(Doctor doctor) {
-                return doctor == null ? "" : doctor.getFullName() + " (" + doctor.getSpeciality() + ")";
+            public String toString(PersonName doctor) {
+                return doctor == null ? "" : doctor.getDisplayName();
             }
 
             @Override
-            public Doctor fromString(String string) {
+            public PersonName fromString(String string) {
                 return null; // Not needed for this use case
             }
         });
@@ -281,14 +290,14 @@ public class HospitalizationController implements Initializable {
      */
     private void loadPatientData() {
         try {
-            List<Patient> patients = patientDAO.findAll();
+            List<PersonName> patients = patientDAO.findAllNames();
             patientList = FXCollections.observableArrayList(patients);
             cmbPatient.setItems(patientList);
 
             // Create a map of patient IDs to names for display in the table
             patientNames.clear();
-            for (Patient patient : patients) {
-                patientNames.put(patient.getPatientId(), patient.getFullName());
+            for (PersonName patient : patients) {
+                patientNames.put(patient.getId(), patient.getFullName());
             }
 
             logger.info("Loaded {} patients for combobox", patients.size());
@@ -350,14 +359,14 @@ public class HospitalizationController implements Initializable {
      */
     private void loadDoctorData() {
         try {
-            List<Doctor> doctors = doctorDAO.findAll();
+            List<PersonName> doctors = doctorDAO.findAllNames();
             doctorList = FXCollections.observableArrayList(doctors);
             cmbDoctor.setItems(doctorList);
 
             // Create a map of doctor IDs to names for display in the table
             doctorNames.clear();
-            for (Doctor doctor : doctors) {
-                doctorNames.put(doctor.getEmployeeId(), doctor.getFullName() + " (" + doctor.getSpeciality() + ")");
+            for (PersonName doctor : doctors) {
+                doctorNames.put(doctor.getId(), doctor.getDisplayName());
             }
 
             logger.info("Loaded {} doctors for combobox", doctors.size());
@@ -393,6 +402,91 @@ public class HospitalizationController implements Initializable {
         }
     }
 
+    /**
+     * Receives committed hospitalization changes on the change feed's thread. Partial updates
+     * such as discharges, and changes from other instances, only carry the key; their rows are
+     * read here with one query for the whole batch, so the FX thread never waits on the database.
+     *
+     * @param changes The changes, oldest first
+     */
+    private void onChanges(List<ChangeEvent> changes) {
+        List<Integer> keyOnlyIds = new ArrayList<>();
+        for (ChangeEvent change : changes) {
+            if (change.getOperation() != ChangeEvent.Operation.RESYNC
+                    && change.getOperation() != ChangeEvent.Operation.DELETE
+                    && change.getValues(Hospitalization.class) == null) {
+                keyOnlyIds.add((Integer) change.getKey());
+            }
+        }
+        Map<Integer, Hospitalization> fetched = hospitalizationDAO.findByIds(keyOnlyIds);
+        Platform.runLater(() -> applyChanges(changes, fetched));
+    }
+
+    /**
+     * Applies committed hospitalization changes to the loaded list.
+     *
+     * @param changes The changes, oldest first
+     * @param fetched The current rows of the key-only changes, by ID
+     */
+    private void applyChanges(List<ChangeEvent> changes, Map<Integer, Hospitalization> fetched) {
+        if (hospitalizationList == null) {
+            return;
+        }
+        for (ChangeEvent change : changes) {
+            if (change.getOperation() == ChangeEvent.Operation.RESYNC) {
+                loadHospitalizationData();
+                return;
+            }
+
+            int hospitalizationId = (Integer) change.getKey();
+            Hospitalization hospitalization = change.getValues(Hospitalization.class);
+            boolean keyOnly = hospitalization == null;
+            if (keyOnly && change.getOperation() != ChangeEvent.Operation.DELETE) {
+                hospitalization = fetched.get(hospitalizationId);
+            }
+
+            boolean shown = hospitalization != null
+                    && (!chkShowCurrent.isSelected() || hospitalization.getDischargeDate() == null);
+            if (change.getOperation() == ChangeEvent.Operation.INSERT && !keyOnly) {
+                if (shown) {
+                    // The list is ordered newest first
+                    hospitalizationList.add(0, hospitalization);
+                }
+                continue;
+            }
+
+            int index = indexOf(hospitalizationId);
+            if (!shown) {
+                if (index >= 0) {
+                    hospitalizationList.remove(index);
+                }
+            } else if (index >= 0) {
+                hospitalizationList.set(index, hospitalization);
+            } else {
+                hospitalizationList.add(0, hospitalization);
+            }
+        }
+    }
+
+    private int indexOf(int hospitalizationId) {
+        for (int i = 0; i < hospitalizationList.size(); i++) {
+            if (hospitalizationList.get(i).getHospitalizationId() == hospitalizationId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stops following the change feed when the tab is closed.
+     */
+    @Override
+    public void close() {
+        if (changeSubscription != null) {
+            changeSubscription.close();
+        }
+    }
+
     /**
      * Sets up the search functionality.
      */
@@ -480,11 +574,14 @@ public class HospitalizationController implements Initializable {
      */
     private void showHospitalizationDetails(Hospitalization hospitalization) {
         if (hospitalization != null) {
+            // Keep the row as read, so the update writes only the fields that are edited
+            originalHospitalization = new Hospitalization(hospitalization);
+
             txtHospitalizationId.setText(hospitalization.getHospitalizationId().toString());
 
             // Set patient in combobox
-            for (Patient patient : patientList) {
-                if (patient.getPatientId().equals(hospitalization.getPatientId())) {
+            for (PersonName patient : patientList) {
+                if (hospitalization.getPatientId() != null && patient.getId() == hospitalization.getPatientId()) {
                     cmbPatient.setValue(patient);
                     break;
                 }
@@ -511,8 +608,8 @@ public class HospitalizationController implements Initializable {
             txtDiagnosis.setText(hospitalization.getDiagnosis());
 
             // Set doctor in combobox
-            for (Doctor doctor : doctorList) {
-                if (doctor.getEmployeeId().equals(hospitalization.getDoctorId())) {
+            for (PersonName doctor : doctorList) {
+                if (hospitalization.getDoctorId() != null && doctor.getId() == hospitalization.getDoctorId()) {
                     cmbDoctor.setValue(doctor);
                     break;
                 }
@@ -579,23 +676,30 @@ public class HospitalizationController implements Initializable {
         if (validateInput()) {
             try {
                 Hospitalization hospitalization = new Hospitalization();
-                hospitalization.setPatientId(cmbPatient.getValue().getPatientId());
+                hospitalization.setPatientId(cmbPatient.getValue().getId());
                 hospitalization.setDepartmentCode(cmbDepartment.getValue().getDepartmentCode());
                 hospitalization.setWardNumber(cmbWard.getValue().getWardNumber());
                 hospitalization.setBedNumber(Integer.parseInt(txtBedNumber.getText()));
                 hospitalization.setDiagnosis(txtDiagnosis.getText());
-                hospitalization.setDoctorId(cmbDoctor.getValue().getEmployeeId());
+                hospitalization.setDoctorId(cmbDoctor.getValue().getId());
                 hospitalization.setAdmissionDate(dpAdmissionDate.getValue());
                 hospitalization.setDischargeDate(dpDischargeDate.getValue());
 
-                Optional<Integer> hospitalizationId = hospitalizationDAO.insert(hospitalization);
+                AdmissionJournal.Outcome outcome = hospitalizationDAO.admit(hospitalization);
 
-                if (hospitalizationId.isPresent()) {
+                if (outcome == AdmissionJournal.Outcome.SAVED) {
                     AlertUtils.showInformation("Success", "Hospitalization Saved",
-                            "Hospitalization record was successfully saved with ID: " + hospitalizationId.get());
-                    loadHospitalizationData();
+                            "Hospitalization record was successfully saved with ID: "
+                                    + hospitalization.getHospitalizationId());
                     clearFields();
                     setStatus("Hospitalization saved successfully");
+                } else if (outcome == AdmissionJournal.Outcome.JOURNALED) {
+                    AlertUtils.showWarning("Saved Offline", "Database Unreachable",
+                            "The admission was saved on this workstation and will be written to the database "
+                                    + "when the connection is back. It will not appear in the list until then.");
+                    clearFields();
+                    setStatus("Admission saved offline, " + AdmissionJournal.getInstance().getPendingCount()
+                            + " waiting for the database");
                 } else {
                     AlertUtils.showError("Error", "Failed to Save Hospitalization",
                             "An error occurred while saving the hospitalization record.");
@@ -619,14 +723,14 @@ public class HospitalizationController implements Initializable {
             try {
                 int hospitalizationId = Integer.parseInt(txtHospitalizationId.getText());
 
-                Hospitalization hospitalization = new Hospitalization();
+                Hospitalization hospitalization = new Hospitalization(originalHospitalization);
                 hospitalization.setHospitalizationId(hospitalizationId);
-                hospitalization.setPatientId(cmbPatient.getValue().getPatientId());
+                hospitalization.setPatientId(cmbPatient.getValue().getId());
                 hospitalization.setDepartmentCode(cmbDepartment.getValue().getDepartmentCode());
                 hospitalization.setWardNumber(cmbWard.getValue().getWardNumber());
                 hospitalization.setBedNumber(Integer.parseInt(txtBedNumber.getText()));
                 hospitalization.setDiagnosis(txtDiagnosis.getText());
-                hospitalization.setDoctorId(cmbDoctor.getValue().getEmployeeId());
+                hospitalization.setDoctorId(cmbDoctor.getValue().getId());
                 hospitalization.setAdmissionDate(dpAdmissionDate.getValue());
                 hospitalization.setDischargeDate(dpDischargeDate.getValue());
 
@@ -635,7 +739,6 @@ public class HospitalizationController implements Initializable {
                 if (success) {
                     AlertUtils.showInformation("Success", "Hospitalization Updated",
                             "Hospitalization record was successfully updated.");
-                    loadHospitalizationData();
                     clearFields();
                     setStatus("Hospitalization updated successfully");
                 } else {
@@ -643,6 +746,14 @@ public class HospitalizationController implements Initializable {
                             "Hospitalization with ID " + hospitalizationId + " was not found.");
                     setStatus("Failed to update hospitalization");
                 }
+            } catch (VersionConflictException e) {
+                logger.warn("Conflicting update of hospitalization", e);
+                AlertUtils.showWarning("Update Conflict", "Hospitalization Changed by Another User",
+                        "This hospitalization was changed by someone else after you opened it. " +
+                        "The list has been reloaded; please check the current values and make your change again.");
+                loadHospitalizationData();
+                clearFields();
+                setStatus("Update conflict, hospitalization reloaded");
             } catch (Exception e) {
                 logger.error("Error updating hospitalization", e);
                 AlertUtils.showError("Database Error", "Failed to update hospitalization", e.getMessage());
@@ -672,7 +783,6 @@ public class HospitalizationController implements Initializable {
                 if (success) {
                     AlertUtils.showInformation("Success", "Patient Discharged",
                             "Patient was successfully discharged.");
-                    loadHospitalizationData();
                     clearFields();
                     setStatus("Patient discharged successfully");
                 } else {
@@ -688,6 +798,42 @@ public class HospitalizationController implements Initializable {
         }
     }
 
+    /**
+     * Handles the discharge ward button action.
+     * Discharges every patient currently in the selected ward today, in one transaction.
+     */
+    @FXML
+    private void handleDischargeWardAction(ActionEvent event) {
+        Department department = cmbDepartment.getValue();
+        Ward ward = cmbWard.getValue();
+        if (department == null || ward == null) {
+            AlertUtils.showWarning("Validation Error", "No Ward Selected",
+                    "Please select the department and ward to discharge.");
+            return;
+        }
+
+        boolean confirm = AlertUtils.showConfirmation("Confirm Discharge",
+                "Discharge Ward", "Are you sure you want to discharge every patient in ward " +
+                        ward.getWardNumber() + " of " + department.getName() + " today?");
+
+        if (confirm) {
+            BulkResult result = hospitalizationDAO.dischargeWard(department.getDepartmentCode(),
+                    ward.getWardNumber(), LocalDate.now());
+
+            if (result.isCommitted()) {
+                int discharged = result.count(BulkResult.Status.DONE);
+                AlertUtils.showInformation("Success", "Ward Discharged",
+                        discharged + " patient(s) were discharged.");
+                clearFields();
+                setStatus(discharged + " patient(s) discharged from ward " + ward.getWardNumber());
+            } else {
+                AlertUtils.showError("Error", "Failed to Discharge Ward",
+                        "No patients were discharged. See the log for details.");
+                setStatus("Failed to discharge ward");
+            }
+        }
+    }
+
     /**
      * Handles the delete button action.
      * Confirms deletion and removes the hospitalization from the database.
@@ -706,7 +852,6 @@ public class HospitalizationController implements Initializable {
                 if (success) {
                     AlertUtils.showInformation("Success", "Hospitalization Deleted",
                             "Hospitalization record was successfully deleted.");
-                    loadHospitalizationData();
                     clearFields();
                     setStatus("Hospitalization deleted successfully");
                 } else {
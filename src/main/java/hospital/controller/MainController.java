@@ -186,8 +186,16 @@ public class MainController implements Initializable {
             tab.setClosable(true);
 
             // Add close handler
+            Object controller = loader.getController();
             tab.setOnClosed(e -> {
                 openTabs.remove(title);
+                if (controller instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) controller).close();
+                    } catch (Exception ex) {
+                        logger.warn("Error closing tab: {}", title, ex);
+                    }
+                }
                 logger.info("Closed tab: {}", title);
             });
 
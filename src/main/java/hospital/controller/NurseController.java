@@ -1,8 +1,10 @@
 package main.java.hospital.controller;
 
 import main.java.hospital.dao.NurseDAO;
+import main.java.hospital.dao.UnitOfWork;
 import main.java.hospital.dao.EmployeeDAO;
 import main.java.hospital.dao.DepartmentDAO;
+import main.java.hospital.dao.VersionConflictException;
 import main.java.hospital.model.Nurse;
 import main.java.hospital.model.Employee;
 import main.java.hospital.model.Department;
@@ -39,6 +41,7 @@ public class NurseController implements Initializable {
     private final DepartmentDAO departmentDAO = new DepartmentDAO();
     private ObservableList<Nurse> nurseList;
     private FilteredList<Nurse> filteredNurses;
+    private Nurse originalNurse;
     private ObservableList<Department> departmentList;
 
     @FXML private TableView<Nurse> tableNurses;
@@ -228,6 +231,9 @@ public class NurseController implements Initializable {
      */
     private void showNurseDetails(Nurse nurse) {
         if (nurse != null) {
+            // Keep the row as read, so the update writes only the fields that are edited
+            originalNurse = new Nurse(nurse);
+
             txtEmployeeId.setText(nurse.getEmployeeId().toString());
             txtFirstName.setText(nurse.getFirstName());
             txtSurname.setText(nurse.getSurname());
@@ -299,31 +305,39 @@ public class NurseController implements Initializable {
                         txtPhone.getText()
                 );
 
-                Optional<Integer> employeeId = employeeDAO.insert(employee);
-
-                if (employeeId.isPresent()) {
-                    // Create and save nurse with employee ID
-                    Nurse nurse = new Nurse();
-                    nurse.setEmployeeId(employeeId.get());
-                    nurse.setRotation(cmbRotation.getValue());
-                    nurse.setSalary(new BigDecimal(txtSalary.getText()));
-                    nurse.setDepartmentCode(cmbDepartment.getValue().getDepartmentCode());
-
-                    boolean success = nurseDAO.insert(nurse);
-
-                    if (success) {
-                        AlertUtils.showInformation("Success", "Nurse Saved",
-                                "Nurse was successfully saved with ID: " + employeeId.get());
-                        loadNurseData();
-                        clearFields();
-                        setStatus("Nurse saved successfully");
-                    } else {
-                        // If nurse insertion fails, delete the employee
-                        employeeDAO.delete(employeeId.get());
-                        AlertUtils.showError("Error", "Failed to Save Nurse",
-                                "An error occurred while saving the nurse.");
-                        setStatus("Failed to save nurse");
+                // Employee and nurse rows are written in one transaction on one connection;
+                // the outcome is shown once the unit of work has released it
+                Optional<Integer> employeeId;
+                boolean saved = false;
+                try (UnitOfWork work = UnitOfWork.begin()) {
+                    employeeId = employeeDAO.insert(employee);
+
+                    if (employeeId.isPresent()) {
+                        // Create and save nurse with employee ID
+                        Nurse nurse = new Nurse();
+                        nurse.setEmployeeId(employeeId.get());
+                        nurse.setRotation(cmbRotation.getValue());
+                        nurse.setSalary(new BigDecimal(txtSalary.getText()));
+                        nurse.setDepartmentCode(cmbDepartment.getValue().getDepartmentCode());
+
+                        saved = nurseDAO.insert(nurse);
+                        if (saved) {
+                            work.commit();
+                        }
+                        // Otherwise nothing was committed, so closing the unit of work rolls back the employee
                     }
+                }
+
+                if (saved) {
+                    AlertUtils.showInformation("Success", "Nurse Saved",
+                            "Nurse was successfully saved with ID: " + employeeId.get());
+                    loadNurseData();
+                    clearFields();
+                    setStatus("Nurse saved successfully");
+                } else if (employeeId.isPresent()) {
+                    AlertUtils.showError("Error", "Failed to Save Nurse",
+                            "An error occurred while saving the nurse.");
+                    setStatus("Failed to save nurse");
                 } else {
                     AlertUtils.showError("Error", "Failed to Save Nurse",
                             "An error occurred while saving the employee information.");
@@ -347,28 +361,13 @@ public class NurseController implements Initializable {
             try {
                 int employeeId = Integer.parseInt(txtEmployeeId.getText());
 
-                // Update employee information
-                Employee employee = new Employee(
-                        employeeId,
-                        txtFirstName.getText(),
-                        txtSurname.getText(),
-                        txtAddress.getText(),
-                        txtPhone.getText(),
-                        null, null
-                );
-
-                boolean employeeSuccess = employeeDAO.update(employee);
-
-                if (!employeeSuccess) {
-                    AlertUtils.showError("Error", "Failed to Update Nurse",
-                            "Employee with ID " + employeeId + " was not found.");
-                    setStatus("Failed to update employee information");
-                    return;
-                }
-
-                // Update nurse information
-                Nurse nurse = new Nurse();
+                // Update employee and nurse information
+                Nurse nurse = new Nurse(originalNurse);
                 nurse.setEmployeeId(employeeId);
+                nurse.setFirstName(txtFirstName.getText());
+                nurse.setSurname(txtSurname.getText());
+                nurse.setAddress(txtAddress.getText());
+                nurse.setPhone(txtPhone.getText());
                 nurse.setRotation(cmbRotation.getValue());
                 nurse.setSalary(new BigDecimal(txtSalary.getText()));
                 nurse.setDepartmentCode(cmbDepartment.getValue().getDepartmentCode());
@@ -391,6 +390,14 @@ public class NurseController implements Initializable {
                 AlertUtils.showError("Validation Error", "Invalid Employee ID",
                         "Please select a valid nurse to update.");
                 setStatus("Invalid employee ID");
+            } catch (VersionConflictException e) {
+                logger.warn("Conflicting update of nurse", e);
+                AlertUtils.showWarning("Update Conflict", "Nurse Changed by Another User",
+                        "This nurse was changed by someone else after you opened it. " +
+                        "The list has been reloaded; please check the current values and make your change again.");
+                loadNurseData();
+                clearFields();
+                setStatus("Update conflict, nurse reloaded");
             } catch (Exception e) {
                 logger.error("Error updating nurse", e);
                 AlertUtils.showError("Database Error", "Failed to update nurse", e.getMessage());
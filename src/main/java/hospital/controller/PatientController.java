@@ -1,6 +1,7 @@
 package main.java.hospital.controller;
 
 import main.java.hospital.dao.PatientDAO;
+import main.java.hospital.dao.VersionConflictException;
 import main.java.hospital.model.Patient;
 import main.java.hospital.util.AlertUtils;
 import main.java.hospital.util.ValidationUtils;
@@ -32,6 +33,7 @@ public class PatientController implements Initializable {
     private final PatientDAO patientDAO = new PatientDAO();
     private ObservableList<Patient> patientList;
     private FilteredList<Patient> filteredPatients;
+    private Patient originalPatient;
 
     @FXML private TableView<Patient> tablePatients;
     @FXML private TableColumn<Patient, Integer> colPatientId;
@@ -167,6 +169,9 @@ public class PatientController implements Initializable {
      */
     private void showPatientDetails(Patient patient) {
         if (patient != null) {
+            // Keep the row as read, so the update writes only the fields that are edited
+            originalPatient = new Patient(patient);
+
             txtPatientId.setText(patient.getPatientId().toString());
             txtFirstName.setText(patient.getFirstName());
             txtSurname.setText(patient.getSurname());
@@ -254,14 +259,11 @@ public class PatientController implements Initializable {
             try {
                 int patientId = Integer.parseInt(txtPatientId.getText());
 
-                Patient patient = new Patient(
-                        patientId,
-                        txtFirstName.getText(),
-                        txtSurname.getText(),
-                        txtAddress.getText(),
-                        txtPhone.getText(),
-                        null, null
-                );
+                Patient patient = new Patient(originalPatient);
+                patient.setFirstName(txtFirstName.getText());
+                patient.setSurname(txtSurname.getText());
+                patient.setAddress(txtAddress.getText());
+                patient.setPhone(txtPhone.getText());
 
                 boolean success = patientDAO.update(patient);
 
@@ -292,6 +294,14 @@ public class PatientController implements Initializable {
                 AlertUtils.showError("Validation Error", "Invalid Patient ID",
                         "Please select a valid patient to update.");
                 setStatus("Invalid patient ID");
+            } catch (VersionConflictException e) {
+                logger.warn("Conflicting update of patient", e);
+                AlertUtils.showWarning("Update Conflict", "Patient Changed by Another User",
+                        "This patient was changed by someone else after you opened it. " +
+                        "The list has been reloaded; please check the current values and make your change again.");
+                loadPatientData();
+                clearFields();
+                setStatus("Update conflict, patient reloaded");
             } catch (Exception e) {
                 logger.error("Error updating patient", e);
                 AlertUtils.showError("Database Error", "Failed to update patient", e.getMessage());
@@ -1,6 +1,9 @@
 package main.java.hospital.controller;
 
 import javafx.beans.value.ObservableValue;
+import main.java.hospital.analytics.HospitalizationColumnStore;
+import main.java.hospital.analytics.LengthOfStayEngine;
+import main.java.hospital.analytics.LengthOfStayStats;
 import main.java.hospital.dao.*;
 import main.java.hospital.model.*;
 import main.java.hospital.util.AlertUtils;
@@ -33,6 +36,7 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -185,12 +189,12 @@ public class PatientReportController implements Initializable {
      */
     private void loadDoctorData() {
         try {
-            List<Doctor> doctors = doctorDAO.findAll();
+            List<PersonName> doctors = doctorDAO.findAllNames();
 
             // Create a map of doctor IDs to names for display in the table
             doctorNames.clear();
-            for (Doctor doctor : doctors) {
-                doctorNames.put(doctor.getEmployeeId(), doctor.getFullName() + " (" + doctor.getSpeciality() + ")");
+            for (PersonName doctor : doctors) {
+                doctorNames.put(doctor.getId(), doctor.getDisplayName());
             }
 
             logger.info("Loaded {} doctors for name mapping", doctors.size());
@@ -353,7 +357,7 @@ public class PatientReportController implements Initializable {
             reportData.clear();
 
             // Get hospitalizations for the patient
-            List<Hospitalization> hospitalizations = hospitalizationDAO.findByPatient(selectedPatient.getPatientId());
+            List<Hospitalization> hospitalizations = hospitalizationDAO.findByPatient(selectedPatient.getPatientId(), true);
 
             // Process each hospitalization
             for (Hospitalization h : hospitalizations) {
@@ -529,7 +533,7 @@ public class PatientReportController implements Initializable {
             reportData.clear();
 
             // SQL to get hospitalizations in date range
-            String sql = "SELECT h.*, p.first_name, p.surname FROM Hospitalization h " +
+            String sql = "SELECT h.*, p.first_name, p.surname FROM HospitalizationHistory h " +
                     "JOIN Patient p ON h.patient_id = p.patient_id " +
                     "WHERE (h.admission_date BETWEEN ? AND ?) OR " +
                     "(h.discharge_date BETWEEN ? AND ?) OR " +
@@ -539,6 +543,7 @@ public class PatientReportController implements Initializable {
             // Custom query to get hospitalizations in date range
             List<Map<String, Object>> results = getCustomQueryResults(sql,
                     startDate, endDate, startDate, endDate, startDate, endDate);
+            sortByLatestAdmission(results);
 
             // Process each result
             for (Map<String, Object> result : results) {
@@ -632,13 +637,14 @@ public class PatientReportController implements Initializable {
             reportData.clear();
 
             // SQL to get hospitalizations by diagnosis
-            String sql = "SELECT h.*, p.first_name, p.surname FROM Hospitalization h " +
+            String sql = "SELECT h.*, p.first_name, p.surname FROM HospitalizationHistory h " +
                     "JOIN Patient p ON h.patient_id = p.patient_id " +
                     "WHERE h.diagnosis LIKE ? " +
                     "ORDER BY h.admission_date DESC";
 
             // Custom query to get hospitalizations by diagnosis
             List<Map<String, Object>> results = getCustomQueryResults(sql, "%" + diagnosisKeyword + "%");
+            sortByLatestAdmission(results);
 
             // Process each result
             for (Map<String, Object> result : results) {
@@ -717,6 +723,9 @@ public class PatientReportController implements Initializable {
 
             // Custom query to get all current hospitalizations
             List<Map<String, Object>> results = getCustomQueryResults(sql);
+            results.sort(Comparator.comparing((Map<String, Object> result) -> (String) result.get("department_code"))
+                    .thenComparing(result -> (Integer) result.get("ward_number"))
+                    .thenComparing(result -> (Integer) result.get("bed_number")));
 
             // Process each result
             for (Map<String, Object> result : results) {
@@ -802,46 +811,47 @@ public class PatientReportController implements Initializable {
             // Get current hospitalized patients
             String sqlCurrent = "SELECT COUNT(DISTINCT patient_id) AS count FROM Hospitalization " +
                     "WHERE discharge_date IS NULL";
-            List<Map<String, Object>> currentResults = getCustomQueryResults(sqlCurrent);
-            int currentPatients = ((Number) currentResults.get(0).get("count")).intValue();
+            int currentPatients = sumCounts(getCustomQueryResults(sqlCurrent), "count");
 
             // Get total hospitalizations
-            String sqlTotal = "SELECT COUNT(*) AS count FROM Hospitalization";
-            List<Map<String, Object>> totalResults = getCustomQueryResults(sqlTotal);
-            int totalHospitalizations = ((Number) totalResults.get(0).get("count")).intValue();
+            String sqlTotal = "SELECT COUNT(*) AS count FROM HospitalizationHistory";
+            int totalHospitalizations = sumCounts(getCustomQueryResults(sqlTotal), "count");
 
-            // Get average length of stay (for completed hospitalizations)
-            String sqlAvgStay = "SELECT AVG(DATEDIFF(discharge_date, admission_date)) AS avg_stay " +
-                    "FROM Hospitalization WHERE discharge_date IS NOT NULL";
+            // Get average length of stay (for completed hospitalizations), from each shard's total
+            String sqlAvgStay = "SELECT SUM(TIMESTAMPDIFF(DAY, admission_date, discharge_date)) AS total_stay, " +
+                    "COUNT(*) AS count FROM HospitalizationHistory WHERE discharge_date IS NOT NULL";
             List<Map<String, Object>> avgStayResults = getCustomQueryResults(sqlAvgStay);
+            int discharged = sumCounts(avgStayResults, "count");
             Double avgStay = null;
-            if (avgStayResults.get(0).get("avg_stay") != null) {
-                avgStay = ((Number) avgStayResults.get(0).get("avg_stay")).doubleValue();
+            if (discharged > 0) {
+                avgStay = (double) sumCounts(avgStayResults, "total_stay") / discharged;
             }
 
+            // Get length of stay percentiles from the in-memory analytics store
+            LengthOfStayStats stayStats = new LengthOfStayEngine(HospitalizationColumnStore.getInstance()).overall(null);
+
             // Get department with most patients
             String sqlTopDept = "SELECT department_code, COUNT(*) AS count FROM Hospitalization " +
-                    "WHERE discharge_date IS NULL GROUP BY department_code " +
-                    "ORDER BY count DESC LIMIT 1";
-            List<Map<String, Object>> topDeptResults = getCustomQueryResults(sqlTopDept);
+                    "WHERE discharge_date IS NULL GROUP BY department_code";
+            Map.Entry<String, Integer> topDept = largestCount(getCustomQueryResults(sqlTopDept), "department_code");
             String topDeptCode = "";
             int topDeptCount = 0;
 
-            if (!topDeptResults.isEmpty()) {
-                topDeptCode = (String) topDeptResults.get(0).get("department_code");
-                topDeptCount = ((Number) topDeptResults.get(0).get("count")).intValue();
+            if (topDept != null) {
+                topDeptCode = topDept.getKey();
+                topDeptCount = topDept.getValue();
             }
 
             // Get most common diagnosis
-            String sqlTopDiag = "SELECT diagnosis, COUNT(*) AS count FROM Hospitalization " +
-                    "GROUP BY diagnosis ORDER BY count DESC LIMIT 1";
-            List<Map<String, Object>> topDiagResults = getCustomQueryResults(sqlTopDiag);
+            String sqlTopDiag = "SELECT diagnosis, COUNT(*) AS count FROM HospitalizationHistory " +
+                    "GROUP BY diagnosis";
+            Map.Entry<String, Integer> topDiag = largestCount(getCustomQueryResults(sqlTopDiag), "diagnosis");
             String topDiagnosis = "";
             int topDiagCount = 0;
 
-            if (!topDiagResults.isEmpty()) {
-                topDiagnosis = (String) topDiagResults.get(0).get("diagnosis");
-                topDiagCount = ((Number) topDiagResults.get(0).get("count")).intValue();
+            if (topDiag != null) {
+                topDiagnosis = topDiag.getKey();
+                topDiagCount = topDiag.getValue();
             }
 
             // Add statistics to the report data
@@ -853,6 +863,11 @@ public class PatientReportController implements Initializable {
                 addStatistic("Average Length of Stay", String.format("%.1f days", avgStay));
             }
 
+            if (stayStats != null) {
+                addStatistic("Length of Stay (median / p90 / p99)", String.format("%d / %d / %d days",
+                        stayStats.getMedian(), stayStats.getP90(), stayStats.getP99()));
+            }
+
             if (!topDeptCode.isEmpty()) {
                 String deptName = departmentNames.getOrDefault(topDeptCode, topDeptCode);
                 addStatistic("Department with Most Patients",
@@ -881,6 +896,11 @@ public class PatientReportController implements Initializable {
                 summary.append("Average Stay Duration: ").append(String.format("%.1f days", avgStay)).append("\n");
             }
 
+            if (stayStats != null) {
+                summary.append("Stay Duration Median / p90 / p99: ").append(String.format("%d / %d / %d days",
+                        stayStats.getMedian(), stayStats.getP90(), stayStats.getP99())).append("\n");
+            }
+
             if (!topDeptCode.isEmpty()) {
                 String deptName = departmentNames.getOrDefault(topDeptCode, topDeptCode);
                 summary.append("Busiest Department: ").append(deptName)
@@ -913,7 +933,9 @@ public class PatientReportController implements Initializable {
     }
 
     /**
-     * Executes a custom SQL query and returns the results as a list of maps.
+     * Executes a custom SQL query and returns the results as a list of maps. With department
+     * shards the query runs on every shard and the rows are concatenated, so callers re-sort
+     * them and add up counts.
      *
      * @param sql The SQL query to execute
      * @param params The query parameters
@@ -922,9 +944,18 @@ public class PatientReportController implements Initializable {
      */
     private List<Map<String, Object>> getCustomQueryResults(String sql, Object... params) throws SQLException {
         List<Map<String, Object>> results = new ArrayList<>();
+        for (List<Map<String, Object>> shardResults :
+                DatabaseConnection.getInstance().onEveryShard(conn -> getCustomQueryResults(conn, sql, params))) {
+            results.addAll(shardResults);
+        }
+        return results;
+    }
+
+    private List<Map<String, Object>> getCustomQueryResults(Connection conn, String sql, Object... params)
+            throws SQLException {
+        List<Map<String, Object>> results = new ArrayList<>();
 
-        try (Connection conn = hospitalizationDAO.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             // Set parameters
             for (int i = 0; i < params.length; i++) {
@@ -968,6 +999,55 @@ public class PatientReportController implements Initializable {
         return results;
     }
 
+    /**
+     * Sorts report rows by admission date, latest first.
+     *
+     * @param results The rows
+     */
+    private void sortByLatestAdmission(List<Map<String, Object>> results) {
+        results.sort(Comparator.comparing((Map<String, Object> result) -> (LocalDate) result.get("admission_date"))
+                .reversed());
+    }
+
+    /**
+     * Adds up a count column over the rows of every shard.
+     *
+     * @param results The rows
+     * @param column The count column
+     * @return The total
+     */
+    private int sumCounts(List<Map<String, Object>> results, String column) {
+        int total = 0;
+        for (Map<String, Object> result : results) {
+            Object value = result.get(column);
+            if (value != null) {
+                total += ((Number) value).intValue();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds up the "count" column per group over the rows of every shard and finds the largest.
+     *
+     * @param results The rows
+     * @param column The grouping column
+     * @return The group and its count, or null if there are no rows
+     */
+    private Map.Entry<String, Integer> largestCount(List<Map<String, Object>> results, String column) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map<String, Object> result : results) {
+            counts.merge((String) result.get(column), ((Number) result.get("count")).intValue(), Integer::sum);
+        }
+        Map.Entry<String, Integer> largest = null;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (largest == null || entry.getValue() > largest.getValue()) {
+                largest = entry;
+            }
+        }
+        return largest;
+    }
+
     /**
      * Handles the action to export the current report to a CSV file.
      */
@@ -547,24 +547,23 @@ public class StaffReportController implements Initializable {
             reportData.clear();
 
             // Get hospitalizations under this doctor
-            List<Hospitalization> hospitalizations = hospitalizationDAO.findByDoctor(selectedDoctor.getEmployeeId());
+            List<Hospitalization> hospitalizations = hospitalizationDAO.findByDoctor(selectedDoctor.getEmployeeId(), true);
 
-            // Create a PatientDAO to get patient names
+            // Get the names of all patients in the report at once
             PatientDAO patientDAO = new PatientDAO();
-            Map<Integer, String> patientNames = new HashMap<>();
+            Set<Integer> patientIds = new HashSet<>();
+            for (Hospitalization h : hospitalizations) {
+                patientIds.add(h.getPatientId());
+            }
+            Map<Integer, PersonName> patientNames = patientDAO.findNamesByIds(patientIds);
 
             // Process each hospitalization
             for (Hospitalization h : hospitalizations) {
                 Map<String, Object> row = new HashMap<>();
-
-                // Get patient name if not already cached
-                if (!patientNames.containsKey(h.getPatientId())) {
-                    Optional<Patient> patient = patientDAO.findById(h.getPatientId());
-                    patient.ifPresent(p -> patientNames.put(p.getPatientId(), p.getFullName()));
-                }
+                PersonName patientName = patientNames.get(h.getPatientId());
 
                 row.put("patientId", h.getPatientId());
-                row.put("patientName", patientNames.getOrDefault(h.getPatientId(), "Unknown"));
+                row.put("patientName", patientName != null ? patientName.getFullName() : "Unknown");
                 row.put("departmentName", departmentNames.getOrDefault(h.getDepartmentCode(), h.getDepartmentCode()));
                 row.put("wardNumber", h.getWardNumber());
                 row.put("diagnosis", h.getDiagnosis());
@@ -3,6 +3,7 @@ package main.java.hospital.controller;
 import main.java.hospital.dao.WardDAO;
 import main.java.hospital.dao.DepartmentDAO;
 import main.java.hospital.dao.NurseDAO;
+import main.java.hospital.dao.VersionConflictException;
 import main.java.hospital.model.Ward;
 import main.java.hospital.model.Department;
 import main.java.hospital.model.Nurse;
@@ -67,6 +68,7 @@ public class WardController implements Initializable {
     private boolean isEditMode = false;
     private String originalDepartmentCode;
     private Integer originalWardNumber;
+    private Ward originalWard;
 
     /**
      * Initializes the controller.
@@ -321,6 +323,7 @@ public class WardController implements Initializable {
             // Save original values for update operation
             originalDepartmentCode = ward.getDepartmentCode();
             originalWardNumber = ward.getWardNumber();
+            originalWard = new Ward(ward);
 
             // Set department in combobox
             for (Department department : departmentList) {
@@ -426,7 +429,7 @@ public class WardController implements Initializable {
     private void handleUpdateAction(ActionEvent event) {
         if (validateInput()) {
             try {
-                Ward ward = new Ward();
+                Ward ward = new Ward(originalWard);
                 ward.setDepartmentCode(cmbDepartment.getValue().getDepartmentCode());
                 ward.setWardNumber(Integer.parseInt(txtWardNumber.getText()));
                 ward.setBedCount(Integer.parseInt(txtBedCount.getText()));
@@ -456,6 +459,14 @@ public class WardController implements Initializable {
                             "Ward was not found or could not be updated.");
                     setStatus("Failed to update ward");
                 }
+            } catch (VersionConflictException e) {
+                logger.warn("Conflicting update of ward", e);
+                AlertUtils.showWarning("Update Conflict", "Ward Changed by Another User",
+                        "This ward was changed by someone else after you opened it. " +
+                        "The list has been reloaded; please check the current values and make your change again.");
+                loadWardData();
+                clearFields();
+                setStatus("Update conflict, ward reloaded");
             } catch (Exception e) {
                 logger.error("Error updating ward", e);
                 AlertUtils.showError("Database Error", "Failed to update ward", e.getMessage());
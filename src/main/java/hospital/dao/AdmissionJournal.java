@@ -0,0 +1,553 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.model.Hospitalization;
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps admissions that could not be written because the database was unreachable, and writes
+ * them in order once it is back, so admitting patients keeps working during an outage.
+ *
+ * <p>Admissions are appended to memory-mapped segment files of {@code db.journal.segmentBytes}
+ * in {@code db.journal.dir}, and each append is forced to disk before it returns. A record is
+ * its length, a CRC32 and the admission; a record that was only partly written when the
+ * process died fails its CRC and ends the segment. Every {@code db.journal.replayMillis} the
+ * journal is written to the database, oldest first, stopping at the first admission the
+ * database is still unreachable for or fails with a transient error such as a deadlock. Each
+ * record has the key its admission was first attempted with, which is stored in the JournalReplay
+ * table in the same transaction as the hospitalization, so an admission that was written just
+ * before a crash or a lost connection is not written again. Admissions the database rejects are logged and kept in
+ * {@code rejected.log}. Fully written segments are deleted.</p>
+ *
+ * <p>The directory is locked, so only one client uses a journal directory at a time.</p>
+ */
+public class AdmissionJournal {
+    private static final Logger logger = LogManager.getLogger(AdmissionJournal.class);
+    private static final String SEGMENT_PREFIX = "admissions-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    // Length and CRC32 of a record
+    private static final int HEADER_BYTES = 8;
+    private static final byte ADMIT = 1;
+    private static final long NO_DISCHARGE = Long.MIN_VALUE;
+    private static AdmissionJournal instance;
+
+    /**
+     * What happened to an admission.
+     */
+    public enum Outcome {
+        /** Written to the database. */
+        SAVED,
+        /** Kept in the journal, to be written when the database is reachable. */
+        JOURNALED,
+        /** Neither written nor journaled. */
+        FAILED
+    }
+
+    private final DatabaseConnection dbConnection;
+    private final Path directory;
+    private final int segmentBytes;
+    private final long replayMillis;
+    private final boolean enabled;
+    // Only one replay runs at a time; appends are not blocked while it writes to the database
+    private final Object replayLock = new Object();
+    private FileLock directoryLock;
+
+    // Oldest first; admissions are appended to the last one
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSequence = 1;
+    private int pending;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * A segment file, mapped in memory.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        // Segments left by an earlier run are not appended to, as a partly written record may follow their end
+        private boolean sealed;
+        // The offset after the last complete record, and after the last record written to the database
+        private int end;
+        private int replayed;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * A journaled admission.
+     */
+    private static final class Record {
+        private final String key;
+        private final Hospitalization hospitalization;
+        // The offset after the record
+        private final int next;
+
+        private Record(String key, Hospitalization hospitalization, int next) {
+            this.key = key;
+            this.hospitalization = hospitalization;
+            this.next = next;
+        }
+    }
+
+    private AdmissionJournal() {
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.directory = Paths.get(config.get("db.journal.dir", "journal"));
+        this.segmentBytes = Math.max(4096, config.getInt("db.journal.segmentBytes", 1 << 20));
+        this.replayMillis = Math.max(100, config.getInt("db.journal.replayMillis", 5000));
+        this.enabled = config.getBoolean("db.journal.enabled", true) && open();
+    }
+
+    /**
+     * Get the singleton instance of AdmissionJournal
+     *
+     * @return The AdmissionJournal instance
+     */
+    public static synchronized AdmissionJournal getInstance() {
+        if (instance == null) {
+            instance = new AdmissionJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * Locks the directory and loads the segments left by an earlier run.
+     *
+     * @return true if the journal can be used
+     */
+    private boolean open() {
+        try {
+            Files.createDirectories(directory);
+            FileChannel lockChannel = FileChannel.open(directory.resolve("journal.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            directoryLock = lockChannel.tryLock();
+            if (directoryLock == null) {
+                lockChannel.close();
+                logger.warn("Admission journal {} is used by another client; admissions will not be journaled",
+                        directory.toAbsolutePath());
+                return false;
+            }
+
+            List<Path> paths = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                files.forEach(paths::add);
+            }
+            Collections.sort(paths);
+            for (Path path : paths) {
+                Segment segment;
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    segment = new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+                }
+                for (Record record = read(segment, 0); record != null; record = read(segment, record.next)) {
+                    segment.end = record.next;
+                    pending++;
+                }
+                segment.sealed = true;
+                segments.addLast(segment);
+                nextSequence = Math.max(nextSequence, sequenceOf(path) + 1);
+            }
+            if (pending > 0) {
+                logger.info("Found {} journaled admissions in {}", pending, directory.toAbsolutePath());
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("Cannot open admission journal {}; admissions will not be journaled",
+                    directory.toAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether admissions are journaled during outages ({@code db.journal.enabled}).
+     *
+     * @return true if the journal is enabled and could be opened
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts the admissions waiting to be written to the database.
+     *
+     * @return The number of journaled admissions
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Checks whether admissions are waiting. New admissions are then journaled behind them, so
+     * that they reach the database in order.
+     *
+     * @return true if the journal is not empty
+     */
+    synchronized boolean isPending() {
+        return pending > 0;
+    }
+
+    /**
+     * Starts writing journaled admissions to the database in the background, including those
+     * left by an earlier run.
+     */
+    public synchronized void start() {
+        if (scheduler != null || !enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(ConcurrencyUtils.daemonThreadFactory("admission-journal"));
+        scheduler.scheduleWithFixedDelay(this::replayQuietly, 0, replayMillis, TimeUnit.MILLISECONDS);
+        logger.info("Replaying journaled admissions every {} ms", replayMillis);
+    }
+
+    /**
+     * Stops writing journaled admissions. They stay in the journal for the next run.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            logger.info("Stopped replaying journaled admissions");
+        }
+    }
+
+    /**
+     * Appends an admission and forces it to disk.
+     *
+     * @param hospitalization The admission, without an ID
+     * @param key             The key the admission was first attempted with
+     * @return true if it was journaled
+     */
+    boolean append(Hospitalization hospitalization, String key) {
+        try {
+            byte[] data = encode(key, hospitalization);
+            if (HEADER_BYTES + data.length > segmentBytes) {
+                throw new IllegalArgumentException("Admission does not fit in a journal segment");
+            }
+            synchronized (this) {
+                Segment tail = segments.peekLast();
+                if (tail == null || tail.sealed || tail.end + HEADER_BYTES + data.length > tail.buffer.capacity()) {
+                    tail = createSegment();
+                    segments.addLast(tail);
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                ByteBuffer buffer = tail.buffer.duplicate();
+                buffer.position(tail.end);
+                buffer.putInt(data.length);
+                buffer.putInt((int) crc.getValue());
+                buffer.put(data);
+                tail.buffer.force();
+                tail.end = buffer.position();
+                pending++;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Could not journal admission of patient {}", hospitalization.getPatientId(), e);
+            return false;
+        }
+
+        logger.info("Journaled admission {} of patient {}", key, hospitalization.getPatientId());
+        start();
+        return true;
+    }
+
+    private Segment createSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            channel.force(true);
+            return new Segment(path, buffer);
+        }
+    }
+
+    /**
+     * Writes journaled admissions to the database, oldest first, until the journal is empty or
+     * the database is unreachable.
+     *
+     * @return The number of admissions taken out of the journal
+     */
+    public int replay() {
+        int replayed = 0;
+        synchronized (replayLock) {
+            while (true) {
+                Segment segment;
+                Record record;
+                synchronized (this) {
+                    segment = segments.peekFirst();
+                    if (segment == null) {
+                        break;
+                    }
+                    record = segment.replayed < segment.end ? read(segment, segment.replayed) : null;
+                    if (record == null) {
+                        segments.removeFirst();
+                        delete(segment);
+                        continue;
+                    }
+                }
+
+                try {
+                    write(record);
+                } catch (SQLException e) {
+                    if (isUnreachable(e)) {
+                        logger.info("Database still unreachable, {} admissions stay journaled", getPendingCount());
+                        break;
+                    }
+                    if (isTransient(e)) {
+                        logger.warn("Journaled admission {} failed transiently, retrying later", record.key, e);
+                        break;
+                    }
+                    reject(record, e);
+                }
+                synchronized (this) {
+                    segment.replayed = record.next;
+                    pending--;
+                }
+                replayed++;
+            }
+        }
+        if (replayed > 0) {
+            logger.info("Replayed {} journaled admissions, {} left", replayed, getPendingCount());
+        }
+        return replayed;
+    }
+
+    private void replayQuietly() {
+        try {
+            if (isPending()) {
+                replay();
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled replay
+            logger.error("Replaying journaled admissions failed", e);
+        }
+    }
+
+    /**
+     * Writes one admission, unless an earlier replay already did.
+     */
+    private void write(Record record) throws SQLException {
+        if (isWritten(record)) {
+            logger.info("Journaled admission {} was already written", record.key);
+            return;
+        }
+        if (!new HospitalizationDAO().insert(record.hospitalization, record.key).isPresent()) {
+            throw new SQLException("Journaled admission " + record.key + " was not inserted");
+        }
+        logger.info("Wrote journaled admission {} as hospitalization {}", record.key,
+                record.hospitalization.getHospitalizationId());
+    }
+
+    private boolean isWritten(Record record) throws SQLException {
+        try (Connection conn = dbConnection.getConnection(record.hospitalization.getDepartmentCode());
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM JournalReplay WHERE journal_key = ?")) {
+            stmt.setString(1, record.key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Records that a journaled admission was written, in the transaction that wrote it.
+     *
+     * @param conn              The transaction's connection
+     * @param key               The journal record's key
+     * @param hospitalizationId The ID of the written hospitalization
+     * @throws SQLException If a database access error occurs
+     */
+    static void recordWritten(Connection conn, String key, int hospitalizationId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO JournalReplay (journal_key, hospitalization_id) VALUES (?, ?)")) {
+            stmt.setString(1, key);
+            stmt.setInt(2, hospitalizationId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Keeps an admission the database rejected, so that it can be entered again by hand.
+     */
+    private void reject(Record record, SQLException e) {
+        Hospitalization h = record.hospitalization;
+        logger.error("Database rejected journaled admission {} of patient {}", record.key, h.getPatientId(), e);
+        String line = String.join(",", record.key, String.valueOf(h.getPatientId()), h.getDepartmentCode(),
+                String.valueOf(h.getWardNumber()), String.valueOf(h.getBedNumber()), String.valueOf(h.getDoctorId()),
+                String.valueOf(h.getAdmissionDate()), String.valueOf(h.getDischargeDate()),
+                "\"" + h.getDiagnosis().replace("\"", "\"\"") + "\"",
+                "\"" + String.valueOf(e.getMessage()).replaceAll("\\s+", " ").replace("\"", "\"\"") + "\"")
+                + System.lineSeparator();
+        try {
+            Files.write(directory.resolve("rejected.log"), line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ioe) {
+            logger.error("Could not record rejected admission {}", record.key, ioe);
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            // Its records are skipped next time, as JournalReplay has their keys
+            logger.warn("Could not delete journal segment {}", segment.path, e);
+        }
+    }
+
+    /**
+     * Checks whether an error means the database could not be reached, rather than that it
+     * refused the statement.
+     *
+     * @param e The error
+     * @return true for connection failures and timeouts waiting for a connection
+     */
+    static boolean isUnreachable(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException || cause instanceof SQLNonTransientConnectionException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an error may go away if the statement is retried, such as a deadlock or a
+     * lock wait timeout.
+     *
+     * @param e The error
+     * @return true for transient errors and transaction rollbacks (SQLState class 40)
+     */
+    static boolean isTransient(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                String state = sqlException.getSQLState();
+                // MySQL reports lock wait timeouts (1205) and deadlocks (1213) with other states too
+                if ((state != null && state.startsWith("40")) || sqlException.getErrorCode() == 1205
+                        || sqlException.getErrorCode() == 1213) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the record at an offset.
+     *
+     * @return The record, or null at the end of the segment or at a partly written record
+     */
+    private static Record read(Segment segment, int offset) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        if (offset + HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        buffer.position(offset);
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        buffer.get(data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != checksum) {
+            logger.warn("Ignoring partly written record at {} of {}", offset, segment.path);
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != ADMIT) {
+                throw new IOException("Unknown record type");
+            }
+            String key = in.readUTF();
+            Hospitalization hospitalization = new Hospitalization(in.readInt(), in.readUTF(), in.readInt(),
+                    in.readInt(), in.readUTF(), in.readInt(), LocalDate.ofEpochDay(in.readLong()));
+            long discharged = in.readLong();
+            hospitalization.setDischargeDate(discharged != NO_DISCHARGE ? LocalDate.ofEpochDay(discharged) : null);
+            return new Record(key, hospitalization, buffer.position());
+        } catch (IOException e) {
+            logger.error("Ignoring unreadable record at {} of {}", offset, segment.path, e);
+            return null;
+        }
+    }
+
+    private static byte[] encode(String key, Hospitalization h) throws IOException {
+        if (h.getPatientId() == null || h.getDepartmentCode() == null || h.getWardNumber() == null
+                || h.getBedNumber() == null || h.getDiagnosis() == null || h.getDoctorId() == null
+                || h.getAdmissionDate() == null) {
+            throw new IllegalArgumentException("Admission is missing required fields");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ADMIT);
+            out.writeUTF(key);
+            out.writeInt(h.getPatientId());
+            out.writeUTF(h.getDepartmentCode());
+            out.writeInt(h.getWardNumber());
+            out.writeInt(h.getBedNumber());
+            out.writeUTF(h.getDiagnosis());
+            out.writeInt(h.getDoctorId());
+            out.writeLong(h.getAdmissionDate().toEpochDay());
+            out.writeLong(h.getDischargeDate() != null ? h.getDischargeDate().toEpochDay() : NO_DISCHARGE);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.util.ConcurrencyUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade over the DAOs.
+ * Each call runs the blocking DAO method on the facade's executor and returns a
+ * CompletableFuture, so independent queries can run concurrently:
+ * <pre>
+ * AsyncDAO async = new AsyncDAO();
+ * CompletableFuture&lt;Optional&lt;Patient&gt;&gt; patient = async.patients(dao -&gt; dao.findById(id));
+ * CompletableFuture&lt;List&lt;Ward&gt;&gt; wards = async.wards(WardDAO::findAll);
+ * </pre>
+ * A database error swallowed by the DAO completes the future exceptionally with a
+ * {@link DataAccessException} instead of an empty result.
+ * Calls made inside a {@link UnitOfWork} should stay synchronous, as the transaction
+ * belongs to the calling thread.
+ */
+public class AsyncDAO {
+
+    private static Executor defaultExecutor;
+
+    private final Executor executor;
+    private final PatientDAO patientDAO;
+    private final HospitalizationDAO hospitalizationDAO;
+    private final WardDAO wardDAO;
+    private final DoctorDAO doctorDAO;
+    private final NurseDAO nurseDAO;
+    private final DepartmentDAO departmentDAO;
+
+    /**
+     * Creates a facade on the shared default executor (virtual threads where available).
+     */
+    public AsyncDAO() {
+        this(getDefaultExecutor());
+    }
+
+    /**
+     * Creates a facade on the given executor.
+     *
+     * @param executor The executor that runs the DAO calls
+     */
+    public AsyncDAO(Executor executor) {
+        this.executor = executor;
+        this.patientDAO = new PatientDAO();
+        this.hospitalizationDAO = new HospitalizationDAO();
+        this.wardDAO = new WardDAO();
+        this.doctorDAO = new DoctorDAO();
+        this.nurseDAO = new NurseDAO();
+        this.departmentDAO = new DepartmentDAO();
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            // Bound the fallback pool by the connection pool; more threads would only queue for connections
+            int threads = DatabaseConfig.getInstance().getInt("db.pool.size", 10);
+            defaultExecutor = ConcurrencyUtils.newPerTaskExecutor("async-dao", threads);
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Runs a PatientDAO operation asynchronously.
+     *
+     * @param operation The operation
+     * @param <R>       The result type
+     * @return A future of the result
+     */
+    public <R> CompletableFuture<R> patients(Function<PatientDAO, R> operation) {
+        return submit(patientDAO, operation);
+    }
+
+    /**
+     * Runs a HospitalizationDAO operation asynchronously.
+     *
+     * @param operation The operation
+     * @param <R>       The result type
+     * @return A future of the result
+     */
+    public <R> CompletableFuture<R> hospitalizations(Function<HospitalizationDAO, R> operation) {
+        return submit(hospitalizationDAO, operation);
+    }
+
+    /**
+     * Runs a WardDAO operation asynchronously.
+     *
+     * @param operation The operation
+     * @param <R>       The result type
+     * @return A future of the result
+     */
+    public <R> CompletableFuture<R> wards(Function<WardDAO, R> operation) {
+        return submit(wardDAO, operation);
+    }
+
+    /**
+     * Runs a DoctorDAO operation asynchronously.
+     *
+     * @param operation The operation
+     * @param <R>       The result type
+     * @return A future of the result
+     */
+    public <R> CompletableFuture<R> doctors(Function<DoctorDAO, R> operation) {
+        return submit(doctorDAO, operation);
+    }
+
+    /**
+     * Runs a NurseDAO operation asynchronously.
+     *
+     * @param operation The operation
+     * @param <R>       The result type
+     * @return A future of the result
+     */
+    public <R> CompletableFuture<R> nurses(Function<NurseDAO, R> operation) {
+        return submit(nurseDAO, operation);
+    }
+
+    /**
+     * Runs a DepartmentDAO operation asynchronously.
+     *
+     * @param operation The operation
+     * @param <R>       The result type
+     * @return A future of the result
+     */
+    public <R> CompletableFuture<R> departments(Function<DepartmentDAO, R> operation) {
+        return submit(departmentDAO, operation);
+    }
+
+    private <D, R> CompletableFuture<R> submit(D dao, Function<D, R> operation) {
+        return CompletableFuture.supplyAsync(() -> ErrorCapture.call(() -> operation.apply(dao)), executor);
+    }
+}
@@ -0,0 +1,205 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Shared JDBC batching logic for the DAOs' {@code insertAll} methods.
+ * Rows are sent in chunks, each chunk as one batch in its own transaction (or in the
+ * caller's {@link UnitOfWork}, if one is active). With MySQL,
+ * {@code rewriteBatchedStatements=true} on the URL lets the driver turn a batch into a
+ * single multi-row INSERT.
+ */
+class BatchInserter {
+    private static final Logger logger = LogManager.getLogger(BatchInserter.class);
+
+    /**
+     * Binds one item's values to the insert statement.
+     *
+     * @param <T> The entity type
+     */
+    interface Binder<T> {
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+
+    /**
+     * Runs extra statements for a chunk on its connection, after its rows are inserted and
+     * their keys set, so they commit or roll back with the chunk.
+     *
+     * @param <T> The entity type
+     */
+    interface ChunkHook<T> {
+        void afterInsert(Connection conn, List<T> chunk) throws SQLException;
+    }
+
+    /**
+     * Supplies the keys of rows whose key is not generated by the database.
+     */
+    interface KeyAllocator {
+        int next() throws SQLException;
+    }
+
+    /**
+     * Gets the default chunk size from the {@code db.batch.size} property.
+     *
+     * @return The configured chunk size
+     */
+    static int defaultChunkSize() {
+        return DatabaseConfig.getInstance().getInt("db.batch.size", 1000);
+    }
+
+    /**
+     * Inserts all items, chunk by chunk, and returns their generated keys in input order.
+     * Processing stops at the first chunk that fails; that chunk is rolled back and the keys
+     * of the chunks committed before it are returned. Inside a unit of work nothing is
+     * committed or rolled back here; the caller decides based on the returned keys.
+     *
+     * @param dbConnection The connection provider
+     * @param sql          The INSERT statement
+     * @param items        The items to insert
+     * @param chunkSize    The number of rows per batch and transaction
+     * @param binder       Binds an item to the statement
+     * @param keySetter    Stores the generated key on the item
+     * @param <T>          The entity type
+     * @return The generated keys of the inserted items, in input order
+     */
+    static <T> List<Integer> insertAll(DatabaseConnection dbConnection, String sql, List<T> items, int chunkSize,
+                                       Binder<T> binder, BiConsumer<T, Integer> keySetter) {
+        return insertAll(dbConnection, sql, items, chunkSize, binder, keySetter, null);
+    }
+
+    /**
+     * Inserts all items like {@link #insertAll(DatabaseConnection, String, List, int, Binder, BiConsumer)},
+     * running a hook in each chunk's transaction.
+     *
+     * @param dbConnection The connection provider
+     * @param sql          The INSERT statement
+     * @param items        The items to insert
+     * @param chunkSize    The number of rows per batch and transaction
+     * @param binder       Binds an item to the statement
+     * @param keySetter    Stores the generated key on the item
+     * @param hook         Runs after each chunk is inserted and before it commits, or null
+     * @param <T>          The entity type
+     * @return The generated keys of the inserted items, in input order
+     */
+    static <T> List<Integer> insertAll(DatabaseConnection dbConnection, String sql, List<T> items, int chunkSize,
+                                       Binder<T> binder, BiConsumer<T, Integer> keySetter, ChunkHook<T> hook) {
+        return insertAll(dbConnection, ShardRouter.PRIMARY, sql, items, chunkSize, binder, keySetter, null, hook);
+    }
+
+    /**
+     * Inserts all items into a shard like
+     * {@link #insertAll(DatabaseConnection, String, List, int, Binder, BiConsumer, ChunkHook)}.
+     * With a key allocator, each item's key is taken from it and set before the item is bound,
+     * and the statement must insert the key. The keys of a chunk that fails are cleared again, so
+     * items that were not inserted can be told apart by their null key.
+     *
+     * @param dbConnection The connection provider
+     * @param shard        The shard to insert into
+     * @param sql          The INSERT statement
+     * @param items        The items to insert
+     * @param chunkSize    The number of rows per batch and transaction
+     * @param binder       Binds an item to the statement
+     * @param keySetter    Stores the generated or allocated key on the item
+     * @param allocator    Supplies the keys, or null if the database generates them
+     * @param hook         Runs after each chunk is inserted and before it commits, or null
+     * @param <T>          The entity type
+     * @return The keys of the inserted items, in input order
+     */
+    static <T> List<Integer> insertAll(DatabaseConnection dbConnection, ShardRouter.Shard shard, String sql,
+                                       List<T> items, int chunkSize, Binder<T> binder,
+                                       BiConsumer<T, Integer> keySetter, KeyAllocator allocator, ChunkHook<T> hook) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+
+        List<Integer> keys = new ArrayList<>(items.size());
+        if (items.isEmpty()) {
+            return keys;
+        }
+
+        try (Connection conn = dbConnection.getConnection(shard);
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            // Inside a unit of work the caller owns the transaction, so chunks are not committed here
+            boolean ownTransaction = !(shard.isPrimary() && dbConnection.isInTransaction());
+            boolean autoCommit = conn.getAutoCommit();
+            if (ownTransaction) {
+                conn.setAutoCommit(false);
+            }
+            try {
+                for (int from = 0; from < items.size(); from += chunkSize) {
+                    List<T> chunk = items.subList(from, Math.min(items.size(), from + chunkSize));
+                    try {
+                        keys.addAll(insertChunk(conn, stmt, chunk, binder, keySetter, allocator, hook, ownTransaction));
+                    } catch (SQLException e) {
+                        if (ownTransaction) {
+                            conn.rollback();
+                        }
+                        chunk.forEach(item -> keySetter.accept(item, null));
+                        logger.error("Batch insert failed for rows {}-{}", from, from + chunk.size() - 1, e);
+                        break;
+                    }
+                }
+            } finally {
+                if (ownTransaction) {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error during batch insert", e);
+        }
+
+        return keys;
+    }
+
+    private static <T> List<Integer> insertChunk(Connection conn, PreparedStatement stmt, List<T> chunk,
+                                                 Binder<T> binder, BiConsumer<T, Integer> keySetter,
+                                                 KeyAllocator allocator, ChunkHook<T> hook, boolean commit)
+            throws SQLException {
+        List<Integer> keys = new ArrayList<>(chunk.size());
+        for (T item : chunk) {
+            if (allocator != null) {
+                int key = allocator.next();
+                keySetter.accept(item, key);
+                keys.add(key);
+            }
+            binder.bind(stmt, item);
+            stmt.addBatch();
+        }
+        stmt.executeBatch();
+
+        if (allocator == null) {
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                while (generatedKeys.next()) {
+                    keys.add(generatedKeys.getInt(1));
+                }
+            }
+
+            if (keys.size() != chunk.size()) {
+                stmt.clearBatch();
+                throw new SQLException("Expected " + chunk.size() + " generated keys but got " + keys.size());
+            }
+
+            for (int i = 0; i < chunk.size(); i++) {
+                keySetter.accept(chunk.get(i), keys.get(i));
+            }
+        }
+        if (hook != null) {
+            hook.afterInsert(conn, chunk);
+        }
+        if (commit) {
+            conn.commit();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,162 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.model.Hospitalization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk hospitalization operation, one row per hospitalization it was asked
+ * to change. Rows that could not be changed are reported and skipped; the others are
+ * committed together (with department shards, together per shard).
+ */
+public class BulkResult {
+
+    /**
+     * What happened to one hospitalization.
+     */
+    public enum Status {
+        /** Changed as requested. */
+        DONE,
+        /** No hospitalization has the ID. */
+        NOT_FOUND,
+        /** The patient is already discharged. */
+        NOT_ACTIVE,
+        /** The target ward does not exist or has no free bed. */
+        NO_FREE_BED,
+        /** The hospitalization is stored on another shard than the target ward. */
+        OTHER_SHARD,
+        /** The transaction failed and nothing was changed. */
+        FAILED
+    }
+
+    /**
+     * The outcome for one hospitalization.
+     */
+    public static class Row {
+        private final int hospitalizationId;
+        private final Status status;
+        private final Hospitalization state;
+
+        Row(int hospitalizationId, Status status, Hospitalization state) {
+            this.hospitalizationId = hospitalizationId;
+            this.status = status;
+            this.state = state;
+        }
+
+        public int getHospitalizationId() {
+            return hospitalizationId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Gets the hospitalization as written.
+         *
+         * @return The new state, or null unless the status is {@link Status#DONE}
+         */
+        public Hospitalization getState() {
+            return state;
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+    private boolean committed = true;
+
+    void add(int hospitalizationId, Status status, Hospitalization state) {
+        rows.add(new Row(hospitalizationId, status, state));
+    }
+
+    /**
+     * Appends the rows of another shard's transaction.
+     *
+     * @param other The other result
+     */
+    void addAll(BulkResult other) {
+        rows.addAll(other.rows);
+        committed &= other.committed;
+    }
+
+    /**
+     * Creates the result of a transaction that failed.
+     *
+     * @param hospitalizationIds The IDs the operation was asked to change
+     * @return A result with every row {@link Status#FAILED}
+     */
+    static BulkResult failed(List<Integer> hospitalizationIds) {
+        BulkResult result = new BulkResult();
+        result.committed = false;
+        for (int hospitalizationId : hospitalizationIds) {
+            result.add(hospitalizationId, Status.FAILED, null);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the operation's transaction committed. If it did not, nothing was changed,
+     * except with shards, where the {@link Status#DONE} rows of other shards were committed.
+     *
+     * @return true if committed
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * Gets the outcome of every hospitalization, in the order they were processed.
+     *
+     * @return The rows
+     */
+    public List<Row> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Gets the hospitalizations the operation was applied to.
+     *
+     * @return The states of the {@link Status#DONE} rows
+     */
+    public List<Hospitalization> getDone() {
+        List<Hospitalization> changed = new ArrayList<>();
+        for (Row row : rows) {
+            if (row.status == Status.DONE) {
+                changed.add(row.state);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Counts the rows with a status.
+     *
+     * @param status The status
+     * @return The number of rows
+     */
+    public int count(Status status) {
+        int count = 0;
+        for (Row row : rows) {
+            if (row.status == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        if (!committed && count(Status.DONE) == 0) {
+            return "Failed, nothing changed";
+        }
+        StringBuilder summary = new StringBuilder();
+        for (Status status : Status.values()) {
+            int count = count(status);
+            if (count > 0) {
+                summary.append(summary.length() == 0 ? "" : ", ").append(status).append(": ").append(count);
+            }
+        }
+        return summary.length() == 0 ? "No hospitalizations" : summary.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package main.java.hospital.dao;
+
+import java.util.Objects;
+
+/**
+ * A committed change to one row, published by the DAOs on the {@link ChangeFeed}.
+ */
+public class ChangeEvent {
+
+    /**
+     * The kinds of row the DAOs write.
+     */
+    public enum Entity {
+        PATIENT, EMPLOYEE, DOCTOR, NURSE, DEPARTMENT, WARD, HOSPITALIZATION
+    }
+
+    /**
+     * The kinds of change.
+     */
+    public enum Operation {
+        INSERT,
+        UPDATE,
+        DELETE,
+        /** Changes for the entity were dropped because the subscriber fell behind; reload it. */
+        RESYNC
+    }
+
+    private final Entity entity;
+    private final Operation operation;
+    private final Object key;
+    private final Object values;
+
+    /**
+     * Constructor for a change event
+     *
+     * @param entity    The kind of row
+     * @param operation The kind of change
+     * @param key       The row's key: an Integer ID, a department code, or "departmentCode/wardNumber"
+     * @param values    The row after the change, or null if only the key is known
+     */
+    public ChangeEvent(Entity entity, Operation operation, Object key, Object values) {
+        this.entity = entity;
+        this.operation = operation;
+        this.key = key;
+        this.values = values;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the row after the change. It is null for deletes, resyncs, and updates the DAO
+     * made without reading the whole row (such as a discharge); re-read the row by key then.
+     *
+     * @return The model object, e.g. a Patient for {@link Entity#PATIENT}, or null
+     */
+    public Object getValues() {
+        return values;
+    }
+
+    /**
+     * Gets the row after the change as its model type.
+     *
+     * @param type The model class
+     * @param <T>  The model type
+     * @return The row, or null if the event carries no values
+     */
+    public <T> T getValues(Class<T> type) {
+        return type.cast(values);
+    }
+
+    /**
+     * Gets the ward key used in change events.
+     *
+     * @param departmentCode The department code
+     * @param wardNumber     The ward number
+     * @return The key, "departmentCode/wardNumber"
+     */
+    public static String wardKey(String departmentCode, int wardNumber) {
+        return departmentCode + "/" + wardNumber;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChangeEvent that = (ChangeEvent) o;
+        return entity == that.entity && operation == that.operation && Objects.equals(key, that.key)
+                && Objects.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entity, operation, key);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "entity=" + entity +
+                ", operation=" + operation +
+                ", key=" + key +
+                '}';
+    }
+}
@@ -0,0 +1,234 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * In-process feed of committed DAO writes. Every insert, update and delete made through the
+ * DAOs is published once its transaction commits; changes rolled back are never published.
+ *
+ * <p>Each subscriber has its own bounded queue of {@code db.changes.queueCapacity} events and
+ * its own daemon thread that delivers them in order, in batches of up to
+ * {@code db.changes.batchSize}. A writer whose change finds a queue full waits up to
+ * {@code db.changes.offerTimeoutMillis} for the subscriber to catch up. If it still has not,
+ * the subscriber's backlog is dropped and it receives one {@link ChangeEvent.Operation#RESYNC}
+ * event per subscribed entity instead, telling it to reload. Writers are therefore slowed by
+ * slow subscribers but never stalled by them.
+ *
+ * <p>Writes are also recorded in the ChangeLog table. With {@link ChangeLogPoller} running,
+ * changes made by other instances are published too, carrying only their key.
+ *
+ * <p>Batches are delivered on the feed's threads; JavaFX subscribers must hand them to the
+ * FX application thread themselves.
+ */
+public class ChangeFeed {
+    private static final Logger logger = LogManager.getLogger(ChangeFeed.class);
+    private static ChangeFeed instance;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ChangeLogDAO changeLog;
+    private final boolean logEnabled;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+
+    private ChangeFeed() {
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        this.queueCapacity = config.getInt("db.changes.queueCapacity", 10_000);
+        this.batchSize = config.getInt("db.changes.batchSize", 500);
+        this.offerTimeoutMillis = config.getInt("db.changes.offerTimeoutMillis", 50);
+        this.changeLog = new ChangeLogDAO();
+        this.logEnabled = ChangeLogDAO.isEnabled();
+    }
+
+    /**
+     * Get the singleton instance of ChangeFeed
+     *
+     * @return The ChangeFeed instance
+     */
+    public static synchronized ChangeFeed getInstance() {
+        if (instance == null) {
+            instance = new ChangeFeed();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribes to committed changes.
+     *
+     * @param subscriber Receives batches of changes, oldest first, on the subscription's thread
+     * @param entities   The entities of interest; none means all
+     * @return The subscription, to close when the subscriber goes away
+     */
+    public Subscription subscribe(Consumer<List<ChangeEvent>> subscriber, ChangeEvent.Entity... entities) {
+        Set<ChangeEvent.Entity> filter = entities.length == 0
+                ? EnumSet.allOf(ChangeEvent.Entity.class) : EnumSet.copyOf(Arrays.asList(entities));
+        Subscription subscription = new Subscription(subscriber, filter);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        logger.info("Added change subscriber for {}", filter);
+        return subscription;
+    }
+
+    /**
+     * Records changes in the change log for other instances, and publishes them to this
+     * instance's subscribers once the current write commits: immediately outside a unit of
+     * work, and at commit inside one. The write also keeps this instance's reads on the
+     * primary until the replicas have it, and reference rows are copied to the shards once
+     * committed.
+     *
+     * @param dbConnection The connection provider of the write
+     * @param changes      The changes made by the write
+     */
+    void publishAfterCommit(DatabaseConnection dbConnection, List<ChangeEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        dbConnection.recordWrite();
+        if (logEnabled) {
+            changeLog.append(changes);
+        }
+        if (dbConnection.isSharded()) {
+            dbConnection.runAfterCommit(() -> ShardSync.getInstance().copyChanges(changes));
+        }
+        if (!subscriptions.isEmpty()) {
+            dbConnection.runAfterCommit(() -> publish(changes));
+        }
+    }
+
+    /**
+     * Publishes one change once the current write commits.
+     *
+     * @param dbConnection The connection provider of the write
+     * @param entity       The kind of row
+     * @param operation    The kind of change
+     * @param key          The row's key
+     * @param values       The row after the change, or null
+     */
+    void publishAfterCommit(DatabaseConnection dbConnection, ChangeEvent.Entity entity,
+                            ChangeEvent.Operation operation, Object key, Object values) {
+        publishAfterCommit(dbConnection, Collections.singletonList(new ChangeEvent(entity, operation, key, values)));
+    }
+
+    /**
+     * Publishes changes another instance committed, as read from the change log.
+     *
+     * @param changes The changes
+     */
+    void publishRemote(List<ChangeEvent> changes) {
+        publish(changes);
+    }
+
+    private void publish(List<ChangeEvent> changes) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(changes);
+        }
+    }
+
+    /**
+     * A subscriber's queue and delivery thread.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Consumer<List<ChangeEvent>> subscriber;
+        private final Set<ChangeEvent.Entity> entities;
+        private final BlockingQueue<ChangeEvent> queue;
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+        private final Thread thread;
+        private volatile boolean closed;
+
+        private Subscription(Consumer<List<ChangeEvent>> subscriber, Set<ChangeEvent.Entity> entities) {
+            this.subscriber = subscriber;
+            this.entities = entities;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = ConcurrencyUtils.daemonThreadFactory("change-feed").newThread(this::deliver);
+        }
+
+        /**
+         * Gets the number of changes waiting to be delivered.
+         *
+         * @return The queue length
+         */
+        public int getBacklog() {
+            return queue.size();
+        }
+
+        /**
+         * Stops delivery. A batch being delivered is allowed to finish.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                subscriptions.remove(this);
+                thread.interrupt();
+                logger.info("Removed change subscriber for {}", entities);
+            }
+        }
+
+        private void offer(List<ChangeEvent> changes) {
+            try {
+                for (ChangeEvent change : changes) {
+                    if (!entities.contains(change.getEntity()) || overflowed.get()) {
+                        continue;
+                    }
+                    if (!queue.offer(change, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        // Set the flag before clearing, so the delivery thread drops what it drains
+                        overflowed.set(true);
+                        queue.clear();
+                        logger.warn("Change subscriber for {} fell {} changes behind, requesting resync",
+                                entities, queueCapacity);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void deliver() {
+            List<ChangeEvent> batch = new ArrayList<>();
+            while (!closed) {
+                try {
+                    ChangeEvent first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, batchSize - 1);
+                    }
+                } catch (InterruptedException e) {
+                    continue;
+                }
+
+                if (overflowed.getAndSet(false)) {
+                    // Everything up to now is committed, so a reload covers the dropped changes
+                    batch.clear();
+                    for (ChangeEvent.Entity entity : entities) {
+                        batch.add(new ChangeEvent(entity, ChangeEvent.Operation.RESYNC, null, null));
+                    }
+                }
+                if (batch.isEmpty() || closed) {
+                    continue;
+                }
+
+                try {
+                    subscriber.accept(new ArrayList<>(batch));
+                } catch (RuntimeException e) {
+                    logger.error("Change subscriber failed", e);
+                }
+                batch.clear();
+            }
+        }
+    }
+}
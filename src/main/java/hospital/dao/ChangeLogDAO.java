@@ -0,0 +1,181 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.security.SecureRandom;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Data Access Object for the ChangeLog table, which tells other client instances sharing the
+ * database which rows this instance changed. Rows hold only the entity and key; readers
+ * re-read the rows they care about.
+ */
+class ChangeLogDAO {
+    private static final Logger logger = LogManager.getLogger(ChangeLogDAO.class);
+    private static final String INSERT_SQL =
+            "INSERT INTO ChangeLog (instance_id, entity, entity_key, operation) VALUES (?, ?, ?, ?)";
+
+    /** Writes with more changes than this are logged as one reload of each entity. */
+    static final int BULK_THRESHOLD = 100;
+
+    /** Identifies this process's rows, so its poller skips changes it has already published. */
+    static final long INSTANCE_ID = new SecureRandom().nextLong();
+
+    /**
+     * A change read back from the log.
+     */
+    static class Entry {
+        final long changeId;
+        final long instanceId;
+        final ChangeEvent event;
+
+        Entry(long changeId, long instanceId, ChangeEvent event) {
+            this.changeId = changeId;
+            this.instanceId = instanceId;
+            this.event = event;
+        }
+    }
+
+    private final DatabaseConnection dbConnection;
+
+    ChangeLogDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Checks whether DAO writes are recorded in the change log ({@code db.changes.log.enabled}).
+     *
+     * @return true if writes are recorded
+     */
+    static boolean isEnabled() {
+        return DatabaseConfig.getInstance().getBoolean("db.changes.log.enabled", true);
+    }
+
+    /**
+     * Records changes. Inside a unit of work the rows commit with it; otherwise they are
+     * written right after the change itself.
+     *
+     * @param changes The changes of one write
+     */
+    void append(List<ChangeEvent> changes) {
+        List<ChangeEvent> logged = changes.size() > BULK_THRESHOLD ? resyncAll(changes) : changes;
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+
+            for (ChangeEvent change : logged) {
+                stmt.setLong(1, INSTANCE_ID);
+                stmt.setString(2, change.getEntity().name());
+                if (change.getKey() != null) {
+                    stmt.setString(3, change.getKey().toString());
+                } else {
+                    stmt.setNull(3, Types.VARCHAR);
+                }
+                stmt.setString(4, change.getOperation().name());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            logger.error("Error recording {} changes in the change log", logged.size(), e);
+        }
+    }
+
+    /**
+     * Retrieves changes after a position. This is a range scan on the primary key.
+     *
+     * @param afterChangeId The last change ID already seen
+     * @param limit         The maximum number of changes
+     * @return The changes, oldest first
+     */
+    List<Entry> findAfter(long afterChangeId, int limit) {
+        String sql = "SELECT change_id, instance_id, entity, entity_key, operation FROM ChangeLog " +
+                "WHERE change_id > ? ORDER BY change_id LIMIT ?";
+        List<Entry> entries = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, afterChangeId);
+            stmt.setInt(2, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ChangeEvent.Entity entity = ChangeEvent.Entity.valueOf(rs.getString(3));
+                    ChangeEvent.Operation operation = ChangeEvent.Operation.valueOf(rs.getString(5));
+                    ChangeEvent event = new ChangeEvent(entity, operation, parseKey(entity, rs.getString(4)), null);
+                    entries.add(new Entry(rs.getLong(1), rs.getLong(2), event));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error reading the change log", e);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Gets the ID of the newest change.
+     *
+     * @return The last change ID, or 0 if the log is empty
+     */
+    long findLastChangeId() {
+        String sql = "SELECT COALESCE(MAX(change_id), 0) FROM ChangeLog";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Error finding last change", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes changes recorded before a time.
+     *
+     * @param before The cut-off time
+     * @return The number of changes deleted
+     */
+    int deleteOlderThan(LocalDateTime before) {
+        String sql = "DELETE FROM ChangeLog WHERE changed_at < ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(before));
+            int deleted = stmt.executeUpdate();
+            logger.info("Deleted {} change log entries before {}", deleted, before);
+            return deleted;
+        } catch (SQLException e) {
+            logger.error("Error pruning the change log", e);
+            return 0;
+        }
+    }
+
+    private static List<ChangeEvent> resyncAll(List<ChangeEvent> changes) {
+        Set<ChangeEvent.Entity> entities = EnumSet.noneOf(ChangeEvent.Entity.class);
+        for (ChangeEvent change : changes) {
+            entities.add(change.getEntity());
+        }
+        List<ChangeEvent> resyncs = new ArrayList<>(entities.size());
+        for (ChangeEvent.Entity entity : entities) {
+            resyncs.add(new ChangeEvent(entity, ChangeEvent.Operation.RESYNC, null, null));
+        }
+        return resyncs;
+    }
+
+    private static Object parseKey(ChangeEvent.Entity entity, String key) {
+        if (key == null || entity == ChangeEvent.Entity.DEPARTMENT || entity == ChangeEvent.Entity.WARD) {
+            return key;
+        }
+        return Integer.valueOf(key);
+    }
+}
@@ -0,0 +1,152 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the ChangeLog table for writes made by other client instances sharing the database,
+ * and publishes them on this instance's {@link ChangeFeed} so caches and open tables can
+ * refresh the changed rows. Each poll is one primary-key range query, every
+ * {@code db.changes.pollMillis}.
+ *
+ * <p>Change IDs are assigned at insert, not at commit, so the poller waits up to
+ * {@code db.changes.gapTimeoutMillis} at a gap in the IDs for the missing change to commit
+ * before skipping it. It also deletes entries older than {@code db.changes.retentionHours}
+ * once an hour.
+ */
+public class ChangeLogPoller {
+    private static final Logger logger = LogManager.getLogger(ChangeLogPoller.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static ChangeLogPoller instance;
+
+    private final ChangeLogDAO changeLog;
+    private final ChangeFeed changeFeed;
+    private final long pollMillis;
+    private final long gapTimeoutMillis;
+    private final int retentionHours;
+    private long position;
+    private long gapSince;
+    private long lastPruned;
+    private ScheduledExecutorService scheduler;
+
+    private ChangeLogPoller() {
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        this.changeLog = new ChangeLogDAO();
+        this.changeFeed = ChangeFeed.getInstance();
+        this.pollMillis = config.getInt("db.changes.pollMillis", 500);
+        this.gapTimeoutMillis = config.getInt("db.changes.gapTimeoutMillis", 1000);
+        this.retentionHours = config.getInt("db.changes.retentionHours", 24);
+        this.lastPruned = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the singleton instance of ChangeLogPoller
+     *
+     * @return The ChangeLogPoller instance
+     */
+    public static synchronized ChangeLogPoller getInstance() {
+        if (instance == null) {
+            instance = new ChangeLogPoller();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts polling from the current end of the log, unless the change log is disabled.
+     * Data loaded before this call is assumed to be current.
+     */
+    public synchronized void start() {
+        if (scheduler != null || !ChangeLogDAO.isEnabled()) {
+            return;
+        }
+        position = changeLog.findLastChangeId();
+        scheduler = Executors.newSingleThreadScheduledExecutor(ConcurrencyUtils.daemonThreadFactory("change-log"));
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        logger.info("Polling the change log after {} every {} ms", position, pollMillis);
+    }
+
+    /**
+     * Stops polling.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            logger.info("Stopped polling the change log at {}", position);
+        }
+    }
+
+    /**
+     * Publishes the changes other instances committed since the last poll.
+     *
+     * @return The number of changes published
+     * @throws DataAccessException If the log cannot be read
+     */
+    public synchronized int poll() {
+        int published = 0;
+        while (true) {
+            long after = position;
+            List<ChangeLogDAO.Entry> entries = ErrorCapture.call(() -> changeLog.findAfter(after, BATCH_SIZE));
+
+            List<ChangeEvent> remote = new ArrayList<>();
+            int taken = 0;
+            long expected = after + 1;
+            for (ChangeLogDAO.Entry entry : entries) {
+                if (entry.changeId != expected && !gapExpired(expected, entry.changeId)) {
+                    break;
+                }
+                gapSince = 0;
+                taken++;
+                position = entry.changeId;
+                expected = entry.changeId + 1;
+                if (entry.instanceId != ChangeLogDAO.INSTANCE_ID) {
+                    remote.add(entry.event);
+                }
+            }
+
+            if (!remote.isEmpty()) {
+                changeFeed.publishRemote(remote);
+                published += remote.size();
+            }
+            if (taken < BATCH_SIZE) {
+                return published;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a gap in the change IDs has been open long enough to skip.
+     */
+    private boolean gapExpired(long expected, long next) {
+        long now = System.currentTimeMillis();
+        if (gapSince == 0) {
+            gapSince = now;
+        }
+        if (now - gapSince < gapTimeoutMillis) {
+            return false;
+        }
+        logger.warn("Skipping missing change log entries {} to {}", expected, next - 1);
+        return true;
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+            if (System.currentTimeMillis() - lastPruned >= PRUNE_INTERVAL_MILLIS) {
+                lastPruned = System.currentTimeMillis();
+                changeLog.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not read the change log, will retry", e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A small bounded JDBC connection pool.
+ * At most {@code maxSize} connections are handed out at once; further callers wait up to
+ * the configured timeout. Closing a borrowed connection returns it to the pool.
+ * A connection that sat idle for more than half a second is checked with
+ * {@link Connection#isValid(int)} before it is handed out, as the server or a firewall may
+ * have dropped it; dead ones are discarded and replaced by a fresh connection.
+ */
+public class ConnectionPool {
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * Opens new physical connections for the pool.
+     */
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    /**
+     * An idle connection and when it was returned.
+     */
+    private static final class IdleConnection {
+        private final Connection conn;
+        private final long returnedNanos;
+
+        private IdleConnection(Connection conn, long returnedNanos) {
+            this.conn = conn;
+            this.returnedNanos = returnedNanos;
+        }
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory       Opens new physical connections
+     * @param maxSize       The maximum number of connections in use at once
+     * @param timeoutMillis How long a caller waits for a free connection
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long timeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting if all connections are in use.
+     *
+     * @return A pooled connection; close it to return it to the pool
+     * @throws SQLException If no connection becomes free in time or one cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + timeoutMillis + " ms waiting for one of " + maxSize + " connections");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            IdleConnection entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) {
+                    return pooled(entry.conn);
+                }
+                logger.info("Discarding dead pooled connection");
+                closeQuietly(entry.conn);
+            }
+            return pooled(factory.open());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes all idle connections and refuses further borrowing.
+     * Connections currently borrowed are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.conn);
+        }
+        logger.info("Connection pool closed");
+    }
+
+    /**
+     * Gets the maximum number of connections in use at once.
+     *
+     * @return The pool size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of connections currently borrowed.
+     *
+     * @return The number of active connections
+     */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    private void release(Connection conn) {
+        try {
+            if (closed || conn.isClosed()) {
+                closeQuietly(conn);
+                return;
+            }
+            // Leave the connection as a fresh one would be
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            idle.offerFirst(new IdleConnection(conn, System.nanoTime()));
+        } catch (SQLException e) {
+            logger.warn("Discarding broken pooled connection", e);
+            closeQuietly(conn);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Checks an idle connection. One returned moments ago was working then, so it is not
+     * checked again.
+     */
+    private static boolean isUsable(IdleConnection entry) {
+        try {
+            if (entry.conn.isClosed()) {
+                return false;
+            }
+            return System.nanoTime() - entry.returnedNanos < VALIDATION_BYPASS_NANOS
+                    || entry.conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection pooled(Connection conn) {
+        AtomicBoolean returned = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (returned.compareAndSet(false, true)) {
+                                release(conn);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned.get() || conn.isClosed();
+                        default:
+                            if (returned.get()) {
+                                throw new SQLException("Connection has been returned to the pool");
+                            }
+                            try {
+                                return method.invoke(conn, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            logger.warn("Failed to close pooled connection", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package main.java.hospital.dao;
+
+/**
+ * Unchecked exception for database errors raised through {@link ErrorCapture} and the
+ * asynchronous DAO facade, where the DAOs' own error handling would hide them, and for
+ * errors the caller must handle, such as {@link VersionConflictException}.
+ */
+public class DataAccessException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an exception wrapping a database error.
+     *
+     * @param message The error message
+     * @param cause   The underlying SQLException
+     */
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Creates an exception for an error detected by the DAO itself.
+     *
+     * @param message The error message
+     */
+    public DataAccessException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package main.java.hospital.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A database backend that {@link DatabaseConnection} can open connections against.
+ * The active backend is chosen by the {@code db.backend} configuration property.
+ */
+public interface DatabaseBackend {
+
+    /**
+     * Gets the name used to select this backend in configuration.
+     *
+     * @return The backend name
+     */
+    String getName();
+
+    /**
+     * Opens a new physical connection to the backend.
+     *
+     * @return A new Connection object
+     * @throws SQLException If a database access error occurs
+     */
+    Connection openConnection() throws SQLException;
+}
@@ -0,0 +1,99 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Database configuration for the HealthTrack System.
+ * Values are read from {@code database.properties} on the classpath and can be
+ * overridden with JVM system properties of the same name (e.g. {@code -Ddb.backend=embedded}).
+ */
+public class DatabaseConfig {
+    private static final Logger logger = LogManager.getLogger(DatabaseConfig.class);
+
+    private static final String CONFIG_RESOURCE = "/database.properties";
+
+    // Singleton instance
+    private static DatabaseConfig instance;
+
+    private final Properties properties = new Properties();
+
+    /**
+     * Private constructor that loads the configuration file.
+     */
+    private DatabaseConfig() {
+        try (InputStream in = DatabaseConfig.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+                logger.info("Loaded database configuration from {}", CONFIG_RESOURCE);
+            } else {
+                logger.warn("No {} found on classpath, using defaults", CONFIG_RESOURCE);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read database configuration", e);
+        }
+    }
+
+    /**
+     * Get the singleton instance of DatabaseConfig.
+     *
+     * @return The DatabaseConfig instance
+     */
+    public static synchronized DatabaseConfig getInstance() {
+        if (instance == null) {
+            instance = new DatabaseConfig();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets a configuration value. System properties take precedence over the file.
+     *
+     * @param key          The property name
+     * @param defaultValue The value to use if the property is not set
+     * @return The configured value, or the default
+     */
+    public String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Gets an integer configuration value.
+     *
+     * @param key          The property name
+     * @param defaultValue The value to use if the property is missing or not a number
+     * @return The configured value, or the default
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid integer for {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a boolean configuration value.
+     *
+     * @param key          The property name
+     * @param defaultValue The value to use if the property is not set
+     * @return The configured value, or the default
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
@@ -1,39 +1,118 @@
 package main.java.hospital.dao;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * Singleton class that manages database connections for the HealthTrack System.
+ * The backend (MySQL server or embedded in-memory database) is selected with the
+ * {@code db.backend} property in {@code database.properties}. Connections come from a
+ * bounded pool of {@code db.pool.size} connections, so DAOs can be used from many threads.
+ * Report and list queries can be sent to read replicas with {@link #getReadConnection()}.
+ * With {@code db.shards} configured, hospitalizations are stored on the shard of their
+ * department ({@link #getConnection(String)}) and read from every shard with
+ * {@link #onEveryShard(ShardQuery)}; everything else stays on the primary.
  */
 public class DatabaseConnection {
     private static final Logger logger = LogManager.getLogger(DatabaseConnection.class);
 
-    // Database connection properties
-    private static final String DB_URL = "jdbc:mysql://127.0.0.1:3306/hospital_db";
-    private static final String DB_USER = "Emmanuel Arhu";
-    private static final String DB_PASSWORD = "admin"; // Replace with your database password
-
     // Singleton instance
     private static DatabaseConnection instance;
 
-    // Connection object
-    private Connection connection;
+    // Active database backend
+    private DatabaseBackend backend;
+
+    // Pool of connections to the active backend
+    private ConnectionPool pool;
+
+    // Read replicas, or null when db.replica.urls is empty
+    private ReplicaRouter replicas;
+
+    // Department shards, or null when db.shards is empty
+    private ShardRouter shards;
+
+    // When this client last wrote through the DAOs, so it can read its own writes
+    private volatile long lastWriteMillis;
+
+    // Query metrics, or null when db.metrics.enabled is false
+    private final QueryMetrics metrics;
+
+    // Connection of the unit of work active on the current thread, if any
+    private final ThreadLocal<Connection> transactionConnection = new ThreadLocal<>();
+
+    // Actions waiting for the current thread's unit of work to commit
+    private final ThreadLocal<List<Runnable>> commitActions = new ThreadLocal<>();
 
     /**
      * Private constructor to prevent instantiation from outside.
      */
     private DatabaseConnection() {
-        try {
-            // Load the MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            logger.info("JDBC Driver loaded successfully");
-        } catch (ClassNotFoundException e) {
-            logger.error("Failed to load JDBC driver", e);
-            throw new RuntimeException("Failed to load JDBC driver", e);
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        this.backend = createBackend(config);
+        this.metrics = config.getBoolean("db.metrics.enabled", true) ? QueryMetrics.getInstance() : null;
+        this.pool = createPool(config);
+        this.replicas = createReplicaRouter(config);
+        this.shards = createShardRouter(config);
+        logger.info("Using '{}' database backend", backend.getName());
+    }
+
+    /**
+     * Creates the connection pool for the active backend.
+     *
+     * @param config The database configuration
+     * @return A new, empty pool
+     */
+    private ConnectionPool createPool(DatabaseConfig config) {
+        return new ConnectionPool(this::openPhysicalConnection, config.getInt("db.pool.size", 10),
+                config.getInt("db.pool.timeoutMillis", 30_000));
+    }
+
+    /**
+     * Creates the router for the configured read replicas, with a pool per replica.
+     *
+     * @param config The database configuration
+     * @return The router, or null if no replicas are configured
+     */
+    private ReplicaRouter createReplicaRouter(DatabaseConfig config) {
+        return ReplicaRouter.create(config, factory -> new ConnectionPool(() -> instrument(factory.open()),
+                config.getInt("db.replica.pool.size", 10), config.getInt("db.pool.timeoutMillis", 30_000)));
+    }
+
+    /**
+     * Creates the router for the configured department shards, with a pool per shard.
+     *
+     * @param config The database configuration
+     * @return The router, or null if no shards are configured
+     */
+    private ShardRouter createShardRouter(DatabaseConfig config) {
+        return ShardRouter.create(config, backend -> new ConnectionPool(() -> instrument(backend.openConnection()),
+                config.getInt("db.shard.pool.size", 10), config.getInt("db.pool.timeoutMillis", 30_000)));
+    }
+
+    /**
+     * Creates the backend named by the {@code db.backend} property.
+     *
+     * @param config The database configuration
+     * @return The configured backend
+     */
+    private static DatabaseBackend createBackend(DatabaseConfig config) {
+        String name = config.get("db.backend", MySqlBackend.NAME);
+        switch (name.toLowerCase()) {
+            case MySqlBackend.NAME:
+                return new MySqlBackend(config);
+            case EmbeddedBackend.NAME:
+                return new EmbeddedBackend(config);
+            default:
+                throw new IllegalArgumentException("Unknown database backend: " + name);
         }
     }
 
@@ -56,29 +135,471 @@ public class DatabaseConnection {
      * @throws SQLException If a database access error occurs
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+        Connection transaction = transactionConnection.get();
+        if (transaction != null) {
+            // Inside a unit of work: share its connection and ignore the DAO's close()
+            return ErrorCapture.wrapIfActive(nonClosing(transaction));
+        }
+
+        return ErrorCapture.wrapIfActive(borrow());
+    }
+
+    /**
+     * Get a connection for a read-only report or list query. It comes from a read replica if
+     * one is configured and current enough to include this client's latest write, and from
+     * the primary otherwise. Inside a unit of work it is the unit's connection.
+     *
+     * @return A Connection object; do not write through it
+     * @throws SQLException If a database access error occurs
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (transactionConnection.get() != null) {
+            return getConnection();
+        }
+
+        ReplicaRouter router = currentReplicas();
+        if (router != null) {
+            Connection conn = router.borrow(System.currentTimeMillis() - lastWriteMillis);
+            if (conn != null) {
+                return ErrorCapture.wrapIfActive(conn);
+            }
+        }
+        return ErrorCapture.wrapIfActive(borrow());
+    }
+
+    /**
+     * A query run on each shard by {@link #onEveryShard(ShardQuery)}.
+     *
+     * @param <R> The result type
+     */
+    public interface ShardQuery<R> {
+        R run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Check whether department shards are configured.
+     *
+     * @return true if hospitalizations are spread over several databases
+     */
+    public boolean isSharded() {
+        return currentShards() != null;
+    }
+
+    /**
+     * Get the name of the shard holding a department's hospitalizations.
+     *
+     * @param departmentCode The department code
+     * @return The shard name; "primary" for the primary database
+     */
+    public String getShardName(String departmentCode) {
+        return shardFor(departmentCode).getName();
+    }
+
+    /**
+     * Get the names of every shard, the primary first.
+     *
+     * @return The shard names, in the order {@link #onEveryShard(ShardQuery)} returns results
+     */
+    public List<String> getShardNames() {
+        List<String> names = new ArrayList<>();
+        for (ShardRouter.Shard shard : shards()) {
+            names.add(shard.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Get a connection to the database holding a department's hospitalizations. Without
+     * shards, or for a department on the primary, this is {@link #getConnection()}.
+     *
+     * @param departmentCode The department code
+     * @return A Connection object
+     * @throws SQLException If a database access error occurs
+     */
+    public Connection getConnection(String departmentCode) throws SQLException {
+        return getConnection(shardFor(departmentCode));
+    }
+
+    /**
+     * Get a connection to a shard. A unit of work runs on the primary, so inside one only
+     * the primary can be written.
+     *
+     * @param shard The shard
+     * @return A Connection object
+     * @throws SQLException If a database access error occurs
+     */
+    Connection getConnection(ShardRouter.Shard shard) throws SQLException {
+        if (shard.isPrimary()) {
+            return getConnection();
+        }
+        if (isInTransaction()) {
+            throw new IllegalStateException("A unit of work cannot include writes to shard " + shard);
+        }
+        return ErrorCapture.wrapIfActive(shard.getPool().borrow());
+    }
+
+    /**
+     * Get the shard holding a department's hospitalizations.
+     *
+     * @param departmentCode The department code
+     * @return The shard; the primary without shards or for a department not mapped to one
+     */
+    ShardRouter.Shard shardFor(String departmentCode) {
+        ShardRouter router = currentShards();
+        return router != null ? router.shardFor(departmentCode) : ShardRouter.PRIMARY;
+    }
+
+    /**
+     * Get every shard, the primary first.
+     *
+     * @return The shards; only the primary without shards
+     */
+    List<ShardRouter.Shard> shards() {
+        ShardRouter router = currentShards();
+        return router != null ? router.shards() : Collections.singletonList(ShardRouter.PRIMARY);
+    }
+
+    /**
+     * Run a read-only query on every shard and gather the results. The other shards are
+     * queried in parallel while the primary is queried on this thread, with
+     * {@link #getReadConnection()}, so inside a unit of work its part sees the unit's writes.
+     * Without shards the query just runs on the primary.
+     *
+     * @param query The query
+     * @param <R>   The result type
+     * @return The result of each shard, the primary first
+     * @throws SQLException If the query fails on any shard
+     */
+    public <R> List<R> onEveryShard(ShardQuery<R> query) throws SQLException {
+        ShardRouter router = currentShards();
+        if (router == null) {
+            try (Connection conn = getReadConnection()) {
+                return Collections.singletonList(query.run(conn));
+            }
+        }
+
+        List<Future<R>> others = new ArrayList<>();
+        for (ShardRouter.Shard shard : router.shards()) {
+            if (!shard.isPrimary()) {
+                others.add(router.executor().submit(() -> {
+                    try (Connection conn = shard.getPool().borrow()) {
+                        return query.run(conn);
+                    }
+                }));
+            }
+        }
+
+        List<R> results = new ArrayList<>(others.size() + 1);
+        try {
+            try (Connection conn = getReadConnection()) {
+                results.add(query.run(conn));
+            }
+            for (Future<R> other : others) {
+                results.add(other.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while querying the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                // The capture scope, if any, belongs to this thread rather than the executor's
+                ErrorCapture.record((SQLException) e.getCause());
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            SQLException failure = new SQLException("Shard query failed", e.getCause());
+            ErrorCapture.record(failure);
+            throw failure;
+        } finally {
+            for (Future<R> other : others) {
+                other.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Run a read-only query on each shard in turn, the primary first, for queries that stream
+     * their rows to a consumer that is not thread-safe.
+     *
+     * @param query The query; its result is ignored
+     * @throws SQLException If the query fails on any shard
+     */
+    public void forEachShard(ShardQuery<?> query) throws SQLException {
+        for (ShardRouter.Shard shard : shards()) {
+            try (Connection conn = shard.isPrimary() ? getReadConnection()
+                    : ErrorCapture.wrapIfActive(shard.getPool().borrow())) {
+                query.run(conn);
+            }
+        }
+    }
+
+    /**
+     * Record that this client wrote to the primary, so that its reads stay on the primary
+     * until the replicas have caught up with the write.
+     */
+    void recordWrite() {
+        lastWriteMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Borrow a connection from the pool, recording the wait.
+     *
+     * @return A pooled connection
+     * @throws SQLException If no connection could be obtained
+     */
+    private Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return currentPool().borrow();
+        } catch (SQLException e) {
+            logger.error("Failed to connect to the database", e);
+            ErrorCapture.record(e);
+            throw e;
+        } finally {
+            if (metrics != null) {
+                metrics.recordConnectionWait((System.nanoTime() - start) / 1000);
+            }
+        }
+    }
+
+    private synchronized ConnectionPool currentPool() {
+        return pool;
+    }
+
+    private synchronized ReplicaRouter currentReplicas() {
+        return replicas;
+    }
+
+    private synchronized ShardRouter currentShards() {
+        return shards;
+    }
+
+    /**
+     * Open a new connection on the active backend, instrumented if metrics are enabled.
+     *
+     * @return A new Connection object
+     * @throws SQLException If a database access error occurs
+     */
+    private Connection openPhysicalConnection() throws SQLException {
+        return instrument(getBackend().openConnection());
+    }
+
+    private Connection instrument(Connection conn) {
+        return metrics != null ? InstrumentedConnection.wrap(conn, metrics) : conn;
+    }
+
+    /**
+     * Check whether a unit of work is active on the current thread.
+     *
+     * @return true if DAO calls on this thread currently share a transaction
+     */
+    public boolean isInTransaction() {
+        return transactionConnection.get() != null;
+    }
+
+    /**
+     * Start a transaction on the current thread. Until {@link #endTransaction()} is called,
+     * {@link #getConnection()} returns the same connection with auto-commit off.
+     * Use {@link UnitOfWork} rather than calling this directly.
+     *
+     * @return The transaction's connection
+     * @throws SQLException If a connection cannot be opened
+     */
+    Connection beginTransaction() throws SQLException {
+        if (transactionConnection.get() != null) {
+            throw new IllegalStateException("A transaction is already active on this thread");
+        }
+
+        Connection conn = borrow();
+        conn.setAutoCommit(false);
+        transactionConnection.set(conn);
+        return conn;
+    }
+
+    /**
+     * End the current thread's transaction and return its connection to the pool.
+     * The caller is responsible for committing or rolling back first.
+     */
+    void endTransaction() {
+        Connection conn = transactionConnection.get();
+        transactionConnection.remove();
+        commitActions.remove();
+        if (conn != null) {
             try {
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                logger.info("Database connection established");
+                conn.close();
             } catch (SQLException e) {
-                logger.error("Failed to connect to the database", e);
-                throw e;
+                logger.error("Failed to close transaction connection", e);
             }
         }
-        return connection;
     }
 
     /**
-     * Close the database connection.
+     * Work that runs on one connection inside a transaction.
+     *
+     * @param <R> The result type
+     */
+    interface TransactionalWork<R> {
+        R run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Run work so that all of its statements commit or roll back together.
+     * Inside a unit of work it joins that transaction and leaves the commit to it;
+     * otherwise it runs in a transaction of its own, rolled back if the work throws.
+     *
+     * @param work The work
+     * @param <R>  The result type
+     * @return The work's result
+     * @throws SQLException If the work or the commit fails
+     */
+    <R> R inTransaction(TransactionalWork<R> work) throws SQLException {
+        return inTransaction(ShardRouter.PRIMARY, work);
+    }
+
+    /**
+     * Run work on a shard so that all of its statements commit or roll back together, like
+     * {@link #inTransaction(TransactionalWork)}. Only work on the primary can join a unit of work.
+     *
+     * @param shard The shard
+     * @param work  The work
+     * @param <R>   The result type
+     * @return The work's result
+     * @throws SQLException If the work or the commit fails
      */
-    public void closeConnection() {
-        if (connection != null) {
+    <R> R inTransaction(ShardRouter.Shard shard, TransactionalWork<R> work) throws SQLException {
+        try (Connection conn = getConnection(shard)) {
+            if (shard.isPrimary() && isInTransaction()) {
+                return work.run(conn);
+            }
+            conn.setAutoCommit(false);
             try {
-                connection.close();
-                logger.info("Database connection closed");
-            } catch (SQLException e) {
-                logger.error("Failed to close database connection", e);
+                R result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Run an action once the current thread's work is committed.
+     * Outside a unit of work the DAO has already auto-committed, so the action runs now;
+     * inside one it runs after {@link UnitOfWork#commit()} and is dropped on rollback.
+     *
+     * @param action The action to run
+     */
+    void runAfterCommit(Runnable action) {
+        if (transactionConnection.get() == null) {
+            action.run();
+            return;
+        }
+        List<Runnable> actions = commitActions.get();
+        if (actions == null) {
+            actions = new ArrayList<>();
+            commitActions.set(actions);
+        }
+        actions.add(action);
+    }
+
+    /**
+     * Run the actions queued by {@link #runAfterCommit(Runnable)}. Called by the unit of
+     * work once its commit has succeeded.
+     */
+    void transactionCommitted() {
+        List<Runnable> actions = commitActions.get();
+        commitActions.remove();
+        if (actions != null) {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Drop the actions queued by {@link #runAfterCommit(Runnable)}, as their work was rolled back.
+     */
+    void discardCommitActions() {
+        commitActions.remove();
+    }
+
+    /**
+     * Wrap a connection so that close() is a no-op.
+     *
+     * @param conn The connection to wrap
+     * @return A connection that cannot be closed by its user
+     */
+    private static Connection nonClosing(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        return null;
+                    }
+                    if (method.getName().equals("isClosed")) {
+                        return conn.isClosed();
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Get the active database backend.
+     *
+     * @return The DatabaseBackend in use
+     */
+    public synchronized DatabaseBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Get the connection pool, e.g. to report how many connections are in use.
+     *
+     * @return The current ConnectionPool
+     */
+    public synchronized ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Replace the active database backend, closing any idle connections.
+     * Intended for tools and test harnesses that need to switch databases at runtime.
+     *
+     * @param backend The backend to use from now on
+     */
+    public synchronized void setBackend(DatabaseBackend backend) {
+        this.backend = backend;
+        ConnectionPool old = pool;
+        this.pool = createPool(DatabaseConfig.getInstance());
+        old.close();
+        logger.info("Switched to '{}' database backend", backend.getName());
+    }
+
+    /**
+     * Close the pooled database connections, including the replicas' and shards'. New pools
+     * are started for later calls.
+     */
+    public synchronized void closeConnection() {
+        ConnectionPool old = pool;
+        pool = createPool(DatabaseConfig.getInstance());
+        old.close();
+        if (replicas != null) {
+            replicas.close();
+            replicas = createReplicaRouter(DatabaseConfig.getInstance());
+        }
+        if (shards != null) {
+            shards.close();
+            shards = createShardRouter(DatabaseConfig.getInstance());
+        }
+        logger.info("Database connections closed");
+    }
+}
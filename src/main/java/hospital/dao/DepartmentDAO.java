@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Department entity.
@@ -17,12 +18,14 @@ import java.util.Optional;
 public class DepartmentDAO {
     private static final Logger logger = LogManager.getLogger(DepartmentDAO.class);
     private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
 
     /**
      * Constructor that initializes the database connection.
      */
     public DepartmentDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
     }
 
     /**
@@ -38,19 +41,14 @@ public class DepartmentDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, department.getDepartmentCode());
-            stmt.setString(2, department.getName());
-            stmt.setString(3, department.getBuilding());
-
-            if (department.getDirectorId() != null) {
-                stmt.setInt(4, department.getDirectorId());
-            } else {
-                stmt.setNull(4, java.sql.Types.INTEGER);
-            }
+            DepartmentMapper.bind(stmt, 2, department);
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
                 logger.info("Created department with code: {}", department.getDepartmentCode());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.DEPARTMENT, ChangeEvent.Operation.INSERT,
+                        department.getDepartmentCode(), department);
                 return true;
             } else {
                 logger.warn("Creating department failed, no rows affected");
@@ -69,7 +67,7 @@ public class DepartmentDAO {
      * @return An Optional containing the Department if found, or empty if not found
      */
     public Optional<Department> findByCode(String departmentCode) {
-        String sql = "SELECT * FROM Department WHERE department_code = ?";
+        String sql = "SELECT " + DepartmentMapper.COLUMNS + " FROM Department WHERE department_code = ?";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -78,7 +76,7 @@ public class DepartmentDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Department department = mapResultSetToDepartment(rs);
+                    Department department = DepartmentMapper.read(rs);
                     logger.info("Found department with code: {}", departmentCode);
                     return Optional.of(department);
                 } else {
@@ -98,15 +96,15 @@ public class DepartmentDAO {
      * @return A list of all departments
      */
     public List<Department> findAll() {
-        String sql = "SELECT * FROM Department";
+        String sql = "SELECT " + DepartmentMapper.COLUMNS + " FROM Department";
         List<Department> departments = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Department department = mapResultSetToDepartment(rs);
+                Department department = DepartmentMapper.read(rs);
                 departments.add(department);
             }
 
@@ -121,32 +119,39 @@ public class DepartmentDAO {
     /**
      * Updates an existing department in the database.
      *
+     * The update only applies if the department is still at the version it was read at, and writes
+     * only the fields changed since then; if none were, nothing is written.
+     *
      * @param department The Department object with updated values
      * @return true if successful, false otherwise
+     * @throws VersionConflictException If the department was changed since it was read
      */
     public boolean update(Department department) {
-        String sql = "UPDATE Department SET name = ?, building = ?, director_id = ? WHERE department_code = ?";
+        if (!department.hasChanges()) {
+            logger.info("No changes to save for department with code: {}", department.getDepartmentCode());
+            return true;
+        }
+        String sql = DepartmentMapper.updateSql(department);
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, department.getName());
-            stmt.setString(2, department.getBuilding());
-
-            if (department.getDirectorId() != null) {
-                stmt.setInt(3, department.getDirectorId());
-            } else {
-                stmt.setNull(3, java.sql.Types.INTEGER);
-            }
-
-            stmt.setString(4, department.getDepartmentCode());
+            int next = DepartmentMapper.bindUpdate(stmt, department);
+            stmt.setString(next, department.getDepartmentCode());
+            stmt.setInt(next + 1, department.getVersion());
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
+                department.setVersion(department.getVersion() + 1);
+                department.markClean();
                 logger.info("Updated department with code: {}", department.getDepartmentCode());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.DEPARTMENT, ChangeEvent.Operation.UPDATE,
+                        department.getDepartmentCode(), department);
                 return true;
             } else {
+                OptimisticUpdates.checkConflict(conn, "Department", "department_code = ?", ChangeEvent.Entity.DEPARTMENT,
+                        department.getDepartmentCode(), department.getVersion(), department.getDepartmentCode());
                 logger.warn("No department found with code: {}", department.getDepartmentCode());
                 return false;
             }
@@ -156,6 +161,19 @@ public class DepartmentDAO {
         }
     }
 
+    /**
+     * Applies a change to the current version of a department and saves it, re-reading the department
+     * and re-applying the change if another user saves it in between.
+     *
+     * @param departmentCode The department code
+     * @param change The change, applied to a freshly read Department
+     * @return The saved department, or empty if not found or the update failed
+     * @throws VersionConflictException If the department was changed by others on every attempt
+     */
+    public Optional<Department> modify(String departmentCode, Consumer<Department> change) {
+        return OptimisticUpdates.modify(() -> findByCode(departmentCode), change, this::update);
+    }
+
     /**
      * Deletes a department from the database.
      *
@@ -174,6 +192,8 @@ public class DepartmentDAO {
 
             if (affectedRows > 0) {
                 logger.info("Deleted department with code: {}", departmentCode);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.DEPARTMENT, ChangeEvent.Operation.DELETE,
+                        departmentCode, null);
                 return true;
             } else {
                 logger.warn("No department found with code: {}", departmentCode);
@@ -192,17 +212,17 @@ public class DepartmentDAO {
      * @return A list of departments in the specified building
      */
     public List<Department> findByBuilding(String building) {
-        String sql = "SELECT * FROM Department WHERE building = ?";
+        String sql = "SELECT " + DepartmentMapper.COLUMNS + " FROM Department WHERE building = ?";
         List<Department> departments = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, building);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Department department = mapResultSetToDepartment(rs);
+                    Department department = DepartmentMapper.read(rs);
                     departments.add(department);
                 }
             }
@@ -222,17 +242,17 @@ public class DepartmentDAO {
      * @return A list of departments directed by the specified director
      */
     public List<Department> findByDirector(int directorId) {
-        String sql = "SELECT * FROM Department WHERE director_id = ?";
+        String sql = "SELECT " + DepartmentMapper.COLUMNS + " FROM Department WHERE director_id = ?";
         List<Department> departments = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, directorId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Department department = mapResultSetToDepartment(rs);
+                    Department department = DepartmentMapper.read(rs);
                     departments.add(department);
                 }
             }
@@ -244,36 +264,4 @@ public class DepartmentDAO {
 
         return departments;
     }
-
-    /**
-     * Helper method to map a ResultSet row to a Department object.
-     *
-     * @param rs The ResultSet containing department data
-     * @return A new Department object with data from the ResultSet
-     * @throws SQLException If a database access error occurs
-     */
-    private Department mapResultSetToDepartment(ResultSet rs) throws SQLException {
-        Department department = new Department();
-        department.setDepartmentCode(rs.getString("department_code"));
-        department.setName(rs.getString("name"));
-        department.setBuilding(rs.getString("building"));
-
-        int directorId = rs.getInt("director_id");
-        if (!rs.wasNull()) {
-            department.setDirectorId(directorId);
-        }
-
-        // Convert SQL timestamps to LocalDateTime
-        Timestamp createdAt = rs.getTimestamp("created_at");
-        if (createdAt != null) {
-            department.setCreatedAt(createdAt.toLocalDateTime());
-        }
-
-        Timestamp updatedAt = rs.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            department.setUpdatedAt(updatedAt.toLocalDateTime());
-        }
-
-        return department;
-    }
 }
\ No newline at end of file
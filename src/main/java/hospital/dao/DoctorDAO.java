@@ -1,15 +1,17 @@
 package main.java.hospital.dao;
 
 import main.java.hospital.model.Doctor;
-import main.java.hospital.model.Employee;
+import main.java.hospital.model.PersonName;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Doctor entity.
@@ -18,6 +20,7 @@ import java.util.Optional;
 public class DoctorDAO {
     private static final Logger logger = LogManager.getLogger(DoctorDAO.class);
     private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
     private final EmployeeDAO employeeDAO;
 
     /**
@@ -25,6 +28,7 @@ public class DoctorDAO {
      */
     public DoctorDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
         this.employeeDAO = new EmployeeDAO();
     }
 
@@ -42,12 +46,14 @@ public class DoctorDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, doctor.getEmployeeId());
-            stmt.setString(2, doctor.getSpeciality());
+            DoctorMapper.bind(stmt, 2, doctor);
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
                 logger.info("Created doctor with ID: {}", doctor.getEmployeeId());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.DOCTOR, ChangeEvent.Operation.INSERT,
+                        doctor.getEmployeeId(), doctor);
                 return true;
             } else {
                 logger.warn("Creating doctor failed, no rows affected");
@@ -66,8 +72,7 @@ public class DoctorDAO {
      * @return An Optional containing the Doctor if found, or empty if not found
      */
     public Optional<Doctor> findById(int employeeId) {
-        String sql = "SELECT d.*, e.first_name, e.surname, e.address, e.phone, " +
-                "e.created_at AS employee_created_at, e.updated_at AS employee_updated_at " +
+        String sql = "SELECT " + DoctorMapper.COLUMNS + " " +
                 "FROM Doctor d " +
                 "JOIN Employee e ON d.employee_id = e.employee_id " +
                 "WHERE d.employee_id = ?";
@@ -79,7 +84,7 @@ public class DoctorDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Doctor doctor = mapResultSetToDoctor(rs);
+                    Doctor doctor = DoctorMapper.read(rs);
                     logger.info("Found doctor with ID: {}", employeeId);
                     return Optional.of(doctor);
                 } else {
@@ -99,19 +104,18 @@ public class DoctorDAO {
      * @return A list of all doctors
      */
     public List<Doctor> findAll() {
-        String sql = "SELECT d.*, e.first_name, e.surname, e.address, e.phone, " +
-                "e.created_at AS employee_created_at, e.updated_at AS employee_updated_at " +
+        String sql = "SELECT " + DoctorMapper.COLUMNS + " " +
                 "FROM Doctor d " +
                 "JOIN Employee e ON d.employee_id = e.employee_id";
 
         List<Doctor> doctors = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Doctor doctor = mapResultSetToDoctor(rs);
+                Doctor doctor = DoctorMapper.read(rs);
                 doctors.add(doctor);
             }
 
@@ -124,24 +128,80 @@ public class DoctorDAO {
     }
 
     /**
-     * Updates an existing doctor in the database.
+     * Retrieves the ID and name of every doctor, for name lookups and ComboBoxes.
+     *
+     * @return The doctors' names
+     */
+    public List<PersonName> findAllNames() {
+        String sql = "SELECT e.employee_id, e.first_name, e.surname, d.speciality " +
+                "FROM Doctor d JOIN Employee e ON d.employee_id = e.employee_id";
+        List<PersonName> names = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                names.add(new PersonName(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+            }
+
+            logger.info("Retrieved {} doctor names", names.size());
+        } catch (SQLException e) {
+            logger.error("Error retrieving doctor names", e);
+        }
+        return names;
+    }
+
+    /**
+     * Updates an existing doctor in the database: its Employee row and its Doctor row, in one
+     * transaction. The update only applies if the employee is still at the version it was
+     * read at, and writes only the fields changed since then; if none were, nothing is written.
      *
      * @param doctor The Doctor object with updated values
      * @return true if successful, false otherwise
+     * @throws VersionConflictException If the doctor was changed since it was read
      */
     public boolean update(Doctor doctor) {
-        String sql = "UPDATE Doctor SET speciality = ? WHERE employee_id = ?";
-
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, doctor.getSpeciality());
-            stmt.setInt(2, doctor.getEmployeeId());
+        if (!doctor.hasChanges()) {
+            logger.info("No changes to save for doctor with ID: {}", doctor.getEmployeeId());
+            return true;
+        }
+        // The Employee row is always updated, to check and increment the version
+        String employeeSql = EmployeeMapper.updateSql(doctor);
+
+        try {
+            boolean updated = dbConnection.inTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(employeeSql)) {
+                    int next = EmployeeMapper.bindUpdate(stmt, doctor);
+                    stmt.setInt(next, doctor.getEmployeeId());
+                    stmt.setInt(next + 1, doctor.getVersion());
+
+                    if (stmt.executeUpdate() == 0) {
+                        OptimisticUpdates.checkConflict(conn, "Employee", "employee_id = ?", ChangeEvent.Entity.DOCTOR,
+                                doctor.getEmployeeId(), doctor.getVersion(), doctor.getEmployeeId());
+                        return false;
+                    }
+                }
 
-            int affectedRows = stmt.executeUpdate();
+                if (!DoctorMapper.hasUpdates(doctor)) {
+                    return true;
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(DoctorMapper.updateSql(doctor))) {
+                    int next = DoctorMapper.bindUpdate(stmt, doctor);
+                    stmt.setInt(next, doctor.getEmployeeId());
+                    return stmt.executeUpdate() > 0;
+                }
+            });
 
-            if (affectedRows > 0) {
+            if (updated) {
+                doctor.setVersion(doctor.getVersion() + 1);
+                doctor.markClean();
                 logger.info("Updated doctor with ID: {}", doctor.getEmployeeId());
+                changeFeed.publishAfterCommit(dbConnection, Arrays.asList(
+                        new ChangeEvent(ChangeEvent.Entity.EMPLOYEE, ChangeEvent.Operation.UPDATE,
+                                doctor.getEmployeeId(), doctor),
+                        new ChangeEvent(ChangeEvent.Entity.DOCTOR, ChangeEvent.Operation.UPDATE,
+                                doctor.getEmployeeId(), doctor)));
                 return true;
             } else {
                 logger.warn("No doctor found with ID: {}", doctor.getEmployeeId());
@@ -153,6 +213,19 @@ public class DoctorDAO {
         }
     }
 
+    /**
+     * Applies a change to the current version of a doctor and saves it, re-reading the doctor
+     * and re-applying the change if another user saves it in between.
+     *
+     * @param employeeId The doctor's employee ID
+     * @param change The change, applied to a freshly read Doctor
+     * @return The saved doctor, or empty if not found or the update failed
+     * @throws VersionConflictException If the doctor was changed by others on every attempt
+     */
+    public Optional<Doctor> modify(int employeeId, Consumer<Doctor> change) {
+        return OptimisticUpdates.modify(() -> findById(employeeId), change, this::update);
+    }
+
     /**
      * Deletes a doctor from the database.
      *
@@ -171,6 +244,8 @@ public class DoctorDAO {
 
             if (affectedRows > 0) {
                 logger.info("Deleted doctor with ID: {}", employeeId);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.DOCTOR, ChangeEvent.Operation.DELETE,
+                        employeeId, null);
                 return true;
             } else {
                 logger.warn("No doctor found with ID: {}", employeeId);
@@ -189,22 +264,21 @@ public class DoctorDAO {
      * @return A list of doctors with the specified speciality
      */
     public List<Doctor> findBySpeciality(String speciality) {
-        String sql = "SELECT d.*, e.first_name, e.surname, e.address, e.phone, " +
-                "e.created_at AS employee_created_at, e.updated_at AS employee_updated_at " +
+        String sql = "SELECT " + DoctorMapper.COLUMNS + " " +
                 "FROM Doctor d " +
                 "JOIN Employee e ON d.employee_id = e.employee_id " +
                 "WHERE d.speciality = ?";
 
         List<Doctor> doctors = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, speciality);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Doctor doctor = mapResultSetToDoctor(rs);
+                    Doctor doctor = DoctorMapper.read(rs);
                     doctors.add(doctor);
                 }
             }
@@ -216,58 +290,4 @@ public class DoctorDAO {
 
         return doctors;
     }
-
-    /**
-     * Helper method to map a ResultSet row to a Doctor object.
-     *
-     * @param rs The ResultSet containing doctor data
-     * @return A new Doctor object with data from the ResultSet
-     * @throws SQLException If a database access error occurs
-     */
-    private Doctor mapResultSetToDoctor(ResultSet rs) throws SQLException {
-        // First create an Employee with all employee data
-        Employee employee = new Employee();
-        employee.setEmployeeId(rs.getInt("employee_id"));
-        employee.setFirstName(rs.getString("first_name"));
-        employee.setSurname(rs.getString("surname"));
-        employee.setAddress(rs.getString("address"));
-        employee.setPhone(rs.getString("phone"));
-
-        // Convert SQL timestamps to LocalDateTime for employee
-        Timestamp employeeCreatedAt = rs.getTimestamp("employee_created_at");
-        if (employeeCreatedAt != null) {
-            employee.setCreatedAt(employeeCreatedAt.toLocalDateTime());
-        }
-
-        Timestamp employeeUpdatedAt = rs.getTimestamp("employee_updated_at");
-        if (employeeUpdatedAt != null) {
-            employee.setUpdatedAt(employeeUpdatedAt.toLocalDateTime());
-        }
-
-        // Now create a Doctor and set its fields
-        Doctor doctor = new Doctor();
-        doctor.setEmployeeId(rs.getInt("employee_id"));
-        doctor.setFirstName(employee.getFirstName());
-        doctor.setSurname(employee.getSurname());
-        doctor.setAddress(employee.getAddress());
-        doctor.setPhone(employee.getPhone());
-        doctor.setCreatedAt(employee.getCreatedAt());
-        doctor.setUpdatedAt(employee.getUpdatedAt());
-        doctor.setSpeciality(rs.getString("speciality"));
-
-        // Convert SQL timestamps to LocalDateTime for doctor
-        Timestamp doctorCreatedAt = rs.getTimestamp("created_at");
-        if (doctorCreatedAt != null) {
-            // This is already set from employee, but we set it again for clarity
-            doctor.setCreatedAt(doctorCreatedAt.toLocalDateTime());
-        }
-
-        Timestamp doctorUpdatedAt = rs.getTimestamp("updated_at");
-        if (doctorUpdatedAt != null) {
-            // This is already set from employee, but we set it again for clarity
-            doctor.setUpdatedAt(doctorUpdatedAt.toLocalDateTime());
-        }
-
-        return doctor;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Backend for an embedded, in-memory H2 database running in MySQL compatibility mode.
+ * The schema from {@code sql/create_tables.sql} (and optionally {@code sql/sample_data.sql})
+ * is applied the first time a connection is opened, so load tests, benchmarks and offline
+ * demos can run without a MySQL server.
+ */
+public class EmbeddedBackend implements DatabaseBackend {
+    private static final Logger logger = LogManager.getLogger(EmbeddedBackend.class);
+
+    public static final String NAME = "embedded";
+
+    private final String databaseName;
+    private final String schemaScript;
+    private final String sampleDataScript;
+    private final boolean loadSampleData;
+
+    private boolean initialized;
+
+    /**
+     * Creates an embedded backend from the {@code db.embedded.*} configuration properties.
+     *
+     * @param config The database configuration
+     */
+    public EmbeddedBackend(DatabaseConfig config) {
+        this(config.get("db.embedded.name", "hospital_db"),
+                config.get("db.embedded.schema", "sql/create_tables.sql"),
+                config.get("db.embedded.sampleData", "sql/sample_data.sql"),
+                config.getBoolean("db.embedded.loadSampleData", false));
+    }
+
+    /**
+     * Creates an embedded backend.
+     *
+     * @param databaseName     The in-memory database name; distinct names give distinct databases
+     * @param schemaScript     Location of the schema script
+     * @param sampleDataScript Location of the sample data script
+     * @param loadSampleData   Whether to load the sample data after the schema
+     */
+    public EmbeddedBackend(String databaseName, String schemaScript, String sampleDataScript,
+                           boolean loadSampleData) {
+        this.databaseName = databaseName;
+        this.schemaScript = schemaScript;
+        this.sampleDataScript = sampleDataScript;
+        this.loadSampleData = loadSampleData;
+
+        try {
+            Class.forName("org.h2.Driver");
+            logger.info("Embedded H2 driver loaded successfully");
+        } catch (ClassNotFoundException e) {
+            logger.error("Failed to load embedded H2 driver", e);
+            throw new RuntimeException("Failed to load embedded H2 driver", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized Connection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(getUrl(), "sa", "");
+        if (!initialized) {
+            initialize(conn);
+            initialized = true;
+        }
+        return conn;
+    }
+
+    /**
+     * Gets the JDBC URL of the in-memory database.
+     * DB_CLOSE_DELAY=-1 keeps the database alive while no connection is open, since the
+     * DAOs close their connection after every call.
+     *
+     * @return The JDBC URL
+     */
+    public String getUrl() {
+        return "jdbc:h2:mem:" + databaseName
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Applies the schema and, if configured, the sample data.
+     *
+     * @param conn A connection to the fresh database
+     * @throws SQLException If a script statement fails
+     */
+    private void initialize(Connection conn) throws SQLException {
+        try {
+            SqlScriptRunner.run(conn, schemaScript);
+            if (loadSampleData) {
+                SqlScriptRunner.run(conn, sampleDataScript);
+            }
+            logger.info("Embedded database '{}' initialized", databaseName);
+        } catch (IOException e) {
+            logger.error("Failed to read SQL script for embedded database", e);
+            throw new SQLException("Failed to read SQL script for embedded database", e);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Employee entity.
@@ -17,12 +18,14 @@ import java.util.Optional;
 public class EmployeeDAO {
     private static final Logger logger = LogManager.getLogger(EmployeeDAO.class);
     private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
 
     /**
      * Constructor that initializes the database connection.
      */
     public EmployeeDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
     }
 
     /**
@@ -37,10 +40,7 @@ public class EmployeeDAO {
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setString(1, employee.getFirstName());
-            stmt.setString(2, employee.getSurname());
-            stmt.setString(3, employee.getAddress());
-            stmt.setString(4, employee.getPhone());
+            EmployeeMapper.bind(stmt, 1, employee);
 
             int affectedRows = stmt.executeUpdate();
 
@@ -54,6 +54,8 @@ public class EmployeeDAO {
                     int employeeId = generatedKeys.getInt(1);
                     employee.setEmployeeId(employeeId);
                     logger.info("Created employee with ID: {}", employeeId);
+                    changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.EMPLOYEE, ChangeEvent.Operation.INSERT,
+                            employeeId, employee);
                     return Optional.of(employeeId);
                 } else {
                     logger.warn("Creating employee failed, no ID obtained");
@@ -73,7 +75,7 @@ public class EmployeeDAO {
      * @return An Optional containing the Employee if found, or empty if not found
      */
     public Optional<Employee> findById(int employeeId) {
-        String sql = "SELECT * FROM Employee WHERE employee_id = ?";
+        String sql = "SELECT " + EmployeeMapper.COLUMNS + " FROM Employee WHERE employee_id = ?";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -82,7 +84,7 @@ public class EmployeeDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Employee employee = mapResultSetToEmployee(rs);
+                    Employee employee = EmployeeMapper.read(rs);
                     logger.info("Found employee with ID: {}", employeeId);
                     return Optional.of(employee);
                 } else {
@@ -102,15 +104,15 @@ public class EmployeeDAO {
      * @return A list of all employees
      */
     public List<Employee> findAll() {
-        String sql = "SELECT * FROM Employee";
+        String sql = "SELECT " + EmployeeMapper.COLUMNS + " FROM Employee";
         List<Employee> employees = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Employee employee = mapResultSetToEmployee(rs);
+                Employee employee = EmployeeMapper.read(rs);
                 employees.add(employee);
             }
 
@@ -125,27 +127,39 @@ public class EmployeeDAO {
     /**
      * Updates an existing employee in the database.
      *
+     * The update only applies if the employee is still at the version it was read at, and writes
+     * only the fields changed since then; if none were, nothing is written.
+     *
      * @param employee The Employee object with updated values
      * @return true if successful, false otherwise
+     * @throws VersionConflictException If the employee was changed since it was read
      */
     public boolean update(Employee employee) {
-        String sql = "UPDATE Employee SET first_name = ?, surname = ?, address = ?, phone = ? WHERE employee_id = ?";
+        if (!employee.hasChanges()) {
+            logger.info("No changes to save for employee with ID: {}", employee.getEmployeeId());
+            return true;
+        }
+        String sql = EmployeeMapper.updateSql(employee);
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, employee.getFirstName());
-            stmt.setString(2, employee.getSurname());
-            stmt.setString(3, employee.getAddress());
-            stmt.setString(4, employee.getPhone());
-            stmt.setInt(5, employee.getEmployeeId());
+            int next = EmployeeMapper.bindUpdate(stmt, employee);
+            stmt.setInt(next, employee.getEmployeeId());
+            stmt.setInt(next + 1, employee.getVersion());
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
+                employee.setVersion(employee.getVersion() + 1);
+                employee.markClean();
                 logger.info("Updated employee with ID: {}", employee.getEmployeeId());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.EMPLOYEE, ChangeEvent.Operation.UPDATE,
+                        employee.getEmployeeId(), employee);
                 return true;
             } else {
+                OptimisticUpdates.checkConflict(conn, "Employee", "employee_id = ?", ChangeEvent.Entity.EMPLOYEE,
+                        employee.getEmployeeId(), employee.getVersion(), employee.getEmployeeId());
                 logger.warn("No employee found with ID: {}", employee.getEmployeeId());
                 return false;
             }
@@ -155,6 +169,19 @@ public class EmployeeDAO {
         }
     }
 
+    /**
+     * Applies a change to the current version of an employee and saves it, re-reading the employee
+     * and re-applying the change if another user saves it in between.
+     *
+     * @param employeeId The employee ID
+     * @param change The change, applied to a freshly read Employee
+     * @return The saved employee, or empty if not found or the update failed
+     * @throws VersionConflictException If the employee was changed by others on every attempt
+     */
+    public Optional<Employee> modify(int employeeId, Consumer<Employee> change) {
+        return OptimisticUpdates.modify(() -> findById(employeeId), change, this::update);
+    }
+
     /**
      * Deletes an employee from the database.
      *
@@ -173,6 +200,8 @@ public class EmployeeDAO {
 
             if (affectedRows > 0) {
                 logger.info("Deleted employee with ID: {}", employeeId);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.EMPLOYEE, ChangeEvent.Operation.DELETE,
+                        employeeId, null);
                 return true;
             } else {
                 logger.warn("No employee found with ID: {}", employeeId);
@@ -191,10 +220,10 @@ public class EmployeeDAO {
      * @return A list of matching employees
      */
     public List<Employee> searchByName(String searchTerm) {
-        String sql = "SELECT * FROM Employee WHERE first_name LIKE ? OR surname LIKE ?";
+        String sql = "SELECT " + EmployeeMapper.COLUMNS + " FROM Employee WHERE first_name LIKE ? OR surname LIKE ?";
         List<Employee> employees = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             String searchPattern = "%" + searchTerm + "%";
@@ -203,7 +232,7 @@ public class EmployeeDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Employee employee = mapResultSetToEmployee(rs);
+                    Employee employee = EmployeeMapper.read(rs);
                     employees.add(employee);
                 }
             }
@@ -215,33 +244,4 @@ public class EmployeeDAO {
 
         return employees;
     }
-
-    /**
-     * Helper method to map a ResultSet row to an Employee object.
-     *
-     * @param rs The ResultSet containing employee data
-     * @return A new Employee object with data from the ResultSet
-     * @throws SQLException If a database access error occurs
-     */
-    private Employee mapResultSetToEmployee(ResultSet rs) throws SQLException {
-        Employee employee = new Employee();
-        employee.setEmployeeId(rs.getInt("employee_id"));
-        employee.setFirstName(rs.getString("first_name"));
-        employee.setSurname(rs.getString("surname"));
-        employee.setAddress(rs.getString("address"));
-        employee.setPhone(rs.getString("phone"));
-
-        // Convert SQL timestamps to LocalDateTime
-        Timestamp createdAt = rs.getTimestamp("created_at");
-        if (createdAt != null) {
-            employee.setCreatedAt(createdAt.toLocalDateTime());
-        }
-
-        Timestamp updatedAt = rs.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            employee.setUpdatedAt(updatedAt.toLocalDateTime());
-        }
-
-        return employee;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package main.java.hospital.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Surfaces database errors that the DAOs log and swallow.
+ * Inside {@link #call(Supplier)}, connections handed out by {@link DatabaseConnection} record
+ * the first SQLException thrown by any connection, statement or result set method. If one
+ * occurred, the call fails with a {@link DataAccessException} instead of returning the DAO's
+ * empty fallback value.
+ */
+public class ErrorCapture {
+
+    private static final ThreadLocal<SQLException[]> scope = new ThreadLocal<>();
+
+    private ErrorCapture() {
+    }
+
+    /**
+     * Runs a DAO operation and rethrows any database error it swallowed.
+     *
+     * @param operation The DAO call
+     * @param <R>       The result type
+     * @return The operation's result
+     * @throws DataAccessException If a database error occurred during the operation
+     */
+    public static <R> R call(Supplier<R> operation) {
+        SQLException[] previous = scope.get();
+        SQLException[] captured = new SQLException[1];
+        scope.set(captured);
+        try {
+            R result = operation.get();
+            if (captured[0] != null) {
+                throw new DataAccessException(captured[0].getMessage(), captured[0]);
+            }
+            return result;
+        } finally {
+            if (previous != null) {
+                scope.set(previous);
+            } else {
+                scope.remove();
+            }
+        }
+    }
+
+    /**
+     * Records an error if a capture scope is active on this thread.
+     *
+     * @param e The error
+     */
+    static void record(SQLException e) {
+        SQLException[] captured = scope.get();
+        if (captured != null && captured[0] == null) {
+            captured[0] = e;
+        }
+    }
+
+    /**
+     * Wraps a connection so its errors are recorded, if a capture scope is active on this thread.
+     *
+     * @param conn The connection
+     * @return The wrapped connection, or the connection itself outside a capture scope
+     */
+    static Connection wrapIfActive(Connection conn) {
+        return scope.get() != null ? (Connection) wrap(conn, Connection.class) : conn;
+    }
+
+    private static Object wrap(Object target, Class<?> type) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            // Wrap the JDBC objects derived from this one so their errors are seen too
+            Class<?> returnType = method.getReturnType();
+            if (result != null && returnType.isInterface()
+                    && (Statement.class.isAssignableFrom(returnType) || returnType == ResultSet.class)) {
+                return wrap(result, returnType);
+            }
+            return result;
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                record((SQLException) e.getCause());
+            }
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves stays discharged more than {@code db.archive.horizonDays} ago from Hospitalization to
+ * HospitalizationArchive, so the hot table holds current and recent stays only and its pages
+ * stay in the buffer pool. Reads through {@link HospitalizationDAO} see hot rows unless they
+ * ask for archived ones; reports read the HospitalizationHistory view, which covers both.
+ *
+ * <p>Stays are moved in batches of {@code db.archive.batchSize}, each in its own short
+ * transaction, pausing {@code db.archive.pauseMillis} between batches so the job does not hold
+ * locks that the screens are waiting on. Archiving runs every
+ * {@code db.archive.intervalMinutes}. Archived stays are read-only; the change feed reports
+ * them as deleted from the hot table, and the lifecycle log and analytics are unaffected.
+ *
+ * <p>The background job is off by default. Enable it on one designated client only, or run
+ * {@link main.java.hospital.tools.StayArchiver} from a scheduler instead, so that every
+ * workstation does not scan the same rows.</p>
+ */
+public class HospitalizationArchiver {
+    private static final Logger logger = LogManager.getLogger(HospitalizationArchiver.class);
+    private static final String COLUMNS = "hospitalization_id, patient_id, department_code, ward_number, " +
+            "bed_number, diagnosis, doctor_id, admission_date, discharge_date, created_at, updated_at, version";
+    private static HospitalizationArchiver instance;
+
+    private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
+    private final int horizonDays;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final long intervalMinutes;
+    private ScheduledExecutorService scheduler;
+
+    private HospitalizationArchiver() {
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
+        this.horizonDays = config.getInt("db.archive.horizonDays", 365);
+        this.batchSize = config.getInt("db.archive.batchSize", 500);
+        this.pauseMillis = config.getInt("db.archive.pauseMillis", 50);
+        this.intervalMinutes = config.getInt("db.archive.intervalMinutes", 60);
+    }
+
+    /**
+     * Get the singleton instance of HospitalizationArchiver
+     *
+     * @return The HospitalizationArchiver instance
+     */
+    public static synchronized HospitalizationArchiver getInstance() {
+        if (instance == null) {
+            instance = new HospitalizationArchiver();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether the archival job runs ({@code db.archive.enabled}).
+     *
+     * @return true if stays are archived
+     */
+    static boolean isEnabled() {
+        return DatabaseConfig.getInstance().getBoolean("db.archive.enabled", false);
+    }
+
+    /**
+     * Starts archiving in the background, unless archiving is disabled. The first run starts
+     * after one minute, so it does not compete with loading the screens.
+     */
+    public synchronized void start() {
+        if (scheduler != null || !isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(ConcurrencyUtils.daemonThreadFactory("archiver"));
+        scheduler.scheduleWithFixedDelay(this::archiveQuietly, 1, intervalMinutes, TimeUnit.MINUTES);
+        logger.info("Archiving stays discharged over {} days ago every {} minutes", horizonDays, intervalMinutes);
+    }
+
+    /**
+     * Stops archiving. A batch being moved is allowed to finish.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            logger.info("Stopped archiving");
+        }
+    }
+
+    /**
+     * Archives every stay discharged before the horizon.
+     *
+     * @return The number of stays archived
+     * @throws DataAccessException If a batch fails; the batches before it stay archived
+     */
+    public int archive() {
+        return archive(LocalDate.now().minusDays(horizonDays));
+    }
+
+    /**
+     * Archives every stay discharged before a date.
+     *
+     * @param dischargedBefore The cut-off discharge date
+     * @return The number of stays archived
+     * @throws DataAccessException If a batch fails; the batches before it stay archived
+     */
+    public int archive(LocalDate dischargedBefore) {
+        int archived = 0;
+        shards:
+        for (ShardRouter.Shard shard : dbConnection.shards()) {
+            while (true) {
+                List<Integer> batch;
+                try {
+                    batch = archiveBatch(shard, dischargedBefore);
+                } catch (SQLException e) {
+                    throw new DataAccessException("Error archiving stays on " + shard + ": " + e.getMessage(), e);
+                }
+                archived += batch.size();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break shards;
+                }
+            }
+        }
+        if (archived > 0) {
+            logger.info("Archived {} stays discharged before {}", archived, dischargedBefore);
+        }
+        return archived;
+    }
+
+    /**
+     * Moves one batch of a shard's stays to its archive in one transaction.
+     *
+     * @param shard            The shard
+     * @param dischargedBefore The cut-off discharge date
+     * @return The IDs of the stays moved
+     * @throws SQLException If the batch fails; it is rolled back
+     */
+    private List<Integer> archiveBatch(ShardRouter.Shard shard, LocalDate dischargedBefore) throws SQLException {
+        String selectSql = "SELECT hospitalization_id FROM Hospitalization WHERE discharge_date < ? " +
+                "ORDER BY discharge_date, hospitalization_id LIMIT ? FOR UPDATE";
+
+        List<Integer> ids = dbConnection.inTransaction(shard, conn -> {
+            List<Integer> locked = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                stmt.setObject(1, dischargedBefore);
+                stmt.setInt(2, batchSize);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        locked.add(rs.getInt(1));
+                    }
+                }
+            }
+            if (locked.isEmpty()) {
+                return locked;
+            }
+
+            String in = " WHERE hospitalization_id IN (" + String.join(", ", Collections.nCopies(locked.size(), "?")) + ")";
+            try (PreparedStatement copy = conn.prepareStatement("INSERT INTO HospitalizationArchive (" + COLUMNS +
+                    ") SELECT " + COLUMNS + " FROM Hospitalization" + in);
+                 PreparedStatement delete = conn.prepareStatement("DELETE FROM Hospitalization" + in)) {
+                for (int i = 0; i < locked.size(); i++) {
+                    copy.setInt(i + 1, locked.get(i));
+                    delete.setInt(i + 1, locked.get(i));
+                }
+                copy.executeUpdate();
+                delete.executeUpdate();
+            }
+            return locked;
+        });
+
+        List<ChangeEvent> changes = new ArrayList<>(ids.size());
+        for (int hospitalizationId : ids) {
+            changes.add(new ChangeEvent(ChangeEvent.Entity.HOSPITALIZATION, ChangeEvent.Operation.DELETE,
+                    hospitalizationId, null));
+        }
+        changeFeed.publishAfterCommit(dbConnection, changes);
+        return ids;
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (DataAccessException e) {
+            logger.warn("Could not archive stays, will retry", e);
+        }
+    }
+}
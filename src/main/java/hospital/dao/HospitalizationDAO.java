@@ -1,6 +1,7 @@
 package main.java.hospital.dao;
 
 import main.java.hospital.model.Hospitalization;
+import main.java.hospital.model.HospitalizationEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -8,22 +9,78 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Hospitalization entity.
  * Provides CRUD operations for interacting with the Hospitalization table in the database.
+ * Stays discharged long ago are moved to HospitalizationArchive by
+ * {@link HospitalizationArchiver}; queries read the hot table unless archived stays are
+ * requested, and archived stays cannot be changed.
+ * With department shards, each stay is stored on the shard of its department: lookups by ID
+ * and list queries search every shard, and a stay cannot be moved to a department on another
+ * shard.
  */
 public class HospitalizationDAO {
     private static final Logger logger = LogManager.getLogger(HospitalizationDAO.class);
+    private static final String INSERT_SQL = "INSERT INTO Hospitalization (patient_id, department_code, " +
+            "ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // With shards, IDs come from the IdAllocator so that they are unique across shards
+    private static final String INSERT_WITH_ID_SQL = "INSERT INTO Hospitalization (hospitalization_id, patient_id, " +
+            "department_code, ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final Comparator<Hospitalization> NEWEST_FIRST =
+            Comparator.comparing(Hospitalization::getHospitalizationId).reversed();
+    private static final Comparator<Hospitalization> LATEST_ADMISSION_FIRST =
+            Comparator.comparing(Hospitalization::getAdmissionDate).reversed();
+
+    // Listeners notified of committed writes, shared by all DAO instances
+    private static final List<HospitalizationListener> listeners = new CopyOnWriteArrayList<>();
+
     private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
+    private final HospitalizationEventDAO eventDAO;
+    private final boolean eventsEnabled;
 
     /**
      * Constructor that initializes the database connection.
      */
     public HospitalizationDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
+        this.eventDAO = new HospitalizationEventDAO();
+        this.eventsEnabled = HospitalizationEventDAO.isEnabled();
+    }
+
+    /**
+     * Registers a listener for hospitalization writes made through any HospitalizationDAO.
+     *
+     * @param listener The listener to add
+     */
+    public static void addListener(HospitalizationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener The listener to remove
+     */
+    public static void removeListener(HospitalizationListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -33,73 +90,177 @@ public class HospitalizationDAO {
      * @return The generated hospitalization ID if successful, or empty if failed
      */
     public Optional<Integer> insert(Hospitalization hospitalization) {
-        String sql = "INSERT INTO Hospitalization (patient_id, department_code, ward_number, bed_number, " +
-                "diagnosis, doctor_id, admission_date, discharge_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setInt(1, hospitalization.getPatientId());
-            stmt.setString(2, hospitalization.getDepartmentCode());
-            stmt.setInt(3, hospitalization.getWardNumber());
-            stmt.setInt(4, hospitalization.getBedNumber());
-            stmt.setString(5, hospitalization.getDiagnosis());
-            stmt.setInt(6, hospitalization.getDoctorId());
-            stmt.setDate(7, java.sql.Date.valueOf(hospitalization.getAdmissionDate()));
-
-            if (hospitalization.getDischargeDate() != null) {
-                stmt.setDate(8, java.sql.Date.valueOf(hospitalization.getDischargeDate()));
-            } else {
-                stmt.setNull(8, java.sql.Types.DATE);
-            }
+        try {
+            return insert(hospitalization, null);
+        } catch (SQLException e) {
+            logger.error("Error inserting hospitalization", e);
+            return Optional.empty();
+        }
+    }
 
-            int affectedRows = stmt.executeUpdate();
+    /**
+     * Admits a patient. The hospitalization is inserted like {@link #insert(Hospitalization)},
+     * but if the database cannot be reached it is kept in the {@link AdmissionJournal} and
+     * inserted once the database is back. While admissions are waiting in the journal, new ones
+     * are journaled behind them so they are inserted in order. Inside a unit of work nothing is
+     * journaled.
+     *
+     * <p>The admission's journal key is chosen before the first attempt and recorded in
+     * JournalReplay with the row, so an insert that committed but lost its connection before
+     * the reply is not written a second time when the journal is replayed.</p>
+     *
+     * @param hospitalization The Hospitalization object to insert
+     * @return SAVED with the generated ID set on the hospitalization, JOURNALED or FAILED
+     */
+    public AdmissionJournal.Outcome admit(Hospitalization hospitalization) {
+        AdmissionJournal journal = AdmissionJournal.getInstance();
+        if (!journal.isEnabled() || dbConnection.isInTransaction()) {
+            return insert(hospitalization).isPresent() ? AdmissionJournal.Outcome.SAVED : AdmissionJournal.Outcome.FAILED;
+        }
 
-            if (affectedRows == 0) {
-                logger.warn("Creating hospitalization failed, no rows affected");
-                return Optional.empty();
+        String journalKey = UUID.randomUUID().toString();
+        if (!journal.isPending()) {
+            try {
+                return insert(hospitalization, journalKey).isPresent()
+                        ? AdmissionJournal.Outcome.SAVED : AdmissionJournal.Outcome.FAILED;
+            } catch (SQLException e) {
+                if (!AdmissionJournal.isUnreachable(e)) {
+                    logger.error("Error inserting hospitalization", e);
+                    return AdmissionJournal.Outcome.FAILED;
+                }
+                logger.warn("Database unreachable, journaling admission of patient {}", hospitalization.getPatientId(), e);
             }
+        }
+        return journal.append(hospitalization, journalKey) ? AdmissionJournal.Outcome.JOURNALED : AdmissionJournal.Outcome.FAILED;
+    }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int hospitalizationId = generatedKeys.getInt(1);
-                    hospitalization.setHospitalizationId(hospitalizationId);
-                    logger.info("Created hospitalization with ID: {}", hospitalizationId);
+    /**
+     * Inserts a new hospitalization. For an admission that may be journaled, its key is
+     * recorded in the same transaction.
+     *
+     * @param hospitalization The Hospitalization object to insert
+     * @param journalKey      The journal record's key, or null
+     * @return The generated hospitalization ID if successful, or empty if no row was inserted
+     * @throws SQLException If a database access error occurs
+     */
+    Optional<Integer> insert(Hospitalization hospitalization, String journalKey) throws SQLException {
+        Integer allocatedId = dbConnection.isSharded()
+                ? IdAllocator.getInstance().next(IdAllocator.Sequence.HOSPITALIZATION) : null;
+        ShardRouter.Shard shard = dbConnection.shardFor(hospitalization.getDepartmentCode());
+        Optional<Integer> generatedId = dbConnection.inTransaction(shard, conn -> {
+            String sql = allocatedId != null ? INSERT_WITH_ID_SQL : INSERT_SQL;
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                int index = 1;
+                if (allocatedId != null) {
+                    stmt.setInt(index++, allocatedId);
+                }
+                HospitalizationMapper.bind(stmt, index, hospitalization);
+
+                int affectedRows = stmt.executeUpdate();
+
+                if (affectedRows == 0) {
+                    logger.warn("Creating hospitalization failed, no rows affected");
+                    return Optional.<Integer>empty();
+                }
+
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (allocatedId == null && !generatedKeys.next()) {
+                        logger.warn("Creating hospitalization failed, no ID obtained");
+                        return Optional.<Integer>empty();
+                    }
+                    int hospitalizationId = allocatedId != null ? allocatedId : generatedKeys.getInt(1);
+                    recordEvents(conn, admissionEvents(withId(hospitalization, hospitalizationId)));
+                    if (journalKey != null) {
+                        AdmissionJournal.recordWritten(conn, journalKey, hospitalizationId);
+                    }
                     return Optional.of(hospitalizationId);
-                } else {
-                    logger.warn("Creating hospitalization failed, no ID obtained");
-                    return Optional.empty();
                 }
             }
-        } catch (SQLException e) {
-            logger.error("Error inserting hospitalization", e);
-            return Optional.empty();
+        });
+
+        generatedId.ifPresent(hospitalizationId -> {
+            hospitalization.setHospitalizationId(hospitalizationId);
+            logger.info("Created hospitalization with ID: {}", hospitalizationId);
+            changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.HOSPITALIZATION, ChangeEvent.Operation.INSERT,
+                    hospitalizationId, hospitalization);
+            notifyListeners(listener -> listener.hospitalizationSaved(hospitalization));
+        });
+        return generatedId;
+    }
+
+    /**
+     * Inserts many hospitalizations using JDBC batching, in chunks of {@code db.batch.size} rows.
+     *
+     * @param hospitalizations The Hospitalization objects to insert
+     * @return The generated hospitalization IDs in input order; shorter than the input if a chunk failed
+     */
+    public List<Integer> insertAll(List<Hospitalization> hospitalizations) {
+        return insertAll(hospitalizations, BatchInserter.defaultChunkSize());
+    }
+
+    /**
+     * Inserts many hospitalizations using JDBC batching. Each chunk is sent as one batch and
+     * committed in its own transaction; the generated IDs are set on the hospitalizations.
+     * With shards, the hospitalizations are inserted shard by shard.
+     *
+     * @param hospitalizations The Hospitalization objects to insert
+     * @param chunkSize        The number of rows per batch and transaction
+     * @return The generated hospitalization IDs in input order (with shards, in the order they were
+     *         inserted); shorter than the input if a chunk failed, in which case the hospitalizations
+     *         that were not inserted are the ones whose ID is still null
+     */
+    public List<Integer> insertAll(List<Hospitalization> hospitalizations, int chunkSize) {
+        List<Hospitalization> inserted = new ArrayList<>(hospitalizations.size());
+        for (Map.Entry<ShardRouter.Shard, List<Hospitalization>> group : byShard(hospitalizations).entrySet()) {
+            List<Hospitalization> rows = group.getValue();
+            int count = insertAll(group.getKey(), rows, chunkSize);
+            inserted.addAll(rows.subList(0, count));
+            if (count < rows.size()) {
+                break;
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>(inserted.size());
+        for (Hospitalization hospitalization : inserted) {
+            ids.add(hospitalization.getHospitalizationId());
         }
+        logger.info("Batch inserted {} of {} hospitalizations", ids.size(), hospitalizations.size());
+        changeFeed.publishAfterCommit(dbConnection, insertEvents(inserted));
+        if (!inserted.isEmpty() && !listeners.isEmpty()) {
+            notifyListeners(listener -> inserted.forEach(listener::hospitalizationSaved));
+        }
+        return ids;
     }
 
     /**
-     * Retrieves a hospitalization by its ID.
+     * Retrieves a hospitalization by its ID. The archive is searched only if the
+     * hospitalization is not in the hot table.
      *
      * @param hospitalizationId The ID of the hospitalization to retrieve
      * @return An Optional containing the Hospitalization if found, or empty if not found
      */
     public Optional<Hospitalization> findById(int hospitalizationId) {
-        String sql = "SELECT * FROM Hospitalization WHERE hospitalization_id = ?";
-
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, hospitalizationId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Hospitalization hospitalization = mapResultSetToHospitalization(rs);
-                    logger.info("Found hospitalization with ID: {}", hospitalizationId);
-                    return Optional.of(hospitalization);
-                } else {
-                    logger.info("No hospitalization found with ID: {}", hospitalizationId);
-                    return Optional.empty();
+        try {
+            Hospitalization hospitalization = null;
+            if (!dbConnection.isSharded()) {
+                try (Connection conn = dbConnection.getConnection()) {
+                    hospitalization = findHotOrArchived(conn, hospitalizationId);
                 }
+            } else {
+                for (Hospitalization found : dbConnection.onEveryShard(conn -> findHotOrArchived(conn, hospitalizationId))) {
+                    if (found != null) {
+                        hospitalization = found;
+                    }
+                }
+            }
+
+            if (hospitalization != null) {
+                logger.info("Found hospitalization with ID: {}", hospitalizationId);
+                return Optional.of(hospitalization);
+            } else {
+                logger.info("No hospitalization found with ID: {}", hospitalizationId);
+                return Optional.empty();
             }
         } catch (SQLException e) {
             logger.error("Error finding hospitalization by ID", e);
@@ -108,23 +269,77 @@ public class HospitalizationDAO {
     }
 
     /**
-     * Retrieves all hospitalizations from the database.
+     * Retrieves many hospitalizations in the hot table by ID, with one query per 1000 IDs
+     * (per shard), e.g. to refresh the rows named by key-only change events.
      *
-     * @return A list of all hospitalizations
+     * @param hospitalizationIds The IDs of the hospitalizations to retrieve
+     * @return The hospitalizations found, by ID; empty on error
      */
-    public List<Hospitalization> findAll() {
-        String sql = "SELECT * FROM Hospitalization ORDER BY hospitalization_id DESC";
-        List<Hospitalization> hospitalizations = new ArrayList<>();
-
-        try (Connection conn = dbConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    public Map<Integer, Hospitalization> findByIds(List<Integer> hospitalizationIds) {
+        Map<Integer, Hospitalization> found = new HashMap<>();
+        if (hospitalizationIds.isEmpty()) {
+            return found;
+        }
+        try {
+            if (!dbConnection.isSharded()) {
+                try (Connection conn = dbConnection.getConnection()) {
+                    findByIds(conn, hospitalizationIds).forEach(h -> found.put(h.getHospitalizationId(), h));
+                }
+            } else {
+                for (List<Hospitalization> rows : dbConnection.onEveryShard(conn -> findByIds(conn, hospitalizationIds))) {
+                    rows.forEach(h -> found.put(h.getHospitalizationId(), h));
+                }
+            }
+            logger.info("Found {} of {} hospitalizations by ID", found.size(), hospitalizationIds.size());
+        } catch (SQLException e) {
+            logger.error("Error finding hospitalizations by ID", e);
+        }
+        return found;
+    }
 
-            while (rs.next()) {
-                Hospitalization hospitalization = mapResultSetToHospitalization(rs);
-                hospitalizations.add(hospitalization);
+    private static List<Hospitalization> findByIds(Connection conn, List<Integer> hospitalizationIds) throws SQLException {
+        List<Hospitalization> rows = new ArrayList<>();
+        for (int from = 0; from < hospitalizationIds.size(); from += 1000) {
+            List<Integer> chunk = hospitalizationIds.subList(from, Math.min(from + 1000, hospitalizationIds.size()));
+            String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM Hospitalization WHERE hospitalization_id IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(HospitalizationMapper.read(rs));
+                    }
+                }
             }
+        }
+        return rows;
+    }
 
+    /**
+     * Retrieves the hospitalizations in the hot table: current stays and those discharged
+     * within the archive horizon.
+     *
+     * @return A list of hospitalizations, newest first
+     */
+    public List<Hospitalization> findAll() {
+        return findAll(false);
+    }
+
+    /**
+     * Retrieves all hospitalizations.
+     *
+     * @param includeArchived Whether to include archived stays
+     * @return A list of hospitalizations, newest first
+     */
+    public List<Hospitalization> findAll(boolean includeArchived) {
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM " + table(includeArchived) +
+                " ORDER BY hospitalization_id DESC";
+        List<Hospitalization> hospitalizations = new ArrayList<>();
+
+        try {
+            hospitalizations = findOnEveryShard(sql, NEWEST_FIRST);
             logger.info("Retrieved {} hospitalizations", hospitalizations.size());
         } catch (SQLException e) {
             logger.error("Error retrieving all hospitalizations", e);
@@ -139,21 +354,46 @@ public class HospitalizationDAO {
      * @return A list of current hospitalizations
      */
     public List<Hospitalization> findCurrentHospitalizations() {
-        String sql = "SELECT * FROM Hospitalization WHERE discharge_date IS NULL ORDER BY hospitalization_id DESC";
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM Hospitalization WHERE discharge_date IS NULL ORDER BY hospitalization_id DESC";
         List<Hospitalization> hospitalizations = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try {
+            hospitalizations = findOnEveryShard(sql, NEWEST_FIRST);
+            logger.info("Retrieved {} current hospitalizations", hospitalizations.size());
+        } catch (SQLException e) {
+            logger.error("Error retrieving current hospitalizations", e);
+        }
 
-            while (rs.next()) {
-                Hospitalization hospitalization = mapResultSetToHospitalization(rs);
-                hospitalizations.add(hospitalization);
+        return hospitalizations;
+    }
+
+    /**
+     * Retrieves one page of hospitalizations, newest first.
+     *
+     * @param offset      The number of hospitalizations to skip
+     * @param limit       The maximum number of hospitalizations to return
+     * @param currentOnly Whether to return only stays without a discharge date
+     * @return A list of at most {@code limit} hospitalizations
+     */
+    public List<Hospitalization> findPage(int offset, int limit, boolean currentOnly) {
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM Hospitalization " +
+                (currentOnly ? "WHERE discharge_date IS NULL " : "") +
+                "ORDER BY hospitalization_id DESC LIMIT ? OFFSET ?";
+        List<Hospitalization> hospitalizations = new ArrayList<>();
+
+        try {
+            if (dbConnection.isSharded()) {
+                // Any shard may hold rows of the page, so each returns its rows up to the page's end
+                List<Hospitalization> merged = findOnEveryShard(sql, NEWEST_FIRST, offset + limit, 0);
+                hospitalizations = new ArrayList<>(merged.subList(Math.min(offset, merged.size()),
+                        Math.min(offset + limit, merged.size())));
+            } else {
+                hospitalizations = findOnEveryShard(sql, NEWEST_FIRST, limit, offset);
             }
 
-            logger.info("Retrieved {} current hospitalizations", hospitalizations.size());
+            logger.info("Retrieved {} hospitalizations from offset {}", hospitalizations.size(), offset);
         } catch (SQLException e) {
-            logger.error("Error retrieving current hospitalizations", e);
+            logger.error("Error retrieving page of hospitalizations", e);
         }
 
         return hospitalizations;
@@ -162,37 +402,62 @@ public class HospitalizationDAO {
     /**
      * Updates an existing hospitalization in the database.
      *
+     * The update only applies if the hospitalization is still at the version it was read at, and writes
+     * only the fields changed since then; if none were, nothing is written.
+     *
      * @param hospitalization The Hospitalization object with updated values
      * @return true if successful, false otherwise
+     * @throws VersionConflictException If the hospitalization was changed since it was read
      */
     public boolean update(Hospitalization hospitalization) {
-        String sql = "UPDATE Hospitalization SET patient_id = ?, department_code = ?, ward_number = ?, " +
-                "bed_number = ?, diagnosis = ?, doctor_id = ?, admission_date = ?, discharge_date = ? " +
-                "WHERE hospitalization_id = ?";
-
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, hospitalization.getPatientId());
-            stmt.setString(2, hospitalization.getDepartmentCode());
-            stmt.setInt(3, hospitalization.getWardNumber());
-            stmt.setInt(4, hospitalization.getBedNumber());
-            stmt.setString(5, hospitalization.getDiagnosis());
-            stmt.setInt(6, hospitalization.getDoctorId());
-            stmt.setDate(7, java.sql.Date.valueOf(hospitalization.getAdmissionDate()));
-
-            if (hospitalization.getDischargeDate() != null) {
-                stmt.setDate(8, java.sql.Date.valueOf(hospitalization.getDischargeDate()));
-            } else {
-                stmt.setNull(8, java.sql.Types.DATE);
+        if (!hospitalization.hasChanges()) {
+            logger.info("No changes to save for hospitalization with ID: {}", hospitalization.getHospitalizationId());
+            return true;
+        }
+        String sql = HospitalizationMapper.updateSql(hospitalization);
+
+        try {
+            ShardRouter.Shard shard = locate(hospitalization.getHospitalizationId());
+            if (shard != null && hospitalization.getDepartmentCode() != null
+                    && dbConnection.shardFor(hospitalization.getDepartmentCode()) != shard) {
+                logger.warn("Cannot move hospitalization {} to department {} on another shard",
+                        hospitalization.getHospitalizationId(), hospitalization.getDepartmentCode());
+                return false;
             }
+            boolean updated = shard != null && dbConnection.inTransaction(shard, conn -> {
+                // The previous state tells which lifecycle events the update represents
+                Hospitalization previous = eventsEnabled
+                        ? findForUpdate(conn, hospitalization.getHospitalizationId()) : null;
+                if (eventsEnabled && previous == null) {
+                    return false;
+                }
 
-            stmt.setInt(9, hospitalization.getHospitalizationId());
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int next = HospitalizationMapper.bindUpdate(stmt, hospitalization);
+                    stmt.setInt(next, hospitalization.getHospitalizationId());
+                    stmt.setInt(next + 1, hospitalization.getVersion());
+
+                    if (stmt.executeUpdate() == 0) {
+                        OptimisticUpdates.checkConflict(conn, "Hospitalization", "hospitalization_id = ?",
+                                ChangeEvent.Entity.HOSPITALIZATION, hospitalization.getHospitalizationId(),
+                                hospitalization.getVersion(), hospitalization.getHospitalizationId());
+                        return false;
+                    }
+                }
 
-            int affectedRows = stmt.executeUpdate();
+                if (previous != null) {
+                    recordEvents(conn, changeEvents(previous, new Hospitalization(hospitalization)));
+                }
+                return true;
+            });
 
-            if (affectedRows > 0) {
+            if (updated) {
+                hospitalization.setVersion(hospitalization.getVersion() + 1);
+                hospitalization.markClean();
                 logger.info("Updated hospitalization with ID: {}", hospitalization.getHospitalizationId());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.HOSPITALIZATION, ChangeEvent.Operation.UPDATE,
+                        hospitalization.getHospitalizationId(), hospitalization);
+                notifyListeners(listener -> listener.hospitalizationSaved(hospitalization));
                 return true;
             } else {
                 logger.warn("No hospitalization found with ID: {}", hospitalization.getHospitalizationId());
@@ -204,6 +469,19 @@ public class HospitalizationDAO {
         }
     }
 
+    /**
+     * Applies a change to the current version of a hospitalization and saves it, re-reading
+     * the hospitalization and re-applying the change if another user saves it in between.
+     *
+     * @param hospitalizationId The hospitalization ID
+     * @param change The change, applied to a freshly read Hospitalization
+     * @return The saved hospitalization, or empty if not found or the update failed
+     * @throws VersionConflictException If the hospitalization was changed by others on every attempt
+     */
+    public Optional<Hospitalization> modify(int hospitalizationId, Consumer<Hospitalization> change) {
+        return OptimisticUpdates.modify(() -> findById(hospitalizationId), change, this::update);
+    }
+
     /**
      * Discharges a patient by setting the discharge date for a hospitalization.
      *
@@ -212,18 +490,38 @@ public class HospitalizationDAO {
      * @return true if successful, false otherwise
      */
     public boolean dischargePatient(int hospitalizationId, LocalDate dischargeDate) {
-        String sql = "UPDATE Hospitalization SET discharge_date = ? WHERE hospitalization_id = ?";
+        String sql = "UPDATE Hospitalization SET discharge_date = ?, version = version + 1 WHERE hospitalization_id = ?";
+
+        try {
+            ShardRouter.Shard shard = locate(hospitalizationId);
+            boolean discharged = shard != null && dbConnection.inTransaction(shard, conn -> {
+                Hospitalization previous = eventsEnabled ? findForUpdate(conn, hospitalizationId) : null;
+                if (eventsEnabled && previous == null) {
+                    return false;
+                }
 
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    setDate(stmt, 1, dischargeDate);
+                    stmt.setInt(2, hospitalizationId);
 
-            stmt.setDate(1, java.sql.Date.valueOf(dischargeDate));
-            stmt.setInt(2, hospitalizationId);
+                    if (stmt.executeUpdate() == 0) {
+                        return false;
+                    }
+                }
 
-            int affectedRows = stmt.executeUpdate();
+                if (previous != null) {
+                    previous.setDischargeDate(dischargeDate);
+                    recordEvents(conn, Collections.singletonList(
+                            new HospitalizationEvent(HospitalizationEvent.Type.DISCHARGE, dischargeDate, previous)));
+                }
+                return true;
+            });
 
-            if (affectedRows > 0) {
+            if (discharged) {
                 logger.info("Discharged patient with hospitalization ID: {}", hospitalizationId);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.HOSPITALIZATION, ChangeEvent.Operation.UPDATE,
+                        hospitalizationId, null);
+                notifyListeners(listener -> listener.hospitalizationDischarged(hospitalizationId, dischargeDate));
                 return true;
             } else {
                 logger.warn("No hospitalization found with ID: {}", hospitalizationId);
@@ -235,6 +533,205 @@ public class HospitalizationDAO {
         }
     }
 
+    /**
+     * Discharges several patients in one transaction (with shards, one per shard).
+     * Hospitalizations that do not exist or are already discharged are reported and skipped.
+     *
+     * @param hospitalizationIds The IDs of the hospitalizations to discharge
+     * @param dischargeDate      The discharge date to set
+     * @return The outcome for each hospitalization
+     */
+    public BulkResult dischargePatients(List<Integer> hospitalizationIds, LocalDate dischargeDate) {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(hospitalizationIds));
+        if (!dbConnection.isSharded()) {
+            return dischargePatients(ShardRouter.PRIMARY, ids, dischargeDate);
+        }
+
+        try {
+            Map<Integer, ShardRouter.Shard> located = locate(ids);
+            Map<ShardRouter.Shard, List<Integer>> groups = new LinkedHashMap<>();
+            for (int hospitalizationId : ids) {
+                // IDs found on no shard are reported as not found by the primary's transaction
+                groups.computeIfAbsent(located.getOrDefault(hospitalizationId, ShardRouter.PRIMARY),
+                        shard -> new ArrayList<>()).add(hospitalizationId);
+            }
+
+            BulkResult result = new BulkResult();
+            for (Map.Entry<ShardRouter.Shard, List<Integer>> group : groups.entrySet()) {
+                result.addAll(dischargePatients(group.getKey(), group.getValue(), dischargeDate));
+            }
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error discharging patients", e);
+            return BulkResult.failed(ids);
+        }
+    }
+
+    /**
+     * Discharges patients whose hospitalizations are on one shard, in one transaction.
+     *
+     * @param shard         The shard
+     * @param ids           The IDs of the hospitalizations to discharge, without duplicates
+     * @param dischargeDate The discharge date to set
+     * @return The outcome for each hospitalization
+     */
+    private BulkResult dischargePatients(ShardRouter.Shard shard, List<Integer> ids, LocalDate dischargeDate) {
+        try {
+            BulkResult result = dbConnection.inTransaction(shard, conn -> {
+                Map<Integer, Hospitalization> found = findForUpdate(conn, ids);
+                List<Hospitalization> active = new ArrayList<>();
+
+                BulkResult outcome = new BulkResult();
+                for (int hospitalizationId : ids) {
+                    Hospitalization hospitalization = found.get(hospitalizationId);
+                    if (hospitalization == null) {
+                        outcome.add(hospitalizationId, BulkResult.Status.NOT_FOUND, null);
+                    } else if (hospitalization.getDischargeDate() != null) {
+                        outcome.add(hospitalizationId, BulkResult.Status.NOT_ACTIVE, null);
+                    } else {
+                        active.add(hospitalization);
+                        outcome.add(hospitalizationId, BulkResult.Status.DONE, hospitalization);
+                    }
+                }
+                discharge(conn, active, dischargeDate);
+                return outcome;
+            });
+
+            logger.info("Discharged {} of {} hospitalizations", result.count(BulkResult.Status.DONE), ids.size());
+            publishDischarges(result.getDone(), dischargeDate);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error discharging patients", e);
+            return BulkResult.failed(ids);
+        }
+    }
+
+    /**
+     * Discharges every patient currently in a ward, in one transaction.
+     *
+     * @param departmentCode The ward's department code
+     * @param wardNumber     The ward number
+     * @param dischargeDate  The discharge date to set
+     * @return The outcome for each discharged hospitalization
+     */
+    public BulkResult dischargeWard(String departmentCode, int wardNumber, LocalDate dischargeDate) {
+        return dischargeActive(dbConnection.shardFor(departmentCode), "department_code = ? AND ward_number = ?", dischargeDate, departmentCode, wardNumber);
+    }
+
+    /**
+     * Discharges every patient currently in a department, in one transaction.
+     *
+     * @param departmentCode The department code
+     * @param dischargeDate  The discharge date to set
+     * @return The outcome for each discharged hospitalization
+     */
+    public BulkResult dischargeDepartment(String departmentCode, LocalDate dischargeDate) {
+        return dischargeActive(dbConnection.shardFor(departmentCode), "department_code = ?", dischargeDate,
+                departmentCode);
+    }
+
+    /**
+     * Moves patients to another ward in one transaction, assigning each the lowest free bed.
+     * The ward's row is locked while beds are assigned, so concurrent transfers and bulk
+     * operations into the same ward cannot pick the same bed. Hospitalizations that do not
+     * exist, are discharged, or find no free bed are reported and stay where they are; those
+     * already in the ward are reported as done and not moved. With shards, hospitalizations
+     * stored on another shard than the ward's are reported and not moved.
+     *
+     * @param hospitalizationIds The IDs of the hospitalizations to move
+     * @param departmentCode     The target ward's department code
+     * @param wardNumber         The target ward number
+     * @return The outcome for each hospitalization, with the assigned bed in its state
+     */
+    public BulkResult transferPatients(List<Integer> hospitalizationIds, String departmentCode, int wardNumber) {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(hospitalizationIds));
+        ShardRouter.Shard shard = dbConnection.shardFor(departmentCode);
+        if (!dbConnection.isSharded()) {
+            return transferPatients(shard, ids, departmentCode, wardNumber);
+        }
+
+        try {
+            Map<Integer, ShardRouter.Shard> located = locate(ids);
+            List<Integer> local = new ArrayList<>();
+            BulkResult elsewhere = new BulkResult();
+            for (int hospitalizationId : ids) {
+                ShardRouter.Shard found = located.get(hospitalizationId);
+                if (found == null || found == shard) {
+                    local.add(hospitalizationId);
+                } else {
+                    elsewhere.add(hospitalizationId, BulkResult.Status.OTHER_SHARD, null);
+                }
+            }
+
+            BulkResult result = transferPatients(shard, local, departmentCode, wardNumber);
+            result.addAll(elsewhere);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error transferring patients", e);
+            return BulkResult.failed(ids);
+        }
+    }
+
+    /**
+     * Moves patients to a ward on the ward's shard, in one transaction.
+     *
+     * @param shard          The ward's shard
+     * @param ids            The IDs of the hospitalizations to move, without duplicates
+     * @param departmentCode The target ward's department code
+     * @param wardNumber     The target ward number
+     * @return The outcome for each hospitalization
+     */
+    private BulkResult transferPatients(ShardRouter.Shard shard, List<Integer> ids, String departmentCode,
+                                        int wardNumber) {
+        List<Hospitalization> moved = new ArrayList<>();
+
+        try {
+            BulkResult result = dbConnection.inTransaction(shard, conn -> {
+                int bedCount = lockWard(conn, departmentCode, wardNumber);
+                BitSet occupied = findOccupiedBeds(conn, departmentCode, wardNumber);
+                Map<Integer, Hospitalization> found = findForUpdate(conn, ids);
+
+                BulkResult outcome = new BulkResult();
+                for (int hospitalizationId : ids) {
+                    Hospitalization hospitalization = found.get(hospitalizationId);
+                    if (hospitalization == null) {
+                        outcome.add(hospitalizationId, BulkResult.Status.NOT_FOUND, null);
+                    } else if (hospitalization.getDischargeDate() != null) {
+                        outcome.add(hospitalizationId, BulkResult.Status.NOT_ACTIVE, null);
+                    } else if (departmentCode.equals(hospitalization.getDepartmentCode())
+                            && wardNumber == hospitalization.getWardNumber()) {
+                        outcome.add(hospitalizationId, BulkResult.Status.DONE, hospitalization);
+                    } else {
+                        int bed = occupied.nextClearBit(1);
+                        if (bed > bedCount) {
+                            outcome.add(hospitalizationId, BulkResult.Status.NO_FREE_BED, null);
+                            continue;
+                        }
+                        occupied.set(bed);
+                        hospitalization.setDepartmentCode(departmentCode);
+                        hospitalization.setWardNumber(wardNumber);
+                        hospitalization.setBedNumber(bed);
+                        moved.add(hospitalization);
+                        outcome.add(hospitalizationId, BulkResult.Status.DONE, hospitalization);
+                    }
+                }
+                transfer(conn, moved);
+                return outcome;
+            });
+
+            logger.info("Transferred {} of {} hospitalizations to ward {} of department {}",
+                    moved.size(), ids.size(), wardNumber, departmentCode);
+            changeFeed.publishAfterCommit(dbConnection, updateEvents(moved));
+            if (!moved.isEmpty()) {
+                notifyListeners(listener -> moved.forEach(listener::hospitalizationSaved));
+            }
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error transferring patients", e);
+            return BulkResult.failed(ids);
+        }
+    }
+
     /**
      * Deletes a hospitalization from the database.
      *
@@ -244,15 +741,34 @@ public class HospitalizationDAO {
     public boolean delete(int hospitalizationId) {
         String sql = "DELETE FROM Hospitalization WHERE hospitalization_id = ?";
 
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try {
+            ShardRouter.Shard shard = locate(hospitalizationId);
+            boolean deleted = shard != null && dbConnection.inTransaction(shard, conn -> {
+                Hospitalization previous = eventsEnabled ? findForUpdate(conn, hospitalizationId) : null;
+                if (eventsEnabled && previous == null) {
+                    return false;
+                }
 
-            stmt.setInt(1, hospitalizationId);
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, hospitalizationId);
+
+                    if (stmt.executeUpdate() == 0) {
+                        return false;
+                    }
+                }
 
-            int affectedRows = stmt.executeUpdate();
+                if (previous != null) {
+                    recordEvents(conn, Collections.singletonList(
+                            new HospitalizationEvent(HospitalizationEvent.Type.DELETE, LocalDate.now(), previous)));
+                }
+                return true;
+            });
 
-            if (affectedRows > 0) {
+            if (deleted) {
                 logger.info("Deleted hospitalization with ID: {}", hospitalizationId);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.HOSPITALIZATION, ChangeEvent.Operation.DELETE,
+                        hospitalizationId, null);
+                notifyListeners(listener -> listener.hospitalizationDeleted(hospitalizationId));
                 return true;
             } else {
                 logger.warn("No hospitalization found with ID: {}", hospitalizationId);
@@ -265,27 +781,29 @@ public class HospitalizationDAO {
     }
 
     /**
-     * Finds hospitalizations by patient.
+     * Finds the hot hospitalizations of a patient.
      *
      * @param patientId The ID of the patient to search for
      * @return A list of hospitalizations for the specified patient
      */
     public List<Hospitalization> findByPatient(int patientId) {
-        String sql = "SELECT * FROM Hospitalization WHERE patient_id = ? ORDER BY admission_date DESC";
-        List<Hospitalization> hospitalizations = new ArrayList<>();
-
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, patientId);
+        return findByPatient(patientId, false);
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Hospitalization hospitalization = mapResultSetToHospitalization(rs);
-                    hospitalizations.add(hospitalization);
-                }
-            }
+    /**
+     * Finds hospitalizations by patient, optionally including archived stays.
+     *
+     * @param patientId       The ID of the patient to search for
+     * @param includeArchived Whether to include archived stays
+     * @return A list of hospitalizations, most recent admission first
+     */
+    public List<Hospitalization> findByPatient(int patientId, boolean includeArchived) {
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM " + table(includeArchived) +
+                " WHERE patient_id = ? ORDER BY admission_date DESC";
+        List<Hospitalization> hospitalizations = new ArrayList<>();
 
+        try {
+            hospitalizations = findOnEveryShard(sql, LATEST_ADMISSION_FIRST, patientId);
             logger.info("Found {} hospitalizations for patient with ID: {}",
                     hospitalizations.size(), patientId);
         } catch (SQLException e) {
@@ -296,27 +814,29 @@ public class HospitalizationDAO {
     }
 
     /**
-     * Finds hospitalizations by doctor.
+     * Finds the hot hospitalizations under a doctor.
      *
      * @param doctorId The ID of the doctor to search for
      * @return A list of hospitalizations under the specified doctor
      */
     public List<Hospitalization> findByDoctor(int doctorId) {
-        String sql = "SELECT * FROM Hospitalization WHERE doctor_id = ? ORDER BY admission_date DESC";
-        List<Hospitalization> hospitalizations = new ArrayList<>();
-
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, doctorId);
+        return findByDoctor(doctorId, false);
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Hospitalization hospitalization = mapResultSetToHospitalization(rs);
-                    hospitalizations.add(hospitalization);
-                }
-            }
+    /**
+     * Finds hospitalizations by doctor, optionally including archived stays.
+     *
+     * @param doctorId       The ID of the doctor to search for
+     * @param includeArchived Whether to include archived stays
+     * @return A list of hospitalizations, most recent admission first
+     */
+    public List<Hospitalization> findByDoctor(int doctorId, boolean includeArchived) {
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM " + table(includeArchived) +
+                " WHERE doctor_id = ? ORDER BY admission_date DESC";
+        List<Hospitalization> hospitalizations = new ArrayList<>();
 
+        try {
+            hospitalizations = findOnEveryShard(sql, LATEST_ADMISSION_FIRST, doctorId);
             logger.info("Found {} hospitalizations under doctor with ID: {}",
                     hospitalizations.size(), doctorId);
         } catch (SQLException e) {
@@ -338,7 +858,7 @@ public class HospitalizationDAO {
         String sql = "SELECT COUNT(*) FROM Hospitalization " +
                 "WHERE department_code = ? AND ward_number = ? AND bed_number = ? AND discharge_date IS NULL";
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getConnection(departmentCode);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, departmentCode);
@@ -359,47 +879,540 @@ public class HospitalizationDAO {
     }
 
     /**
-     * Helper method to map a ResultSet row to a Hospitalization object.
+     * Reads a hospitalization from the hot table or the archive.
+     *
+     * @param conn              The connection
+     * @param table             Hospitalization or HospitalizationArchive
+     * @param hospitalizationId The hospitalization ID
+     * @return The hospitalization, or null if it is not in the table
+     * @throws SQLException If a database access error occurs
+     */
+    private static Hospitalization findById(Connection conn, String table, int hospitalizationId) throws SQLException {
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM " + table + " WHERE hospitalization_id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, hospitalizationId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? HospitalizationMapper.read(rs) : null;
+            }
+        }
+    }
+
+    private static Hospitalization findHotOrArchived(Connection conn, int hospitalizationId) throws SQLException {
+        Hospitalization hospitalization = findById(conn, "Hospitalization", hospitalizationId);
+        return hospitalization != null ? hospitalization : findById(conn, "HospitalizationArchive", hospitalizationId);
+    }
+
+    /**
+     * Runs a hospitalization query on every shard. With shards, the shards' rows are merged
+     * into the query's order.
+     *
+     * @param sql    The query
+     * @param order  The query's ORDER BY, to merge the shards' rows
+     * @param params The query's parameters
+     * @return The rows
+     * @throws SQLException If the query fails on any shard
+     */
+    private List<Hospitalization> findOnEveryShard(String sql, Comparator<Hospitalization> order, Object... params)
+            throws SQLException {
+        List<List<Hospitalization>> results = dbConnection.onEveryShard(conn -> {
+            List<Hospitalization> rows = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(HospitalizationMapper.read(rs));
+                    }
+                }
+            }
+            return rows;
+        });
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+
+        List<Hospitalization> merged = new ArrayList<>();
+        results.forEach(merged::addAll);
+        merged.sort(order);
+        return merged;
+    }
+
+    /**
+     * Finds the shard holding a hospitalization in the hot table.
+     *
+     * @param hospitalizationId The hospitalization ID
+     * @return The shard, or null if no shard has it; without shards, always the primary
+     * @throws SQLException If a database access error occurs
+     */
+    private ShardRouter.Shard locate(int hospitalizationId) throws SQLException {
+        if (!dbConnection.isSharded()) {
+            return ShardRouter.PRIMARY;
+        }
+        return locate(Collections.singletonList(hospitalizationId)).get(hospitalizationId);
+    }
+
+    /**
+     * Finds the shards holding hospitalizations in the hot table.
+     *
+     * @param hospitalizationIds The hospitalization IDs
+     * @return The shard of each hospitalization found, by ID
+     * @throws SQLException If a database access error occurs
+     */
+    private Map<Integer, ShardRouter.Shard> locate(List<Integer> hospitalizationIds) throws SQLException {
+        List<ShardRouter.Shard> shards = dbConnection.shards();
+        List<List<Integer>> found = dbConnection.onEveryShard(conn -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int from = 0; from < hospitalizationIds.size(); from += 1000) {
+                List<Integer> chunk = hospitalizationIds.subList(from, Math.min(from + 1000, hospitalizationIds.size()));
+                String sql = "SELECT hospitalization_id FROM Hospitalization WHERE hospitalization_id IN (" +
+                        String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getInt(1));
+                        }
+                    }
+                }
+            }
+            return ids;
+        });
+
+        Map<Integer, ShardRouter.Shard> located = new HashMap<>();
+        for (int i = 0; i < found.size(); i++) {
+            for (int hospitalizationId : found.get(i)) {
+                located.put(hospitalizationId, shards.get(i));
+            }
+        }
+        return located;
+    }
+
+    /**
+     * Inserts hospitalizations into one shard in batches.
+     *
+     * @param shard            The shard
+     * @param hospitalizations The hospitalizations, all of departments on the shard
+     * @param chunkSize        The number of rows per batch and transaction
+     * @return The number inserted; their IDs are set
+     */
+    private int insertAll(ShardRouter.Shard shard, List<Hospitalization> hospitalizations, int chunkSize) {
+        if (!dbConnection.isSharded()) {
+            return BatchInserter.insertAll(dbConnection, INSERT_SQL, hospitalizations, chunkSize,
+                    (stmt, hospitalization) -> HospitalizationMapper.bind(stmt, 1, hospitalization),
+                    Hospitalization::setHospitalizationId, this::recordAdmissions).size();
+        }
+        IdAllocator allocator = IdAllocator.getInstance();
+        return BatchInserter.insertAll(dbConnection, shard, INSERT_WITH_ID_SQL, hospitalizations, chunkSize,
+                (stmt, hospitalization) -> {
+                    stmt.setInt(1, hospitalization.getHospitalizationId());
+                    HospitalizationMapper.bind(stmt, 2, hospitalization);
+                }, Hospitalization::setHospitalizationId,
+                () -> allocator.next(IdAllocator.Sequence.HOSPITALIZATION), this::recordAdmissions).size();
+    }
+
+    /**
+     * Groups hospitalizations by the shard of their department, keeping their order.
+     */
+    private Map<ShardRouter.Shard, List<Hospitalization>> byShard(List<Hospitalization> hospitalizations) {
+        Map<ShardRouter.Shard, List<Hospitalization>> groups = new LinkedHashMap<>();
+        for (Hospitalization hospitalization : hospitalizations) {
+            groups.computeIfAbsent(dbConnection.shardFor(hospitalization.getDepartmentCode()),
+                    shard -> new ArrayList<>()).add(hospitalization);
+        }
+        return groups;
+    }
+
+    /**
+     * Gets the table to read hospitalizations from.
+     *
+     * @param includeArchived Whether archived stays are wanted
+     * @return The HospitalizationHistory view, or the hot Hospitalization table
+     */
+    private static String table(boolean includeArchived) {
+        return includeArchived ? "HospitalizationHistory" : "Hospitalization";
+    }
+
+    /**
+     * Reads a hospitalization and locks its row until the transaction ends.
+     *
+     * @param conn              The transaction's connection
+     * @param hospitalizationId The hospitalization ID
+     * @return The hospitalization, or null if it does not exist
+     * @throws SQLException If a database access error occurs
+     */
+    private Hospitalization findForUpdate(Connection conn, int hospitalizationId) throws SQLException {
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM Hospitalization WHERE hospitalization_id = ? FOR UPDATE";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, hospitalizationId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? HospitalizationMapper.read(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Appends lifecycle events on the write's connection, if the event log is enabled.
+     *
+     * @param conn   The connection of the write
+     * @param events The events describing the write
+     * @throws SQLException If the events cannot be stored; the write is rolled back with them
+     */
+    private void recordEvents(Connection conn, List<HospitalizationEvent> events) throws SQLException {
+        if (eventsEnabled) {
+            eventDAO.append(conn, events);
+        }
+    }
+
+    /**
+     * Records the admission events of a batch-inserted chunk before it commits.
+     *
+     * @param conn  The batch's connection
+     * @param chunk The inserted hospitalizations, with their IDs set
+     * @throws SQLException If the events cannot be stored
+     */
+    private void recordAdmissions(Connection conn, List<Hospitalization> chunk) throws SQLException {
+        if (!eventsEnabled) {
+            return;
+        }
+        List<HospitalizationEvent> events = new ArrayList<>(chunk.size());
+        for (Hospitalization hospitalization : chunk) {
+            events.addAll(admissionEvents(new Hospitalization(hospitalization)));
+        }
+        eventDAO.append(conn, events);
+    }
+
+    /**
+     * Builds the events of a new hospitalization: its admission, and its discharge if it is
+     * recorded after the fact.
+     *
+     * @param state The inserted hospitalization, with its ID
+     * @return The events
+     */
+    private static List<HospitalizationEvent> admissionEvents(Hospitalization state) {
+        List<HospitalizationEvent> events = new ArrayList<>(2);
+        events.add(new HospitalizationEvent(HospitalizationEvent.Type.ADMIT, state.getAdmissionDate(), state));
+        if (state.getDischargeDate() != null) {
+            events.add(new HospitalizationEvent(HospitalizationEvent.Type.DISCHARGE, state.getDischargeDate(), state));
+        }
+        return events;
+    }
+
+    /**
+     * Works out which lifecycle events an update represents.
+     *
+     * @param previous The hospitalization before the update
+     * @param current  The hospitalization after the update
+     * @return The events, all carrying the new state; empty if nothing changed
+     */
+    private static List<HospitalizationEvent> changeEvents(Hospitalization previous, Hospitalization current) {
+        List<HospitalizationEvent> events = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+
+        if (!Objects.equals(previous.getDepartmentCode(), current.getDepartmentCode())
+                || !Objects.equals(previous.getWardNumber(), current.getWardNumber())
+                || !Objects.equals(previous.getBedNumber(), current.getBedNumber())) {
+            events.add(new HospitalizationEvent(HospitalizationEvent.Type.TRANSFER, today, current));
+        }
+        if (!Objects.equals(previous.getDoctorId(), current.getDoctorId())) {
+            events.add(new HospitalizationEvent(HospitalizationEvent.Type.CHANGE_DOCTOR, today, current));
+        }
+
+        boolean dischargeChanged = !Objects.equals(previous.getDischargeDate(), current.getDischargeDate());
+        if (dischargeChanged && previous.getDischargeDate() == null) {
+            events.add(new HospitalizationEvent(HospitalizationEvent.Type.DISCHARGE, current.getDischargeDate(), current));
+        } else if (dischargeChanged
+                || !Objects.equals(previous.getPatientId(), current.getPatientId())
+                || !Objects.equals(previous.getDiagnosis(), current.getDiagnosis())
+                || !Objects.equals(previous.getAdmissionDate(), current.getAdmissionDate())) {
+            events.add(new HospitalizationEvent(HospitalizationEvent.Type.CORRECT, today, current));
+        }
+        return events;
+    }
+
+    private static Hospitalization withId(Hospitalization hospitalization, int hospitalizationId) {
+        Hospitalization copy = new Hospitalization(hospitalization);
+        copy.setHospitalizationId(hospitalizationId);
+        return copy;
+    }
+
+    private static void setDate(PreparedStatement stmt, int position, LocalDate date) throws SQLException {
+        if (date != null) {
+            stmt.setObject(position, date);
+        } else {
+            stmt.setNull(position, Types.DATE);
+        }
+    }
+
+    /**
+     * Discharges the hospitalizations matching a condition that are still active.
+     *
+     * @param shard         The shard holding the hospitalizations
+     * @param where         The condition
+     * @param dischargeDate The discharge date to set
+     * @param params        The condition's parameters
+     * @return The outcome for each discharged hospitalization; if the transaction failed, each
+     *         hospitalization it had selected is FAILED
+     */
+    private BulkResult dischargeActive(ShardRouter.Shard shard, String where, LocalDate dischargeDate,
+                                       Object... params) {
+        String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM Hospitalization WHERE " + where +
+                " AND discharge_date IS NULL ORDER BY hospitalization_id FOR UPDATE";
+
+        // Kept outside the transaction so a rollback can report which stays it covered
+        List<Integer> selectedIds = new ArrayList<>();
+        try {
+            BulkResult result = dbConnection.inTransaction(shard, conn -> {
+                List<Hospitalization> active = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) {
+                        stmt.setObject(i + 1, params[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            active.add(HospitalizationMapper.read(rs));
+                        }
+                    }
+                }
+                for (Hospitalization hospitalization : active) {
+                    selectedIds.add(hospitalization.getHospitalizationId());
+                }
+                discharge(conn, active, dischargeDate);
+
+                BulkResult outcome = new BulkResult();
+                for (Hospitalization hospitalization : active) {
+                    outcome.add(hospitalization.getHospitalizationId(), BulkResult.Status.DONE, hospitalization);
+                }
+                return outcome;
+            });
+
+            logger.info("Discharged {} hospitalizations where {}", result.count(BulkResult.Status.DONE), where);
+            publishDischarges(result.getDone(), dischargeDate);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error discharging patients", e);
+            return BulkResult.failed(selectedIds);
+        }
+    }
+
+    /**
+     * Writes the discharge of locked, active hospitalizations as JDBC batches and records
+     * their events. The discharge date and new version are set on the objects.
+     *
+     * @param conn          The transaction's connection
+     * @param active        The hospitalizations to discharge
+     * @param dischargeDate The discharge date
+     * @throws SQLException If a database access error occurs
+     */
+    private void discharge(Connection conn, List<Hospitalization> active, LocalDate dischargeDate)
+            throws SQLException {
+        String sql = "UPDATE Hospitalization SET discharge_date = ?, version = version + 1 WHERE hospitalization_id = ?";
+
+        executeBatches(conn, sql, active, (stmt, hospitalization) -> {
+            setDate(stmt, 1, dischargeDate);
+            stmt.setInt(2, hospitalization.getHospitalizationId());
+        });
+
+        List<HospitalizationEvent> events = new ArrayList<>(active.size());
+        for (Hospitalization hospitalization : active) {
+            hospitalization.setDischargeDate(dischargeDate);
+            hospitalization.setVersion(hospitalization.getVersion() + 1);
+            hospitalization.markClean();
+            events.add(new HospitalizationEvent(HospitalizationEvent.Type.DISCHARGE, dischargeDate,
+                    new Hospitalization(hospitalization)));
+        }
+        recordEvents(conn, events);
+    }
+
+    /**
+     * Writes the new beds of locked hospitalizations as JDBC batches and records their
+     * transfer events. The new version is set on the objects.
+     *
+     * @param conn  The transaction's connection
+     * @param moved The hospitalizations, with their new department, ward and bed set
+     * @throws SQLException If a database access error occurs
+     */
+    private void transfer(Connection conn, List<Hospitalization> moved) throws SQLException {
+        String sql = "UPDATE Hospitalization SET department_code = ?, ward_number = ?, bed_number = ?, " +
+                "version = version + 1 WHERE hospitalization_id = ?";
+
+        executeBatches(conn, sql, moved, (stmt, hospitalization) -> {
+            stmt.setString(1, hospitalization.getDepartmentCode());
+            stmt.setInt(2, hospitalization.getWardNumber());
+            stmt.setInt(3, hospitalization.getBedNumber());
+            stmt.setInt(4, hospitalization.getHospitalizationId());
+        });
+
+        LocalDate today = LocalDate.now();
+        List<HospitalizationEvent> events = new ArrayList<>(moved.size());
+        for (Hospitalization hospitalization : moved) {
+            hospitalization.setVersion(hospitalization.getVersion() + 1);
+            hospitalization.markClean();
+            events.add(new HospitalizationEvent(HospitalizationEvent.Type.TRANSFER, today,
+                    new Hospitalization(hospitalization)));
+        }
+        recordEvents(conn, events);
+    }
+
+    /**
+     * Runs an update once per hospitalization, sending it in batches of {@code db.batch.size}.
+     */
+    private static void executeBatches(Connection conn, String sql, List<Hospitalization> hospitalizations,
+                                       BatchInserter.Binder<Hospitalization> binder) throws SQLException {
+        if (hospitalizations.isEmpty()) {
+            return;
+        }
+        int chunkSize = BatchInserter.defaultChunkSize();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < hospitalizations.size(); i++) {
+                binder.bind(stmt, hospitalizations.get(i));
+                stmt.addBatch();
+                if ((i + 1) % chunkSize == 0 || i == hospitalizations.size() - 1) {
+                    stmt.executeBatch();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads hospitalizations and locks their rows until the transaction ends.
+     *
+     * @param conn               The transaction's connection
+     * @param hospitalizationIds The hospitalization IDs, without duplicates
+     * @return The hospitalizations found, by ID
+     * @throws SQLException If a database access error occurs
+     */
+    private Map<Integer, Hospitalization> findForUpdate(Connection conn, List<Integer> hospitalizationIds)
+            throws SQLException {
+        Map<Integer, Hospitalization> found = new HashMap<>();
+
+        for (int from = 0; from < hospitalizationIds.size(); from += 1000) {
+            List<Integer> chunk = hospitalizationIds.subList(from, Math.min(from + 1000, hospitalizationIds.size()));
+            String sql = "SELECT " + HospitalizationMapper.COLUMNS + " FROM Hospitalization " +
+                    "WHERE hospitalization_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) +
+                    ") ORDER BY hospitalization_id FOR UPDATE";
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Hospitalization hospitalization = HospitalizationMapper.read(rs);
+                        found.put(hospitalization.getHospitalizationId(), hospitalization);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Locks a ward's row until the transaction ends.
+     *
+     * @param conn           The transaction's connection
+     * @param departmentCode The department code
+     * @param wardNumber     The ward number
+     * @return The ward's bed count, or 0 if it does not exist
+     * @throws SQLException If a database access error occurs
+     */
+    private int lockWard(Connection conn, String departmentCode, int wardNumber) throws SQLException {
+        String sql = "SELECT bed_count FROM Ward WHERE department_code = ? AND ward_number = ? FOR UPDATE";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, departmentCode);
+            stmt.setInt(2, wardNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Finds the beds of a ward that are currently occupied.
      *
-     * @param rs The ResultSet containing hospitalization data
-     * @return A new Hospitalization object with data from the ResultSet
+     * @param conn           The transaction's connection
+     * @param departmentCode The department code
+     * @param wardNumber     The ward number
+     * @return The occupied bed numbers
      * @throws SQLException If a database access error occurs
      */
-    private Hospitalization mapResultSetToHospitalization(ResultSet rs) throws SQLException {
-        Hospitalization hospitalization = new Hospitalization();
-        hospitalization.setHospitalizationId(rs.getInt("hospitalization_id"));
-        hospitalization.setPatientId(rs.getInt("patient_id"));
-        hospitalization.setDepartmentCode(rs.getString("department_code"));
-        hospitalization.setWardNumber(rs.getInt("ward_number"));
-        hospitalization.setBedNumber(rs.getInt("bed_number"));
-        hospitalization.setDiagnosis(rs.getString("diagnosis"));
-        hospitalization.setDoctorId(rs.getInt("doctor_id"));
+    private BitSet findOccupiedBeds(Connection conn, String departmentCode, int wardNumber) throws SQLException {
+        String sql = "SELECT bed_number FROM Hospitalization " +
+                "WHERE department_code = ? AND ward_number = ? AND discharge_date IS NULL";
+        BitSet occupied = new BitSet();
 
-        // Convert SQL dates to LocalDate
-        Date admissionDate = rs.getDate("admission_date");
-        if (admissionDate != null) {
-            hospitalization.setAdmissionDate(admissionDate.toLocalDate());
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, departmentCode);
+            stmt.setInt(2, wardNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    occupied.set(rs.getInt(1));
+                }
+            }
         }
+        return occupied;
+    }
 
-        Date dischargeDate = rs.getDate("discharge_date");
-        if (dischargeDate != null) {
-            hospitalization.setDischargeDate(dischargeDate.toLocalDate());
+    /**
+     * Publishes bulk discharges once they are committed.
+     *
+     * @param discharged    The discharged hospitalizations
+     * @param dischargeDate The discharge date
+     */
+    private void publishDischarges(List<Hospitalization> discharged, LocalDate dischargeDate) {
+        changeFeed.publishAfterCommit(dbConnection, updateEvents(discharged));
+        if (!discharged.isEmpty()) {
+            notifyListeners(listener -> discharged.forEach(
+                    hospitalization -> listener.hospitalizationDischarged(hospitalization.getHospitalizationId(),
+                            dischargeDate)));
         }
+    }
 
-        // Convert SQL timestamps to LocalDateTime
-        Timestamp createdAt = rs.getTimestamp("created_at");
-        if (createdAt != null) {
-            hospitalization.setCreatedAt(createdAt.toLocalDateTime());
+    /**
+     * Notifies the listeners of a write once it is committed.
+     * A failing listener is logged and does not affect the others or the write.
+     *
+     * @param event Calls the listener method for the write
+     */
+    private void notifyListeners(Consumer<HospitalizationListener> event) {
+        if (listeners.isEmpty()) {
+            return;
         }
+        dbConnection.runAfterCommit(() -> {
+            for (HospitalizationListener listener : listeners) {
+                try {
+                    event.accept(listener);
+                } catch (RuntimeException e) {
+                    logger.error("Hospitalization listener failed", e);
+                }
+            }
+        });
+    }
 
-        Timestamp updatedAt = rs.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            hospitalization.setUpdatedAt(updatedAt.toLocalDateTime());
+    private static List<ChangeEvent> insertEvents(List<Hospitalization> inserted) {
+        List<ChangeEvent> changes = new ArrayList<>(inserted.size());
+        for (Hospitalization hospitalization : inserted) {
+            changes.add(new ChangeEvent(ChangeEvent.Entity.HOSPITALIZATION, ChangeEvent.Operation.INSERT,
+                    hospitalization.getHospitalizationId(), hospitalization));
         }
+        return changes;
+    }
 
-        return hospitalization;
+    private static List<ChangeEvent> updateEvents(List<Hospitalization> updated) {
+        List<ChangeEvent> changes = new ArrayList<>(updated.size());
+        for (Hospitalization hospitalization : updated) {
+            changes.add(new ChangeEvent(ChangeEvent.Entity.HOSPITALIZATION, ChangeEvent.Operation.UPDATE,
+                    hospitalization.getHospitalizationId(), hospitalization));
+        }
+        return changes;
     }
 
+
     /**
      * Gets a connection to the database.
      *
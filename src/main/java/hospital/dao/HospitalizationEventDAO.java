@@ -0,0 +1,280 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.model.Hospitalization;
+import main.java.hospital.model.HospitalizationEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Data Access Object for the hospitalization lifecycle log.
+ * Events are appended by {@link HospitalizationDAO} in the same transaction as the change
+ * they describe and are never updated or deleted. Snapshots of the replayed state are
+ * stored alongside so that replay can start from the latest one.
+ */
+public class HospitalizationEventDAO {
+    private static final Logger logger = LogManager.getLogger(HospitalizationEventDAO.class);
+    private static final String INSERT_SQL = "INSERT INTO HospitalizationEvent (hospitalization_id, event_type, " +
+            "event_date, patient_id, department_code, ward_number, bed_number, diagnosis, doctor_id, " +
+            "admission_date, discharge_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    /** The columns read by {@link #mapResultSetToEvent(ResultSet)}, in order. */
+    private static final String COLUMNS = "event_id, event_type, event_date, recorded_at, hospitalization_id, " +
+            "patient_id, department_code, ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date";
+
+    private final DatabaseConnection dbConnection;
+
+    /**
+     * A stored snapshot of the replayed lifecycle state.
+     */
+    public static class Snapshot {
+        private final long lastEventId;
+        private final int stayCount;
+        private final byte[] data;
+
+        public Snapshot(long lastEventId, int stayCount, byte[] data) {
+            this.lastEventId = lastEventId;
+            this.stayCount = stayCount;
+            this.data = data;
+        }
+
+        public long getLastEventId() {
+            return lastEventId;
+        }
+
+        public int getStayCount() {
+            return stayCount;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Constructor that initializes the database connection.
+     */
+    public HospitalizationEventDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Checks whether DAO writes are recorded in the lifecycle log ({@code db.events.enabled}).
+     *
+     * @return true if events are recorded
+     */
+    static boolean isEnabled() {
+        return DatabaseConfig.getInstance().getBoolean("db.events.enabled", true);
+    }
+
+    /**
+     * Appends events on the caller's connection, so they commit with the change they record.
+     *
+     * @param conn   The connection of the write being recorded
+     * @param events The events to append
+     * @throws SQLException If the insert fails
+     */
+    void append(Connection conn, List<HospitalizationEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (HospitalizationEvent event : events) {
+                Hospitalization state = event.getState();
+                stmt.setInt(1, state.getHospitalizationId());
+                stmt.setString(2, event.getType().name());
+                stmt.setObject(3, event.getEventDate());
+                HospitalizationMapper.bind(stmt, 4, state);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Records a baseline ADMIT event for every hospitalization that has no event yet, such as
+     * rows written before the log existed. Each baseline event carries the row's current state.
+     *
+     * @return The number of events added, or -1 on error
+     */
+    public int seedFromHospitalizations() {
+        String sql = "INSERT INTO HospitalizationEvent (hospitalization_id, event_type, event_date, patient_id, " +
+                "department_code, ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date) " +
+                "SELECT h.hospitalization_id, 'ADMIT', h.admission_date, h.patient_id, h.department_code, " +
+                "h.ward_number, h.bed_number, h.diagnosis, h.doctor_id, h.admission_date, h.discharge_date " +
+                "FROM Hospitalization h WHERE NOT EXISTS (SELECT 1 FROM HospitalizationEvent e " +
+                "WHERE e.hospitalization_id = h.hospitalization_id) ORDER BY h.hospitalization_id";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            int seeded = stmt.executeUpdate(sql);
+            logger.info("Seeded {} baseline hospitalization events", seeded);
+            return seeded;
+        } catch (SQLException e) {
+            logger.error("Error seeding hospitalization events", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Retrieves events in log order, starting after a position.
+     *
+     * @param afterEventId The last event ID already seen (0 for the start of the log)
+     * @param limit        The maximum number of events
+     * @return The events, oldest first
+     */
+    public List<HospitalizationEvent> findAfter(long afterEventId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM HospitalizationEvent WHERE event_id > ? ORDER BY event_id LIMIT ?";
+        List<HospitalizationEvent> events = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, afterEventId);
+            stmt.setInt(2, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(mapResultSetToEvent(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error reading hospitalization events", e);
+        }
+
+        return events;
+    }
+
+    /**
+     * Retrieves the history of one hospitalization.
+     *
+     * @param hospitalizationId The hospitalization ID
+     * @return Its events, oldest first
+     */
+    public List<HospitalizationEvent> findByHospitalization(int hospitalizationId) {
+        String sql = "SELECT " + COLUMNS + " FROM HospitalizationEvent WHERE hospitalization_id = ? ORDER BY event_id";
+        List<HospitalizationEvent> events = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, hospitalizationId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(mapResultSetToEvent(rs));
+                }
+            }
+            logger.info("Found {} events for hospitalization with ID: {}", events.size(), hospitalizationId);
+        } catch (SQLException e) {
+            logger.error("Error finding hospitalization history", e);
+        }
+
+        return events;
+    }
+
+    /**
+     * Gets the ID of the newest event.
+     *
+     * @return The last event ID, or 0 if the log is empty
+     */
+    public long findLastEventId() {
+        String sql = "SELECT COALESCE(MAX(event_id), 0) FROM HospitalizationEvent";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Error finding last hospitalization event", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Gets when the newest event was recorded, by the database clock.
+     *
+     * @return The time the last event was recorded, or empty if the log is empty
+     */
+    public Optional<LocalDateTime> findLastRecordedAt() {
+        String sql = "SELECT recorded_at FROM HospitalizationEvent ORDER BY event_id DESC LIMIT 1";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            return rs.next() ? Optional.ofNullable(rs.getObject(1, LocalDateTime.class)) : Optional.empty();
+        } catch (SQLException e) {
+            logger.error("Error finding last hospitalization event", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a snapshot.
+     *
+     * @param snapshot The snapshot
+     * @return true if successful, false otherwise
+     */
+    public boolean saveSnapshot(Snapshot snapshot) {
+        String sql = "INSERT INTO HospitalizationSnapshot (last_event_id, stay_count, data) VALUES (?, ?, ?)";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, snapshot.getLastEventId());
+            stmt.setInt(2, snapshot.getStayCount());
+            stmt.setBytes(3, snapshot.getData());
+            stmt.executeUpdate();
+
+            logger.info("Saved lifecycle snapshot at event {} with {} stays",
+                    snapshot.getLastEventId(), snapshot.getStayCount());
+            return true;
+        } catch (SQLException e) {
+            logger.error("Error saving lifecycle snapshot", e);
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the newest snapshot.
+     *
+     * @return The snapshot, or empty if none has been taken
+     */
+    public Optional<Snapshot> findLatestSnapshot() {
+        String sql = "SELECT last_event_id, stay_count, data FROM HospitalizationSnapshot " +
+                "ORDER BY last_event_id DESC LIMIT 1";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return Optional.of(new Snapshot(rs.getLong(1), rs.getInt(2), rs.getBytes(3)));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.error("Error finding lifecycle snapshot", e);
+            return Optional.empty();
+        }
+    }
+
+    private HospitalizationEvent mapResultSetToEvent(ResultSet rs) throws SQLException {
+        Hospitalization state = new Hospitalization();
+        state.setHospitalizationId(rs.getInt(5));
+        HospitalizationMapper.readValues(rs, 6, state);
+
+        HospitalizationEvent event = new HospitalizationEvent(
+                HospitalizationEvent.Type.valueOf(rs.getString(2)), rs.getObject(3, LocalDate.class), state);
+        event.setEventId(rs.getLong(1));
+        event.setRecordedAt(rs.getObject(4, LocalDateTime.class));
+        return event;
+    }
+}
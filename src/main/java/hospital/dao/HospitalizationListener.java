@@ -0,0 +1,35 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.model.Hospitalization;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the hospitalization changes made through {@link HospitalizationDAO}.
+ * Callbacks run on the writing thread once the change is committed, so implementations
+ * should be quick and must not throw.
+ */
+public interface HospitalizationListener {
+
+    /**
+     * Called after a hospitalization is inserted or updated.
+     *
+     * @param hospitalization The hospitalization as written, with its ID set
+     */
+    void hospitalizationSaved(Hospitalization hospitalization);
+
+    /**
+     * Called after a patient is discharged.
+     *
+     * @param hospitalizationId The ID of the hospitalization
+     * @param dischargeDate     The discharge date
+     */
+    void hospitalizationDischarged(int hospitalizationId, LocalDate dischargeDate);
+
+    /**
+     * Called after a hospitalization is deleted.
+     *
+     * @param hospitalizationId The ID of the deleted hospitalization
+     */
+    void hospitalizationDeleted(int hospitalizationId);
+}
@@ -0,0 +1,152 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Hands out IDs that are unique across shards, for rows whose ID cannot come from one
+ * database's AUTO_INCREMENT because they are written to several.
+ *
+ * <p>IDs are reserved from the IdSequence table on the primary in blocks of
+ * {@code db.shard.idBlockSize}, on a connection of their own so that a rolled-back write
+ * never returns a block. IDs are therefore unique but not consecutive: a block that is not
+ * used up when the client exits leaves a gap. A sequence is seeded from the highest ID on any
+ * shard the first time it is used.
+ */
+class IdAllocator {
+    private static final Logger logger = LogManager.getLogger(IdAllocator.class);
+    private static IdAllocator instance;
+
+    /**
+     * The allocated IDs.
+     */
+    enum Sequence {
+        PATIENT("SELECT MAX(patient_id) FROM Patient"),
+        HOSPITALIZATION("SELECT MAX(hospitalization_id) FROM HospitalizationHistory");
+
+        private final String maxSql;
+
+        Sequence(String maxSql) {
+            this.maxSql = maxSql;
+        }
+    }
+
+    private final DatabaseConnection dbConnection;
+    private final int blockSize;
+    private final Map<Sequence, int[]> blocks = new EnumMap<>(Sequence.class);
+
+    private IdAllocator() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.blockSize = Math.max(1, DatabaseConfig.getInstance().getInt("db.shard.idBlockSize", 100));
+    }
+
+    /**
+     * Get the singleton instance of IdAllocator
+     *
+     * @return The IdAllocator instance
+     */
+    static synchronized IdAllocator getInstance() {
+        if (instance == null) {
+            instance = new IdAllocator();
+        }
+        return instance;
+    }
+
+    /**
+     * Takes the next ID of a sequence.
+     *
+     * @param sequence The sequence
+     * @return An ID no other client or shard has been given
+     * @throws SQLException If a new block cannot be reserved
+     */
+    synchronized int next(Sequence sequence) throws SQLException {
+        // The next free ID and the end of the block, exclusive
+        int[] block = blocks.get(sequence);
+        if (block == null || block[0] >= block[1]) {
+            int start = reserve(sequence);
+            block = new int[]{start, start + blockSize};
+            blocks.put(sequence, block);
+        }
+        return block[0]++;
+    }
+
+    /**
+     * Reserves a block of IDs in its own transaction.
+     *
+     * @param sequence The sequence
+     * @return The first ID of the block
+     * @throws SQLException If the block cannot be reserved
+     */
+    private int reserve(Sequence sequence) throws SQLException {
+        try {
+            return reserveOnce(sequence);
+        } catch (SQLException e) {
+            // Another client may have created the sequence at the same time; it exists now
+            logger.warn("Could not reserve IDs for {}, retrying", sequence, e);
+            return reserveOnce(sequence);
+        }
+    }
+
+    private int reserveOnce(Sequence sequence) throws SQLException {
+        try (Connection conn = dbConnection.getBackend().openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int start = lockNext(conn, sequence);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE IdSequence SET next_id = ? WHERE name = ?")) {
+                    stmt.setInt(1, start + blockSize);
+                    stmt.setString(2, sequence.name());
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                logger.info("Reserved {} IDs from {} for {}", blockSize, start, sequence);
+                return start;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads and locks a sequence's next ID, creating the sequence if it does not exist yet.
+     */
+    private int lockNext(Connection conn, Sequence sequence) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT next_id FROM IdSequence WHERE name = ? FOR UPDATE")) {
+            stmt.setString(1, sequence.name());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+
+        // IDs written before the sequence existed may be on any shard
+        int max = maxId(conn, sequence);
+        for (int shardMax : dbConnection.onEveryShard(shardConn -> maxId(shardConn, sequence))) {
+            max = Math.max(max, shardMax);
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO IdSequence (name, next_id) VALUES (?, ?)")) {
+            stmt.setString(1, sequence.name());
+            stmt.setInt(2, max + 1);
+            stmt.executeUpdate();
+        }
+        logger.info("Started ID sequence {} at {}", sequence, max + 1);
+        return max + 1;
+    }
+
+    private static int maxId(Connection conn, Sequence sequence) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sequence.maxSql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
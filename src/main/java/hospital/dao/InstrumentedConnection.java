@@ -0,0 +1,91 @@
+package main.java.hospital.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Dynamic proxies that time every statement executed on a connection and count the rows
+ * read from its result sets, reporting to {@link QueryMetrics}.
+ * Prepared statements are attributed to their SQL; plain statements to the SQL passed to
+ * {@code execute*}. Callable statements are not instrumented.
+ */
+public class InstrumentedConnection {
+
+    private InstrumentedConnection() {
+    }
+
+    /**
+     * Wraps a connection so that its statements are instrumented.
+     *
+     * @param conn    The physical connection
+     * @param metrics The metrics to report to
+     * @return The instrumented connection
+     */
+    public static Connection wrap(Connection conn, QueryMetrics metrics) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(conn, method, args);
+                    if (method.getName().equals("prepareStatement")) {
+                        return statement(PreparedStatement.class, (Statement) result, (String) args[0], metrics);
+                    }
+                    if (method.getName().equals("createStatement")) {
+                        return statement(Statement.class, (Statement) result, null, metrics);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object statement(Class<? extends Statement> type, Statement stmt, String preparedSql,
+                                    QueryMetrics metrics) {
+        QueryStats preparedStats = preparedSql != null ? metrics.statsFor(preparedSql) : null;
+
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                return invoke(stmt, method, args);
+            }
+
+            // Plain statements carry their SQL as the first argument
+            boolean hasSql = args != null && args.length > 0 && args[0] instanceof String;
+            String sql = hasSql ? (String) args[0] : preparedSql;
+            QueryStats stats = hasSql || preparedStats == null ? metrics.statsFor(String.valueOf(sql)) : preparedStats;
+
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invoke(stmt, method, args);
+                failed = false;
+                if (result instanceof ResultSet) {
+                    return resultSet((ResultSet) result, stats);
+                }
+                return result;
+            } finally {
+                metrics.recordExecution(stats, (System.nanoTime() - start) / 1000, failed);
+            }
+        });
+    }
+
+    private static ResultSet resultSet(ResultSet rs, QueryStats stats) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    Object result = invoke(rs, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        stats.recordRows(1);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Backend for a MySQL server. This is the default production backend.
+ */
+public class MySqlBackend implements DatabaseBackend {
+    private static final Logger logger = LogManager.getLogger(MySqlBackend.class);
+
+    public static final String NAME = "mysql";
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    /**
+     * Creates a MySQL backend from the {@code db.mysql.*} configuration properties.
+     *
+     * @param config The database configuration
+     */
+    public MySqlBackend(DatabaseConfig config) {
+        this(config.get("db.mysql.url", "jdbc:mysql://127.0.0.1:3306/hospital_db"),
+                config.get("db.mysql.user", "root"),
+                config.get("db.mysql.password", ""));
+    }
+
+    /**
+     * Creates a MySQL backend for the given server.
+     *
+     * @param url      The JDBC URL
+     * @param user     The database user
+     * @param password The database password
+     */
+    public MySqlBackend(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+
+        try {
+            // Load the MySQL JDBC driver
+            Class.forName("com.mysql.cj.jdbc.Driver");
+            logger.info("JDBC Driver loaded successfully");
+        } catch (ClassNotFoundException e) {
+            logger.error("Failed to load JDBC driver", e);
+            throw new RuntimeException("Failed to load JDBC driver", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Gets the JDBC URL of this backend.
+     *
+     * @return The JDBC URL
+     */
+    public String getUrl() {
+        return url;
+    }
+}
@@ -1,7 +1,7 @@
 package main.java.hospital.dao;
 
 import main.java.hospital.model.Nurse;
-import main.java.hospital.model.Employee;
+import main.java.hospital.model.PersonName;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -9,8 +9,10 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Nurse entity.
@@ -19,6 +21,7 @@ import java.util.Optional;
 public class NurseDAO {
     private static final Logger logger = LogManager.getLogger(NurseDAO.class);
     private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
     private final EmployeeDAO employeeDAO;
 
     /**
@@ -26,6 +29,7 @@ public class NurseDAO {
      */
     public NurseDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
         this.employeeDAO = new EmployeeDAO();
     }
 
@@ -43,14 +47,14 @@ public class NurseDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, nurse.getEmployeeId());
-            stmt.setString(2, nurse.getRotation());
-            stmt.setBigDecimal(3, nurse.getSalary());
-            stmt.setString(4, nurse.getDepartmentCode());
+            NurseMapper.bind(stmt, 2, nurse);
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
                 logger.info("Created nurse with ID: {}", nurse.getEmployeeId());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.NURSE, ChangeEvent.Operation.INSERT,
+                        nurse.getEmployeeId(), nurse);
                 return true;
             } else {
                 logger.warn("Creating nurse failed, no rows affected");
@@ -69,8 +73,7 @@ public class NurseDAO {
      * @return An Optional containing the Nurse if found, or empty if not found
      */
     public Optional<Nurse> findById(int employeeId) {
-        String sql = "SELECT n.*, e.first_name, e.surname, e.address, e.phone, " +
-                "e.created_at AS employee_created_at, e.updated_at AS employee_updated_at " +
+        String sql = "SELECT " + NurseMapper.COLUMNS + " " +
                 "FROM Nurse n " +
                 "JOIN Employee e ON n.employee_id = e.employee_id " +
                 "WHERE n.employee_id = ?";
@@ -82,7 +85,7 @@ public class NurseDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Nurse nurse = mapResultSetToNurse(rs);
+                    Nurse nurse = NurseMapper.read(rs);
                     logger.info("Found nurse with ID: {}", employeeId);
                     return Optional.of(nurse);
                 } else {
@@ -102,19 +105,18 @@ public class NurseDAO {
      * @return A list of all nurses
      */
     public List<Nurse> findAll() {
-        String sql = "SELECT n.*, e.first_name, e.surname, e.address, e.phone, " +
-                "e.created_at AS employee_created_at, e.updated_at AS employee_updated_at " +
+        String sql = "SELECT " + NurseMapper.COLUMNS + " " +
                 "FROM Nurse n " +
                 "JOIN Employee e ON n.employee_id = e.employee_id";
 
         List<Nurse> nurses = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Nurse nurse = mapResultSetToNurse(rs);
+                Nurse nurse = NurseMapper.read(rs);
                 nurses.add(nurse);
             }
 
@@ -127,26 +129,80 @@ public class NurseDAO {
     }
 
     /**
-     * Updates an existing nurse in the database.
+     * Retrieves the ID and name of every nurse, for name lookups and ComboBoxes.
+     *
+     * @return The nurses' names
+     */
+    public List<PersonName> findAllNames() {
+        String sql = "SELECT e.employee_id, e.first_name, e.surname, n.department_code " +
+                "FROM Nurse n JOIN Employee e ON n.employee_id = e.employee_id";
+        List<PersonName> names = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                names.add(new PersonName(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+            }
+
+            logger.info("Retrieved {} nurse names", names.size());
+        } catch (SQLException e) {
+            logger.error("Error retrieving nurse names", e);
+        }
+        return names;
+    }
+
+    /**
+     * Updates an existing nurse in the database: its Employee row and its Nurse row, in one
+     * transaction. The update only applies if the employee is still at the version it was
+     * read at, and writes only the fields changed since then; if none were, nothing is written.
      *
      * @param nurse The Nurse object with updated values
      * @return true if successful, false otherwise
+     * @throws VersionConflictException If the nurse was changed since it was read
      */
     public boolean update(Nurse nurse) {
-        String sql = "UPDATE Nurse SET rotation = ?, salary = ?, department_code = ? WHERE employee_id = ?";
-
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, nurse.getRotation());
-            stmt.setBigDecimal(2, nurse.getSalary());
-            stmt.setString(3, nurse.getDepartmentCode());
-            stmt.setInt(4, nurse.getEmployeeId());
+        if (!nurse.hasChanges()) {
+            logger.info("No changes to save for nurse with ID: {}", nurse.getEmployeeId());
+            return true;
+        }
+        // The Employee row is always updated, to check and increment the version
+        String employeeSql = EmployeeMapper.updateSql(nurse);
+
+        try {
+            boolean updated = dbConnection.inTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(employeeSql)) {
+                    int next = EmployeeMapper.bindUpdate(stmt, nurse);
+                    stmt.setInt(next, nurse.getEmployeeId());
+                    stmt.setInt(next + 1, nurse.getVersion());
+
+                    if (stmt.executeUpdate() == 0) {
+                        OptimisticUpdates.checkConflict(conn, "Employee", "employee_id = ?", ChangeEvent.Entity.NURSE,
+                                nurse.getEmployeeId(), nurse.getVersion(), nurse.getEmployeeId());
+                        return false;
+                    }
+                }
 
-            int affectedRows = stmt.executeUpdate();
+                if (!NurseMapper.hasUpdates(nurse)) {
+                    return true;
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(NurseMapper.updateSql(nurse))) {
+                    int next = NurseMapper.bindUpdate(stmt, nurse);
+                    stmt.setInt(next, nurse.getEmployeeId());
+                    return stmt.executeUpdate() > 0;
+                }
+            });
 
-            if (affectedRows > 0) {
+            if (updated) {
+                nurse.setVersion(nurse.getVersion() + 1);
+                nurse.markClean();
                 logger.info("Updated nurse with ID: {}", nurse.getEmployeeId());
+                changeFeed.publishAfterCommit(dbConnection, Arrays.asList(
+                        new ChangeEvent(ChangeEvent.Entity.EMPLOYEE, ChangeEvent.Operation.UPDATE,
+                                nurse.getEmployeeId(), nurse),
+                        new ChangeEvent(ChangeEvent.Entity.NURSE, ChangeEvent.Operation.UPDATE,
+                                nurse.getEmployeeId(), nurse)));
                 return true;
             } else {
                 logger.warn("No nurse found with ID: {}", nurse.getEmployeeId());
@@ -158,6 +214,19 @@ public class NurseDAO {
         }
     }
 
+    /**
+     * Applies a change to the current version of a nurse and saves it, re-reading the nurse
+     * and re-applying the change if another user saves it in between.
+     *
+     * @param employeeId The nurse's employee ID
+     * @param change The change, applied to a freshly read Nurse
+     * @return The saved nurse, or empty if not found or the update failed
+     * @throws VersionConflictException If the nurse was changed by others on every attempt
+     */
+    public Optional<Nurse> modify(int employeeId, Consumer<Nurse> change) {
+        return OptimisticUpdates.modify(() -> findById(employeeId), change, this::update);
+    }
+
     /**
      * Deletes a nurse from the database.
      *
@@ -176,6 +245,8 @@ public class NurseDAO {
 
             if (affectedRows > 0) {
                 logger.info("Deleted nurse with ID: {}", employeeId);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.NURSE, ChangeEvent.Operation.DELETE,
+                        employeeId, null);
                 return true;
             } else {
                 logger.warn("No nurse found with ID: {}", employeeId);
@@ -194,22 +265,21 @@ public class NurseDAO {
      * @return A list of nurses in the specified department
      */
     public List<Nurse> findByDepartment(String departmentCode) {
-        String sql = "SELECT n.*, e.first_name, e.surname, e.address, e.phone, " +
-                "e.created_at AS employee_created_at, e.updated_at AS employee_updated_at " +
+        String sql = "SELECT " + NurseMapper.COLUMNS + " " +
                 "FROM Nurse n " +
                 "JOIN Employee e ON n.employee_id = e.employee_id " +
                 "WHERE n.department_code = ?";
 
         List<Nurse> nurses = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, departmentCode);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Nurse nurse = mapResultSetToNurse(rs);
+                    Nurse nurse = NurseMapper.read(rs);
                     nurses.add(nurse);
                 }
             }
@@ -229,22 +299,21 @@ public class NurseDAO {
      * @return A list of nurses with the specified rotation
      */
     public List<Nurse> findByRotation(String rotation) {
-        String sql = "SELECT n.*, e.first_name, e.surname, e.address, e.phone, " +
-                "e.created_at AS employee_created_at, e.updated_at AS employee_updated_at " +
+        String sql = "SELECT " + NurseMapper.COLUMNS + " " +
                 "FROM Nurse n " +
                 "JOIN Employee e ON n.employee_id = e.employee_id " +
                 "WHERE n.rotation = ?";
 
         List<Nurse> nurses = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, rotation);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Nurse nurse = mapResultSetToNurse(rs);
+                    Nurse nurse = NurseMapper.read(rs);
                     nurses.add(nurse);
                 }
             }
@@ -256,60 +325,4 @@ public class NurseDAO {
 
         return nurses;
     }
-
-    /**
-     * Helper method to map a ResultSet row to a Nurse object.
-     *
-     * @param rs The ResultSet containing nurse data
-     * @return A new Nurse object with data from the ResultSet
-     * @throws SQLException If a database access error occurs
-     */
-    private Nurse mapResultSetToNurse(ResultSet rs) throws SQLException {
-        // First create an Employee with all employee data
-        Employee employee = new Employee();
-        employee.setEmployeeId(rs.getInt("employee_id"));
-        employee.setFirstName(rs.getString("first_name"));
-        employee.setSurname(rs.getString("surname"));
-        employee.setAddress(rs.getString("address"));
-        employee.setPhone(rs.getString("phone"));
-
-        // Convert SQL timestamps to LocalDateTime for employee
-        Timestamp employeeCreatedAt = rs.getTimestamp("employee_created_at");
-        if (employeeCreatedAt != null) {
-            employee.setCreatedAt(employeeCreatedAt.toLocalDateTime());
-        }
-
-        Timestamp employeeUpdatedAt = rs.getTimestamp("employee_updated_at");
-        if (employeeUpdatedAt != null) {
-            employee.setUpdatedAt(employeeUpdatedAt.toLocalDateTime());
-        }
-
-        // Now create a Nurse and set its fields
-        Nurse nurse = new Nurse();
-        nurse.setEmployeeId(rs.getInt("employee_id"));
-        nurse.setFirstName(employee.getFirstName());
-        nurse.setSurname(employee.getSurname());
-        nurse.setAddress(employee.getAddress());
-        nurse.setPhone(employee.getPhone());
-        nurse.setCreatedAt(employee.getCreatedAt());
-        nurse.setUpdatedAt(employee.getUpdatedAt());
-        nurse.setRotation(rs.getString("rotation"));
-        nurse.setSalary(rs.getBigDecimal("salary"));
-        nurse.setDepartmentCode(rs.getString("department_code"));
-
-        // Convert SQL timestamps to LocalDateTime for nurse
-        Timestamp nurseCreatedAt = rs.getTimestamp("created_at");
-        if (nurseCreatedAt != null) {
-            // This is already set from employee, but we set it again for clarity
-            nurse.setCreatedAt(nurseCreatedAt.toLocalDateTime());
-        }
-
-        Timestamp nurseUpdatedAt = rs.getTimestamp("updated_at");
-        if (nurseUpdatedAt != null) {
-            // This is already set from employee, but we set it again for clarity
-            nurse.setUpdatedAt(nurseUpdatedAt.toLocalDateTime());
-        }
-
-        return nurse;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Shared logic for the DAOs' version-checked updates.
+ *
+ * <p>Every update of a versioned row is made as
+ * {@code UPDATE ... SET ..., version = version + 1 WHERE <key> AND version = ?}, so it only
+ * applies if nobody changed the row since it was read, and no row lock is held between the
+ * read and the write. When such an update matches no row, {@link #checkConflict} tells a
+ * changed row from a missing one.
+ */
+final class OptimisticUpdates {
+    private static final Logger logger = LogManager.getLogger(OptimisticUpdates.class);
+
+    private OptimisticUpdates() {
+    }
+
+    /**
+     * Throws if a row whose version-checked update matched nothing still exists, which means
+     * it is at another version. Returns normally if the row is gone.
+     *
+     * @param conn            The connection of the update
+     * @param table           The table
+     * @param keyWhere        The key condition, such as {@code patient_id = ?}
+     * @param entity          The kind of row, for the exception
+     * @param key             The row's key, for the exception
+     * @param expectedVersion The version the update was made against
+     * @param keyValues       The values of the key condition's parameters
+     * @throws SQLException             If the check fails
+     * @throws VersionConflictException If the row exists at another version
+     */
+    static void checkConflict(Connection conn, String table, String keyWhere, ChangeEvent.Entity entity,
+                              Object key, int expectedVersion, Object... keyValues) throws SQLException {
+        String sql = "SELECT version FROM " + table + " WHERE " + keyWhere;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < keyValues.length; i++) {
+                stmt.setObject(i + 1, keyValues[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    VersionConflictException conflict =
+                            new VersionConflictException(entity, key, expectedVersion, rs.getInt(1));
+                    logger.warn(conflict.getMessage());
+                    throw conflict;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a row, applies a change to it and saves it, re-reading and re-applying the change
+     * if someone else saved the row in between, up to {@code db.update.maxAttempts} times.
+     *
+     * @param read   Reads the current row
+     * @param change Applies the change to a freshly read row
+     * @param write  Saves the changed row with a version-checked update
+     * @param <T>    The entity type
+     * @return The saved row, or empty if the row does not exist or the save failed
+     * @throws VersionConflictException If every attempt conflicted
+     */
+    static <T> Optional<T> modify(Supplier<Optional<T>> read, Consumer<T> change, Predicate<T> write) {
+        int maxAttempts = Math.max(1, DatabaseConfig.getInstance().getInt("db.update.maxAttempts", 3));
+        VersionConflictException conflict = null;
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            Optional<T> current = read.get();
+            if (!current.isPresent()) {
+                return Optional.empty();
+            }
+            T row = current.get();
+            change.accept(row);
+            try {
+                return write.test(row) ? Optional.of(row) : Optional.empty();
+            } catch (VersionConflictException e) {
+                conflict = e;
+                logger.info("Retrying {} {} after a conflicting update (attempt {} of {})",
+                        e.getEntity(), e.getKey(), attempt, maxAttempts);
+            }
+        }
+        throw conflict;
+    }
+}
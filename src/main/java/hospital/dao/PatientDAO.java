@@ -1,14 +1,21 @@
 package main.java.hospital.dao;
 
 import main.java.hospital.model.Patient;
+import main.java.hospital.model.PersonName;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Patient entity.
@@ -16,13 +23,21 @@ import java.util.Optional;
  */
 public class PatientDAO {
     private static final Logger logger = LogManager.getLogger(PatientDAO.class);
+    private static final String INSERT_SQL =
+            "INSERT INTO Patient (first_name, surname, address, phone) VALUES (?, ?, ?, ?)";
+    // With shards, patient IDs come from the IdAllocator, as patients are copied to every shard
+    private static final String INSERT_WITH_ID_SQL =
+            "INSERT INTO Patient (patient_id, first_name, surname, address, phone) VALUES (?, ?, ?, ?, ?)";
+
     private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
 
     /**
      * Constructor that initializes the database connection.
      */
     public PatientDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
     }
 
     /**
@@ -32,15 +47,18 @@ public class PatientDAO {
      * @return The generated patient ID if successful, or empty if failed
      */
     public Optional<Integer> insert(Patient patient) {
-        String sql = "INSERT INTO Patient (first_name, surname, address, phone) VALUES (?, ?, ?, ?)";
+        boolean allocateId = dbConnection.isSharded();
+        String sql = allocateId ? INSERT_WITH_ID_SQL : INSERT_SQL;
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setString(1, patient.getFirstName());
-            stmt.setString(2, patient.getSurname());
-            stmt.setString(3, patient.getAddress());
-            stmt.setString(4, patient.getPhone());
+            Integer allocatedId = allocateId ? IdAllocator.getInstance().next(IdAllocator.Sequence.PATIENT) : null;
+            int index = 1;
+            if (allocatedId != null) {
+                stmt.setInt(index++, allocatedId);
+            }
+            PatientMapper.bind(stmt, index, patient);
 
             int affectedRows = stmt.executeUpdate();
 
@@ -50,10 +68,12 @@ public class PatientDAO {
             }
 
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int patientId = generatedKeys.getInt(1);
+                if (allocatedId != null || generatedKeys.next()) {
+                    int patientId = allocatedId != null ? allocatedId : generatedKeys.getInt(1);
                     patient.setPatientId(patientId);
                     logger.info("Created patient with ID: {}", patientId);
+                    changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.PATIENT, ChangeEvent.Operation.INSERT,
+                            patientId, patient);
                     return Optional.of(patientId);
                 } else {
                     logger.warn("Creating patient failed, no ID obtained");
@@ -66,6 +86,43 @@ public class PatientDAO {
         }
     }
 
+    /**
+     * Inserts many patients using JDBC batching, in chunks of {@code db.batch.size} rows.
+     *
+     * @param patients The Patient objects to insert
+     * @return The generated patient IDs in input order; shorter than the input if a chunk failed
+     */
+    public List<Integer> insertAll(List<Patient> patients) {
+        return insertAll(patients, BatchInserter.defaultChunkSize());
+    }
+
+    /**
+     * Inserts many patients using JDBC batching. Each chunk is sent as one batch and
+     * committed in its own transaction; the generated (or, with shards, allocated) IDs are set
+     * on the patients.
+     *
+     * @param patients  The Patient objects to insert
+     * @param chunkSize The number of rows per batch and transaction
+     * @return The generated patient IDs in input order; shorter than the input if a chunk failed
+     */
+    public List<Integer> insertAll(List<Patient> patients, int chunkSize) {
+        List<Integer> ids;
+        if (dbConnection.isSharded()) {
+            IdAllocator allocator = IdAllocator.getInstance();
+            ids = BatchInserter.insertAll(dbConnection, ShardRouter.PRIMARY, INSERT_WITH_ID_SQL, patients, chunkSize,
+                    (stmt, patient) -> {
+                        stmt.setInt(1, patient.getPatientId());
+                        PatientMapper.bind(stmt, 2, patient);
+                    }, Patient::setPatientId, () -> allocator.next(IdAllocator.Sequence.PATIENT), null);
+        } else {
+            ids = BatchInserter.insertAll(dbConnection, INSERT_SQL, patients, chunkSize,
+                    (stmt, patient) -> PatientMapper.bind(stmt, 1, patient), Patient::setPatientId);
+        }
+        logger.info("Batch inserted {} of {} patients", ids.size(), patients.size());
+        changeFeed.publishAfterCommit(dbConnection, insertEvents(patients.subList(0, ids.size())));
+        return ids;
+    }
+
     /**
      * Retrieves a patient by their ID.
      *
@@ -73,7 +130,7 @@ public class PatientDAO {
      * @return An Optional containing the Patient if found, or empty if not found
      */
     public Optional<Patient> findById(int patientId) {
-        String sql = "SELECT * FROM Patient WHERE patient_id = ?";
+        String sql = "SELECT " + PatientMapper.COLUMNS + " FROM Patient WHERE patient_id = ?";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -82,7 +139,7 @@ public class PatientDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Patient patient = mapResultSetToPatient(rs);
+                    Patient patient = PatientMapper.read(rs);
                     logger.info("Found patient with ID: {}", patientId);
                     return Optional.of(patient);
                 } else {
@@ -102,15 +159,15 @@ public class PatientDAO {
      * @return A list of all patients
      */
     public List<Patient> findAll() {
-        String sql = "SELECT * FROM Patient";
+        String sql = "SELECT " + PatientMapper.COLUMNS + " FROM Patient";
         List<Patient> patients = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Patient patient = mapResultSetToPatient(rs);
+                Patient patient = PatientMapper.read(rs);
                 patients.add(patient);
             }
 
@@ -122,30 +179,132 @@ public class PatientDAO {
         return patients;
     }
 
+    /**
+     * Retrieves the ID and name of every patient, for name lookups and ComboBoxes.
+     *
+     * @return The patients' names
+     */
+    public List<PersonName> findAllNames() {
+        String sql = "SELECT patient_id, first_name, surname FROM Patient";
+        List<PersonName> names = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                names.add(new PersonName(rs.getInt(1), rs.getString(2), rs.getString(3), null));
+            }
+
+            logger.info("Retrieved {} patient names", names.size());
+        } catch (SQLException e) {
+            logger.error("Error retrieving patient names", e);
+        }
+        return names;
+    }
+
+    /**
+     * Retrieves the ID and name of the given patients, in one query per 1000 IDs.
+     *
+     * @param patientIds The patient IDs
+     * @return The names found, keyed by patient ID
+     */
+    public Map<Integer, PersonName> findNamesByIds(Collection<Integer> patientIds) {
+        Map<Integer, PersonName> names = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(patientIds));
+
+        for (int from = 0; from < ids.size(); from += 1000) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + 1000, ids.size()));
+            String sql = "SELECT patient_id, first_name, surname FROM Patient WHERE patient_id IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+            try (Connection conn = dbConnection.getReadConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        names.put(rs.getInt(1), new PersonName(rs.getInt(1), rs.getString(2), rs.getString(3), null));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Error retrieving patient names", e);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Retrieves one page of patients ordered by ID.
+     *
+     * @param offset The number of patients to skip
+     * @param limit  The maximum number of patients to return
+     * @return A list of at most {@code limit} patients
+     */
+    public List<Patient> findPage(int offset, int limit) {
+        String sql = "SELECT " + PatientMapper.COLUMNS + " FROM Patient ORDER BY patient_id LIMIT ? OFFSET ?";
+        List<Patient> patients = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Patient patient = PatientMapper.read(rs);
+                    patients.add(patient);
+                }
+            }
+
+            logger.info("Retrieved {} patients from offset {}", patients.size(), offset);
+        } catch (SQLException e) {
+            logger.error("Error retrieving page of patients", e);
+        }
+
+        return patients;
+    }
+
     /**
      * Updates an existing patient in the database.
      *
+     * The update only applies if the patient is still at the version it was read at, and writes
+     * only the fields changed since then; if none were, nothing is written.
+     *
      * @param patient The Patient object with updated values
      * @return true if successful, false otherwise
+     * @throws VersionConflictException If the patient was changed since it was read
      */
     public boolean update(Patient patient) {
-        String sql = "UPDATE Patient SET first_name = ?, surname = ?, address = ?, phone = ? WHERE patient_id = ?";
+        if (!patient.hasChanges()) {
+            logger.info("No changes to save for patient with ID: {}", patient.getPatientId());
+            return true;
+        }
+        String sql = PatientMapper.updateSql(patient);
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, patient.getFirstName());
-            stmt.setString(2, patient.getSurname());
-            stmt.setString(3, patient.getAddress());
-            stmt.setString(4, patient.getPhone());
-            stmt.setInt(5, patient.getPatientId());
+            int next = PatientMapper.bindUpdate(stmt, patient);
+            stmt.setInt(next, patient.getPatientId());
+            stmt.setInt(next + 1, patient.getVersion());
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
+                patient.setVersion(patient.getVersion() + 1);
+                patient.markClean();
                 logger.info("Updated patient with ID: {}", patient.getPatientId());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.PATIENT, ChangeEvent.Operation.UPDATE,
+                        patient.getPatientId(), patient);
                 return true;
             } else {
+                OptimisticUpdates.checkConflict(conn, "Patient", "patient_id = ?", ChangeEvent.Entity.PATIENT,
+                        patient.getPatientId(), patient.getVersion(), patient.getPatientId());
                 logger.warn("No patient found with ID: {}", patient.getPatientId());
                 return false;
             }
@@ -155,6 +314,19 @@ public class PatientDAO {
         }
     }
 
+    /**
+     * Applies a change to the current version of a patient and saves it, re-reading the patient
+     * and re-applying the change if another user saves it in between.
+     *
+     * @param patientId The patient ID
+     * @param change The change, applied to a freshly read Patient
+     * @return The saved patient, or empty if not found or the update failed
+     * @throws VersionConflictException If the patient was changed by others on every attempt
+     */
+    public Optional<Patient> modify(int patientId, Consumer<Patient> change) {
+        return OptimisticUpdates.modify(() -> findById(patientId), change, this::update);
+    }
+
     /**
      * Deletes a patient from the database.
      *
@@ -173,6 +345,8 @@ public class PatientDAO {
 
             if (affectedRows > 0) {
                 logger.info("Deleted patient with ID: {}", patientId);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.PATIENT, ChangeEvent.Operation.DELETE,
+                        patientId, null);
                 return true;
             } else {
                 logger.warn("No patient found with ID: {}", patientId);
@@ -191,10 +365,10 @@ public class PatientDAO {
      * @return A list of matching patients
      */
     public List<Patient> searchByName(String searchTerm) {
-        String sql = "SELECT * FROM Patient WHERE first_name LIKE ? OR surname LIKE ?";
+        String sql = "SELECT " + PatientMapper.COLUMNS + " FROM Patient WHERE first_name LIKE ? OR surname LIKE ?";
         List<Patient> patients = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             String searchPattern = "%" + searchTerm + "%";
@@ -203,7 +377,7 @@ public class PatientDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Patient patient = mapResultSetToPatient(rs);
+                    Patient patient = PatientMapper.read(rs);
                     patients.add(patient);
                 }
             }
@@ -216,32 +390,12 @@ public class PatientDAO {
         return patients;
     }
 
-    /**
-     * Helper method to map a ResultSet row to a Patient object.
-     *
-     * @param rs The ResultSet containing patient data
-     * @return A new Patient object with data from the ResultSet
-     * @throws SQLException If a database access error occurs
-     */
-    private Patient mapResultSetToPatient(ResultSet rs) throws SQLException {
-        Patient patient = new Patient();
-        patient.setPatientId(rs.getInt("patient_id"));
-        patient.setFirstName(rs.getString("first_name"));
-        patient.setSurname(rs.getString("surname"));
-        patient.setAddress(rs.getString("address"));
-        patient.setPhone(rs.getString("phone"));
-
-        // Convert SQL timestamps to LocalDateTime
-        Timestamp createdAt = rs.getTimestamp("created_at");
-        if (createdAt != null) {
-            patient.setCreatedAt(createdAt.toLocalDateTime());
-        }
-
-        Timestamp updatedAt = rs.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            patient.setUpdatedAt(updatedAt.toLocalDateTime());
+    private static List<ChangeEvent> insertEvents(List<Patient> inserted) {
+        List<ChangeEvent> changes = new ArrayList<>(inserted.size());
+        for (Patient patient : inserted) {
+            changes.add(new ChangeEvent(ChangeEvent.Entity.PATIENT, ChangeEvent.Operation.INSERT,
+                    patient.getPatientId(), patient));
         }
-
-        return patient;
+        return changes;
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Collects per-SQL-shape call counts, latency histograms and row counts for every statement
+ * run through {@link InstrumentedConnection}, plus the time spent waiting for connections.
+ * Statements slower than {@code db.metrics.slowQueryMillis} are written to the
+ * {@code main.java.hospital.slowquery} logger, which log4j2.xml routes to its own file.
+ * The metrics are published over JMX as {@code main.java.hospital:type=QueryMetrics}.
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+    private static final Logger logger = LogManager.getLogger(QueryMetrics.class);
+    private static final Logger slowQueryLogger = LogManager.getLogger("main.java.hospital.slowquery");
+
+    private static final String OBJECT_NAME = "main.java.hospital:type=QueryMetrics";
+
+    // Caps the number of distinct shapes so ad-hoc SQL cannot grow the map without bound
+    private static final int MAX_SHAPES = 5000;
+    private static final String OVERFLOW_SHAPE = "<other>";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Singleton instance
+    private static QueryMetrics instance;
+
+    private final ConcurrentMap<String, QueryStats> statsBySql = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> shapeCache = new ConcurrentHashMap<>();
+    private final LatencyHistogram connectionWait = new LatencyHistogram();
+    private final AtomicLong slowQueries = new AtomicLong();
+    private volatile long slowQueryThresholdMillis;
+
+    private QueryMetrics(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    /**
+     * Get the singleton instance, registering it with the platform MBean server on first use.
+     *
+     * @return The QueryMetrics instance
+     */
+    public static synchronized QueryMetrics getInstance() {
+        if (instance == null) {
+            instance = new QueryMetrics(DatabaseConfig.getInstance().getInt("db.metrics.slowQueryMillis", 500));
+            registerMBean(instance);
+        }
+        return instance;
+    }
+
+    private static void registerMBean(QueryMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+                logger.info("Registered JMX MBean {}", OBJECT_NAME);
+            }
+        } catch (JMException e) {
+            logger.error("Failed to register query metrics MBean", e);
+        }
+    }
+
+    /**
+     * Gets the statistics for a statement, creating them on first use.
+     *
+     * @param sql The statement text as executed
+     * @return The statistics of the statement's shape
+     */
+    QueryStats statsFor(String sql) {
+        String shape = shapeCache.get(sql);
+        if (shape == null) {
+            shape = normalize(sql);
+            if (shapeCache.size() < MAX_SHAPES) {
+                shapeCache.put(sql, shape);
+            }
+        }
+
+        QueryStats stats = statsBySql.get(shape);
+        if (stats == null) {
+            String key = statsBySql.size() < MAX_SHAPES ? shape : OVERFLOW_SHAPE;
+            stats = statsBySql.computeIfAbsent(key, QueryStats::new);
+        }
+        return stats;
+    }
+
+    /**
+     * Records one statement execution.
+     *
+     * @param stats  The statement's statistics
+     * @param micros The execution time in microseconds
+     * @param failed Whether the statement threw
+     */
+    void recordExecution(QueryStats stats, long micros, boolean failed) {
+        stats.recordExecution(micros, failed);
+        if (micros >= slowQueryThresholdMillis * 1000) {
+            slowQueries.incrementAndGet();
+            // Log the shape, not the literal SQL, so patient data never reaches the log file
+            slowQueryLogger.warn("{} ms{}: {}", micros / 1000, failed ? " (failed)" : "", stats.getSql());
+        }
+    }
+
+    /**
+     * Records the time taken to obtain a connection.
+     *
+     * @param micros The wait in microseconds
+     */
+    void recordConnectionWait(long micros) {
+        connectionWait.record(micros);
+    }
+
+    /**
+     * Replaces literals with {@code ?} and collapses whitespace, so statements that differ
+     * only in their values share one set of statistics.
+     *
+     * @param sql The statement text
+     * @return The normalized shape
+     */
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    @Override
+    public List<QueryStats.Snapshot> getQueries() {
+        List<QueryStats.Snapshot> snapshots = new ArrayList<>();
+        for (QueryStats stats : statsBySql.values()) {
+            snapshots.add(stats.snapshot());
+        }
+        snapshots.sort(Comparator.comparingLong(QueryStats.Snapshot::getTotalMicros).reversed());
+        return snapshots;
+    }
+
+    @Override
+    public long getTotalCalls() {
+        long total = 0;
+        for (QueryStats stats : statsBySql.values()) {
+            total += stats.getCalls();
+        }
+        return total;
+    }
+
+    @Override
+    public long getSlowQueryCount() {
+        return slowQueries.get();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        this.slowQueryThresholdMillis = millis;
+        logger.info("Slow query threshold set to {} ms", millis);
+    }
+
+    @Override
+    public long getConnectionWaitCount() {
+        return connectionWait.getCount();
+    }
+
+    @Override
+    public long getConnectionWaitP50Micros() {
+        return connectionWait.getPercentile(50);
+    }
+
+    @Override
+    public long getConnectionWaitP99Micros() {
+        return connectionWait.getPercentile(99);
+    }
+
+    @Override
+    public long getConnectionWaitMaxMicros() {
+        return connectionWait.getMax();
+    }
+
+    @Override
+    public void reset() {
+        for (QueryStats stats : statsBySql.values()) {
+            stats.reset();
+        }
+        connectionWait.reset();
+        slowQueries.set(0);
+        logger.info("Query metrics reset");
+    }
+}
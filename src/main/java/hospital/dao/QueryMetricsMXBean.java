@@ -0,0 +1,38 @@
+package main.java.hospital.dao;
+
+import java.util.List;
+
+/**
+ * JMX view of the JDBC query metrics, registered as
+ * {@code main.java.hospital:type=QueryMetrics}.
+ */
+public interface QueryMetricsMXBean {
+
+    /**
+     * Gets the statistics of every SQL shape seen, slowest total time first.
+     *
+     * @return The per-shape statistics
+     */
+    List<QueryStats.Snapshot> getQueries();
+
+    long getTotalCalls();
+
+    long getSlowQueryCount();
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+
+    long getConnectionWaitCount();
+
+    long getConnectionWaitP50Micros();
+
+    long getConnectionWaitP99Micros();
+
+    long getConnectionWaitMaxMicros();
+
+    /**
+     * Clears all collected statistics.
+     */
+    void reset();
+}
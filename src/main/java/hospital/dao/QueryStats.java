@@ -0,0 +1,132 @@
+package main.java.hospital.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live statistics for one SQL shape (the statement text with literals replaced by {@code ?}).
+ */
+public class QueryStats {
+    private final String sql;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final LongAdder rows = new LongAdder();
+
+    /**
+     * Creates statistics for a SQL shape.
+     *
+     * @param sql The normalized SQL
+     */
+    public QueryStats(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Gets the normalized SQL these statistics belong to.
+     *
+     * @return The SQL shape
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    void recordExecution(long micros, boolean failed) {
+        latency.record(micros);
+        if (failed) {
+            errors.incrementAndGet();
+        }
+    }
+
+    void recordRows(long count) {
+        rows.add(count);
+    }
+
+    void reset() {
+        latency.reset();
+        errors.set(0);
+        rows.reset();
+    }
+
+    /**
+     * Gets the number of executions recorded.
+     *
+     * @return The call count
+     */
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    /**
+     * Takes a point-in-time copy of these statistics.
+     *
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(sql, latency.getCount(), errors.get(), rows.sum(),
+                latency.getPercentile(50), latency.getPercentile(99), latency.getMax(), latency.getTotal());
+    }
+
+    /**
+     * Immutable copy of a shape's statistics; exposed over JMX as composite data.
+     */
+    public static class Snapshot {
+        private final String sql;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+        private final long totalMicros;
+
+        public Snapshot(String sql, long calls, long errors, long rows, long p50Micros, long p99Micros,
+                        long maxMicros, long totalMicros) {
+            this.sql = sql;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.totalMicros = totalMicros;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        public long getTotalMicros() {
+            return totalMicros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d calls, p50=%dus p99=%dus max=%dus, %d rows, %d errors: %s",
+                    calls, p50Micros, p99Micros, maxMicros, rows, errors, sql);
+        }
+    }
+}
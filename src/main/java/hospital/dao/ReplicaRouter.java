@@ -0,0 +1,193 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Hands out connections to the read replicas listed in {@code db.replica.urls}, for
+ * {@link DatabaseConnection#getReadConnection()}. Each replica has its own pool of
+ * {@code db.replica.pool.size} connections, so report load cannot use up the primary's pool.
+ *
+ * <p>Every {@code db.replica.lagCheckMillis} each replica's lag is read from
+ * {@code SHOW REPLICA STATUS}. A replica is used only if replication is running, its lag is at
+ * most {@code db.replica.maxLagSeconds}, and its lag is shorter than the time since the
+ * client's last write, so the write is already on it. Replicas are chosen round robin; when
+ * none qualifies, the caller reads from the primary.
+ */
+class ReplicaRouter {
+    private static final Logger logger = LogManager.getLogger(ReplicaRouter.class);
+
+    // Lag of a replica whose replication is stopped or that could not be checked
+    private static final int UNKNOWN_LAG = -1;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final int maxLagSeconds;
+    private final long lagCheckMillis;
+    private final ScheduledExecutorService lagChecker;
+
+    /**
+     * A replica's pool and last measured lag.
+     */
+    private static final class Replica {
+        final String url;
+        final ConnectionPool pool;
+        volatile int lagSeconds = UNKNOWN_LAG;
+        volatile long checkedAt;
+
+        Replica(String url, ConnectionPool pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * Creates a router and starts checking the replicas' lag.
+     *
+     * @param config      The database configuration
+     * @param urls        The replicas' JDBC URLs
+     * @param poolFactory Creates a pool for a connection factory
+     */
+    ReplicaRouter(DatabaseConfig config, List<String> urls,
+                  Function<ConnectionPool.ConnectionFactory, ConnectionPool> poolFactory) {
+        this.maxLagSeconds = config.getInt("db.replica.maxLagSeconds", 5);
+        this.lagCheckMillis = config.getInt("db.replica.lagCheckMillis", 1000);
+        String user = config.get("db.replica.user", config.get("db.mysql.user", "root"));
+        String password = config.get("db.replica.password", config.get("db.mysql.password", ""));
+
+        for (String url : urls) {
+            replicas.add(new Replica(url, poolFactory.apply(() -> DriverManager.getConnection(url, user, password))));
+        }
+        lagChecker = Executors.newSingleThreadScheduledExecutor(ConcurrencyUtils.daemonThreadFactory("replica-lag"));
+        lagChecker.scheduleWithFixedDelay(this::checkLag, 0, lagCheckMillis, TimeUnit.MILLISECONDS);
+        logger.info("Routing reads to {} replicas with at most {} s lag", replicas.size(), maxLagSeconds);
+    }
+
+    /**
+     * Creates a router for the configured replicas.
+     *
+     * @param config      The database configuration
+     * @param poolFactory Creates a pool for a connection factory
+     * @return The router, or null if no replicas are configured
+     */
+    static ReplicaRouter create(DatabaseConfig config,
+                                Function<ConnectionPool.ConnectionFactory, ConnectionPool> poolFactory) {
+        List<String> urls = new ArrayList<>();
+        for (String url : config.get("db.replica.urls", "").split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls.isEmpty() ? null : new ReplicaRouter(config, urls, poolFactory);
+    }
+
+    /**
+     * Borrows a connection from a replica that is current enough.
+     *
+     * @param millisSinceWrite The time since the client's last write
+     * @return A pooled replica connection, or null to read from the primary
+     */
+    Connection borrow(long millisSinceWrite) {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!isCurrent(replica, millisSinceWrite)) {
+                continue;
+            }
+            try {
+                return replica.pool.borrow();
+            } catch (SQLException e) {
+                logger.warn("Could not connect to replica {}, reading from the primary", replica.url, e);
+                replica.lagSeconds = UNKNOWN_LAG;
+            }
+        }
+        return null;
+    }
+
+    private boolean isCurrent(Replica replica, long millisSinceWrite) {
+        int lag = replica.lagSeconds;
+        if (lag == UNKNOWN_LAG || lag > maxLagSeconds) {
+            return false;
+        }
+        // A lag measurement older than a few checks means the checker cannot reach the replica
+        if (System.currentTimeMillis() - replica.checkedAt > 3 * lagCheckMillis) {
+            return false;
+        }
+        // Lag is reported in whole seconds, so allow for up to one more
+        return (lag + 1) * 1000L < millisSinceWrite;
+    }
+
+    private void checkLag() {
+        for (Replica replica : replicas) {
+            int lag;
+            try (Connection conn = replica.pool.borrow()) {
+                lag = secondsBehind(conn);
+            } catch (SQLException e) {
+                lag = UNKNOWN_LAG;
+            }
+
+            boolean wasUsable = replica.lagSeconds != UNKNOWN_LAG && replica.lagSeconds <= maxLagSeconds;
+            boolean usable = lag != UNKNOWN_LAG && lag <= maxLagSeconds;
+            replica.lagSeconds = lag;
+            replica.checkedAt = System.currentTimeMillis();
+            if (wasUsable != usable) {
+                logger.warn("Replica {} is {} (lag: {} s)", replica.url, usable ? "back in use" : "out of use",
+                        lag == UNKNOWN_LAG ? "unknown" : lag);
+            }
+        }
+    }
+
+    /**
+     * Reads how far a replica is behind its source.
+     *
+     * @param conn A connection to the replica
+     * @return The lag in seconds, 0 for a server that is not replicating, or -1 if replication is stopped
+     * @throws SQLException If the status cannot be read
+     */
+    static int secondsBehind(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            String column = "Seconds_Behind_Source";
+            ResultSet rs;
+            try {
+                rs = stmt.executeQuery("SHOW REPLICA STATUS");
+            } catch (SQLException e) {
+                // Servers before MySQL 8.0.22 only know the older statement
+                rs = stmt.executeQuery("SHOW SLAVE STATUS");
+                column = "Seconds_Behind_Master";
+            }
+            try {
+                if (!rs.next()) {
+                    return 0;
+                }
+                Object lag = rs.getObject(column);
+                return lag == null ? UNKNOWN_LAG : ((Number) lag).intValue();
+            } finally {
+                rs.close();
+            }
+        }
+    }
+
+    /**
+     * Stops checking lag and closes the replicas' pools.
+     */
+    void close() {
+        lagChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for aggregate report queries that span several tables.
+ * Rows are returned as ordered maps of column name to value, like the report tables.
+ * With department shards, each query runs on every shard and the shards' counts are added up.
+ */
+public class ReportDAO {
+    private static final Logger logger = LogManager.getLogger(ReportDAO.class);
+    private final DatabaseConnection dbConnection;
+
+    /**
+     * Constructor that initializes the database connection.
+     */
+    public ReportDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Gets the current bed occupancy of every ward.
+     *
+     * @return One row per ward with department_code, ward_number, bed_count, occupied_beds and free_beds
+     */
+    public List<Map<String, Object>> findWardOccupancy() {
+        String sql = "SELECT w.department_code, w.ward_number, w.bed_count, " +
+                "COUNT(h.hospitalization_id) AS occupied_beds, " +
+                "w.bed_count - COUNT(h.hospitalization_id) AS free_beds " +
+                "FROM Ward w LEFT JOIN Hospitalization h ON h.department_code = w.department_code " +
+                "AND h.ward_number = w.ward_number AND h.discharge_date IS NULL " +
+                "GROUP BY w.department_code, w.ward_number, w.bed_count " +
+                "ORDER BY w.department_code, w.ward_number";
+
+        List<List<Map<String, Object>>> results = queryEveryShard(sql);
+        List<Map<String, Object>> rows = results.isEmpty() ? new ArrayList<>() : results.get(0);
+        if (results.size() > 1) {
+            // Every shard has every ward but counts only its own stays
+            Map<String, Long> occupied = new HashMap<>();
+            for (List<Map<String, Object>> shardRows : results) {
+                for (Map<String, Object> row : shardRows) {
+                    occupied.merge(row.get("department_code") + "/" + row.get("ward_number"),
+                            ((Number) row.get("occupied_beds")).longValue(), Long::sum);
+                }
+            }
+            for (Map<String, Object> row : rows) {
+                long occupiedBeds = occupied.get(row.get("department_code") + "/" + row.get("ward_number"));
+                row.put("occupied_beds", occupiedBeds);
+                row.put("free_beds", ((Number) row.get("bed_count")).longValue() - occupiedBeds);
+            }
+        }
+        logger.info("Retrieved occupancy for {} wards", rows.size());
+        return rows;
+    }
+
+    /**
+     * Gets the headline patient statistics shown on the patient statistics report.
+     *
+     * @return A single row with total_patients, current_patients, total_hospitalizations and avg_stay
+     */
+    public Map<String, Object> getPatientStatistics() {
+        // TIMESTAMPDIFF rather than DATEDIFF, whose two-argument MySQL form the embedded H2 backend rejects
+        String sql = "SELECT (SELECT COUNT(*) FROM Patient) AS total_patients, " +
+                "(SELECT COUNT(DISTINCT patient_id) FROM Hospitalization WHERE discharge_date IS NULL) AS current_patients, " +
+                "(SELECT COUNT(*) FROM HospitalizationHistory) AS total_hospitalizations, " +
+                "(SELECT AVG(TIMESTAMPDIFF(DAY, admission_date, discharge_date)) FROM HospitalizationHistory " +
+                "WHERE discharge_date IS NOT NULL) AS avg_stay";
+
+        if (!dbConnection.isSharded()) {
+            List<Map<String, Object>> rows = query(sql);
+            return rows.isEmpty() ? new LinkedHashMap<>() : rows.get(0);
+        }
+
+        // Patients are on every shard; stays are counted per shard and the average is recomputed
+        String shardSql = "SELECT (SELECT COUNT(*) FROM Patient) AS total_patients, " +
+                "(SELECT COUNT(DISTINCT patient_id) FROM Hospitalization WHERE discharge_date IS NULL) AS current_patients, " +
+                "(SELECT COUNT(*) FROM HospitalizationHistory) AS total_hospitalizations, " +
+                "(SELECT SUM(TIMESTAMPDIFF(DAY, admission_date, discharge_date)) FROM HospitalizationHistory " +
+                "WHERE discharge_date IS NOT NULL) AS total_stay, " +
+                "(SELECT COUNT(*) FROM HospitalizationHistory WHERE discharge_date IS NOT NULL) AS discharged";
+        List<List<Map<String, Object>>> results = queryEveryShard(shardSql);
+        if (results.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        long currentPatients = 0;
+        long totalHospitalizations = 0;
+        long totalStay = 0;
+        long discharged = 0;
+        for (List<Map<String, Object>> shardRows : results) {
+            Map<String, Object> row = shardRows.get(0);
+            currentPatients += ((Number) row.get("current_patients")).longValue();
+            totalHospitalizations += ((Number) row.get("total_hospitalizations")).longValue();
+            totalStay += row.get("total_stay") != null ? ((Number) row.get("total_stay")).longValue() : 0;
+            discharged += ((Number) row.get("discharged")).longValue();
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("total_patients", results.get(0).get(0).get("total_patients"));
+        statistics.put("current_patients", currentPatients);
+        statistics.put("total_hospitalizations", totalHospitalizations);
+        statistics.put("avg_stay", discharged > 0 ? (double) totalStay / discharged : null);
+        return statistics;
+    }
+
+    /**
+     * Runs a query and maps every row to an ordered map.
+     *
+     * @param sql    The query
+     * @param params The query parameters
+     * @return The rows, or an empty list on error
+     */
+    private List<Map<String, Object>> query(String sql, Object... params) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getReadConnection()) {
+            rows = query(conn, sql, params);
+        } catch (SQLException e) {
+            logger.error("Error running report query", e);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Runs a query on every shard.
+     *
+     * @param sql    The query
+     * @param params The query parameters
+     * @return Each shard's rows, the primary's first, or an empty list on error
+     */
+    private List<List<Map<String, Object>>> queryEveryShard(String sql, Object... params) {
+        try {
+            return dbConnection.onEveryShard(conn -> query(conn, sql, params));
+        } catch (SQLException e) {
+            logger.error("Error running report query", e);
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<Map<String, Object>> query(Connection conn, String sql, Object... params) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= columns; i++) {
+                        row.put(rs.getMetaData().getColumnLabel(i).toLowerCase(), rs.getObject(i));
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+
+        return rows;
+    }
+}
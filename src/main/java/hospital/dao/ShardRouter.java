@@ -0,0 +1,171 @@
+package main.java.hospital.dao;
+
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Maps departments to the databases ("shards") that hold their hospitalizations, for
+ * deployments where each site has its own database. The shards are named in {@code db.shards};
+ * {@code db.shard.<name>.departments} lists the department codes stored on a shard, and
+ * departments not listed anywhere stay on the primary database.
+ *
+ * <p>A shard is a MySQL server ({@code db.shard.<name>.url}, {@code .user}, {@code .password})
+ * or, with {@code db.shard.<name>.backend=embedded}, an in-memory database for local testing.
+ * Each has its own pool of {@code db.shard.pool.size} connections.
+ */
+class ShardRouter {
+    private static final Logger logger = LogManager.getLogger(ShardRouter.class);
+
+    /**
+     * The primary database, which uses {@link DatabaseConnection}'s own pool.
+     */
+    static final Shard PRIMARY = new Shard("primary", null);
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final Map<String, Shard> byDepartment = new HashMap<>();
+    private final ExecutorService executor;
+
+    /**
+     * A database holding the hospitalizations of some departments.
+     */
+    static final class Shard {
+        private final String name;
+        private final ConnectionPool pool;
+
+        private Shard(String name, ConnectionPool pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the shard's pool.
+         *
+         * @return The pool, or null for the primary
+         */
+        ConnectionPool getPool() {
+            return pool;
+        }
+
+        boolean isPrimary() {
+            return pool == null;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Creates a router and the shards' pools.
+     *
+     * @param config      The database configuration
+     * @param names       The names of the shards besides the primary
+     * @param poolFactory Creates a pool for a shard's backend
+     */
+    ShardRouter(DatabaseConfig config, List<String> names, Function<DatabaseBackend, ConnectionPool> poolFactory) {
+        shards.add(PRIMARY);
+        for (String name : names) {
+            Shard shard = new Shard(name, poolFactory.apply(createBackend(config, name)));
+            shards.add(shard);
+            for (String departmentCode : config.get("db.shard." + name + ".departments", "").split(",")) {
+                if (!departmentCode.trim().isEmpty()) {
+                    byDepartment.put(departmentCode.trim(), shard);
+                }
+            }
+        }
+        executor = ConcurrencyUtils.newPerTaskExecutor("shard-query", shards.size());
+        logger.info("Routing hospitalizations of {} departments to {} shards", byDepartment.size(), names.size());
+    }
+
+    /**
+     * Creates a router for the configured shards.
+     *
+     * @param config      The database configuration
+     * @param poolFactory Creates a pool for a shard's backend
+     * @return The router, or null if no shards are configured
+     */
+    static ShardRouter create(DatabaseConfig config, Function<DatabaseBackend, ConnectionPool> poolFactory) {
+        List<String> names = new ArrayList<>();
+        for (String name : config.get("db.shards", "").split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names.isEmpty() ? null : new ShardRouter(config, names, poolFactory);
+    }
+
+    private static DatabaseBackend createBackend(DatabaseConfig config, String name) {
+        String prefix = "db.shard." + name + ".";
+        String backend = config.get(prefix + "backend", MySqlBackend.NAME);
+        switch (backend.toLowerCase()) {
+            case MySqlBackend.NAME:
+                String url = config.get(prefix + "url", null);
+                if (url == null) {
+                    throw new IllegalArgumentException("No " + prefix + "url configured for shard " + name);
+                }
+                return new MySqlBackend(url, config.get(prefix + "user", config.get("db.mysql.user", "root")),
+                        config.get(prefix + "password", config.get("db.mysql.password", "")));
+            case EmbeddedBackend.NAME:
+                return new EmbeddedBackend(config.get(prefix + "name", "hospital_" + name),
+                        config.get("db.embedded.schema", "sql/create_tables.sql"),
+                        config.get("db.embedded.sampleData", "sql/sample_data.sql"), false);
+            default:
+                throw new IllegalArgumentException("Unknown database backend for shard " + name + ": " + backend);
+        }
+    }
+
+    /**
+     * Gets the shard holding a department's hospitalizations.
+     *
+     * @param departmentCode The department code
+     * @return The department's shard, or the primary if it is not mapped
+     */
+    Shard shardFor(String departmentCode) {
+        Shard shard = departmentCode != null ? byDepartment.get(departmentCode) : null;
+        return shard != null ? shard : PRIMARY;
+    }
+
+    /**
+     * Gets every shard, the primary first.
+     *
+     * @return The shards
+     */
+    List<Shard> shards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    /**
+     * Gets the executor that runs the other shards' part of a scatter-gather query.
+     *
+     * @return The executor
+     */
+    ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Closes the shards' pools.
+     */
+    void close() {
+        executor.shutdownNow();
+        for (Shard shard : shards) {
+            if (!shard.isPrimary()) {
+                shard.pool.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps department shards consistent with the primary.
+ *
+ * <p>The reference tables (patients, employees, doctors, nurses, departments and wards) are
+ * owned by the primary and copied to every shard, so that each shard can check its
+ * hospitalizations' foreign keys and join them locally. Writes to them are copied by
+ * {@link #copyChanges(List)} as soon as they commit; {@link #copyReferenceData()} copies the
+ * whole tables, for a new shard or after a copy failed.
+ *
+ * <p>{@link #moveHospitalizations()} moves stays, archived stays and their lifecycle events to
+ * the shard of their department, after shards are added or departments are remapped.
+ */
+public class ShardSync {
+    private static final Logger logger = LogManager.getLogger(ShardSync.class);
+    private static final int CHUNK_SIZE = 500;
+    private static final String HOSPITALIZATION_COLUMNS = "hospitalization_id, patient_id, department_code, " +
+            "ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date, created_at, updated_at, version";
+    private static final String EVENT_COLUMNS = "hospitalization_id, event_type, event_date, patient_id, " +
+            "department_code, ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date, recorded_at";
+    private static ShardSync instance;
+
+    /**
+     * A reference table and its key columns.
+     */
+    private static final class Table {
+        final String name;
+        final String[] keyColumns;
+
+        Table(String name, String... keyColumns) {
+            this.name = name;
+            this.keyColumns = keyColumns;
+        }
+    }
+
+    private static final Table PATIENT = new Table("Patient", "patient_id");
+    private static final Table EMPLOYEE = new Table("Employee", "employee_id");
+    private static final Table DOCTOR = new Table("Doctor", "employee_id");
+    private static final Table NURSE = new Table("Nurse", "employee_id");
+    private static final Table DEPARTMENT = new Table("Department", "department_code");
+    private static final Table WARD = new Table("Ward", "department_code", "ward_number");
+
+    // Referenced tables come before the tables that reference them
+    private static final List<Table> REFERENCE_TABLES = Arrays.asList(EMPLOYEE, DEPARTMENT, DOCTOR, NURSE, WARD, PATIENT);
+
+    // The tables holding each entity; a delete from the first cascades to the others
+    private static final Map<ChangeEvent.Entity, List<Table>> ENTITY_TABLES = new EnumMap<>(ChangeEvent.Entity.class);
+
+    static {
+        ENTITY_TABLES.put(ChangeEvent.Entity.PATIENT, Collections.singletonList(PATIENT));
+        ENTITY_TABLES.put(ChangeEvent.Entity.EMPLOYEE, Collections.singletonList(EMPLOYEE));
+        ENTITY_TABLES.put(ChangeEvent.Entity.DOCTOR, Arrays.asList(EMPLOYEE, DOCTOR));
+        ENTITY_TABLES.put(ChangeEvent.Entity.NURSE, Arrays.asList(EMPLOYEE, NURSE));
+        ENTITY_TABLES.put(ChangeEvent.Entity.DEPARTMENT, Collections.singletonList(DEPARTMENT));
+        ENTITY_TABLES.put(ChangeEvent.Entity.WARD, Collections.singletonList(WARD));
+    }
+
+    private final DatabaseConnection dbConnection;
+
+    private ShardSync() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Get the singleton instance of ShardSync
+     *
+     * @return The ShardSync instance
+     */
+    public static synchronized ShardSync getInstance() {
+        if (instance == null) {
+            instance = new ShardSync();
+        }
+        return instance;
+    }
+
+    /**
+     * Copies committed writes of reference rows from the primary to the other shards. Rows are
+     * re-read from the primary, so a copy always carries the row's latest state. Failures are
+     * logged, not thrown: the write itself has committed, and {@link #copyReferenceData()}
+     * repairs the shard.
+     *
+     * @param changes The committed changes; hospitalization changes are ignored
+     */
+    void copyChanges(List<ChangeEvent> changes) {
+        // Consecutive changes of one kind are copied together, in order
+        int from = 0;
+        while (from < changes.size()) {
+            ChangeEvent first = changes.get(from);
+            boolean delete = first.getOperation() == ChangeEvent.Operation.DELETE;
+            List<Object[]> keys = new ArrayList<>();
+            int to = from;
+            while (to < changes.size() && changes.get(to).getEntity() == first.getEntity()
+                    && (changes.get(to).getOperation() == ChangeEvent.Operation.DELETE) == delete) {
+                keys.add(keyValues(changes.get(to)));
+                to++;
+            }
+
+            List<Table> tables = ENTITY_TABLES.get(first.getEntity());
+            if (tables != null && first.getOperation() != ChangeEvent.Operation.RESYNC) {
+                try {
+                    if (delete) {
+                        deleteOnShards(tables.get(0), keys);
+                    } else {
+                        for (Table table : tables) {
+                            copyRows(table, keys);
+                        }
+                    }
+                } catch (SQLException e) {
+                    logger.error("Could not copy {} {} changes to the shards; run copyReferenceData() to repair them",
+                            keys.size(), first.getEntity(), e);
+                }
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Copies every row of the reference tables from the primary to the other shards,
+     * overwriting their copies. Rows deleted on the primary are not deleted from the shards.
+     *
+     * @return The number of rows copied to each shard
+     * @throws DataAccessException If a table cannot be copied
+     */
+    public int copyReferenceData() {
+        int copied = 0;
+        for (Table table : REFERENCE_TABLES) {
+            try (Connection primary = dbConnection.getConnection();
+                 Statement stmt = primary.createStatement()) {
+                stmt.setFetchSize(CHUNK_SIZE);
+                try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + table.name)) {
+                    List<Object[]> chunk = new ArrayList<>(CHUNK_SIZE);
+                    String[] columns = columns(rs.getMetaData());
+                    while (rs.next()) {
+                        chunk.add(values(rs, columns.length));
+                        if (chunk.size() == CHUNK_SIZE) {
+                            copied += upsertOnShards(table, columns, chunk);
+                            chunk.clear();
+                        }
+                    }
+                    copied += upsertOnShards(table, columns, chunk);
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Error copying " + table.name + " to the shards: " + e.getMessage(), e);
+            }
+        }
+        logger.info("Copied {} reference rows to the shards", copied);
+        return copied;
+    }
+
+    /**
+     * Moves every stay stored on another shard than its department's to that shard, with its
+     * lifecycle events. Each batch of {@code db.batch.size} stays is written to the target,
+     * then deleted from the source, so the move can be re-run if it is interrupted.
+     *
+     * @return The number of stays moved
+     * @throws DataAccessException If a batch cannot be moved
+     */
+    public int moveHospitalizations() {
+        int moved = 0;
+        int batchSize = BatchInserter.defaultChunkSize();
+        try {
+            for (ShardRouter.Shard source : dbConnection.shards()) {
+                for (String table : Arrays.asList("Hospitalization", "HospitalizationArchive")) {
+                    for (String departmentCode : departments(source, table)) {
+                        ShardRouter.Shard target = dbConnection.shardFor(departmentCode);
+                        if (target == source) {
+                            continue;
+                        }
+                        int departmentMoved = 0;
+                        int batch;
+                        do {
+                            batch = moveBatch(source, target, table, departmentCode, batchSize);
+                            departmentMoved += batch;
+                        } while (batch == batchSize);
+                        moved += departmentMoved;
+                        logger.info("Moved {} rows of {} for department {} from shard {} to {}",
+                                departmentMoved, table, departmentCode, source, target);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error moving stays between shards: " + e.getMessage(), e);
+        }
+        logger.info("Moved {} stays to the shards of their departments", moved);
+        return moved;
+    }
+
+    private List<String> departments(ShardRouter.Shard shard, String table) throws SQLException {
+        List<String> departments = new ArrayList<>();
+        try (Connection conn = dbConnection.getConnection(shard);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DISTINCT department_code FROM " + table)) {
+            while (rs.next()) {
+                departments.add(rs.getString(1));
+            }
+        }
+        return departments;
+    }
+
+    /**
+     * Moves one batch of a department's stays and their events between shards.
+     *
+     * @return The number of stays moved
+     */
+    private int moveBatch(ShardRouter.Shard source, ShardRouter.Shard target, String table, String departmentCode,
+                          int batchSize) throws SQLException {
+        List<Object[]> stays = new ArrayList<>();
+        List<Object[]> events = new ArrayList<>();
+        String archivedAt = table.equals("HospitalizationArchive") ? ", archived_at" : "";
+        String[] stayColumns = (HOSPITALIZATION_COLUMNS + archivedAt).split(", ");
+
+        try (Connection conn = dbConnection.getConnection(source)) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT " + HOSPITALIZATION_COLUMNS + archivedAt +
+                    " FROM " + table + " WHERE department_code = ? ORDER BY hospitalization_id LIMIT ?")) {
+                stmt.setString(1, departmentCode);
+                stmt.setInt(2, batchSize);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        stays.add(values(rs, stayColumns.length));
+                    }
+                }
+            }
+            if (stays.isEmpty()) {
+                return 0;
+            }
+            String in = inList(stays.size());
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT " + EVENT_COLUMNS +
+                    " FROM HospitalizationEvent WHERE hospitalization_id IN " + in + " ORDER BY event_id")) {
+                bindIds(stmt, stays);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        events.add(values(rs, EVENT_COLUMNS.split(", ").length));
+                    }
+                }
+            }
+        }
+
+        dbConnection.inTransaction(target, conn -> {
+            // Events copied by an interrupted earlier run are replaced rather than duplicated
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM HospitalizationEvent WHERE hospitalization_id IN " + inList(stays.size()))) {
+                bindIds(stmt, stays);
+                stmt.executeUpdate();
+            }
+            upsert(conn, new Table(table, "hospitalization_id"), stayColumns, stays);
+            insert(conn, "HospitalizationEvent", EVENT_COLUMNS.split(", "), events);
+            return null;
+        });
+        dbConnection.inTransaction(source, conn -> {
+            String in = inList(stays.size());
+            for (String sql : Arrays.asList("DELETE FROM HospitalizationEvent WHERE hospitalization_id IN " + in,
+                    "DELETE FROM " + table + " WHERE hospitalization_id IN " + in)) {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindIds(stmt, stays);
+                    stmt.executeUpdate();
+                }
+            }
+            return null;
+        });
+        return stays.size();
+    }
+
+    /**
+     * Copies rows from the primary to the other shards by key, deleting the copies of rows
+     * the primary no longer has.
+     */
+    private void copyRows(Table table, List<Object[]> keys) throws SQLException {
+        for (int from = 0; from < keys.size(); from += CHUNK_SIZE) {
+            List<Object[]> chunk = keys.subList(from, Math.min(from + CHUNK_SIZE, keys.size()));
+            List<Object[]> rows = new ArrayList<>();
+            String[] columns;
+
+            try (Connection primary = dbConnection.getConnection();
+                 PreparedStatement stmt = primary.prepareStatement(
+                         "SELECT * FROM " + table.name + " WHERE " + keyCondition(table, chunk.size()))) {
+                bindKeys(stmt, chunk);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    columns = columns(rs.getMetaData());
+                    while (rs.next()) {
+                        rows.add(values(rs, columns.length));
+                    }
+                }
+            }
+
+            upsertOnShards(table, columns, rows);
+            if (rows.size() < chunk.size()) {
+                deleteOnShards(table, missingKeys(table, columns, chunk, rows));
+            }
+        }
+    }
+
+    private int upsertOnShards(Table table, String[] columns, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        for (ShardRouter.Shard shard : dbConnection.shards()) {
+            if (!shard.isPrimary()) {
+                inTransaction(shard, conn -> upsert(conn, table, columns, rows));
+            }
+        }
+        return rows.size();
+    }
+
+    private void deleteOnShards(Table table, List<Object[]> keys) throws SQLException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (ShardRouter.Shard shard : dbConnection.shards()) {
+            if (!shard.isPrimary()) {
+                inTransaction(shard, conn -> {
+                    for (int from = 0; from < keys.size(); from += CHUNK_SIZE) {
+                        List<Object[]> chunk = keys.subList(from, Math.min(from + CHUNK_SIZE, keys.size()));
+                        try (PreparedStatement stmt = conn.prepareStatement(
+                                "DELETE FROM " + table.name + " WHERE " + keyCondition(table, chunk.size()))) {
+                            bindKeys(stmt, chunk);
+                            stmt.executeUpdate();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Statements run on one connection.
+     */
+    private interface ShardWrite {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs writes on a shard other than the primary in a transaction of their own. Copies are
+     * made once a unit of work has committed, while it still holds its connection, so they
+     * must not go through {@link DatabaseConnection#inTransaction(ShardRouter.Shard, DatabaseConnection.TransactionalWork)}.
+     */
+    private static void inTransaction(ShardRouter.Shard shard, ShardWrite write) throws SQLException {
+        try (Connection conn = shard.getPool().borrow()) {
+            conn.setAutoCommit(false);
+            try {
+                write.run(conn);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Inserts rows, overwriting rows with the same key.
+     */
+    private static void upsert(Connection conn, Table table, String[] columns, List<Object[]> rows)
+            throws SQLException {
+        StringBuilder updates = new StringBuilder();
+        for (String column : columns) {
+            if (!Arrays.asList(table.keyColumns).contains(column)) {
+                updates.append(updates.length() == 0 ? "" : ", ").append(column).append(" = VALUES(").append(column).append(")");
+            }
+        }
+        insert(conn, table.name, columns, rows, " ON DUPLICATE KEY UPDATE " + updates);
+    }
+
+    private static void insert(Connection conn, String table, String[] columns, List<Object[]> rows)
+            throws SQLException {
+        insert(conn, table, columns, rows, "");
+    }
+
+    private static void insert(Connection conn, String table, String[] columns, List<Object[]> rows, String suffix)
+            throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" +
+                String.join(", ", Collections.nCopies(columns.length, "?")) + ")" + suffix;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    stmt.setObject(i + 1, row[i]);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Gets the key values of a change: an ID, a department code, or a department code and
+     * ward number from "departmentCode/wardNumber".
+     */
+    private static Object[] keyValues(ChangeEvent change) {
+        if (change.getEntity() == ChangeEvent.Entity.WARD) {
+            String key = change.getKey().toString();
+            int slash = key.lastIndexOf('/');
+            return new Object[]{key.substring(0, slash), Integer.parseInt(key.substring(slash + 1))};
+        }
+        return new Object[]{change.getKey()};
+    }
+
+    private static List<Object[]> missingKeys(Table table, String[] columns, List<Object[]> keys, List<Object[]> rows) {
+        int[] keyIndexes = new int[table.keyColumns.length];
+        for (int k = 0; k < keyIndexes.length; k++) {
+            keyIndexes[k] = Arrays.asList(columns).indexOf(table.keyColumns[k]);
+        }
+        Map<String, Object[]> missing = new LinkedHashMap<>();
+        for (Object[] key : keys) {
+            missing.put(Arrays.toString(key), key);
+        }
+        for (Object[] row : rows) {
+            Object[] key = new Object[keyIndexes.length];
+            for (int k = 0; k < keyIndexes.length; k++) {
+                key[k] = row[keyIndexes[k]];
+            }
+            missing.remove(Arrays.toString(key));
+        }
+        return new ArrayList<>(missing.values());
+    }
+
+    private static String keyCondition(Table table, int count) {
+        List<String> column = new ArrayList<>();
+        for (String keyColumn : table.keyColumns) {
+            column.add(keyColumn + " = ?");
+        }
+        String one = "(" + String.join(" AND ", column) + ")";
+        return String.join(" OR ", Collections.nCopies(count, one));
+    }
+
+    private static void bindKeys(PreparedStatement stmt, List<Object[]> keys) throws SQLException {
+        int index = 1;
+        for (Object[] key : keys) {
+            for (Object value : key) {
+                stmt.setObject(index++, value);
+            }
+        }
+    }
+
+    private static String inList(int count) {
+        return "(" + String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+
+    private static void bindIds(PreparedStatement stmt, List<Object[]> stays) throws SQLException {
+        for (int i = 0; i < stays.size(); i++) {
+            stmt.setObject(i + 1, stays.get(i)[0]);
+        }
+    }
+
+    private static String[] columns(ResultSetMetaData metaData) throws SQLException {
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1).toLowerCase();
+        }
+        return columns;
+    }
+
+    private static Object[] values(ResultSet rs, int count) throws SQLException {
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = rs.getObject(i + 1);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,108 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Executes the plain SQL scripts shipped in the {@code sql/} directory.
+ * Understands {@code --} line comments and {@code ;}-terminated statements, which is
+ * all the project's scripts use.
+ */
+public class SqlScriptRunner {
+    private static final Logger logger = LogManager.getLogger(SqlScriptRunner.class);
+
+    /**
+     * Reads a script from the file system, falling back to the classpath.
+     *
+     * @param location A file path such as {@code sql/create_tables.sql}
+     * @return The script text
+     * @throws IOException If the script cannot be found or read
+     */
+    public static String load(String location) throws IOException {
+        Path path = Paths.get(location);
+        if (Files.isRegularFile(path)) {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        }
+
+        String resource = location.startsWith("/") ? location : "/" + location;
+        try (InputStream in = SqlScriptRunner.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("SQL script not found: " + location);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Splits a script into individual statements, dropping comments.
+     *
+     * @param script The script text
+     * @return The statements in order, without trailing semicolons
+     */
+    public static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        for (String line : script.split("\\R")) {
+            int comment = line.indexOf("--");
+            String code = comment >= 0 ? line.substring(0, comment) : line;
+            if (code.trim().isEmpty()) {
+                continue;
+            }
+
+            current.append(code).append('\n');
+            if (code.trim().endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1).trim());
+                current.setLength(0);
+            }
+        }
+
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    /**
+     * Runs every statement of a script on the given connection.
+     * {@code USE} and {@code CREATE DATABASE} statements are skipped because the
+     * connection already points at the target database.
+     *
+     * @param conn     The connection to run the script on
+     * @param location The script location
+     * @return The number of statements executed
+     * @throws IOException  If the script cannot be read
+     * @throws SQLException If a statement fails
+     */
+    public static int run(Connection conn, String location) throws IOException, SQLException {
+        int executed = 0;
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : split(load(location))) {
+                String upper = sql.toUpperCase(Locale.ROOT);
+                if (upper.startsWith("USE ") || upper.startsWith("CREATE DATABASE")) {
+                    continue;
+                }
+                stmt.execute(sql);
+                executed++;
+            }
+        }
+
+        logger.info("Executed {} statements from {}", executed, location);
+        return executed;
+    }
+}
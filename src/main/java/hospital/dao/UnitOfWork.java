@@ -0,0 +1,85 @@
+package main.java.hospital.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A transaction that several DAO calls on the same thread can share.
+ * While a unit of work is open, every DAO uses its single connection and nothing is
+ * committed until {@link #commit()} is called. Closing without committing rolls back.
+ *
+ * <pre>{@code
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     Optional<Integer> id = employeeDAO.insert(employee);
+ *     if (id.isPresent() && doctorDAO.insert(doctor)) {
+ *         work.commit();
+ *     }
+ * }
+ * }</pre>
+ */
+public class UnitOfWork implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UnitOfWork.class);
+
+    private final DatabaseConnection dbConnection;
+    private final Connection connection;
+    private boolean completed;
+
+    private UnitOfWork(DatabaseConnection dbConnection, Connection connection) {
+        this.dbConnection = dbConnection;
+        this.connection = connection;
+    }
+
+    /**
+     * Starts a unit of work on the current thread.
+     *
+     * @return The new unit of work
+     * @throws SQLException If a connection cannot be opened
+     */
+    public static UnitOfWork begin() throws SQLException {
+        DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+        return new UnitOfWork(dbConnection, dbConnection.beginTransaction());
+    }
+
+    /**
+     * Commits all work done since {@link #begin()}.
+     *
+     * @throws SQLException If the commit fails; the work is rolled back on close
+     */
+    public void commit() throws SQLException {
+        connection.commit();
+        completed = true;
+        logger.debug("Unit of work committed");
+        dbConnection.transactionCommitted();
+    }
+
+    /**
+     * Rolls back all work done since {@link #begin()}.
+     */
+    public void rollback() {
+        dbConnection.discardCommitActions();
+        try {
+            connection.rollback();
+            logger.info("Unit of work rolled back");
+        } catch (SQLException e) {
+            logger.error("Failed to roll back unit of work", e);
+        }
+        completed = true;
+    }
+
+    /**
+     * Ends the unit of work, rolling back if it was not committed.
+     */
+    @Override
+    public void close() {
+        try {
+            if (!completed) {
+                rollback();
+            }
+        } finally {
+            dbConnection.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package main.java.hospital.dao;
+
+/**
+ * Thrown by a DAO update when the row was changed by someone else since it was read: the
+ * row's version no longer matches the version of the object being saved. Nothing was written.
+ * The caller can reload the row and ask the user to redo the change, or re-apply the change to
+ * the current row with the DAO's {@code modify} method.
+ */
+public class VersionConflictException extends DataAccessException {
+    private static final long serialVersionUID = 1L;
+    private final ChangeEvent.Entity entity;
+    // Keys are Integers or Strings, but typed Object, so a deserialized exception has none
+    private final transient Object key;
+    private final int expectedVersion;
+    private final int currentVersion;
+
+    /**
+     * Constructor
+     *
+     * @param entity          The kind of row
+     * @param key             The row's key
+     * @param expectedVersion The version the update was made against
+     * @param currentVersion  The row's version in the database
+     */
+    public VersionConflictException(ChangeEvent.Entity entity, Object key, int expectedVersion, int currentVersion) {
+        super(entity + " " + key + " was changed by another user (version " + expectedVersion +
+                " was edited, the current version is " + currentVersion + ")");
+        this.entity = entity;
+        this.key = key;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    public ChangeEvent.Entity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Get the row's key.
+     *
+     * @return The key, or null if the exception was deserialized
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -7,8 +7,10 @@ import org.apache.logging.log4j.Logger;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Ward entity.
@@ -17,12 +19,14 @@ import java.util.Optional;
 public class WardDAO {
     private static final Logger logger = LogManager.getLogger(WardDAO.class);
     private final DatabaseConnection dbConnection;
+    private final ChangeFeed changeFeed;
 
     /**
      * Constructor that initializes the database connection.
      */
     public WardDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.changeFeed = ChangeFeed.getInstance();
     }
 
     /**
@@ -37,16 +41,15 @@ public class WardDAO {
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, ward.getDepartmentCode());
-            stmt.setInt(2, ward.getWardNumber());
-            stmt.setInt(3, ward.getBedCount());
-            stmt.setInt(4, ward.getSupervisorId());
+            WardMapper.bind(stmt, 1, ward);
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
                 logger.info("Created ward with department code: {} and ward number: {}",
                         ward.getDepartmentCode(), ward.getWardNumber());
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.WARD, ChangeEvent.Operation.INSERT,
+                        ChangeEvent.wardKey(ward.getDepartmentCode(), ward.getWardNumber()), ward);
                 return true;
             } else {
                 logger.warn("Creating ward failed, no rows affected");
@@ -66,7 +69,7 @@ public class WardDAO {
      * @return An Optional containing the Ward if found, or empty if not found
      */
     public Optional<Ward> findById(String departmentCode, int wardNumber) {
-        String sql = "SELECT * FROM Ward WHERE department_code = ? AND ward_number = ?";
+        String sql = "SELECT " + WardMapper.COLUMNS + " FROM Ward WHERE department_code = ? AND ward_number = ?";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -76,7 +79,7 @@ public class WardDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Ward ward = mapResultSetToWard(rs);
+                    Ward ward = WardMapper.read(rs);
                     logger.info("Found ward with department code: {} and ward number: {}",
                             departmentCode, wardNumber);
                     return Optional.of(ward);
@@ -98,15 +101,15 @@ public class WardDAO {
      * @return A list of all wards
      */
     public List<Ward> findAll() {
-        String sql = "SELECT * FROM Ward ORDER BY department_code, ward_number";
+        String sql = "SELECT " + WardMapper.COLUMNS + " FROM Ward ORDER BY department_code, ward_number";
         List<Ward> wards = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                Ward ward = mapResultSetToWard(rs);
+                Ward ward = WardMapper.read(rs);
                 wards.add(ward);
             }
 
@@ -118,35 +121,79 @@ public class WardDAO {
         return wards;
     }
 
+    /**
+     * Retrieves one page of wards ordered by department code and ward number.
+     *
+     * @param offset The number of wards to skip
+     * @param limit  The maximum number of wards to return
+     * @return A list of at most {@code limit} wards
+     */
+    public List<Ward> findPage(int offset, int limit) {
+        String sql = "SELECT " + WardMapper.COLUMNS + " FROM Ward ORDER BY department_code, ward_number LIMIT ? OFFSET ?";
+        List<Ward> wards = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Ward ward = WardMapper.read(rs);
+                    wards.add(ward);
+                }
+            }
+
+            logger.info("Retrieved {} wards from offset {}", wards.size(), offset);
+        } catch (SQLException e) {
+            logger.error("Error retrieving page of wards", e);
+        }
+
+        return wards;
+    }
+
     /**
      * Updates an existing ward in the database.
      *
+     * The update only applies if the ward is still at the version it was read at, and writes
+     * only the fields changed since then; if none were, nothing is written.
+     *
      * @param originalDepartmentCode The original department code of the ward
      * @param originalWardNumber The original ward number
      * @param ward The Ward object with updated values
      * @return true if successful, false otherwise
+     * @throws VersionConflictException If the ward was changed since it was read
      */
     public boolean update(String originalDepartmentCode, Integer originalWardNumber, Ward ward) {
-        String sql = "UPDATE Ward SET department_code = ?, ward_number = ?, bed_count = ?, supervisor_id = ? "
-                + "WHERE department_code = ? AND ward_number = ?";
+        if (!ward.hasChanges()) {
+            logger.info("No changes to save for ward with department code: {} and ward number: {}",
+                    originalDepartmentCode, originalWardNumber);
+            return true;
+        }
+        String sql = WardMapper.updateSql(ward);
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, ward.getDepartmentCode());
-            stmt.setInt(2, ward.getWardNumber());
-            stmt.setInt(3, ward.getBedCount());
-            stmt.setInt(4, ward.getSupervisorId());
-            stmt.setString(5, originalDepartmentCode);
-            stmt.setInt(6, originalWardNumber);
+            int next = WardMapper.bindUpdate(stmt, ward);
+            stmt.setString(next, originalDepartmentCode);
+            stmt.setInt(next + 1, originalWardNumber);
+            stmt.setInt(next + 2, ward.getVersion());
 
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
+                ward.setVersion(ward.getVersion() + 1);
+                ward.markClean();
                 logger.info("Updated ward with original department code: {} and ward number: {}",
                         originalDepartmentCode, originalWardNumber);
+                publishWardUpdate(originalDepartmentCode, originalWardNumber, ward);
                 return true;
             } else {
+                OptimisticUpdates.checkConflict(conn, "Ward", "department_code = ? AND ward_number = ?",
+                        ChangeEvent.Entity.WARD, ChangeEvent.wardKey(originalDepartmentCode, originalWardNumber),
+                        ward.getVersion(), originalDepartmentCode, originalWardNumber);
                 logger.warn("No ward found with department code: {} and ward number: {}",
                         originalDepartmentCode, originalWardNumber);
                 return false;
@@ -157,6 +204,22 @@ public class WardDAO {
         }
     }
 
+    /**
+     * Applies a change to the current version of a ward and saves it, re-reading the ward
+     * and re-applying the change if another user saves it in between. The change may
+     * renumber the ward.
+     *
+     * @param departmentCode The department code of the ward
+     * @param wardNumber The ward number
+     * @param change The change, applied to a freshly read Ward
+     * @return The saved ward, or empty if not found or the update failed
+     * @throws VersionConflictException If the ward was changed by others on every attempt
+     */
+    public Optional<Ward> modify(String departmentCode, int wardNumber, Consumer<Ward> change) {
+        return OptimisticUpdates.modify(() -> findById(departmentCode, wardNumber), change,
+                ward -> update(departmentCode, wardNumber, ward));
+    }
+
     /**
      * Deletes a ward from the database.
      *
@@ -178,6 +241,8 @@ public class WardDAO {
             if (affectedRows > 0) {
                 logger.info("Deleted ward with department code: {} and ward number: {}",
                         departmentCode, wardNumber);
+                changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.WARD, ChangeEvent.Operation.DELETE,
+                        ChangeEvent.wardKey(departmentCode, wardNumber), null);
                 return true;
             } else {
                 logger.warn("No ward found with department code: {} and ward number: {}",
@@ -197,17 +262,17 @@ public class WardDAO {
      * @return A list of wards in the specified department
      */
     public List<Ward> findByDepartment(String departmentCode) {
-        String sql = "SELECT * FROM Ward WHERE department_code = ? ORDER BY ward_number";
+        String sql = "SELECT " + WardMapper.COLUMNS + " FROM Ward WHERE department_code = ? ORDER BY ward_number";
         List<Ward> wards = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, departmentCode);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Ward ward = mapResultSetToWard(rs);
+                    Ward ward = WardMapper.read(rs);
                     wards.add(ward);
                 }
             }
@@ -227,17 +292,17 @@ public class WardDAO {
      * @return A list of wards supervised by the specified nurse
      */
     public List<Ward> findBySupervisor(int supervisorId) {
-        String sql = "SELECT * FROM Ward WHERE supervisor_id = ? ORDER BY department_code, ward_number";
+        String sql = "SELECT " + WardMapper.COLUMNS + " FROM Ward WHERE supervisor_id = ? ORDER BY department_code, ward_number";
         List<Ward> wards = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, supervisorId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Ward ward = mapResultSetToWard(rs);
+                    Ward ward = WardMapper.read(rs);
                     wards.add(ward);
                 }
             }
@@ -251,30 +316,19 @@ public class WardDAO {
     }
 
     /**
-     * Helper method to map a ResultSet row to a Ward object.
-     *
-     * @param rs The ResultSet containing ward data
-     * @return A new Ward object with data from the ResultSet
-     * @throws SQLException If a database access error occurs
+     * Publishes a ward update. A ward whose department or number changed is published as the
+     * removal of the old key and the insertion of the new one.
      */
-    private Ward mapResultSetToWard(ResultSet rs) throws SQLException {
-        Ward ward = new Ward();
-        ward.setDepartmentCode(rs.getString("department_code"));
-        ward.setWardNumber(rs.getInt("ward_number"));
-        ward.setBedCount(rs.getInt("bed_count"));
-        ward.setSupervisorId(rs.getInt("supervisor_id"));
-
-        // Convert SQL timestamps to LocalDateTime
-        Timestamp createdAt = rs.getTimestamp("created_at");
-        if (createdAt != null) {
-            ward.setCreatedAt(createdAt.toLocalDateTime());
-        }
-
-        Timestamp updatedAt = rs.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            ward.setUpdatedAt(updatedAt.toLocalDateTime());
+    private void publishWardUpdate(String originalDepartmentCode, int originalWardNumber, Ward ward) {
+        String originalKey = ChangeEvent.wardKey(originalDepartmentCode, originalWardNumber);
+        String key = ChangeEvent.wardKey(ward.getDepartmentCode(), ward.getWardNumber());
+        if (key.equals(originalKey)) {
+            changeFeed.publishAfterCommit(dbConnection, ChangeEvent.Entity.WARD, ChangeEvent.Operation.UPDATE,
+                    key, ward);
+        } else {
+            changeFeed.publishAfterCommit(dbConnection, Arrays.asList(
+                    new ChangeEvent(ChangeEvent.Entity.WARD, ChangeEvent.Operation.DELETE, originalKey, null),
+                    new ChangeEvent(ChangeEvent.Entity.WARD, ChangeEvent.Operation.INSERT, key, ward)));
         }
-
-        return ward;
     }
 }
\ No newline at end of file
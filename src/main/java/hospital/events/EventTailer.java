@@ -0,0 +1,153 @@
+package main.java.hospital.events;
+
+import main.java.hospital.dao.DataAccessException;
+import main.java.hospital.dao.DatabaseConfig;
+import main.java.hospital.dao.ErrorCapture;
+import main.java.hospital.dao.HospitalizationEventDAO;
+import main.java.hospital.model.HospitalizationEvent;
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows the lifecycle log from a position and hands new events to a consumer in batches,
+ * so consumers can keep derived state current without rescanning the tables.
+ *
+ * <p>Event IDs are assigned when a row is inserted, not when its transaction commits, so an
+ * event can become visible after a later one. When the tailer sees a gap in the IDs it stops
+ * before it and waits up to {@code db.events.gapTimeoutMillis} for the missing event; after
+ * that the gap is taken to be a rolled-back transaction and skipped. An event committed
+ * later than that is missed.
+ *
+ * <p>If the consumer throws, the batch is offered again on the next poll.
+ */
+public class EventTailer {
+    private static final Logger logger = LogManager.getLogger(EventTailer.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final HospitalizationEventDAO eventDAO;
+    private final Consumer<List<HospitalizationEvent>> consumer;
+    private final long pollMillis;
+    private final long gapTimeoutMillis;
+    private volatile long position;
+    private long gapSince;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a tailer.
+     *
+     * @param afterEventId The last event already seen, e.g. {@link LifecycleState#getLastEventId()}
+     * @param consumer     Receives each batch of new events, oldest first
+     */
+    public EventTailer(long afterEventId, Consumer<List<HospitalizationEvent>> consumer) {
+        this.eventDAO = new HospitalizationEventDAO();
+        this.consumer = consumer;
+        this.position = afterEventId;
+        this.pollMillis = DatabaseConfig.getInstance().getInt("db.events.pollMillis", 1000);
+        this.gapTimeoutMillis = DatabaseConfig.getInstance().getInt("db.events.gapTimeoutMillis", 5000);
+    }
+
+    /**
+     * Starts polling in the background.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(ConcurrencyUtils.daemonThreadFactory("event-tailer"));
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, 0, pollMillis, TimeUnit.MILLISECONDS);
+        logger.info("Tailing hospitalization events after {} every {} ms", position, pollMillis);
+    }
+
+    /**
+     * Stops polling. A batch being delivered is allowed to finish.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            logger.info("Stopped tailing hospitalization events at {}", position);
+        }
+    }
+
+    /**
+     * Gets the last event delivered.
+     *
+     * @return The log position
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Delivers the events committed since the last poll.
+     *
+     * @return The number of events delivered
+     * @throws DataAccessException If the log cannot be read
+     */
+    public synchronized int poll() {
+        int delivered = 0;
+        while (true) {
+            long after = position;
+            List<HospitalizationEvent> events = ErrorCapture.call(() -> eventDAO.findAfter(after, BATCH_SIZE));
+            List<HospitalizationEvent> batch = contiguousPrefix(events, after);
+            if (batch.isEmpty()) {
+                return delivered;
+            }
+
+            try {
+                consumer.accept(batch);
+            } catch (RuntimeException e) {
+                logger.error("Event consumer failed, retrying after event {}", after, e);
+                return delivered;
+            }
+            position = batch.get(batch.size() - 1).getEventId();
+            delivered += batch.size();
+
+            // A short or gapped batch means we are caught up for now
+            if (batch.size() < BATCH_SIZE) {
+                return delivered;
+            }
+        }
+    }
+
+    /**
+     * Takes the events up to the first gap in the IDs, or past it once it has been open
+     * longer than the gap timeout.
+     */
+    private List<HospitalizationEvent> contiguousPrefix(List<HospitalizationEvent> events, long after) {
+        List<HospitalizationEvent> batch = new ArrayList<>(events.size());
+        long expected = after + 1;
+        for (HospitalizationEvent event : events) {
+            if (event.getEventId() != expected) {
+                long now = System.currentTimeMillis();
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < gapTimeoutMillis) {
+                    break;
+                }
+                logger.warn("Skipping missing hospitalization events {} to {}", expected, event.getEventId() - 1);
+            }
+            gapSince = 0;
+            batch.add(event);
+            expected = event.getEventId() + 1;
+        }
+        return batch;
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (DataAccessException e) {
+            logger.warn("Could not read hospitalization events, will retry", e);
+        }
+    }
+}
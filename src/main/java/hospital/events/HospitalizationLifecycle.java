@@ -0,0 +1,122 @@
+package main.java.hospital.events;
+
+import main.java.hospital.dao.DatabaseConfig;
+import main.java.hospital.dao.ErrorCapture;
+import main.java.hospital.dao.HospitalizationEventDAO;
+import main.java.hospital.model.HospitalizationEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rebuilds the current state of all hospitalizations from the lifecycle log.
+ * Replay starts from the latest snapshot and applies only the events after it; when more
+ * than {@code db.events.snapshotInterval} events had to be applied, a new snapshot is stored
+ * so the next replay is short again.
+ *
+ * <p>Because an event can become visible after a later one (see {@link EventTailer}), a
+ * snapshot never goes past a gap in the event IDs that may still fill in. A gap counts as
+ * settled once the event after it was recorded more than {@code db.events.gapTimeoutMillis}
+ * before the newest event, both by the database clock; the snapshot is then taken at the
+ * last event before the first unsettled gap.</p>
+ */
+public class HospitalizationLifecycle {
+    private static final Logger logger = LogManager.getLogger(HospitalizationLifecycle.class);
+    private static final int PAGE_SIZE = 10_000;
+
+    private final HospitalizationEventDAO eventDAO;
+    private final int snapshotInterval;
+    private final long gapTimeoutMillis;
+
+    /**
+     * Creates a lifecycle reader with the configured snapshot interval and gap timeout.
+     */
+    public HospitalizationLifecycle() {
+        this.eventDAO = new HospitalizationEventDAO();
+        this.snapshotInterval = DatabaseConfig.getInstance().getInt("db.events.snapshotInterval", 50_000);
+        this.gapTimeoutMillis = DatabaseConfig.getInstance().getInt("db.events.gapTimeoutMillis", 5000);
+    }
+
+    /**
+     * Rebuilds the state at the end of the log.
+     *
+     * @return The state, positioned at the last event
+     * @throws main.java.hospital.dao.DataAccessException If the log cannot be read
+     */
+    public LifecycleState replay() {
+        long start = System.nanoTime();
+        LifecycleState state = ErrorCapture.call(this::loadSnapshot);
+        long snapshotEventId = state.getLastEventId();
+        LocalDateTime settledBefore = ErrorCapture.call(eventDAO::findLastRecordedAt)
+                .map(last -> last.minus(gapTimeoutMillis, ChronoUnit.MILLIS))
+                .orElse(LocalDateTime.MIN);
+
+        int applied = 0;
+        boolean settled = true;
+        List<HospitalizationEvent> page;
+        do {
+            long after = state.getLastEventId();
+            page = ErrorCapture.call(() -> eventDAO.findAfter(after, PAGE_SIZE));
+            for (HospitalizationEvent event : page) {
+                if (settled && !isSettled(event, state.getLastEventId(), settledBefore)) {
+                    // Only the events before a gap that may still fill in are safe to snapshot
+                    settled = false;
+                    if (applied >= snapshotInterval) {
+                        snapshot(state);
+                    }
+                }
+                if (state.apply(event)) {
+                    applied++;
+                }
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        logger.info("Replayed {} events after snapshot {} into {} hospitalizations in {} ms",
+                applied, snapshotEventId, state.size(), (System.nanoTime() - start) / 1_000_000);
+
+        if (settled && applied >= snapshotInterval) {
+            snapshot(state);
+        }
+        return state;
+    }
+
+    /**
+     * Checks whether an event directly follows the position, or follows a gap that is too old
+     * to be an uncommitted transaction.
+     */
+    private static boolean isSettled(HospitalizationEvent event, long after, LocalDateTime settledBefore) {
+        return event.getEventId() == after + 1
+                || (event.getRecordedAt() != null && event.getRecordedAt().isBefore(settledBefore));
+    }
+
+    /**
+     * Stores a snapshot of a replayed state. The caller must make sure no event before the
+     * state's position can still become visible.
+     *
+     * @param state The state
+     * @return true if successful, false otherwise
+     */
+    public boolean snapshot(LifecycleState state) {
+        return eventDAO.saveSnapshot(new HospitalizationEventDAO.Snapshot(
+                state.getLastEventId(), state.size(), state.encode()));
+    }
+
+    private LifecycleState loadSnapshot() {
+        Optional<HospitalizationEventDAO.Snapshot> snapshot = eventDAO.findLatestSnapshot();
+        if (!snapshot.isPresent()) {
+            return new LifecycleState();
+        }
+        try {
+            return LifecycleState.decode(snapshot.get().getData());
+        } catch (IOException e) {
+            // A bad snapshot only costs time: the log itself is complete
+            logger.warn("Ignoring unreadable lifecycle snapshot at event {}", snapshot.get().getLastEventId(), e);
+            return new LifecycleState();
+        }
+    }
+}
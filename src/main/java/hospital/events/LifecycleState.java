@@ -0,0 +1,162 @@
+package main.java.hospital.events;
+
+import main.java.hospital.model.Hospitalization;
+import main.java.hospital.model.HospitalizationEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The current state of every hospitalization, rebuilt by applying lifecycle events in log
+ * order. Because each event carries the full post-change state, applying one is a single
+ * map write. Not thread-safe.
+ */
+public class LifecycleState {
+    private static final int FORMAT_VERSION = 1;
+    private static final long NO_DISCHARGE = Long.MIN_VALUE;
+
+    private final Map<Integer, Hospitalization> stays;
+    private long lastEventId;
+
+    /**
+     * Creates an empty state, positioned before the first event.
+     */
+    public LifecycleState() {
+        this(new HashMap<>(), 0);
+    }
+
+    private LifecycleState(Map<Integer, Hospitalization> stays, long lastEventId) {
+        this.stays = stays;
+        this.lastEventId = lastEventId;
+    }
+
+    /**
+     * Applies the next event of the log.
+     *
+     * @param event The event
+     * @return true if applied, false if it was at or before the current position
+     */
+    public boolean apply(HospitalizationEvent event) {
+        if (event.getEventId() <= lastEventId) {
+            return false;
+        }
+        if (event.getType() == HospitalizationEvent.Type.DELETE) {
+            stays.remove(event.getHospitalizationId());
+        } else {
+            stays.put(event.getHospitalizationId(), event.getState());
+        }
+        lastEventId = event.getEventId();
+        return true;
+    }
+
+    /**
+     * Gets the ID of the last event applied.
+     *
+     * @return The log position, 0 before the first event
+     */
+    public long getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * Gets the number of hospitalizations that exist at the current position.
+     *
+     * @return The number of hospitalizations
+     */
+    public int size() {
+        return stays.size();
+    }
+
+    /**
+     * Gets the state of one hospitalization.
+     *
+     * @param hospitalizationId The hospitalization ID
+     * @return The hospitalization, or empty if it does not exist at the current position
+     */
+    public Optional<Hospitalization> get(int hospitalizationId) {
+        return Optional.ofNullable(stays.get(hospitalizationId));
+    }
+
+    /**
+     * Gets all hospitalizations at the current position.
+     *
+     * @return An unmodifiable view of the hospitalizations
+     */
+    public Collection<Hospitalization> getAll() {
+        return Collections.unmodifiableCollection(stays.values());
+    }
+
+    /**
+     * Serializes the state into a compact gzip-compressed snapshot.
+     *
+     * @return The snapshot bytes
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(lastEventId);
+            out.writeInt(stays.size());
+            for (Hospitalization h : stays.values()) {
+                out.writeInt(h.getHospitalizationId());
+                out.writeInt(h.getPatientId());
+                out.writeUTF(h.getDepartmentCode());
+                out.writeInt(h.getWardNumber());
+                out.writeInt(h.getBedNumber());
+                out.writeUTF(h.getDiagnosis());
+                out.writeInt(h.getDoctorId());
+                out.writeLong(h.getAdmissionDate().toEpochDay());
+                out.writeLong(h.getDischargeDate() != null ? h.getDischargeDate().toEpochDay() : NO_DISCHARGE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode lifecycle state", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores a state from snapshot bytes.
+     *
+     * @param data The bytes written by {@link #encode()}
+     * @return The state, positioned at the snapshot's last event
+     * @throws IOException If the data is corrupt or of an unknown format
+     */
+    public static LifecycleState decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown lifecycle snapshot format: " + version);
+            }
+            long lastEventId = in.readLong();
+            int count = in.readInt();
+            Map<Integer, Hospitalization> stays = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                Hospitalization h = new Hospitalization();
+                h.setHospitalizationId(in.readInt());
+                h.setPatientId(in.readInt());
+                h.setDepartmentCode(in.readUTF());
+                h.setWardNumber(in.readInt());
+                h.setBedNumber(in.readInt());
+                h.setDiagnosis(in.readUTF());
+                h.setDoctorId(in.readInt());
+                h.setAdmissionDate(LocalDate.ofEpochDay(in.readLong()));
+                long discharge = in.readLong();
+                h.setDischargeDate(discharge != NO_DISCHARGE ? LocalDate.ofEpochDay(discharge) : null);
+                stays.put(h.getHospitalizationId(), h);
+            }
+            return new LifecycleState(stays, lastEventId);
+        }
+    }
+}
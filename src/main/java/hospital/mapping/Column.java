@@ -0,0 +1,50 @@
+package main.java.hospital.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a field of a {@link Table} class to a column. Columns are read in field order, through
+ * the field's setter.
+ *
+ * <p>Unless it is {@link #readOnly()}, the column is written from the field's getter on insert
+ * and update, and the class must declare a change flag for it named after the field in upper
+ * case, such as {@code FIRST_NAME} for {@code firstName}; updates write it only if
+ * {@code isChanged} reports that flag.</p>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Column {
+
+    /**
+     * The column name.
+     *
+     * @return The column name
+     */
+    String value();
+
+    /**
+     * Whether the column is part of the key that updates match the row on.
+     *
+     * @return true for a key column
+     */
+    boolean key() default false;
+
+    /**
+     * Whether the column holds the row version that updates check and increment.
+     * The version column is read only.
+     *
+     * @return true for the version column
+     */
+    boolean version() default false;
+
+    /**
+     * Whether the column is only read, because it is assigned by the database or bound
+     * separately by the DAO.
+     *
+     * @return true for a column the mapper never writes
+     */
+    boolean readOnly() default false;
+}
@@ -0,0 +1,412 @@
+package main.java.hospital.mapping;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Generates a row mapper for every {@link Table} class, so that the DAOs read and bind model
+ * objects through plain static calls, without reflection at runtime.
+ *
+ * <p>The mapper of a class {@code Patient} is the package-private class
+ * {@code main.java.hospital.dao.PatientMapper}, with:</p>
+ * <ul>
+ *   <li>{@code COLUMNS}, the columns read, in order;</li>
+ *   <li>{@code read(ResultSet)}, which maps a row of {@code COLUMNS} to a new object and marks
+ *       it clean;</li>
+ *   <li>{@code bind} and {@code readValues}, which bind and read the written columns from a
+ *       given parameter or column position, in the same order;</li>
+ *   <li>{@code hasUpdates}, {@code updateSql} and {@code bindUpdate}, for an UPDATE of only
+ *       the changed columns. A versioned table's version is incremented even if none
+ *       changed; the caller binds the key and version after the columns.</li>
+ * </ul>
+ *
+ * <p>Dates and timestamps are read and bound as {@code java.time} values through the driver,
+ * and null {@code Integer}, {@code Long} and date fields as SQL NULL.</p>
+ *
+ * <p>Run it with {@code javac -processorpath <dir> -processor main.java.hospital.mapping.MapperProcessor},
+ * after compiling this package into {@code <dir>}.</p>
+ */
+@SupportedAnnotationTypes({"main.java.hospital.mapping.Table", "main.java.hospital.mapping.Column"})
+public class MapperProcessor extends AbstractProcessor {
+    private static final String TARGET_PACKAGE = "main.java.hospital.dao";
+
+    /**
+     * How a column of one field type is read and bound.
+     */
+    private enum ValueType {
+        STRING("java.lang.String", "getString", "setString", null),
+        BIG_DECIMAL("java.math.BigDecimal", "getBigDecimal", "setBigDecimal", null),
+        INT("int", "getInt", "setInt", null),
+        LONG("long", "getLong", "setLong", null),
+        INTEGER("java.lang.Integer", "getInt", "setInt", "INTEGER"),
+        LONG_OBJECT("java.lang.Long", "getLong", "setLong", "BIGINT"),
+        LOCAL_DATE("java.time.LocalDate", null, "setObject", "DATE"),
+        LOCAL_DATE_TIME("java.time.LocalDateTime", null, "setObject", "TIMESTAMP");
+
+        final String typeName;
+        final String getter;
+        final String setter;
+        // The java.sql.Types constant bound for null, for the types whose setter cannot take null
+        final String sqlType;
+
+        ValueType(String typeName, String getter, String setter, String sqlType) {
+            this.typeName = typeName;
+            this.getter = getter;
+            this.setter = setter;
+            this.sqlType = sqlType;
+        }
+
+        static ValueType of(TypeMirror type) {
+            for (ValueType valueType : values()) {
+                if (valueType.typeName.equals(type.toString())) {
+                    return valueType;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A {@link Column} field.
+     */
+    private static final class Field {
+        final VariableElement element;
+        final String name;
+        final String column;
+        final ValueType type;
+        final boolean key;
+        final boolean version;
+        final boolean written;
+        final String flag;
+
+        Field(VariableElement element, Column column, String alias, ValueType type) {
+            this.element = element;
+            this.name = element.getSimpleName().toString();
+            this.column = alias.isEmpty() ? column.value() : alias + "." + column.value();
+            this.type = type;
+            this.key = column.key();
+            this.version = column.version();
+            this.written = !column.readOnly() && !column.version();
+            this.flag = name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+        }
+
+        String getter() {
+            return "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        String setter() {
+            return "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    private boolean failed;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(Table.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@Table applies to classes only");
+                continue;
+            }
+            generate((TypeElement) element);
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        failed = false;
+
+        // The joined tables, from the root class down to this one
+        List<TypeElement> tables = new ArrayList<>();
+        for (TypeElement t = type; t != null; t = superclass(t)) {
+            if (t.getAnnotation(Table.class) != null) {
+                tables.add(t);
+            }
+        }
+        Collections.reverse(tables);
+
+        List<Field> read = new ArrayList<>();
+        List<Field> own = new ArrayList<>();
+        List<Field> keys = new ArrayList<>();
+        for (TypeElement table : tables) {
+            String alias = table.getAnnotation(Table.class).alias();
+            if (tables.size() > 1 && alias.isEmpty()) {
+                error(table, "@Table of a joined class needs an alias");
+            }
+            List<Field> declared = fields(table, tables.size() > 1 ? alias : "");
+            read.addAll(declared);
+
+            List<Field> tableKeys = new ArrayList<>();
+            for (Field field : declared) {
+                if (field.key) {
+                    tableKeys.add(field);
+                }
+            }
+            // A joined table without a key of its own shares its parent's
+            if (!tableKeys.isEmpty()) {
+                keys = tableKeys;
+            }
+            if (table == type) {
+                own = declared;
+            }
+        }
+        if (keys.isEmpty()) {
+            error(type, "No @Column is a key");
+        }
+
+        List<Field> written = new ArrayList<>();
+        Field version = null;
+        for (Field field : own) {
+            if (field.written) {
+                written.add(field);
+                checkFlag(type, field);
+            }
+            if (field.version) {
+                version = field;
+            }
+        }
+        for (Field field : read) {
+            checkAccessor(type, field, field.setter(), 1);
+            if (field.written) {
+                checkAccessor(type, field, field.getter(), 0);
+            }
+        }
+        checkAccessor(type, null, "markClean", 0);
+
+        if (!failed) {
+            write(type, read, written, keys, version);
+        }
+    }
+
+    private List<Field> fields(TypeElement table, String alias) {
+        List<Field> fields = new ArrayList<>();
+        for (VariableElement element : ElementFilter.fieldsIn(table.getEnclosedElements())) {
+            Column column = element.getAnnotation(Column.class);
+            if (column == null) {
+                continue;
+            }
+            ValueType type = ValueType.of(element.asType());
+            if (type == null) {
+                error(element, "Unsupported @Column type " + element.asType());
+                continue;
+            }
+            if (column.version() && (column.key() || type != ValueType.INT)) {
+                error(element, "The version @Column must be an int and not a key");
+                continue;
+            }
+            fields.add(new Field(element, column, alias, type));
+        }
+        return fields;
+    }
+
+    private void checkFlag(TypeElement type, Field field) {
+        for (VariableElement member : ElementFilter.fieldsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (member.getSimpleName().contentEquals(field.flag)
+                    && member.getModifiers().contains(Modifier.STATIC)
+                    && member.asType().getKind() == TypeKind.INT) {
+                return;
+            }
+        }
+        error(field.element, "No change flag " + field.flag + " for a written @Column");
+    }
+
+    private void checkAccessor(TypeElement type, Field field, String name, int parameters) {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                    && method.getModifiers().contains(Modifier.PUBLIC)) {
+                return;
+            }
+        }
+        error(field != null ? field.element : type, "No public " + name + " method for the mapper");
+    }
+
+    private void write(TypeElement type, List<Field> read, List<Field> written, List<Field> keys, Field version) {
+        String model = type.getSimpleName().toString();
+        String mapper = model + "Mapper";
+
+        StringJoiner columns = new StringJoiner(", ");
+        for (Field field : read) {
+            columns.add(field.column);
+        }
+        StringJoiner where = new StringJoiner(" AND ");
+        for (Field field : keys) {
+            where.add(unqualified(field.column) + " = ?");
+        }
+        if (version != null) {
+            where.add(unqualified(version.column) + " = ?");
+        }
+        String table = type.getAnnotation(Table.class).value();
+
+        try (PrintWriter out = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(TARGET_PACKAGE + "." + mapper, type).openWriter())) {
+            out.println("package " + TARGET_PACKAGE + ";");
+            out.println();
+            out.println("import " + type.getQualifiedName() + ";");
+            out.println();
+            out.println("import java.sql.PreparedStatement;");
+            out.println("import java.sql.ResultSet;");
+            out.println("import java.sql.SQLException;");
+            for (Field field : written) {
+                if (field.type.sqlType != null) {
+                    out.println("import java.sql.Types;");
+                    break;
+                }
+            }
+            out.println();
+            out.println("/**");
+            out.println(" * The row mapper of {@link " + model + "}, generated by {@code " + MapperProcessor.class.getName()
+                    + "} from its {@code @Column} fields.");
+            out.println(" */");
+            out.println("final class " + mapper + " {");
+            out.println();
+            out.println("    /** The columns read by {@link #read(ResultSet)}, in order. */");
+            out.println("    static final String COLUMNS = \"" + columns + "\";");
+            out.println();
+            out.println("    private " + mapper + "() {");
+            out.println("    }");
+            out.println();
+
+            out.println("    static " + model + " read(ResultSet rs) throws SQLException {");
+            out.println("        " + model + " row = new " + model + "();");
+            for (int i = 0; i < read.size(); i++) {
+                readField(out, read.get(i), String.valueOf(i + 1));
+            }
+            out.println("        row.markClean();");
+            out.println("        return row;");
+            out.println("    }");
+            out.println();
+
+            out.println("    static void readValues(ResultSet rs, int first, " + model + " row) throws SQLException {");
+            for (int i = 0; i < written.size(); i++) {
+                readField(out, written.get(i), position(i));
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    static int bind(PreparedStatement stmt, int first, " + model + " row) throws SQLException {");
+            for (int i = 0; i < written.size(); i++) {
+                bindField(out, written.get(i), position(i), "        ");
+            }
+            out.println("        return first + " + written.size() + ";");
+            out.println("    }");
+            out.println();
+
+            out.println("    static boolean hasUpdates(" + model + " row) {");
+            StringJoiner changed = new StringJoiner("\n                || ");
+            for (Field field : written) {
+                changed.add("row.isChanged(" + model + "." + field.flag + ")");
+            }
+            out.println("        return " + (written.isEmpty() ? "false" : changed.toString()) + ";");
+            out.println("    }");
+            out.println();
+
+            out.println("    static String updateSql(" + model + " row) {");
+            out.println("        StringBuilder sql = new StringBuilder(\"UPDATE " + table + " SET \");");
+            out.println("        String separator = \"\";");
+            for (Field field : written) {
+                out.println("        if (row.isChanged(" + model + "." + field.flag + ")) {");
+                out.println("            sql.append(separator).append(\"" + unqualified(field.column) + " = ?\");");
+                out.println("            separator = \", \";");
+                out.println("        }");
+            }
+            if (version != null) {
+                String column = unqualified(version.column);
+                out.println("        sql.append(separator).append(\"" + column + " = " + column + " + 1\");");
+            }
+            out.println("        return sql.append(\" WHERE " + where + "\").toString();");
+            out.println("    }");
+            out.println();
+
+            out.println("    static int bindUpdate(PreparedStatement stmt, " + model + " row) throws SQLException {");
+            out.println("        int position = 1;");
+            for (Field field : written) {
+                out.println("        if (row.isChanged(" + model + "." + field.flag + ")) {");
+                bindField(out, field, "position", "            ");
+                out.println("            position++;");
+                out.println("        }");
+            }
+            out.println("        return position;");
+            out.println("    }");
+            out.println("}");
+        } catch (IOException e) {
+            error(type, "Cannot write " + mapper + ": " + e.getMessage());
+        }
+    }
+
+    private static void readField(PrintWriter out, Field field, String position) {
+        String setter = "row." + field.setter();
+        switch (field.type) {
+            case INTEGER:
+            case LONG_OBJECT:
+                String local = field.type == ValueType.INTEGER ? "int" : "long";
+                out.println("        " + local + " " + field.name + " = rs." + field.type.getter + "(" + position + ");");
+                out.println("        " + setter + "(rs.wasNull() ? null : " + field.name + ");");
+                break;
+            case LOCAL_DATE:
+            case LOCAL_DATE_TIME:
+                out.println("        " + setter + "(rs.getObject(" + position + ", " + field.type.typeName + ".class));");
+                break;
+            default:
+                out.println("        " + setter + "(rs." + field.type.getter + "(" + position + "));");
+                break;
+        }
+    }
+
+    private static void bindField(PrintWriter out, Field field, String position, String indent) {
+        String value = "row." + field.getter() + "()";
+        if (field.type.sqlType == null) {
+            out.println(indent + "stmt." + field.type.setter + "(" + position + ", " + value + ");");
+        } else {
+            out.println(indent + "if (" + value + " != null) {");
+            out.println(indent + "    stmt." + field.type.setter + "(" + position + ", " + value + ");");
+            out.println(indent + "} else {");
+            out.println(indent + "    stmt.setNull(" + position + ", Types." + field.type.sqlType + ");");
+            out.println(indent + "}");
+        }
+    }
+
+    private static String position(int offset) {
+        return offset == 0 ? "first" : "first + " + offset;
+    }
+
+    private static String unqualified(String column) {
+        return column.substring(column.indexOf('.') + 1);
+    }
+
+    private static TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED
+                ? (TypeElement) ((DeclaredType) superclass).asElement()
+                : null;
+    }
+
+    private void error(Element element, String message) {
+        failed = true;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
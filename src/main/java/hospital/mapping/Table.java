@@ -0,0 +1,34 @@
+package main.java.hospital.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class as the row of a table, for {@link MapperProcessor} to generate its
+ * mapper from the {@link Column} fields.
+ *
+ * <p>A model class extending another {@code @Table} class is read from a join of the two
+ * tables on the parent's key: its mapper reads the parent's columns and then its own, and
+ * binds and updates only its own.</p>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Table {
+
+    /**
+     * The table name.
+     *
+     * @return The table name
+     */
+    String value();
+
+    /**
+     * The alias the table has in the joins that read a subclass. Its columns are qualified
+     * with it in the subclass's column list.
+     *
+     * @return The alias, or an empty string if the table is never joined
+     */
+    String alias() default "";
+}
@@ -1,18 +1,36 @@
 package main.java.hospital.model;
 
+import main.java.hospital.mapping.Column;
+import main.java.hospital.mapping.Table;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 /**
  * Represents a department in the HealthTrack System.
  */
+@Table("Department")
 public class Department {
+    /** Flags for {@link #isChanged(int)}, one per column an update can write. */
+    public static final int NAME = 1 << 0;
+    public static final int BUILDING = 1 << 1;
+    public static final int DIRECTOR_ID = 1 << 2;
+
+    @Column(value = "department_code", key = true, readOnly = true)
     private String departmentCode;
+    @Column("name")
     private String name;
+    @Column("building")
     private String building;
+    @Column("director_id")
     private Integer directorId;
     private LocalDateTime createdAt;
+    @Column(value = "updated_at", readOnly = true)
     private LocalDateTime updatedAt;
+    @Column(value = "version", version = true)
+    private int version;
+    // New objects are entirely changed; read and saved ones are marked clean
+    private int changedFields = ~0;
 
     /**
      * Default constructor
@@ -55,6 +73,23 @@ public class Department {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Copy constructor. The copy has the same version and changed fields as the original,
+     * so edits made to it are tracked against the same database row.
+     *
+     * @param department The department to copy
+     */
+    public Department(Department department) {
+        this.departmentCode = department.departmentCode;
+        this.name = department.name;
+        this.building = department.building;
+        this.directorId = department.directorId;
+        this.createdAt = department.createdAt;
+        this.updatedAt = department.updatedAt;
+        this.version = department.version;
+        this.changedFields = department.changedFields;
+    }
+
     /**
      * Gets the department's code.
      *
@@ -88,6 +123,9 @@ public class Department {
      * @param name The department name
      */
     public void setName(String name) {
+        if (!Objects.equals(this.name, name)) {
+            changedFields |= NAME;
+        }
         this.name = name;
     }
 
@@ -106,6 +144,9 @@ public class Department {
      * @param building The building name
      */
     public void setBuilding(String building) {
+        if (!Objects.equals(this.building, building)) {
+            changedFields |= BUILDING;
+        }
         this.building = building;
     }
 
@@ -124,6 +165,9 @@ public class Department {
      * @param directorId The director's employee ID
      */
     public void setDirectorId(Integer directorId) {
+        if (!Objects.equals(this.directorId, directorId)) {
+            changedFields |= DIRECTOR_ID;
+        }
         this.directorId = directorId;
     }
 
@@ -163,6 +207,47 @@ public class Department {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Get the row version this object was read at. Updates succeed only if the row is still
+     * at this version.
+     *
+     * @return The row version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Checks whether a field was changed since the object was read from the database.
+     * Objects not read from the database count as entirely changed.
+     *
+     * @param field A field flag, such as {@link #NAME}
+     * @return true if the field must be written on update
+     */
+    public boolean isChanged(int field) {
+        return (changedFields & field) != 0;
+    }
+
+    /**
+     * Checks whether any field was changed since the object was read from the database.
+     *
+     * @return true if an update has anything to write
+     */
+    public boolean hasChanges() {
+        return changedFields != 0;
+    }
+
+    /**
+     * Marks the object as matching its database row, once it has been read or saved.
+     */
+    public void markClean() {
+        changedFields = 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
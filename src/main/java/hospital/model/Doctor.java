@@ -1,5 +1,8 @@
 package main.java.hospital.model;
 
+import main.java.hospital.mapping.Column;
+import main.java.hospital.mapping.Table;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -7,7 +10,12 @@ import java.util.Objects;
  * Represents a doctor in the HealthTrack System.
  * Extends the Employee class.
  */
+@Table(value = "Doctor", alias = "d")
 public class Doctor extends Employee {
+    /** Flags for {@link #isChanged(int)}, following those of {@link Employee}. */
+    public static final int SPECIALITY = 1 << 4;
+
+    @Column("speciality")
     private String speciality;
 
     /**
@@ -49,6 +57,17 @@ public class Doctor extends Employee {
         this.speciality = speciality;
     }
 
+    /**
+     * Copy constructor. The copy has the same version and changed fields as the original,
+     * so edits made to it are tracked against the same database row.
+     *
+     * @param doctor The doctor to copy
+     */
+    public Doctor(Doctor doctor) {
+        super(doctor);
+        this.speciality = doctor.speciality;
+    }
+
     /**
      * Gets the doctor's speciality.
      *
@@ -64,6 +83,9 @@ public class Doctor extends Employee {
      * @param speciality The doctor's speciality
      */
     public void setSpeciality(String speciality) {
+        if (!Objects.equals(this.speciality, speciality)) {
+            markChanged(SPECIALITY);
+        }
         this.speciality = speciality;
     }
 
@@ -1,5 +1,8 @@
 package main.java.hospital.model;
 
+import main.java.hospital.mapping.Column;
+import main.java.hospital.mapping.Table;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -7,14 +10,31 @@ import java.util.Objects;
  * Represents an employee in the HealthTrack System.
  * This is the base class for Doctor and Nurse.
  */
+@Table(value = "Employee", alias = "e")
 public class Employee {
+    /** Flags for {@link #isChanged(int)}, one per column an update can write. */
+    public static final int FIRST_NAME = 1 << 0;
+    public static final int SURNAME = 1 << 1;
+    public static final int ADDRESS = 1 << 2;
+    public static final int PHONE = 1 << 3;
+
+    @Column(value = "employee_id", key = true, readOnly = true)
     private Integer employeeId;
+    @Column("first_name")
     private String firstName;
+    @Column("surname")
     private String surname;
+    @Column("address")
     private String address;
+    @Column("phone")
     private String phone;
     private LocalDateTime createdAt;
+    @Column(value = "updated_at", readOnly = true)
     private LocalDateTime updatedAt;
+    @Column(value = "version", version = true)
+    private int version;
+    // New objects are entirely changed; read and saved ones are marked clean
+    private int changedFields = ~0;
 
     /**
      * Default constructor
@@ -59,6 +79,24 @@ public class Employee {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Copy constructor. The copy has the same version and changed fields as the original,
+     * so edits made to it are tracked against the same database row.
+     *
+     * @param employee The employee to copy
+     */
+    public Employee(Employee employee) {
+        this.employeeId = employee.employeeId;
+        this.firstName = employee.firstName;
+        this.surname = employee.surname;
+        this.address = employee.address;
+        this.phone = employee.phone;
+        this.createdAt = employee.createdAt;
+        this.updatedAt = employee.updatedAt;
+        this.version = employee.version;
+        this.changedFields = employee.changedFields;
+    }
+
     // Getters and Setters
     public Integer getEmployeeId() {
         return employeeId;
@@ -73,6 +111,9 @@ public class Employee {
     }
 
     public void setFirstName(String firstName) {
+        if (!Objects.equals(this.firstName, firstName)) {
+            changedFields |= FIRST_NAME;
+        }
         this.firstName = firstName;
     }
 
@@ -81,6 +122,9 @@ public class Employee {
     }
 
     public void setSurname(String surname) {
+        if (!Objects.equals(this.surname, surname)) {
+            changedFields |= SURNAME;
+        }
         this.surname = surname;
     }
 
@@ -89,6 +133,9 @@ public class Employee {
     }
 
     public void setAddress(String address) {
+        if (!Objects.equals(this.address, address)) {
+            changedFields |= ADDRESS;
+        }
         this.address = address;
     }
 
@@ -97,6 +144,9 @@ public class Employee {
     }
 
     public void setPhone(String phone) {
+        if (!Objects.equals(this.phone, phone)) {
+            changedFields |= PHONE;
+        }
         this.phone = phone;
     }
 
@@ -116,6 +166,20 @@ public class Employee {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Get the row version this object was read at. Updates succeed only if the row is still
+     * at this version.
+     *
+     * @return The row version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Returns the full name of the employee.
      *
@@ -125,6 +189,42 @@ public class Employee {
         return firstName + " " + surname;
     }
 
+    /**
+     * Checks whether a field was changed since the object was read from the database.
+     * Objects not read from the database count as entirely changed.
+     *
+     * @param field A field flag, such as {@link #FIRST_NAME}
+     * @return true if the field must be written on update
+     */
+    public boolean isChanged(int field) {
+        return (changedFields & field) != 0;
+    }
+
+    /**
+     * Checks whether any field was changed since the object was read from the database.
+     *
+     * @return true if an update has anything to write
+     */
+    public boolean hasChanges() {
+        return changedFields != 0;
+    }
+
+    /**
+     * Marks the object as matching its database row, once it has been read or saved.
+     */
+    public void markClean() {
+        changedFields = 0;
+    }
+
+    /**
+     * Records that fields were changed; for the setters of subclasses.
+     *
+     * @param fields The field flags
+     */
+    protected void markChanged(int fields) {
+        changedFields |= fields;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,5 +1,8 @@
 package main.java.hospital.model;
 
+import main.java.hospital.mapping.Column;
+import main.java.hospital.mapping.Table;
+
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Objects;
@@ -8,18 +11,43 @@ import java.util.Objects;
  * Represents a patient hospitalization in the HealthTrack System.
  * Tracks a patient's stay in a specific ward and their treatment by a doctor.
  */
+@Table("Hospitalization")
 public class Hospitalization {
+    /** Flags for {@link #isChanged(int)}, one per column an update can write. */
+    public static final int PATIENT_ID = 1 << 0;
+    public static final int DEPARTMENT_CODE = 1 << 1;
+    public static final int WARD_NUMBER = 1 << 2;
+    public static final int BED_NUMBER = 1 << 3;
+    public static final int DIAGNOSIS = 1 << 4;
+    public static final int DOCTOR_ID = 1 << 5;
+    public static final int ADMISSION_DATE = 1 << 6;
+    public static final int DISCHARGE_DATE = 1 << 7;
+
+    @Column(value = "hospitalization_id", key = true, readOnly = true)
     private Integer hospitalizationId;
+    @Column("patient_id")
     private Integer patientId;
+    @Column("department_code")
     private String departmentCode;
+    @Column("ward_number")
     private Integer wardNumber;
+    @Column("bed_number")
     private Integer bedNumber;
+    @Column("diagnosis")
     private String diagnosis;
+    @Column("doctor_id")
     private Integer doctorId;
+    @Column("admission_date")
     private LocalDate admissionDate;
+    @Column("discharge_date")
     private LocalDate dischargeDate;
     private LocalDateTime createdAt;
+    @Column(value = "updated_at", readOnly = true)
     private LocalDateTime updatedAt;
+    @Column(value = "version", version = true)
+    private int version;
+    // New objects are entirely changed; read and saved ones are marked clean
+    private int changedFields = ~0;
 
     /**
      * Default constructor
@@ -82,6 +110,28 @@ public class Hospitalization {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Copy constructor. The copy has the same version and changed fields as the original,
+     * so edits made to it are tracked against the same database row.
+     *
+     * @param hospitalization The hospitalization to copy
+     */
+    public Hospitalization(Hospitalization hospitalization) {
+        this.hospitalizationId = hospitalization.hospitalizationId;
+        this.patientId = hospitalization.patientId;
+        this.departmentCode = hospitalization.departmentCode;
+        this.wardNumber = hospitalization.wardNumber;
+        this.bedNumber = hospitalization.bedNumber;
+        this.diagnosis = hospitalization.diagnosis;
+        this.doctorId = hospitalization.doctorId;
+        this.admissionDate = hospitalization.admissionDate;
+        this.dischargeDate = hospitalization.dischargeDate;
+        this.createdAt = hospitalization.createdAt;
+        this.updatedAt = hospitalization.updatedAt;
+        this.version = hospitalization.version;
+        this.changedFields = hospitalization.changedFields;
+    }
+
     /**
      * Gets the hospitalization ID.
      *
@@ -115,6 +165,9 @@ public class Hospitalization {
      * @param patientId The patient ID
      */
     public void setPatientId(Integer patientId) {
+        if (!Objects.equals(this.patientId, patientId)) {
+            changedFields |= PATIENT_ID;
+        }
         this.patientId = patientId;
     }
 
@@ -133,6 +186,9 @@ public class Hospitalization {
      * @param departmentCode The department code
      */
     public void setDepartmentCode(String departmentCode) {
+        if (!Objects.equals(this.departmentCode, departmentCode)) {
+            changedFields |= DEPARTMENT_CODE;
+        }
         this.departmentCode = departmentCode;
     }
 
@@ -151,6 +207,9 @@ public class Hospitalization {
      * @param wardNumber The ward number
      */
     public void setWardNumber(Integer wardNumber) {
+        if (!Objects.equals(this.wardNumber, wardNumber)) {
+            changedFields |= WARD_NUMBER;
+        }
         this.wardNumber = wardNumber;
     }
 
@@ -169,6 +228,9 @@ public class Hospitalization {
      * @param bedNumber The bed number
      */
     public void setBedNumber(Integer bedNumber) {
+        if (!Objects.equals(this.bedNumber, bedNumber)) {
+            changedFields |= BED_NUMBER;
+        }
         this.bedNumber = bedNumber;
     }
 
@@ -187,6 +249,9 @@ public class Hospitalization {
      * @param diagnosis The diagnosis
      */
     public void setDiagnosis(String diagnosis) {
+        if (!Objects.equals(this.diagnosis, diagnosis)) {
+            changedFields |= DIAGNOSIS;
+        }
         this.diagnosis = diagnosis;
     }
 
@@ -205,6 +270,9 @@ public class Hospitalization {
      * @param doctorId The doctor ID
      */
     public void setDoctorId(Integer doctorId) {
+        if (!Objects.equals(this.doctorId, doctorId)) {
+            changedFields |= DOCTOR_ID;
+        }
         this.doctorId = doctorId;
     }
 
@@ -223,6 +291,9 @@ public class Hospitalization {
      * @param admissionDate The admission date
      */
     public void setAdmissionDate(LocalDate admissionDate) {
+        if (!Objects.equals(this.admissionDate, admissionDate)) {
+            changedFields |= ADMISSION_DATE;
+        }
         this.admissionDate = admissionDate;
     }
 
@@ -241,6 +312,9 @@ public class Hospitalization {
      * @param dischargeDate The discharge date (null if still hospitalized)
      */
     public void setDischargeDate(LocalDate dischargeDate) {
+        if (!Objects.equals(this.dischargeDate, dischargeDate)) {
+            changedFields |= DISCHARGE_DATE;
+        }
         this.dischargeDate = dischargeDate;
     }
 
@@ -280,6 +354,20 @@ public class Hospitalization {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Get the row version this object was read at. Updates succeed only if the row is still
+     * at this version.
+     *
+     * @return The row version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Checks if the patient is currently hospitalized.
      *
@@ -298,6 +386,33 @@ public class Hospitalization {
         return departmentCode + "-" + wardNumber;
     }
 
+    /**
+     * Checks whether a field was changed since the object was read from the database.
+     * Objects not read from the database count as entirely changed.
+     *
+     * @param field A field flag, such as {@link #PATIENT_ID}
+     * @return true if the field must be written on update
+     */
+    public boolean isChanged(int field) {
+        return (changedFields & field) != 0;
+    }
+
+    /**
+     * Checks whether any field was changed since the object was read from the database.
+     *
+     * @return true if an update has anything to write
+     */
+    public boolean hasChanges() {
+        return changedFields != 0;
+    }
+
+    /**
+     * Marks the object as matching its database row, once it has been read or saved.
+     */
+    public void markClean() {
+        changedFields = 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
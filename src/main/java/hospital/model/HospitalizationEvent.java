@@ -0,0 +1,129 @@
+package main.java.hospital.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * An entry in the append-only hospitalization lifecycle log.
+ * Every event carries the full state of the hospitalization after the change (for a
+ * deletion, the last state before it), so replaying the log only needs the latest event
+ * of each hospitalization.
+ */
+public class HospitalizationEvent {
+
+    /**
+     * The kinds of lifecycle change.
+     */
+    public enum Type {
+        /** The patient was admitted. */
+        ADMIT,
+        /** The patient moved to another ward or bed. */
+        TRANSFER,
+        /** Another doctor took over the patient. */
+        CHANGE_DOCTOR,
+        /** The patient was discharged. */
+        DISCHARGE,
+        /** Other details, such as the diagnosis or dates, were corrected. */
+        CORRECT,
+        /** The hospitalization record was deleted. */
+        DELETE
+    }
+
+    private long eventId;
+    private Type type;
+    private LocalDate eventDate;
+    private Hospitalization state;
+    private LocalDateTime recordedAt;
+
+    /**
+     * Default constructor
+     */
+    public HospitalizationEvent() {
+    }
+
+    /**
+     * Constructor for a new event
+     *
+     * @param type      The kind of change
+     * @param eventDate The date the change took effect
+     * @param state     The hospitalization after the change
+     */
+    public HospitalizationEvent(Type type, LocalDate eventDate, Hospitalization state) {
+        this.type = type;
+        this.eventDate = eventDate;
+        this.state = state;
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public LocalDate getEventDate() {
+        return eventDate;
+    }
+
+    public void setEventDate(LocalDate eventDate) {
+        this.eventDate = eventDate;
+    }
+
+    public Hospitalization getState() {
+        return state;
+    }
+
+    public void setState(Hospitalization state) {
+        this.state = state;
+    }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    /**
+     * Gets the ID of the hospitalization the event belongs to.
+     *
+     * @return The hospitalization ID
+     */
+    public Integer getHospitalizationId() {
+        return state != null ? state.getHospitalizationId() : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HospitalizationEvent that = (HospitalizationEvent) o;
+        return eventId == that.eventId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(eventId);
+    }
+
+    @Override
+    public String toString() {
+        return "HospitalizationEvent{" +
+                "eventId=" + eventId +
+                ", type=" + type +
+                ", eventDate=" + eventDate +
+                ", hospitalizationId=" + getHospitalizationId() +
+                '}';
+    }
+}
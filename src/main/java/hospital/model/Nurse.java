@@ -1,5 +1,8 @@
 package main.java.hospital.model;
 
+import main.java.hospital.mapping.Column;
+import main.java.hospital.mapping.Table;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Objects;
@@ -8,9 +11,18 @@ import java.util.Objects;
  * Represents a nurse in the HealthTrack System.
  * Extends the Employee class.
  */
+@Table(value = "Nurse", alias = "n")
 public class Nurse extends Employee {
+    /** Flags for {@link #isChanged(int)}, following those of {@link Employee}. */
+    public static final int ROTATION = 1 << 4;
+    public static final int SALARY = 1 << 5;
+    public static final int DEPARTMENT_CODE = 1 << 6;
+
+    @Column("rotation")
     private String rotation;
+    @Column("salary")
     private BigDecimal salary;
+    @Column("department_code")
     private String departmentCode;
 
     /**
@@ -62,6 +74,19 @@ public class Nurse extends Employee {
         this.departmentCode = departmentCode;
     }
 
+    /**
+     * Copy constructor. The copy has the same version and changed fields as the original,
+     * so edits made to it are tracked against the same database row.
+     *
+     * @param nurse The nurse to copy
+     */
+    public Nurse(Nurse nurse) {
+        super(nurse);
+        this.rotation = nurse.rotation;
+        this.salary = nurse.salary;
+        this.departmentCode = nurse.departmentCode;
+    }
+
     /**
      * Gets the nurse's rotation.
      *
@@ -77,6 +102,9 @@ public class Nurse extends Employee {
      * @param rotation The nurse's rotation
      */
     public void setRotation(String rotation) {
+        if (!Objects.equals(this.rotation, rotation)) {
+            markChanged(ROTATION);
+        }
         this.rotation = rotation;
     }
 
@@ -95,6 +123,9 @@ public class Nurse extends Employee {
      * @param salary The nurse's salary
      */
     public void setSalary(BigDecimal salary) {
+        if (!Objects.equals(this.salary, salary)) {
+            markChanged(SALARY);
+        }
         this.salary = salary;
     }
 
@@ -113,6 +144,9 @@ public class Nurse extends Employee {
      * @param departmentCode The department code
      */
     public void setDepartmentCode(String departmentCode) {
+        if (!Objects.equals(this.departmentCode, departmentCode)) {
+            markChanged(DEPARTMENT_CODE);
+        }
         this.departmentCode = departmentCode;
     }
 
@@ -1,19 +1,39 @@
 package main.java.hospital.model;
 
+import main.java.hospital.mapping.Column;
+import main.java.hospital.mapping.Table;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 /**
  * Represents a patient in the HealthTrack System.
  */
+@Table("Patient")
 public class Patient {
+    /** Flags for {@link #isChanged(int)}, one per column an update can write. */
+    public static final int FIRST_NAME = 1 << 0;
+    public static final int SURNAME = 1 << 1;
+    public static final int ADDRESS = 1 << 2;
+    public static final int PHONE = 1 << 3;
+
+    @Column(value = "patient_id", key = true, readOnly = true)
     private Integer patientId;
+    @Column("first_name")
     private String firstName;
+    @Column("surname")
     private String surname;
+    @Column("address")
     private String address;
+    @Column("phone")
     private String phone;
     private LocalDateTime createdAt;
+    @Column(value = "updated_at", readOnly = true)
     private LocalDateTime updatedAt;
+    @Column(value = "version", version = true)
+    private int version;
+    // New objects are entirely changed; read and saved ones are marked clean
+    private int changedFields = ~0;
 
     /**
      * Default constructor
@@ -58,6 +78,24 @@ public class Patient {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Copy constructor. The copy has the same version and changed fields as the original,
+     * so edits made to it are tracked against the same database row.
+     *
+     * @param patient The patient to copy
+     */
+    public Patient(Patient patient) {
+        this.patientId = patient.patientId;
+        this.firstName = patient.firstName;
+        this.surname = patient.surname;
+        this.address = patient.address;
+        this.phone = patient.phone;
+        this.createdAt = patient.createdAt;
+        this.updatedAt = patient.updatedAt;
+        this.version = patient.version;
+        this.changedFields = patient.changedFields;
+    }
+
     // Getters and Setters
     public Integer getPatientId() {
         return patientId;
@@ -72,6 +110,9 @@ public class Patient {
     }
 
     public void setFirstName(String firstName) {
+        if (!Objects.equals(this.firstName, firstName)) {
+            changedFields |= FIRST_NAME;
+        }
         this.firstName = firstName;
     }
 
@@ -80,6 +121,9 @@ public class Patient {
     }
 
     public void setSurname(String surname) {
+        if (!Objects.equals(this.surname, surname)) {
+            changedFields |= SURNAME;
+        }
         this.surname = surname;
     }
 
@@ -88,6 +132,9 @@ public class Patient {
     }
 
     public void setAddress(String address) {
+        if (!Objects.equals(this.address, address)) {
+            changedFields |= ADDRESS;
+        }
         this.address = address;
     }
 
@@ -96,6 +143,9 @@ public class Patient {
     }
 
     public void setPhone(String phone) {
+        if (!Objects.equals(this.phone, phone)) {
+            changedFields |= PHONE;
+        }
         this.phone = phone;
     }
 
@@ -115,6 +165,20 @@ public class Patient {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Get the row version this object was read at. Updates succeed only if the row is still
+     * at this version.
+     *
+     * @return The row version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Returns the full name of the patient.
      *
@@ -124,6 +188,33 @@ public class Patient {
         return firstName + " " + surname;
     }
 
+    /**
+     * Checks whether a field was changed since the object was read from the database.
+     * Objects not read from the database count as entirely changed.
+     *
+     * @param field A field flag, such as {@link #FIRST_NAME}
+     * @return true if the field must be written on update
+     */
+    public boolean isChanged(int field) {
+        return (changedFields & field) != 0;
+    }
+
+    /**
+     * Checks whether any field was changed since the object was read from the database.
+     *
+     * @return true if an update has anything to write
+     */
+    public boolean hasChanges() {
+        return changedFields != 0;
+    }
+
+    /**
+     * Marks the object as matching its database row, once it has been read or saved.
+     */
+    public void markClean() {
+        changedFields = 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,82 @@
+package main.java.hospital.model;
+
+import java.util.Objects;
+
+/**
+ * A lightweight projection of a patient, doctor or nurse: the ID and name, plus one detail
+ * shown next to the name. Used for name lookups and ComboBoxes, where loading whole rows
+ * would be wasted.
+ */
+public class PersonName {
+    private final int id;
+    private final String firstName;
+    private final String surname;
+    private final String detail;
+
+    /**
+     * Constructor
+     *
+     * @param id        The patient or employee ID
+     * @param firstName The first name
+     * @param surname   The surname
+     * @param detail    A detail such as a doctor's speciality, or null
+     */
+    public PersonName(int id, String firstName, String surname, String detail) {
+        this.id = id;
+        this.firstName = firstName;
+        this.surname = surname;
+        this.detail = detail;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * Get the full name
+     *
+     * @return The first name and surname
+     */
+    public String getFullName() {
+        return firstName + " " + surname;
+    }
+
+    /**
+     * Get the full name followed by the detail, if any
+     *
+     * @return e.g. "Jane Smith (Cardiology)"
+     */
+    public String getDisplayName() {
+        return detail == null ? getFullName() : getFullName() + " (" + detail + ")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PersonName that = (PersonName) o;
+        return id == that.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return getDisplayName();
+    }
+}
@@ -1,5 +1,8 @@
 package main.java.hospital.model;
 
+import main.java.hospital.mapping.Column;
+import main.java.hospital.mapping.Table;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -7,13 +10,29 @@ import java.util.Objects;
  * Represents a ward in the HealthTrack System.
  * A ward belongs to a department and is supervised by a nurse.
  */
+@Table("Ward")
 public class Ward {
+    /** Flags for {@link #isChanged(int)}, one per column an update can write. */
+    public static final int DEPARTMENT_CODE = 1 << 0;
+    public static final int WARD_NUMBER = 1 << 1;
+    public static final int BED_COUNT = 1 << 2;
+    public static final int SUPERVISOR_ID = 1 << 3;
+
+    @Column(value = "department_code", key = true)
     private String departmentCode;
+    @Column(value = "ward_number", key = true)
     private Integer wardNumber;
+    @Column("bed_count")
     private Integer bedCount;
+    @Column("supervisor_id")
     private Integer supervisorId;
     private LocalDateTime createdAt;
+    @Column(value = "updated_at", readOnly = true)
     private LocalDateTime updatedAt;
+    @Column(value = "version", version = true)
+    private int version;
+    // New objects are entirely changed; read and saved ones are marked clean
+    private int changedFields = ~0;
 
     /**
      * Default constructor
@@ -56,6 +75,23 @@ public class Ward {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Copy constructor. The copy has the same version and changed fields as the original,
+     * so edits made to it are tracked against the same database row.
+     *
+     * @param ward The ward to copy
+     */
+    public Ward(Ward ward) {
+        this.departmentCode = ward.departmentCode;
+        this.wardNumber = ward.wardNumber;
+        this.bedCount = ward.bedCount;
+        this.supervisorId = ward.supervisorId;
+        this.createdAt = ward.createdAt;
+        this.updatedAt = ward.updatedAt;
+        this.version = ward.version;
+        this.changedFields = ward.changedFields;
+    }
+
     /**
      * Gets the code of the department the ward belongs to.
      *
@@ -71,6 +107,9 @@ public class Ward {
      * @param departmentCode The department code
      */
     public void setDepartmentCode(String departmentCode) {
+        if (!Objects.equals(this.departmentCode, departmentCode)) {
+            changedFields |= DEPARTMENT_CODE;
+        }
         this.departmentCode = departmentCode;
     }
 
@@ -89,6 +128,9 @@ public class Ward {
      * @param wardNumber The ward number
      */
     public void setWardNumber(Integer wardNumber) {
+        if (!Objects.equals(this.wardNumber, wardNumber)) {
+            changedFields |= WARD_NUMBER;
+        }
         this.wardNumber = wardNumber;
     }
 
@@ -107,6 +149,9 @@ public class Ward {
      * @param bedCount The bed count
      */
     public void setBedCount(Integer bedCount) {
+        if (!Objects.equals(this.bedCount, bedCount)) {
+            changedFields |= BED_COUNT;
+        }
         this.bedCount = bedCount;
     }
 
@@ -125,6 +170,9 @@ public class Ward {
      * @param supervisorId The supervisor's employee ID
      */
     public void setSupervisorId(Integer supervisorId) {
+        if (!Objects.equals(this.supervisorId, supervisorId)) {
+            changedFields |= SUPERVISOR_ID;
+        }
         this.supervisorId = supervisorId;
     }
 
@@ -164,6 +212,20 @@ public class Ward {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Get the row version this object was read at. Updates succeed only if the row is still
+     * at this version.
+     *
+     * @return The row version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Returns a unique identifier for the ward (combination of department code and ward number).
      *
@@ -173,6 +235,33 @@ public class Ward {
         return departmentCode + "-" + wardNumber;
     }
 
+    /**
+     * Checks whether a field was changed since the object was read from the database.
+     * Objects not read from the database count as entirely changed.
+     *
+     * @param field A field flag, such as {@link #DEPARTMENT_CODE}
+     * @return true if the field must be written on update
+     */
+    public boolean isChanged(int field) {
+        return (changedFields & field) != 0;
+    }
+
+    /**
+     * Checks whether any field was changed since the object was read from the database.
+     *
+     * @return true if an update has anything to write
+     */
+    public boolean hasChanges() {
+        return changedFields != 0;
+    }
+
+    /**
+     * Marks the object as matching its database row, once it has been read or saved.
+     */
+    public void markClean() {
+        changedFields = 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
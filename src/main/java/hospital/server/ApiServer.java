@@ -0,0 +1,579 @@
+package main.java.hospital.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import main.java.hospital.analytics.HospitalizationColumnStore;
+import main.java.hospital.analytics.GroupBy;
+import main.java.hospital.analytics.HospitalizationSketches;
+import main.java.hospital.analytics.LengthOfStayEngine;
+import main.java.hospital.analytics.LengthOfStayStats;
+import main.java.hospital.analytics.OccupancyEngine;
+import main.java.hospital.analytics.OccupancyReport;
+import main.java.hospital.analytics.StaySketch;
+import main.java.hospital.analytics.WardStay;
+import main.java.hospital.analytics.WardStayIndex;
+import main.java.hospital.dao.DataAccessException;
+import main.java.hospital.dao.DatabaseConnection;
+import main.java.hospital.dao.ErrorCapture;
+import main.java.hospital.dao.HospitalizationDAO;
+import main.java.hospital.dao.PatientDAO;
+import main.java.hospital.dao.ReportDAO;
+import main.java.hospital.dao.WardDAO;
+import main.java.hospital.model.Hospitalization;
+import main.java.hospital.model.Patient;
+import main.java.hospital.model.Ward;
+import main.java.hospital.util.ConcurrencyUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Headless, read-only HTTP/JSON server over the DAO layer, built on the JDK's HTTP server.
+ * Each request runs on its own virtual thread (platform threads on JDKs without them);
+ * database access is bounded by the {@code db.pool.size} connection pool.
+ *
+ * <p>Endpoints (all GET):</p>
+ * <ul>
+ *     <li>{@code /api/patients?page=&size=}, {@code /api/patients/{id}},
+ *     {@code /api/patients/{id}/hospitalizations?archived=true}</li>
+ *     <li>{@code /api/hospitalizations?page=&size=&current=true}, {@code /api/hospitalizations/{id}}</li>
+ *     <li>{@code /api/wards?page=&size=}, {@code /api/wards/{departmentCode}/{wardNumber}},
+ *     {@code /api/wards/{departmentCode}/{wardNumber}/stays?date=} (or {@code ?from=&to=})</li>
+ *     <li>{@code /api/reports/occupancy}, {@code /api/reports/statistics}</li>
+ *     <li>{@code /api/reports/census?from=&to=} - daily occupied beds per department and ward</li>
+ *     <li>{@code /api/reports/live} - approximate distinct patients, top diagnoses and length of stay</li>
+ *     <li>{@code /api/reports/los?by=department|doctor|diagnosis} - length of stay percentiles and histogram</li>
+ * </ul>
+ *
+ * <p>Every successful response carries an ETag; clients sending it back in
+ * {@code If-None-Match} get {@code 304 Not Modified} without a body. A database error is
+ * answered with 503 if the database cannot be reached and 500 otherwise, never with an
+ * empty result.</p>
+ *
+ * <p>Usage: {@code ApiServer [--port=8080] [--threads=64]}</p>
+ */
+public class ApiServer {
+    private static final Logger logger = LogManager.getLogger(ApiServer.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    // Keeps page * size, and the extra row fetched to detect a next page, within an int
+    private static final int MAX_OFFSET = Integer.MAX_VALUE - MAX_PAGE_SIZE - 1;
+    private static final int MAX_CENSUS_DAYS = 3660;
+
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final HospitalizationDAO hospitalizationDAO = new HospitalizationDAO();
+    private final WardDAO wardDAO = new WardDAO();
+    private final ReportDAO reportDAO = new ReportDAO();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to the given port. Call {@link #start()} to begin serving.
+     *
+     * @param port            The TCP port to listen on
+     * @param fallbackThreads The request thread count on JDKs without virtual threads
+     * @throws IOException If the port cannot be bound
+     */
+    public ApiServer(int port, int fallbackThreads) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = ConcurrencyUtils.newPerTaskExecutor("api-request", fallbackThreads);
+        this.server.setExecutor(executor);
+        this.server.createContext("/api/", this::handle);
+    }
+
+    /**
+     * Command line entry point.
+     *
+     * @param args Options in {@code --name=value} form
+     */
+    public static void main(String[] args) {
+        int port = 8080;
+        int threads = 64;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        try {
+            ApiServer apiServer = new ApiServer(port, threads);
+            Runtime.getRuntime().addShutdownHook(new Thread(apiServer::stop, "api-shutdown"));
+            apiServer.start();
+        } catch (IOException e) {
+            logger.error("Failed to start API server", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+        logger.info("API server listening on port {}", server.getAddress().getPort());
+    }
+
+    /**
+     * Stops the server and releases its threads and database connections.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        DatabaseConnection.getInstance().closeConnection();
+        logger.info("API server stopped");
+    }
+
+    /**
+     * Gets the port the server is bound to.
+     *
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+
+            String[] path = exchange.getRequestURI().getPath().replaceAll("^/api/|/$", "").split("/");
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            // The DAOs log and swallow database errors; capture them so they are not served as empty results
+            Object body = ErrorCapture.call(() -> {
+                try {
+                    return route(path, query);
+                } catch (SQLException e) {
+                    throw new DataAccessException(e.getMessage(), e);
+                }
+            });
+
+            if (body == null) {
+                send(exchange, 404, error("Not found"));
+            } else {
+                send(exchange, 200, body);
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (DataAccessException e) {
+            logger.error("Database error handling {}", exchange.getRequestURI(), e);
+            if (isUnavailable(e)) {
+                send(exchange, 503, error("Database unavailable"));
+            } else {
+                send(exchange, 500, error("Database error"));
+            }
+        } catch (Exception e) {
+            logger.error("Error handling {}", exchange.getRequestURI(), e);
+            send(exchange, 500, error("Internal server error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Checks whether a database error means the database could not be reached, so the client
+     * may retry later.
+     */
+    private static boolean isUnavailable(DataAccessException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException || cause instanceof SQLNonTransientConnectionException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dispatches a request path to the matching DAO call.
+     *
+     * @return The response body, or null if nothing matches
+     */
+    private Object route(String[] path, Map<String, String> query) throws SQLException {
+        switch (path[0]) {
+            case "patients":
+                if (path.length == 1) {
+                    int size = pageSize(query);
+                    int page = page(query);
+                    return page(mapAll(patientDAO.findPage(offset(page, size), size + 1), ApiServer::toMap), page, size);
+                }
+                int patientId = parseInt(path[1], "patient ID");
+                if (path.length == 2) {
+                    return patientDAO.findById(patientId).map(ApiServer::toMap).orElse(null);
+                }
+                if (path.length == 3 && path[2].equals("hospitalizations")) {
+                    boolean archived = Boolean.parseBoolean(query.get("archived"));
+                    return mapAll(hospitalizationDAO.findByPatient(patientId, archived), ApiServer::toMap);
+                }
+                return null;
+
+            case "hospitalizations":
+                if (path.length == 1) {
+                    int size = pageSize(query);
+                    int page = page(query);
+                    boolean current = Boolean.parseBoolean(query.get("current"));
+                    return page(mapAll(hospitalizationDAO.findPage(offset(page, size), size + 1, current),
+                            ApiServer::toMap), page, size);
+                }
+                if (path.length == 2) {
+                    return hospitalizationDAO.findById(parseInt(path[1], "hospitalization ID"))
+                            .map(ApiServer::toMap).orElse(null);
+                }
+                return null;
+
+            case "wards":
+                if (path.length == 1) {
+                    int size = pageSize(query);
+                    int page = page(query);
+                    return page(mapAll(wardDAO.findPage(offset(page, size), size + 1), ApiServer::toMap), page, size);
+                }
+                if (path.length == 3) {
+                    Optional<Ward> ward = wardDAO.findById(path[1], parseInt(path[2], "ward number"));
+                    return ward.map(ApiServer::toMap).orElse(null);
+                }
+                if (path.length == 4 && path[3].equals("stays")) {
+                    return wardStays(path[1], parseInt(path[2], "ward number"), query);
+                }
+                return null;
+
+            case "reports":
+                if (path.length == 2 && path[1].equals("occupancy")) {
+                    return reportDAO.findWardOccupancy();
+                }
+                if (path.length == 2 && path[1].equals("statistics")) {
+                    return reportDAO.getPatientStatistics();
+                }
+                if (path.length == 2 && path[1].equals("census")) {
+                    return census(query);
+                }
+                if (path.length == 2 && path[1].equals("live")) {
+                    return liveStatistics();
+                }
+                if (path.length == 2 && path[1].equals("los")) {
+                    return lengthOfStay(query);
+                }
+                return null;
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Computes daily occupancy for a period of at most {@link #MAX_CENSUS_DAYS} days.
+     */
+    private static Map<String, Object> census(Map<String, String> query) throws SQLException {
+        LocalDate from = parseDate(query.get("from"), "from");
+        LocalDate to = parseDate(query.get("to"), "to");
+        if (to.isBefore(from) || to.toEpochDay() - from.toEpochDay() >= MAX_CENSUS_DAYS) {
+            throw new IllegalArgumentException("to must be on or after from, within " + MAX_CENSUS_DAYS + " days");
+        }
+
+        OccupancyReport report = new OccupancyEngine(HospitalizationColumnStore.getInstance()).compute(from, to);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", report.getFrom());
+        result.put("to", report.getTo());
+        result.put("total", toList(report.getTotal()));
+        Map<String, Object> departments = new LinkedHashMap<>();
+        report.getByDepartment().forEach((code, curve) -> departments.put(code, toList(curve)));
+        result.put("departments", departments);
+        Map<String, Object> wards = new LinkedHashMap<>();
+        report.getByWard().forEach((ward, curve) -> wards.put(ward, toList(curve)));
+        result.put("wards", wards);
+        return result;
+    }
+
+    /**
+     * Finds the stays in a ward on a date, or during a period.
+     */
+    private static List<Map<String, Object>> wardStays(String departmentCode, int wardNumber,
+                                                       Map<String, String> query) throws SQLException {
+        LocalDate from;
+        LocalDate to;
+        if (query.containsKey("date")) {
+            from = parseDate(query.get("date"), "date");
+            to = from;
+        } else {
+            from = parseDate(query.get("from"), "from");
+            to = parseDate(query.get("to"), "to");
+            if (to.isBefore(from)) {
+                throw new IllegalArgumentException("to must be on or after from");
+            }
+        }
+        return mapAll(WardStayIndex.getInstance().findOverlapping(departmentCode, wardNumber, from, to),
+                ApiServer::toMap);
+    }
+
+    private static Map<String, Object> toMap(WardStay stay) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hospitalizationId", stay.getHospitalizationId());
+        map.put("patientId", stay.getPatientId());
+        map.put("bedNumber", stay.getBedNumber());
+        map.put("admissionDate", stay.getAdmissionDate());
+        map.put("dischargeDate", stay.getDischargeDate());
+        return map;
+    }
+
+    /**
+     * Summarizes the streaming sketches, hospital-wide and per department.
+     */
+    private static Map<String, Object> liveStatistics() throws SQLException {
+        HospitalizationSketches sketches = HospitalizationSketches.getInstance();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("overall", toMap(sketches.overall()));
+        Map<String, Object> departments = new LinkedHashMap<>();
+        sketches.byDepartment().forEach((code, sketch) -> departments.put(code, toMap(sketch)));
+        result.put("departments", departments);
+        return result;
+    }
+
+    private static Map<String, Object> toMap(StaySketch sketch) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("admissions", sketch.admissions());
+        map.put("distinctPatients", sketch.distinctPatients());
+        map.put("topDiagnoses", sketch.topDiagnoses(5));
+        map.put("completedStays", sketch.completedStays());
+        if (sketch.completedStays() > 0) {
+            map.put("losMedian", sketch.lengthOfStayQuantile(0.5));
+            map.put("losP90", sketch.lengthOfStayQuantile(0.9));
+            map.put("losP99", sketch.lengthOfStayQuantile(0.99));
+        }
+        return map;
+    }
+
+    /**
+     * Computes length of stay distributions, overall and per the requested dimension.
+     */
+    private static Map<String, Object> lengthOfStay(Map<String, String> query) throws SQLException {
+        GroupBy groupBy;
+        try {
+            groupBy = GroupBy.valueOf(query.getOrDefault("by", "department").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("by must be department, doctor or diagnosis");
+        }
+
+        LengthOfStayEngine engine = new LengthOfStayEngine(HospitalizationColumnStore.getInstance());
+        Map<String, Object> result = new LinkedHashMap<>();
+        LengthOfStayStats overall = engine.overall(null);
+        result.put("overall", overall != null ? toMap(overall) : null);
+        Map<String, Object> groups = new LinkedHashMap<>();
+        engine.compute(groupBy, null).forEach((group, stats) -> groups.put(group, toMap(stats)));
+        result.put(groupBy.name().toLowerCase(), groups);
+        return result;
+    }
+
+    private static Map<String, Object> toMap(LengthOfStayStats stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", stats.getCount());
+        map.put("mean", stats.getMean());
+        map.put("median", stats.getMedian());
+        map.put("p90", stats.getP90());
+        map.put("p99", stats.getP99());
+        map.put("max", stats.getMax());
+        map.put("buckets", stats.getBuckets());
+        return map;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>(values.length);
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static LocalDate parseDate(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name + " date");
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + " date: " + value);
+        }
+    }
+
+    /**
+     * Wraps a page of items. Callers fetch one item more than the page size to learn
+     * whether another page follows, without a COUNT query.
+     */
+    private static Map<String, Object> page(List<Map<String, Object>> items, int page, int size) {
+        boolean hasMore = items.size() > size;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("page", page);
+        result.put("size", size);
+        result.put("hasMore", hasMore);
+        result.put("items", hasMore ? items.subList(0, size) : items);
+        return result;
+    }
+
+    private static int page(Map<String, String> query) {
+        int page = parseInt(query.getOrDefault("page", "0"), "page");
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        return page;
+    }
+
+    /**
+     * Gets the offset of a page, refusing pages so deep the offset would overflow.
+     */
+    private static int offset(int page, int size) {
+        long offset = (long) page * size;
+        if (offset > MAX_OFFSET) {
+            throw new IllegalArgumentException("page must not be greater than " + MAX_OFFSET / size);
+        }
+        return (int) offset;
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        int size = parseInt(query.getOrDefault("size", String.valueOf(DEFAULT_PAGE_SIZE)), "size");
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return size;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            query.put(key, value);
+        }
+        return query;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        return error;
+    }
+
+    /**
+     * Sends a JSON response with an ETag, or 304 if the client already has this version.
+     */
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = JsonWriter.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+
+        if (status == 200) {
+            String etag = etag(bytes);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder hex = new StringBuilder("\"");
+            for (int i = 0; i < 12; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static <T> List<Map<String, Object>> mapAll(List<T> items,
+                                                        java.util.function.Function<T, Map<String, Object>> mapper) {
+        List<Map<String, Object>> result = new ArrayList<>(items.size());
+        for (T item : items) {
+            result.add(mapper.apply(item));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> toMap(Patient patient) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("patientId", patient.getPatientId());
+        map.put("firstName", patient.getFirstName());
+        map.put("surname", patient.getSurname());
+        map.put("address", patient.getAddress());
+        map.put("phone", patient.getPhone());
+        map.put("updatedAt", patient.getUpdatedAt());
+        return map;
+    }
+
+    private static Map<String, Object> toMap(Hospitalization hospitalization) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hospitalizationId", hospitalization.getHospitalizationId());
+        map.put("patientId", hospitalization.getPatientId());
+        map.put("departmentCode", hospitalization.getDepartmentCode());
+        map.put("wardNumber", hospitalization.getWardNumber());
+        map.put("bedNumber", hospitalization.getBedNumber());
+        map.put("diagnosis", hospitalization.getDiagnosis());
+        map.put("doctorId", hospitalization.getDoctorId());
+        map.put("admissionDate", hospitalization.getAdmissionDate());
+        map.put("dischargeDate", hospitalization.getDischargeDate());
+        map.put("updatedAt", hospitalization.getUpdatedAt());
+        return map;
+    }
+
+    private static Map<String, Object> toMap(Ward ward) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("departmentCode", ward.getDepartmentCode());
+        map.put("wardNumber", ward.getWardNumber());
+        map.put("bedCount", ward.getBedCount());
+        map.put("supervisorId", ward.getSupervisorId());
+        map.put("updatedAt", ward.getUpdatedAt());
+        return map;
+    }
+}
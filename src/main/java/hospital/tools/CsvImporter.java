@@ -0,0 +1,468 @@
+package main.java.hospital.tools;
+
+import main.java.hospital.dao.HospitalizationDAO;
+import main.java.hospital.dao.PatientDAO;
+import main.java.hospital.model.Hospitalization;
+import main.java.hospital.model.Patient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Headless bulk importer for nightly patient and admission CSV extracts.
+ *
+ * <p>The import runs as a three-stage pipeline connected by bounded queues:</p>
+ * <ol>
+ *     <li>a reader that streams the file through a large buffer and groups lines into batches,</li>
+ *     <li>a pool of validators that parse each record with a {@link CsvRecordParser},</li>
+ *     <li>a single writer that stores valid records with the DAOs' batched {@code insertAll}.</li>
+ * </ol>
+ *
+ * <p>Invalid records, and records whose batch fails to insert, are written to a rejects file
+ * as the original line followed by the reason. Records are not necessarily inserted in file
+ * order. Quoted fields may contain commas and doubled quotes but not line breaks.</p>
+ *
+ * <p>If a stage dies of an unexpected error the remaining stages stop at their next queue
+ * operation and {@link #importFile} fails instead of waiting forever.</p>
+ *
+ * <p>Usage: {@code CsvImporter patients|admissions <file> [--rejects=FILE] [--threads=N]
+ * [--batch=N] [--no-header]}</p>
+ */
+public class CsvImporter<T> {
+    private static final Logger logger = LogManager.getLogger(CsvImporter.class);
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final long PROGRESS_INTERVAL = 100_000;
+    private static final long QUEUE_POLL_MILLIS = 200;
+
+    private final CsvRecordParser<T> parser;
+    private final Function<List<T>, List<Integer>> inserter;
+    private final Function<T, Integer> keyGetter;
+    private final int threads;
+    private final int batchSize;
+    private final boolean skipHeader;
+
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final AtomicLong recordsInserted = new AtomicLong();
+    private final AtomicLong recordsRejected = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Creates an importer.
+     *
+     * @param parser     Parses and validates records
+     * @param inserter   Inserts a batch and returns the generated keys (e.g. {@code PatientDAO::insertAll})
+     * @param keyGetter  Reads the key the inserter sets on an item; items left without one were not inserted
+     * @param threads    The number of validator threads
+     * @param batchSize  The number of records per batch and insert transaction
+     * @param skipHeader Whether the first line is a header
+     */
+    public CsvImporter(CsvRecordParser<T> parser, Function<List<T>, List<Integer>> inserter,
+                       Function<T, Integer> keyGetter, int threads, int batchSize, boolean skipHeader) {
+        this.parser = parser;
+        this.inserter = inserter;
+        this.keyGetter = keyGetter;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * Command line entry point.
+     *
+     * @param args The entity type, the input file and options
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: CsvImporter patients|admissions <file> [--rejects=FILE] "
+                    + "[--threads=N] [--batch=N] [--no-header]");
+            System.exit(2);
+        }
+
+        Path input = Paths.get(args[1]);
+        Path rejects = Paths.get(args[1] + ".rejects.csv");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = 1000;
+        boolean skipHeader = true;
+
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--rejects=")) {
+                rejects = Paths.get(arg.substring("--rejects=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--batch=")) {
+                batchSize = Integer.parseInt(arg.substring("--batch=".length()));
+            } else if (arg.equals("--no-header")) {
+                skipHeader = false;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        try {
+            ImportResult result;
+            if (args[0].equals("patients")) {
+                PatientDAO patientDAO = new PatientDAO();
+                result = new CsvImporter<Patient>(new PatientCsvParser(), patientDAO::insertAll,
+                        Patient::getPatientId, threads, batchSize, skipHeader).importFile(input, rejects);
+            } else if (args[0].equals("admissions")) {
+                HospitalizationDAO hospitalizationDAO = new HospitalizationDAO();
+                result = new CsvImporter<Hospitalization>(new HospitalizationCsvParser(),
+                        hospitalizationDAO::insertAll, Hospitalization::getHospitalizationId,
+                        threads, batchSize, skipHeader).importFile(input, rejects);
+            } else {
+                throw new IllegalArgumentException("Unknown entity type: " + args[0]);
+            }
+            System.exit(result.getRejected() > 0 ? 1 : 0);
+        } catch (Exception e) {
+            logger.error("Import failed", e);
+            System.exit(3);
+        }
+    }
+
+    /**
+     * Imports a CSV file.
+     *
+     * @param input   The file to import
+     * @param rejects The file to write rejected records to
+     * @return The import counts and timing
+     * @throws IOException          If the input or rejects file cannot be accessed
+     * @throws InterruptedException If the import is interrupted
+     * @throws IllegalStateException If a pipeline stage failed and the import was aborted
+     */
+    public ImportResult importFile(Path input, Path rejects) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        BlockingQueue<List<Line>> readQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<List<Parsed<T>>> writeQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        try (RejectsWriter rejectsWriter = new RejectsWriter(rejects)) {
+            List<Thread> validators = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Thread validator = new Thread(() -> validate(readQueue, writeQueue, rejectsWriter),
+                        "csv-validator-" + i);
+                validator.start();
+                validators.add(validator);
+            }
+
+            Thread writer = new Thread(() -> write(writeQueue, rejectsWriter), "csv-writer");
+            writer.start();
+
+            try {
+                read(input, readQueue);
+            } finally {
+                // One end-of-input marker per validator
+                for (int i = 0; i < threads; i++) {
+                    put(readQueue, Collections.emptyList());
+                }
+                for (Thread validator : validators) {
+                    validator.join();
+                }
+                put(writeQueue, Collections.emptyList());
+                writer.join();
+            }
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Import of " + input + " aborted", failure.get());
+        }
+
+        ImportResult result = new ImportResult(recordsRead.get(), recordsInserted.get(), recordsRejected.get(),
+                System.nanoTime() - start);
+        logger.info("Imported {}: {}", input, result);
+        return result;
+    }
+
+    /**
+     * Reader stage: streams the file and hands batches of lines to the validators.
+     */
+    private void read(Path input, BlockingQueue<List<Line>> readQueue) throws IOException, InterruptedException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(input), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+
+            long lineNumber = 0;
+            List<Line> batch = new ArrayList<>(batchSize);
+            String text;
+
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if ((lineNumber == 1 && skipHeader) || text.trim().isEmpty()) {
+                    continue;
+                }
+
+                batch.add(new Line(lineNumber, text));
+                if (batch.size() == batchSize) {
+                    if (!put(readQueue, batch)) {
+                        return;
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+
+                if (recordsRead.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                    logger.info("Read {} records, inserted {}, rejected {}",
+                            recordsRead.get(), recordsInserted.get(), recordsRejected.get());
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                put(readQueue, batch);
+            }
+        }
+    }
+
+    /**
+     * Validator stage: parses each line, forwarding valid records and rejecting the rest.
+     */
+    private void validate(BlockingQueue<List<Line>> readQueue, BlockingQueue<List<Parsed<T>>> writeQueue,
+                          RejectsWriter rejectsWriter) {
+        try {
+            List<Line> batch;
+            while ((batch = take(readQueue)) != null && !batch.isEmpty()) {
+                List<Parsed<T>> valid = new ArrayList<>(batch.size());
+                for (Line line : batch) {
+                    try {
+                        valid.add(new Parsed<>(line, parser.parse(splitFields(line.text))));
+                    } catch (IllegalArgumentException e) {
+                        rejectsWriter.reject(line, e.getMessage());
+                    } catch (RuntimeException e) {
+                        logger.error("Unexpected error parsing line {}", line.number, e);
+                        rejectsWriter.reject(line, "Parse failed: " + e);
+                    }
+                }
+                if (!valid.isEmpty() && !put(writeQueue, valid)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            abort(e);
+        }
+    }
+
+    /**
+     * Writer stage: inserts validated batches. A failed batch is rejected as a whole.
+     */
+    private void write(BlockingQueue<List<Parsed<T>>> writeQueue, RejectsWriter rejectsWriter) {
+        try {
+            List<Parsed<T>> batch;
+            while ((batch = take(writeQueue)) != null && !batch.isEmpty()) {
+                List<T> items = new ArrayList<>(batch.size());
+                for (Parsed<T> parsed : batch) {
+                    items.add(parsed.item);
+                }
+
+                try {
+                    inserter.apply(items);
+                } catch (RuntimeException e) {
+                    logger.error("Insert of batch starting at line {} failed", batch.get(0).line.number, e);
+                    for (Parsed<T> parsed : batch) {
+                        rejectsWriter.reject(parsed.line, "Database insert failed: " + e);
+                    }
+                    continue;
+                }
+
+                // The inserter may reorder what it inserts, so failures are found by their unset key
+                for (Parsed<T> parsed : batch) {
+                    if (keyGetter.apply(parsed.item) != null) {
+                        recordsInserted.incrementAndGet();
+                    } else {
+                        rejectsWriter.reject(parsed.line, "Database insert failed");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            abort(e);
+        }
+    }
+
+    /**
+     * Records the error that killed a stage so the other stages stop waiting on it.
+     */
+    private void abort(Throwable e) {
+        logger.error("{} failed, aborting import", Thread.currentThread().getName(), e);
+        failure.compareAndSet(null, e);
+    }
+
+    /**
+     * Puts an item on a queue, waiting for space unless the import has been aborted.
+     *
+     * @return Whether the item was queued
+     */
+    private <E> boolean put(BlockingQueue<E> queue, E item) throws InterruptedException {
+        while (!queue.offer(item, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes an item from a queue, waiting for one unless the import has been aborted.
+     *
+     * @return The item, or {@code null} if the import was aborted
+     */
+    private <E> E take(BlockingQueue<E> queue) throws InterruptedException {
+        E item;
+        while ((item = queue.poll(QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            if (failure.get() != null) {
+                return null;
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Splits a CSV line into fields, honouring double-quoted fields.
+     *
+     * @param line The line to split
+     * @return The fields
+     */
+    static String[] splitFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * A raw input line and its position in the file.
+     */
+    private static class Line {
+        final long number;
+        final String text;
+
+        Line(long number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+    }
+
+    /**
+     * A validated record together with the line it came from.
+     */
+    private static class Parsed<T> {
+        final Line line;
+        final T item;
+
+        Parsed(Line line, T item) {
+            this.line = line;
+            this.item = item;
+        }
+    }
+
+    /**
+     * Thread-safe writer for the rejects file. Each reject is the original line followed by
+     * its line number and reason as two extra columns.
+     */
+    private class RejectsWriter implements AutoCloseable {
+        private final BufferedWriter out;
+
+        RejectsWriter(Path file) throws IOException {
+            this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        synchronized void reject(Line line, String reason) {
+            recordsRejected.incrementAndGet();
+            try {
+                out.write(line.text);
+                out.write("," + line.number + ",\"" + String.valueOf(reason).replace("\"", "\"\"") + "\"");
+                out.newLine();
+            } catch (IOException e) {
+                logger.error("Failed to write reject for line {}", line.number, e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Counts and throughput of a finished import.
+     */
+    public static class ImportResult {
+        private final long read;
+        private final long inserted;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        ImportResult(long read, long inserted, long rejected, long elapsedNanos) {
+            this.read = read;
+            this.inserted = inserted;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getRecordsPerSecond() {
+            return read / Math.max(getElapsedSeconds(), 1e-9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d read, %d inserted, %d rejected in %.1f s (%.0f records/s)",
+                    read, inserted, rejected, getElapsedSeconds(), getRecordsPerSecond());
+        }
+    }
+}
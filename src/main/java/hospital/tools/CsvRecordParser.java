@@ -0,0 +1,19 @@
+package main.java.hospital.tools;
+
+/**
+ * Converts one CSV record into a validated model object for {@link CsvImporter}.
+ * Implementations must be thread-safe; records are validated on several threads at once.
+ *
+ * @param <T> The model type produced
+ */
+public interface CsvRecordParser<T> {
+
+    /**
+     * Parses and validates a record.
+     *
+     * @param fields The record's fields
+     * @return The model object
+     * @throws IllegalArgumentException If the record is invalid; the message is the reject reason
+     */
+    T parse(String[] fields);
+}
@@ -0,0 +1,635 @@
+package main.java.hospital.tools;
+
+import main.java.hospital.dao.DatabaseConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Generates large, realistic synthetic hospital data sets for load testing.
+ *
+ * <p>Every row, including its ID, is derived from the seed, the {@code --as-of} date and the
+ * row's own index, so a given seed, date and existing database produce the same rows no
+ * matter how many threads are used or when the generator runs. Stays span the {@code --years}
+ * before the {@code --as-of} date, which defaults to today and is logged so that a run can be
+ * repeated. Rows are written either to the configured database through batched JDBC inserts, or
+ * to CSV files plus a {@code load_data.sql} script for MySQL's {@code LOAD DATA LOCAL INFILE};
+ * how the rows are split into numbered CSV part files depends on {@code --threads}.</p>
+ *
+ * <p>Hospitalizations are generated bed by bed: each bed gets a sequence of stays with
+ * log-normally distributed lengths and strictly increasing dates, so bed occupancy never
+ * overlaps. The last stay of a bed may still be open (no discharge date). Stay IDs are
+ * numbered bed by bed after the stays of each bed have been counted. Patients are dealt
+ * round-robin to beds and each is only admitted to its own bed, so a patient's stays never
+ * overlap either.</p>
+ *
+ * <p>Usage: {@code DataGenerator [--patients=N] [--doctors=N] [--nurses=N] [--departments=N]
+ * [--wards=N] [--beds=N] [--years=N] [--as-of=YYYY-MM-DD] [--seed=N] [--threads=N] [--batch=N]
+ * [--csv=DIR]}</p>
+ */
+public class DataGenerator {
+    private static final Logger logger = LogManager.getLogger(DataGenerator.class);
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William",
+            "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah",
+            "Charles", "Karen", "Kwame", "Ama", "Kofi", "Akosua", "Yaw", "Abena", "Emmanuel", "Esi",
+            "Daniel", "Grace", "Samuel", "Joyce", "Isaac", "Mercy", "Peter", "Comfort"
+    };
+
+    private static final String[] SURNAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Wilson",
+            "Anderson", "Taylor", "Thomas", "Moore", "Martin", "Jackson", "Thompson", "White", "Harris",
+            "Mensah", "Owusu", "Boateng", "Asante", "Osei", "Addo", "Arhu", "Ofori", "Appiah", "Darko"
+    };
+
+    private static final String[] STREETS = {
+            "Medical Ave", "Health St", "Hospital Rd", "Care Ln", "Main St", "Oak Ave", "Park Rd",
+            "High St", "Station Rd", "Church St", "Market St", "River Rd"
+    };
+
+    private static final String[] DEPARTMENT_NAMES = {
+            "Cardiology", "Neurology", "Pediatrics", "Surgery", "Emergency", "Oncology", "Orthopedics",
+            "Maternity", "Internal Medicine", "Pulmonology", "Nephrology", "Gastroenterology",
+            "Psychiatry", "Dermatology", "Urology", "Geriatrics"
+    };
+
+    private static final String[] SPECIALITIES = {
+            "Cardiologist", "Neurologist", "Pediatrician", "General Surgeon", "Emergency Physician",
+            "Oncologist", "Orthopedic Surgeon", "Obstetrician", "Internist", "Pulmonologist",
+            "Nephrologist", "Gastroenterologist", "Psychiatrist", "Dermatologist", "Urologist",
+            "Geriatrician"
+    };
+
+    private static final String[] DIAGNOSES = {
+            "Pneumonia", "Heart Failure", "Sepsis", "COPD Exacerbation", "Hip Fracture", "Stroke",
+            "Myocardial Infarction", "Appendicitis", "Urinary Tract Infection", "Cellulitis",
+            "Diabetic Ketoacidosis", "Acute Kidney Injury", "Gastroenteritis", "Asthma Attack",
+            "Cholecystitis", "Pulmonary Embolism", "Malaria", "Bronchiolitis", "Preterm Labor",
+            "Pancreatitis", "Atrial Fibrillation", "Head Injury", "Dehydration", "Anemia"
+    };
+
+    private static final String[] ROTATIONS = {"Morning", "Evening", "Night"};
+
+    // Length of stay follows a log-normal distribution: median ~3.5 days with a long right tail
+    private static final double LOS_MU = Math.log(3.5);
+    private static final double LOS_SIGMA = 0.9;
+    private static final int MAX_LOS_DAYS = 120;
+
+    private static final String HOSPITALIZATION_COLUMNS = "hospitalization_id, patient_id, department_code, " +
+            "ward_number, bed_number, diagnosis, doctor_id, admission_date, discharge_date";
+
+    private int patients = 1_000_000;
+    private int doctors = 1_000;
+    private int nurses = 3_000;
+    private int departments = 16;
+    private int wardsPerDepartment = 8;
+    private int bedsPerWard = 30;
+    private int years = 10;
+    private LocalDate asOf = LocalDate.now();
+    private long seed = 42L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 5_000;
+    private Path csvDirectory;
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    /**
+     * Command line entry point.
+     *
+     * @param args Options in {@code --name=value} form
+     */
+    public static void main(String[] args) {
+        DataGenerator generator = new DataGenerator();
+        for (String arg : args) {
+            generator.applyOption(arg);
+        }
+
+        try {
+            generator.run();
+        } catch (Exception e) {
+            logger.error("Data generation failed", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Applies a single {@code --name=value} command line option.
+     *
+     * @param arg The option
+     */
+    private void applyOption(String arg) {
+        int eq = arg.indexOf('=');
+        if (!arg.startsWith("--") || eq < 0) {
+            throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+        }
+        String name = arg.substring(2, eq);
+        String value = arg.substring(eq + 1);
+
+        switch (name) {
+            case "patients": patients = Integer.parseInt(value); break;
+            case "doctors": doctors = Integer.parseInt(value); break;
+            case "nurses": nurses = Integer.parseInt(value); break;
+            case "departments": departments = Integer.parseInt(value); break;
+            case "wards": wardsPerDepartment = Integer.parseInt(value); break;
+            case "beds": bedsPerWard = Integer.parseInt(value); break;
+            case "years": years = Integer.parseInt(value); break;
+            case "as-of": asOf = LocalDate.parse(value); break;
+            case "seed": seed = Long.parseLong(value); break;
+            case "threads": threads = Integer.parseInt(value); break;
+            case "batch": batchSize = Integer.parseInt(value); break;
+            case "csv": csvDirectory = Paths.get(value); break;
+            default: throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+    }
+
+    /**
+     * Generates the whole data set.
+     *
+     * @throws Exception If writing any table fails
+     */
+    public void run() throws Exception {
+        if (departments > 999 || doctors < departments || nurses < departments) {
+            throw new IllegalArgumentException(
+                    "Need at most 999 departments and at least one doctor and nurse per department");
+        }
+
+        long start = System.nanoTime();
+        IdBase base = csvDirectory != null ? new IdBase(0, 0, 0) : readIdBase();
+        logger.info("Generating data with seed {} as of {} on {} threads (employee IDs from {}, "
+                + "patient IDs from {}, hospitalization IDs from {})", seed, asOf, threads, base.employee + 1,
+                base.patient + 1, base.hospitalization + 1);
+
+        if (csvDirectory != null) {
+            Files.createDirectories(csvDirectory);
+        }
+
+        // Staff and hospital structure are small and referenced by everything else
+        writeEmployees(base);
+        writeDepartments(base);
+        writeDoctors(base);
+        writeNurses(base);
+        writeWards(base);
+
+        // Patients and hospitalizations make up the bulk and are generated in parallel
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            writePatients(base, executor);
+            writeHospitalizations(base, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        if (csvDirectory != null) {
+            writeLoadScript();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("Generated {} rows in {} s ({} rows/s)", rowsWritten.get(),
+                String.format("%.1f", seconds), String.format("%.0f", rowsWritten.get() / seconds));
+    }
+
+    private void writeEmployees(IdBase base) throws Exception {
+        try (TableWriter writer = openWriter("Employee",
+                "employee_id, first_name, surname, address, phone", 0)) {
+            for (int i = 0; i < doctors + nurses; i++) {
+                SplittableRandom random = rowRandom(1, i);
+                writer.write(base.employee + 1 + i, pick(random, FIRST_NAMES), pick(random, SURNAMES),
+                        address(random), phone(random));
+            }
+        }
+    }
+
+    private void writeDepartments(IdBase base) throws Exception {
+        try (TableWriter writer = openWriter("Department",
+                "department_code, name, building, director_id", 0)) {
+            for (int d = 0; d < departments; d++) {
+                String name = DEPARTMENT_NAMES[d % DEPARTMENT_NAMES.length];
+                if (d >= DEPARTMENT_NAMES.length) {
+                    name += " " + (d / DEPARTMENT_NAMES.length + 1);
+                }
+                // The first doctor assigned to a department directs it
+                writer.write(departmentCode(d), name, "Building " + (char) ('A' + d % 8),
+                        doctorEmployeeId(base, d));
+            }
+        }
+    }
+
+    private void writeDoctors(IdBase base) throws Exception {
+        try (TableWriter writer = openWriter("Doctor", "employee_id, speciality", 0)) {
+            for (int i = 0; i < doctors; i++) {
+                writer.write(doctorEmployeeId(base, i), SPECIALITIES[(i % departments) % SPECIALITIES.length]);
+            }
+        }
+    }
+
+    private void writeNurses(IdBase base) throws Exception {
+        try (TableWriter writer = openWriter("Nurse",
+                "employee_id, rotation, salary, department_code", 0)) {
+            for (int i = 0; i < nurses; i++) {
+                SplittableRandom random = rowRandom(2, i);
+                BigDecimal salary = BigDecimal.valueOf(50_000 + random.nextInt(40_000)).setScale(2);
+                writer.write(nurseEmployeeId(base, i), pick(random, ROTATIONS), salary,
+                        departmentCode(i % departments));
+            }
+        }
+    }
+
+    private void writeWards(IdBase base) throws Exception {
+        try (TableWriter writer = openWriter("Ward",
+                "department_code, ward_number, bed_count, supervisor_id", 0)) {
+            for (int d = 0; d < departments; d++) {
+                for (int w = 1; w <= wardsPerDepartment; w++) {
+                    // Nurses are dealt round-robin to departments; pick one of this department's
+                    int nurseIndex = d + departments * ((w - 1) % Math.max(1, nurses / departments));
+                    writer.write(departmentCode(d), w, bedsPerWard, nurseEmployeeId(base, nurseIndex));
+                }
+            }
+        }
+    }
+
+    private void writePatients(IdBase base, ExecutorService executor) throws Exception {
+        int chunk = Math.max(batchSize, patients / (threads * 4) + 1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int from = 0, part = 0; from < patients; from += chunk, part++) {
+            final int start = from;
+            final int end = Math.min(patients, from + chunk);
+            final int partNumber = part;
+            futures.add(executor.submit(() -> {
+                try (TableWriter writer = openWriter("Patient",
+                        "patient_id, first_name, surname, address, phone", partNumber)) {
+                    for (int i = start; i < end; i++) {
+                        SplittableRandom random = rowRandom(3, i);
+                        writer.write(base.patient + 1 + i, pick(random, FIRST_NAMES), pick(random, SURNAMES),
+                                address(random), phone(random));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        await(futures);
+        logger.info("Generated {} patients", patients);
+    }
+
+    private void writeHospitalizations(IdBase base, ExecutorService executor) throws Exception {
+        int totalBeds = departments * wardsPerDepartment * bedsPerWard;
+        int bedsPerTask = Math.max(1, totalBeds / (threads * 4));
+        long firstDay = asOf.minusYears(years).toEpochDay();
+        long lastDay = asOf.toEpochDay();
+
+        // Stay IDs are numbered bed by bed, so each bed's stays are counted first
+        int[] stayCounts = new int[totalBeds];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < totalBeds; from += bedsPerTask) {
+            final int start = from;
+            final int end = Math.min(totalBeds, from + bedsPerTask);
+            futures.add(executor.submit(() -> {
+                for (int bed = start; bed < end; bed++) {
+                    stayCounts[bed] = writeBedHistory(base, null, bed, 0, firstDay, lastDay);
+                }
+                return null;
+            }));
+        }
+        await(futures);
+
+        long[] firstIds = new long[totalBeds];
+        long stays = 0;
+        for (int bed = 0; bed < totalBeds; bed++) {
+            firstIds[bed] = base.hospitalization + 1 + stays;
+            stays += stayCounts[bed];
+        }
+        if (base.hospitalization + stays > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many hospitalizations for INT IDs: " + stays);
+        }
+
+        futures.clear();
+        for (int from = 0, part = 0; from < totalBeds; from += bedsPerTask, part++) {
+            final int start = from;
+            final int end = Math.min(totalBeds, from + bedsPerTask);
+            final int partNumber = part;
+            futures.add(executor.submit(() -> {
+                try (TableWriter writer = openWriter("Hospitalization", HOSPITALIZATION_COLUMNS, partNumber)) {
+                    for (int bed = start; bed < end; bed++) {
+                        writeBedHistory(base, writer, bed, (int) firstIds[bed], firstDay, lastDay);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        await(futures);
+        logger.info("Generated {} hospitalizations over {} beds", stays, totalBeds);
+    }
+
+    /**
+     * Writes the full, non-overlapping stay history of a single bed. The stays are drawn from
+     * the bed's own random stream, so counting them and writing them give the same stays.
+     *
+     * @param writer  The destination, or null to only count the stays
+     * @param firstId The ID of the bed's first stay
+     * @return The number of stays written
+     */
+    private int writeBedHistory(IdBase base, TableWriter writer, int bed, int firstId, long firstDay, long lastDay)
+            throws IOException, SQLException {
+        int totalBeds = departments * wardsPerDepartment * bedsPerWard;
+        int bedPatients = (patients - bed + totalBeds - 1) / totalBeds;
+        if (bedPatients <= 0) {
+            return 0;
+        }
+
+        SplittableRandom random = rowRandom(4, bed);
+        int department = bed / (wardsPerDepartment * bedsPerWard);
+        int ward = bed / bedsPerWard % wardsPerDepartment + 1;
+        int bedNumber = bed % bedsPerWard + 1;
+        String departmentCode = departmentCode(department);
+        int doctorsInDepartment = (doctors - department + departments - 1) / departments;
+
+        int count = 0;
+        long day = firstDay + random.nextInt(7);
+        while (day <= lastDay) {
+            long admission = day;
+            long discharge = admission + lengthOfStay(random);
+
+            // Patient i is dealt to bed i % totalBeds; a few of each bed's patients are readmitted often
+            int patient = base.patient + 1 + bed + totalBeds * skewed(random, bedPatients);
+            int doctor = doctorEmployeeId(base, department + departments * random.nextInt(doctorsInDepartment));
+            // Diagnoses are skewed towards a few common ones, offset per department
+            String diagnosis = DIAGNOSES[(skewed(random, DIAGNOSES.length) + department) % DIAGNOSES.length];
+
+            if (writer != null) {
+                writer.write(firstId + count, patient, departmentCode, ward, bedNumber, diagnosis, doctor,
+                        LocalDate.ofEpochDay(admission),
+                        discharge <= lastDay ? LocalDate.ofEpochDay(discharge) : null);
+            }
+            count++;
+
+            // The next stay starts strictly after this one ends; beds idle 1-4 days on average
+            day = discharge + 1 + (long) (-Math.log(1 - random.nextDouble()) * 2);
+        }
+        return count;
+    }
+
+    private long lengthOfStay(SplittableRandom random) {
+        double los = Math.exp(LOS_MU + LOS_SIGMA * gaussian(random));
+        return Math.min(MAX_LOS_DAYS, Math.max(1, Math.round(los)));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller transform; SplittableRandom has no nextGaussian on older JDKs
+        double u1 = 1 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+
+    /**
+     * Picks an index in [0, n) with a bias towards small values.
+     */
+    private static int skewed(SplittableRandom random, int n) {
+        double u = random.nextDouble();
+        return (int) (n * u * u);
+    }
+
+    private SplittableRandom rowRandom(int table, long index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + table * 0xBF58476D1CE4E5B9L + index);
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String address(SplittableRandom random) {
+        return (1 + random.nextInt(999)) + " " + pick(random, STREETS) + ", City";
+    }
+
+    private static String phone(SplittableRandom random) {
+        return String.format("555-%04d", random.nextInt(10_000));
+    }
+
+    private static String departmentCode(int department) {
+        return String.format("G%03d", department + 1);
+    }
+
+    private int doctorEmployeeId(IdBase base, int doctorIndex) {
+        return base.employee + 1 + doctorIndex;
+    }
+
+    private int nurseEmployeeId(IdBase base, int nurseIndex) {
+        return base.employee + 1 + doctors + nurseIndex;
+    }
+
+    private static void await(List<Future<?>> futures) throws Exception {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw (Exception) e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Reads the highest existing IDs so generated rows never collide with existing data.
+     */
+    private IdBase readIdBase() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getBackend().openConnection();
+             Statement stmt = conn.createStatement()) {
+            return new IdBase(maxId(stmt, "SELECT MAX(employee_id) FROM Employee"),
+                    maxId(stmt, "SELECT MAX(patient_id) FROM Patient"),
+                    maxId(stmt, "SELECT MAX(hospitalization_id) FROM HospitalizationHistory"));
+        }
+    }
+
+    private static int maxId(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private TableWriter openWriter(String table, String columns, int part) throws IOException, SQLException {
+        if (csvDirectory != null) {
+            // Zero-padded so the load script's name order is the part order
+            return new CsvTableWriter(csvDirectory.resolve(String.format("%s-%05d.csv", table.toLowerCase(), part)));
+        }
+        return new JdbcTableWriter(table, columns);
+    }
+
+    /**
+     * Writes {@code load_data.sql} with one LOAD DATA statement per generated CSV file,
+     * in foreign key order.
+     */
+    private void writeLoadScript() throws IOException {
+        String[][] tables = {
+                {"Employee", "employee_id, first_name, surname, address, phone"},
+                {"Department", "department_code, name, building, director_id"},
+                {"Doctor", "employee_id, speciality"},
+                {"Nurse", "employee_id, rotation, salary, department_code"},
+                {"Ward", "department_code, ward_number, bed_count, supervisor_id"},
+                {"Patient", "patient_id, first_name, surname, address, phone"},
+                {"Hospitalization", HOSPITALIZATION_COLUMNS}
+        };
+
+        try (BufferedWriter out = Files.newBufferedWriter(csvDirectory.resolve("load_data.sql"),
+                StandardCharsets.UTF_8)) {
+            out.write("-- Generated by DataGenerator; run with mysql --local-infile=1\n");
+            out.write("USE hospital_db;\n");
+            for (String[] table : tables) {
+                String prefix = table[0].toLowerCase() + "-";
+                try (Stream<Path> files = Files.list(csvDirectory)) {
+                    List<Path> parts = new ArrayList<>();
+                    files.filter(p -> p.getFileName().toString().startsWith(prefix)).sorted().forEach(parts::add);
+                    for (Path part : parts) {
+                        out.write("LOAD DATA LOCAL INFILE '" + part.toAbsolutePath() + "' INTO TABLE " + table[0]
+                                + " FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' LINES TERMINATED BY '\\n' ("
+                                + table[1] + ");\n");
+                    }
+                }
+            }
+        }
+        logger.info("Wrote CSV files and load_data.sql to {}", csvDirectory.toAbsolutePath());
+    }
+
+    /**
+     * Highest existing IDs that generated IDs are offset from.
+     */
+    private static class IdBase {
+        final int employee;
+        final int patient;
+        final int hospitalization;
+
+        IdBase(int employee, int patient, int hospitalization) {
+            this.employee = employee;
+            this.patient = patient;
+            this.hospitalization = hospitalization;
+        }
+    }
+
+    /**
+     * Destination for generated rows of one table.
+     */
+    private interface TableWriter extends AutoCloseable {
+        void write(Object... values) throws IOException, SQLException;
+
+        @Override
+        void close() throws IOException, SQLException;
+    }
+
+    /**
+     * Writes rows through a batched prepared statement on a dedicated connection,
+     * committing once per batch.
+     */
+    private class JdbcTableWriter implements TableWriter {
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private int pending;
+
+        JdbcTableWriter(String table, String columns) throws SQLException {
+            int count = columns.split(",").length;
+            String placeholders = String.join(", ", Collections.nCopies(count, "?"));
+            this.conn = DatabaseConnection.getInstance().getBackend().openConnection();
+            this.conn.setAutoCommit(false);
+            this.stmt = conn.prepareStatement("INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")");
+        }
+
+        @Override
+        public void write(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value instanceof LocalDate) {
+                    stmt.setDate(i + 1, Date.valueOf((LocalDate) value));
+                } else if (value == null) {
+                    stmt.setNull(i + 1, Types.DATE);
+                } else {
+                    stmt.setObject(i + 1, value);
+                }
+            }
+            stmt.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pending > 0) {
+                stmt.executeBatch();
+                conn.commit();
+                rowsWritten.addAndGet(pending);
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                stmt.close();
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * Writes rows to a CSV file suitable for LOAD DATA. NULL is written as {@code \N}.
+     */
+    private class CsvTableWriter implements TableWriter {
+        private final BufferedWriter out;
+        private final StringBuilder line = new StringBuilder(128);
+
+        CsvTableWriter(Path file) throws IOException {
+            this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void write(Object... values) throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                Object value = values[i];
+                if (value == null) {
+                    line.append("\\N");
+                } else if (value instanceof String) {
+                    line.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+                } else {
+                    line.append(value);
+                }
+            }
+            line.append('\n');
+            out.write(line.toString());
+            rowsWritten.incrementAndGet();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
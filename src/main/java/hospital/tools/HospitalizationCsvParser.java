@@ -0,0 +1,128 @@
+package main.java.hospital.tools;
+
+import main.java.hospital.dao.DepartmentDAO;
+import main.java.hospital.dao.DoctorDAO;
+import main.java.hospital.dao.WardDAO;
+import main.java.hospital.model.Department;
+import main.java.hospital.model.Doctor;
+import main.java.hospital.model.Hospitalization;
+import main.java.hospital.model.Ward;
+import main.java.hospital.util.ValidationUtils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses admission extract records:
+ * {@code patient_id,department_code,ward_number,bed_number,diagnosis,doctor_id,admission_date,discharge_date}.
+ * Dates use ISO format (yyyy-MM-dd) and the discharge date may be empty.
+ *
+ * <p>Departments, wards and doctors are loaded once into memory, so foreign keys are
+ * resolved without a database round trip per record.</p>
+ */
+public class HospitalizationCsvParser implements CsvRecordParser<Hospitalization> {
+
+    private final Set<String> departmentCodes = new HashSet<>();
+    private final Map<String, Integer> wardBedCounts = new HashMap<>();
+    private final Set<Integer> doctorIds = new HashSet<>();
+
+    /**
+     * Creates a parser with lookups loaded from the database.
+     */
+    public HospitalizationCsvParser() {
+        for (Department department : new DepartmentDAO().findAll()) {
+            departmentCodes.add(department.getDepartmentCode());
+        }
+        for (Ward ward : new WardDAO().findAll()) {
+            wardBedCounts.put(ward.getWardId(), ward.getBedCount());
+        }
+        for (Doctor doctor : new DoctorDAO().findAll()) {
+            doctorIds.add(doctor.getEmployeeId());
+        }
+    }
+
+    @Override
+    public Hospitalization parse(String[] fields) {
+        if (fields.length != 8) {
+            throw new IllegalArgumentException("Expected 8 fields but found " + fields.length);
+        }
+
+        StringBuilder errorMessage = new StringBuilder();
+        Hospitalization hospitalization = new Hospitalization();
+
+        hospitalization.setPatientId(parseInteger(fields[0], "Patient ID", errorMessage));
+
+        String departmentCode = fields[1].trim();
+        if (!departmentCodes.contains(departmentCode)) {
+            errorMessage.append("Unknown department: ").append(departmentCode).append(". ");
+        }
+        hospitalization.setDepartmentCode(departmentCode);
+
+        Integer wardNumber = parseInteger(fields[2], "Ward number", errorMessage);
+        Integer bedNumber = parseInteger(fields[3], "Bed number", errorMessage);
+        if (wardNumber != null) {
+            Integer bedCount = wardBedCounts.get(departmentCode + "-" + wardNumber);
+            if (bedCount == null) {
+                errorMessage.append("Unknown ward: ").append(departmentCode).append('-').append(wardNumber).append(". ");
+            } else if (bedNumber != null && (bedNumber <= 0 || bedNumber > bedCount)) {
+                errorMessage.append("Bed number must be between 1 and ").append(bedCount).append(". ");
+            }
+        }
+        hospitalization.setWardNumber(wardNumber);
+        hospitalization.setBedNumber(bedNumber);
+
+        String diagnosis = fields[4].trim();
+        if (!ValidationUtils.isNotEmpty(diagnosis)) {
+            errorMessage.append("Diagnosis cannot be empty. ");
+        }
+        hospitalization.setDiagnosis(diagnosis);
+
+        Integer doctorId = parseInteger(fields[5], "Doctor ID", errorMessage);
+        if (doctorId != null && !doctorIds.contains(doctorId)) {
+            errorMessage.append("Unknown doctor: ").append(doctorId).append(". ");
+        }
+        hospitalization.setDoctorId(doctorId);
+
+        LocalDate admissionDate = parseDate(fields[6], "Admission date", errorMessage);
+        if (admissionDate == null && fields[6].trim().isEmpty()) {
+            errorMessage.append("Admission date cannot be empty. ");
+        }
+        LocalDate dischargeDate = parseDate(fields[7], "Discharge date", errorMessage);
+        if (admissionDate != null && dischargeDate != null && dischargeDate.isBefore(admissionDate)) {
+            errorMessage.append("Discharge date cannot be before admission date. ");
+        }
+        hospitalization.setAdmissionDate(admissionDate);
+        hospitalization.setDischargeDate(dischargeDate);
+
+        if (errorMessage.length() > 0) {
+            throw new IllegalArgumentException(errorMessage.toString().trim());
+        }
+        return hospitalization;
+    }
+
+    private static Integer parseInteger(String value, String field, StringBuilder errorMessage) {
+        String trimmed = value.trim();
+        if (!ValidationUtils.isValidInteger(trimmed)) {
+            errorMessage.append(field).append(" must be a valid integer. ");
+            return null;
+        }
+        return Integer.parseInt(trimmed);
+    }
+
+    private static LocalDate parseDate(String value, String field, StringBuilder errorMessage) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(trimmed);
+        } catch (DateTimeParseException e) {
+            errorMessage.append(field).append(" must be in yyyy-MM-dd format. ");
+            return null;
+        }
+    }
+}
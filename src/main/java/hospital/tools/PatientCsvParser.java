@@ -0,0 +1,52 @@
+package main.java.hospital.tools;
+
+import main.java.hospital.model.Patient;
+import main.java.hospital.util.ValidationUtils;
+
+/**
+ * Parses patient extract records: {@code first_name,surname,address,phone}.
+ * Applies the same rules as the Patient form.
+ */
+public class PatientCsvParser implements CsvRecordParser<Patient> {
+
+    @Override
+    public Patient parse(String[] fields) {
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Expected 4 fields but found " + fields.length);
+        }
+
+        StringBuilder errorMessage = new StringBuilder();
+        String firstName = fields[0].trim();
+        String surname = fields[1].trim();
+        String address = fields[2].trim();
+        String phone = fields[3].trim();
+
+        if (!ValidationUtils.isNotEmpty(firstName)) {
+            errorMessage.append("First name cannot be empty. ");
+        } else if (!ValidationUtils.isValidName(firstName)) {
+            errorMessage.append("First name contains invalid characters. ");
+        }
+
+        if (!ValidationUtils.isNotEmpty(surname)) {
+            errorMessage.append("Surname cannot be empty. ");
+        } else if (!ValidationUtils.isValidName(surname)) {
+            errorMessage.append("Surname contains invalid characters. ");
+        }
+
+        if (!ValidationUtils.isNotEmpty(address)) {
+            errorMessage.append("Address cannot be empty. ");
+        }
+
+        if (!ValidationUtils.isNotEmpty(phone)) {
+            errorMessage.append("Phone number cannot be empty. ");
+        } else if (!ValidationUtils.isValidPhoneNumber(phone)) {
+            errorMessage.append("Phone number is invalid. ");
+        }
+
+        if (errorMessage.length() > 0) {
+            throw new IllegalArgumentException(errorMessage.toString().trim());
+        }
+
+        return new Patient(firstName, surname, address, phone);
+    }
+}
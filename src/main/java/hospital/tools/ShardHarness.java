@@ -0,0 +1,305 @@
+package main.java.hospital.tools;
+
+import main.java.hospital.dao.BulkResult;
+import main.java.hospital.dao.DatabaseConnection;
+import main.java.hospital.dao.HospitalizationDAO;
+import main.java.hospital.dao.PatientDAO;
+import main.java.hospital.dao.ReportDAO;
+import main.java.hospital.dao.ShardSync;
+import main.java.hospital.model.Hospitalization;
+import main.java.hospital.model.Patient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the department shard routing against several in-memory databases on this machine.
+ *
+ * <p>The primary and every shard are embedded databases. The generated departments are
+ * spread over the shards and the primary, the generated data is moved to the shards with
+ * {@link ShardSync}, and the DAOs are then checked: each shard holds only its departments'
+ * stays, nothing is lost, lookups and list queries see every shard, new stays and patients
+ * get unique IDs on the right shard, reports add up and stays cannot be moved across shards.
+ * Each check prints OK or FAILED, and the exit code is 1 if any failed.</p>
+ *
+ * <p>Usage: {@code ShardHarness [--shards=N] [DataGenerator options]}</p>
+ */
+public class ShardHarness {
+    private static final Logger logger = LogManager.getLogger(ShardHarness.class);
+
+    private final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) {
+        int shards = 2;
+        int departments = 6;
+        List<String> generatorArgs = new ArrayList<>(Arrays.asList("--patients=2000", "--doctors=30",
+                "--nurses=30", "--wards=2", "--beds=5", "--years=2"));
+        for (String arg : args) {
+            if (arg.startsWith("--shards=")) {
+                shards = Integer.parseInt(arg.substring("--shards=".length()));
+            } else {
+                if (arg.startsWith("--departments=")) {
+                    departments = Integer.parseInt(arg.substring("--departments=".length()));
+                }
+                generatorArgs.add(arg);
+            }
+        }
+        generatorArgs.add("--departments=" + departments);
+
+        configure(shards, departments);
+        ShardHarness harness = new ShardHarness();
+        try {
+            harness.run(generatorArgs.toArray(new String[0]));
+        } catch (Exception e) {
+            logger.error("Shard harness failed", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+        System.out.println(harness.failures.isEmpty() ? "All checks passed" : harness.failures.size() + " checks failed");
+        System.exit(harness.failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Configures embedded shards s1..sN. Department i goes to shard i modulo N + 1, where 0 is
+     * the primary, so the primary keeps some departments as well.
+     */
+    private static void configure(int shards, int departments) {
+        System.setProperty("db.backend", "embedded");
+        List<String> names = new ArrayList<>();
+        for (int s = 1; s <= shards; s++) {
+            names.add("s" + s);
+            System.setProperty("db.shard.s" + s + ".backend", "embedded");
+            List<String> codes = new ArrayList<>();
+            for (int d = 0; d < departments; d++) {
+                if (d % (shards + 1) == s) {
+                    codes.add(String.format("G%03d", d + 1));
+                }
+            }
+            System.setProperty("db.shard.s" + s + ".departments", String.join(",", codes));
+        }
+        System.setProperty("db.shards", String.join(",", names));
+    }
+
+    private void run(String[] generatorArgs) throws SQLException {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        DataGenerator.main(generatorArgs);
+        int generated;
+        try (Connection conn = db.getConnection()) {
+            generated = countStays(conn);
+        }
+
+        ShardSync sync = ShardSync.getInstance();
+        sync.copyReferenceData();
+        int moved = sync.moveHospitalizations();
+        logger.info("Moved {} of {} stays to the shards", moved, generated);
+
+        checkPlacement(db);
+        int total = 0;
+        for (int count : db.onEveryShard(ShardHarness::countStays)) {
+            total += count;
+        }
+        check("all stays kept (" + generated + ")", total == generated);
+
+        HospitalizationDAO hospitalizationDAO = new HospitalizationDAO();
+        List<Hospitalization> current = hospitalizationDAO.findCurrentHospitalizations();
+        int currentTotal = 0;
+        for (int count : db.onEveryShard(ShardHarness::countCurrent)) {
+            currentTotal += count;
+        }
+        check("current stays listed from every shard", current.size() == currentTotal);
+        Hospitalization sample = current.stream()
+                .filter(hospitalization -> !db.getShardName(hospitalization.getDepartmentCode()).equals("primary"))
+                .findFirst().orElse(null);
+        check("a stay on a shard exists", sample != null);
+        if (sample == null) {
+            return;
+        }
+        check("findById on a shard", hospitalizationDAO.findById(sample.getHospitalizationId())
+                .map(found -> sample.getDepartmentCode().equals(found.getDepartmentCode())).orElse(false));
+
+        checkOccupancy(current);
+        checkInserts(db, hospitalizationDAO, sample);
+        checkPatients(db);
+        checkCrossShardMoves(db, hospitalizationDAO, sample);
+    }
+
+    private void checkPlacement(DatabaseConnection db) throws SQLException {
+        List<String> names = db.getShardNames();
+        List<List<String>> departments = db.onEveryShard(conn -> {
+            List<String> codes = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT DISTINCT department_code FROM HospitalizationHistory")) {
+                while (rs.next()) {
+                    codes.add(rs.getString(1));
+                }
+            }
+            return codes;
+        });
+        boolean placed = true;
+        for (int i = 0; i < names.size(); i++) {
+            for (String departmentCode : departments.get(i)) {
+                if (!db.getShardName(departmentCode).equals(names.get(i))) {
+                    logger.warn("Shard {} holds stays of {}", names.get(i), departmentCode);
+                    placed = false;
+                }
+            }
+        }
+        check("each shard holds only its departments' stays", placed);
+    }
+
+    private void checkOccupancy(List<Hospitalization> current) {
+        long occupied = 0;
+        for (Map<String, Object> ward : new ReportDAO().findWardOccupancy()) {
+            occupied += ((Number) ward.get("occupied_beds")).longValue();
+        }
+        check("ward occupancy adds up the shards (" + current.size() + ")", occupied == current.size());
+
+        Map<String, Object> statistics = new ReportDAO().getPatientStatistics();
+        check("patient statistics count every shard's current patients",
+                statistics.get("current_patients") != null && statistics.get("avg_stay") != null
+                        && ((Number) statistics.get("current_patients")).longValue()
+                        == current.stream().map(Hospitalization::getPatientId).distinct().count());
+    }
+
+    private void checkInserts(DatabaseConnection db, HospitalizationDAO dao, Hospitalization sample)
+            throws SQLException {
+        LocalDate admitted = LocalDate.now().minusYears(5);
+        Hospitalization single = stay(sample.getPatientId(), sample.getDepartmentCode(), sample.getDoctorId(), admitted);
+        int singleId = dao.insert(single).orElse(-1);
+        check("insert on a shard", singleId > 0 && isOnShard(db, sample.getDepartmentCode(), singleId));
+
+        List<Hospitalization> batch = new ArrayList<>();
+        for (int d = 1; d <= countAllDepartments(db); d++) {
+            batch.add(stay(sample.getPatientId(), String.format("G%03d", d), sample.getDoctorId(), admitted.plusDays(d)));
+        }
+        List<Integer> ids = dao.insertAll(batch);
+        boolean routed = ids.size() == batch.size();
+        for (Hospitalization hospitalization : batch) {
+            routed &= isOnShard(db, hospitalization.getDepartmentCode(), hospitalization.getHospitalizationId());
+        }
+        check("batch insert routes each stay to its shard", routed);
+
+        Set<Integer> unique = new HashSet<>(ids);
+        unique.add(singleId);
+        List<Hospitalization> all = dao.findAll(true);
+        Set<Integer> existing = new HashSet<>();
+        all.forEach(hospitalization -> existing.add(hospitalization.getHospitalizationId()));
+        check("stay IDs are unique across shards", unique.size() == ids.size() + 1 && existing.size() == all.size());
+    }
+
+    private void checkPatients(DatabaseConnection db) throws SQLException {
+        PatientDAO patientDAO = new PatientDAO();
+        int patientId = patientDAO.insert(new Patient("Shard", "Harness", "1 Test Road", "555-0000")).orElse(-1);
+        List<Integer> batchIds = patientDAO.insertAll(Arrays.asList(
+                new Patient("Shard", "Batch", "2 Test Road", "555-0001"),
+                new Patient("Shard", "Batch", "3 Test Road", "555-0002")));
+        List<Integer> all = new ArrayList<>(batchIds);
+        all.add(patientId);
+        check("patient IDs allocated", patientId > 0 && batchIds.size() == 2 && new HashSet<>(all).size() == 3);
+
+        boolean copied = true;
+        for (int count : db.onEveryShard(conn -> countPatients(conn, all))) {
+            copied &= count == all.size();
+        }
+        check("new patients copied to every shard", copied);
+    }
+
+    private void checkCrossShardMoves(DatabaseConnection db, HospitalizationDAO dao, Hospitalization sample) {
+        String otherDepartment = null;
+        for (int d = 1; d <= countAllDepartments(db); d++) {
+            String code = String.format("G%03d", d);
+            if (!db.getShardName(code).equals(db.getShardName(sample.getDepartmentCode()))) {
+                otherDepartment = code;
+                break;
+            }
+        }
+
+        Hospitalization moved = new Hospitalization(dao.findById(sample.getHospitalizationId()).get());
+        moved.setDepartmentCode(otherDepartment);
+        check("update to another shard's department refused", !dao.update(moved));
+
+        BulkResult transfer = dao.transferPatients(Collections.singletonList(sample.getHospitalizationId()),
+                otherDepartment, 1);
+        check("transfer to another shard's ward refused", transfer.count(BulkResult.Status.OTHER_SHARD) == 1);
+    }
+
+    private static Hospitalization stay(int patientId, String departmentCode, int doctorId, LocalDate admitted) {
+        Hospitalization hospitalization = new Hospitalization(patientId, departmentCode, 1, 1, "Shard harness",
+                doctorId, admitted);
+        hospitalization.setDischargeDate(admitted.plusDays(1));
+        return hospitalization;
+    }
+
+    private static boolean isOnShard(DatabaseConnection db, String departmentCode, Integer hospitalizationId)
+            throws SQLException {
+        if (hospitalizationId == null) {
+            return false;
+        }
+        try (Connection conn = db.getConnection(departmentCode);
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT department_code FROM Hospitalization WHERE hospitalization_id = ?")) {
+            stmt.setInt(1, hospitalizationId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && departmentCode.equals(rs.getString(1));
+            }
+        }
+    }
+
+    private static int countStays(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM HospitalizationHistory")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int countPatients(Connection conn, List<Integer> patientIds) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM Patient WHERE patient_id IN (" +
+                String.join(", ", Collections.nCopies(patientIds.size(), "?")) + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < patientIds.size(); i++) {
+                stmt.setInt(i + 1, patientIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static int countCurrent(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Hospitalization WHERE discharge_date IS NULL")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int countAllDepartments(DatabaseConnection db) {
+        try (Connection conn = db.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Department")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot count departments", e);
+        }
+    }
+
+    private void check(String name, boolean passed) {
+        System.out.println((passed ? "OK      " : "FAILED  ") + name);
+        if (!passed) {
+            failures.add(name);
+        }
+    }
+}
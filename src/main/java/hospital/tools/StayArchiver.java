@@ -0,0 +1,49 @@
+package main.java.hospital.tools;
+
+import main.java.hospital.dao.DataAccessException;
+import main.java.hospital.dao.DatabaseConnection;
+import main.java.hospital.dao.HospitalizationArchiver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+
+/**
+ * Archives long-discharged stays once, for running from a scheduler on a single machine
+ * instead of from every client. Unlike the background job it runs whether or not
+ * {@code db.archive.enabled} is set.
+ *
+ * <p>Usage: {@code StayArchiver [--before=YYYY-MM-DD]}; without a date, stays discharged
+ * more than {@code db.archive.horizonDays} ago are archived.</p>
+ */
+public class StayArchiver {
+    private static final Logger logger = LogManager.getLogger(StayArchiver.class);
+
+    /**
+     * Command line entry point.
+     *
+     * @param args Options
+     */
+    public static void main(String[] args) {
+        LocalDate before = null;
+        for (String arg : args) {
+            if (arg.startsWith("--before=")) {
+                before = LocalDate.parse(arg.substring("--before=".length()));
+            } else {
+                System.err.println("Usage: StayArchiver [--before=YYYY-MM-DD]");
+                System.exit(2);
+            }
+        }
+
+        HospitalizationArchiver archiver = HospitalizationArchiver.getInstance();
+        try {
+            int archived = before != null ? archiver.archive(before) : archiver.archive();
+            System.out.println("Archived " + archived + " stays");
+        } catch (DataAccessException e) {
+            logger.error("Archiving failed", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package main.java.hospital.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility class for creating executors.
+ */
+public class ConcurrencyUtils {
+    private static final Logger logger = LogManager.getLogger(ConcurrencyUtils.class);
+
+    /**
+     * Creates an executor that runs each task on its own virtual thread when the JDK supports
+     * them (Java 21+). On older JDKs it falls back to a fixed pool of daemon platform threads.
+     *
+     * @param name            The thread name prefix for the fallback pool
+     * @param fallbackThreads The size of the fallback pool
+     * @return A new ExecutorService
+     */
+    public static ExecutorService newPerTaskExecutor(String name, int fallbackThreads) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Using virtual threads for {}", name);
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads unavailable, using {} platform threads for {}", fallbackThreads, name);
+            return Executors.newFixedThreadPool(fallbackThreads, daemonThreadFactory(name));
+        }
+    }
+
+    /**
+     * Creates a thread factory for named daemon threads.
+     *
+     * @param name The thread name prefix
+     * @return A new ThreadFactory
+     */
+    public static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}